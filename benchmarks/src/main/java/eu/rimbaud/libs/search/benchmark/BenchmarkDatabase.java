@@ -0,0 +1,90 @@
+package eu.rimbaud.libs.search.benchmark;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.Persistence;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An embedded H2 database holding the benchmark entities, seeded with generated rows:
+ * <ul><li>100 publishers</li>
+ * <li>1000 authors, each with a publisher</li>
+ * <li>the given number of books, each with an author, published between 1925 and 2024</li></ul>
+ */
+final class BenchmarkDatabase implements AutoCloseable {
+
+    static final int PUBLISHERS = 100;
+    static final int AUTHORS = 1000;
+
+    private static final AtomicInteger DATABASES = new AtomicInteger();
+
+    private final EntityManagerFactory entityManagerFactory;
+    private final SingleConnectionDataSource dataSource;
+
+    /**
+     * Create and seed a database
+     *
+     * @param books      the number of books
+     * @param properties additional persistence unit properties
+     */
+    BenchmarkDatabase(int books, Map<String, Object> properties) {
+        Map<String, Object> all = new HashMap<>(properties);
+        String url = "jdbc:h2:mem:benchmark" + DATABASES.incrementAndGet() + ";DB_CLOSE_DELAY=-1";
+        all.put("jakarta.persistence.jdbc.url", url);
+        this.entityManagerFactory = Persistence.createEntityManagerFactory("benchmark", all);
+        this.dataSource = new SingleConnectionDataSource(url, "sa", "", true);
+        seed(books);
+    }
+
+    BenchmarkDatabase(int books) {
+        this(books, Map.of());
+    }
+
+    EntityManager createEntityManager() {
+        return entityManagerFactory.createEntityManager();
+    }
+
+    EntityManagerFactory entityManagerFactory() {
+        return entityManagerFactory;
+    }
+
+    /**
+     * Get a data source on the database, reusing one connection, as a pool would
+     *
+     * @return the data source
+     */
+    DataSource dataSource() {
+        return dataSource;
+    }
+
+    private void seed(int books) {
+        EntityManager em = createEntityManager();
+        try {
+            em.getTransaction().begin();
+            em.createNativeQuery("insert into Publisher (id, name, city) "
+                    + "select x, 'Publisher ' || x, 'City ' || mod(x, 50) from system_range(1, " + PUBLISHERS + ")").executeUpdate();
+            em.createNativeQuery("insert into Author (id, name, country, publisher_id) "
+                    + "select x, 'Author ' || x, case mod(x, 3) when 0 then 'FR' when 1 then 'UK' else 'US' end, mod(x, " + PUBLISHERS + ") + 1 "
+                    + "from system_range(1, " + AUTHORS + ")").executeUpdate();
+            em.createNativeQuery("insert into Book (id, title, publicationDate) "
+                    + "select x, 'Book ' || x, dateadd(day, mod(x * 7919, 36500), date '1925-01-01') from system_range(1, " + books + ")").executeUpdate();
+            em.createNativeQuery("insert into Book_Author (Book_id, authors_id) "
+                    + "select x, mod(x, " + AUTHORS + ") + 1 from system_range(1, " + books + ")").executeUpdate();
+            em.createNativeQuery("create index book_publication_date on Book (publicationDate)").executeUpdate();
+            em.getTransaction().commit();
+        } finally {
+            em.close();
+        }
+    }
+
+    @Override
+    public void close() {
+        dataSource.destroy();
+        entityManagerFactory.close();
+    }
+}
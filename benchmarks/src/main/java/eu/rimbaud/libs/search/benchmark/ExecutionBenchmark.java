@@ -0,0 +1,86 @@
+package eu.rimbaud.libs.search.benchmark;
+
+import eu.rimbaud.libs.search.KeysetPage;
+import eu.rimbaud.libs.search.SearchExecutor;
+import eu.rimbaud.libs.search.SearchSpecification;
+import eu.rimbaud.libs.search.benchmark.entity.Author;
+import eu.rimbaud.libs.search.benchmark.entity.Book;
+import jakarta.persistence.EntityManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.Sort;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the end-to-end execution of {@link SearchSpecification} through a {@link SearchExecutor},
+ * against an embedded H2 database seeded with 10^4 to 10^6 books.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class ExecutionBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    int books;
+
+    private BenchmarkDatabase database;
+    private EntityManager entityManager;
+    private SearchExecutor<Book> executor;
+
+    @Setup
+    public void setup() {
+        database = new BenchmarkDatabase(books);
+        entityManager = database.createEntityManager();
+        executor = new SearchExecutor<>(entityManager, Book.class);
+    }
+
+    @TearDown
+    public void tearDown() {
+        entityManager.close();
+        database.close();
+    }
+
+    @Benchmark
+    public List<Book> findByTitle() {
+        var spec = new SearchSpecification<Book>()
+                .add(Book.Fields.title).eq("Book " + ThreadLocalRandom.current().nextInt(1, books + 1));
+        List<Book> result = executor.findAll(spec);
+        entityManager.clear();
+        return result;
+    }
+
+    @Benchmark
+    public KeysetPage<Book> findPageByDateAndAuthorCountry() {
+        var from = LocalDate.of(1925, 1, 1).plusDays(ThreadLocalRandom.current().nextInt(36000));
+        var spec = new SearchSpecification<Book>()
+                .add(Book.Fields.publicationDate).gte(from)
+                .add(Book.Fields.authors, Author.Fields.country).eq("FR");
+        KeysetPage<Book> page = executor.findPage(spec, Sort.by(Book.Fields.publicationDate), null, 20);
+        entityManager.clear();
+        return page;
+    }
+
+    @Benchmark
+    public long countLikeTitle() {
+        var spec = new SearchSpecification<Book>()
+                .add(Book.Fields.title).like(String.valueOf(ThreadLocalRandom.current().nextInt(100, 1000)));
+        return executor.count(spec);
+    }
+}
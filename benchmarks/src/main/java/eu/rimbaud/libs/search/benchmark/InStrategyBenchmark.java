@@ -0,0 +1,77 @@
+package eu.rimbaud.libs.search.benchmark;
+
+import eu.rimbaud.libs.search.InStrategyEnum;
+import eu.rimbaud.libs.search.SearchExecutor;
+import eu.rimbaud.libs.search.SearchSpecification;
+import eu.rimbaud.libs.search.benchmark.entity.Book;
+import jakarta.persistence.EntityManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+/**
+ * Compares the {@link InStrategyEnum} of an "in" on large id lists, against an embedded H2 database seeded with
+ * 10^4 books. Half of the books are searched, the list being completed with unknown ids.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class InStrategyBenchmark {
+
+    static final int BOOKS = 10_000;
+
+    @Param
+    InStrategyEnum strategy;
+
+    @Param({"5000", "50000"})
+    int ids;
+
+    private BenchmarkDatabase database;
+    private EntityManager entityManager;
+    private SearchExecutor<Book> executor;
+    private List<Long> searched;
+
+    @Setup
+    public void setup() {
+        database = new BenchmarkDatabase(BOOKS);
+        entityManager = database.createEntityManager();
+        executor = new SearchExecutor<>(entityManager, Book.class);
+        searched = LongStream.concat(
+                        LongStream.rangeClosed(1, BOOKS).filter(id -> id % 2 == 0),
+                        LongStream.range(BOOKS + 1, BOOKS + 1 + ids - BOOKS / 2))
+                .boxed()
+                .toList();
+    }
+
+    @TearDown
+    public void tearDown() {
+        entityManager.close();
+        database.close();
+    }
+
+    @Benchmark
+    public List<Book> findByIds() {
+        var spec = new SearchSpecification<Book>()
+                .inStrategy(strategy)
+                .add(Book.Fields.id).in(searched);
+        List<Book> result = executor.findAll(spec);
+        entityManager.clear();
+        return result;
+    }
+}
@@ -0,0 +1,92 @@
+package eu.rimbaud.libs.search.benchmark;
+
+import eu.rimbaud.libs.search.InStrategyEnum;
+import eu.rimbaud.libs.search.JdbcSearchExecutor;
+import eu.rimbaud.libs.search.SearchExecutor;
+import eu.rimbaud.libs.search.SearchSpecification;
+import eu.rimbaud.libs.search.benchmark.entity.Author;
+import eu.rimbaud.libs.search.benchmark.entity.Book;
+import jakarta.persistence.EntityManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.Sort;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the execution of the same {@link SearchSpecification} through a {@link SearchExecutor} and a
+ * {@link JdbcSearchExecutor}, against an embedded H2 database seeded with 10^4 to 10^5 books.
+ * <p>Run with {@code -prof gc} to compare the allocation rates as well.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class JdbcExecutionBenchmark {
+
+    @Param({"10000", "100000"})
+    int books;
+
+    private BenchmarkDatabase database;
+    private EntityManager entityManager;
+    private SearchExecutor<Book> executor;
+    private JdbcSearchExecutor<Book> jdbcExecutor;
+
+    @Setup
+    public void setup() {
+        database = new BenchmarkDatabase(books);
+        entityManager = database.createEntityManager();
+        executor = new SearchExecutor<>(entityManager, Book.class);
+        jdbcExecutor = new JdbcSearchExecutor<>(database.entityManagerFactory(), database.dataSource(), Book.class);
+    }
+
+    @TearDown
+    public void tearDown() {
+        entityManager.close();
+        database.close();
+    }
+
+    @Benchmark
+    public List<Object> criteriaFindIds() {
+        return executor.findIds(specification(), Sort.by(Book.Fields.publicationDate));
+    }
+
+    @Benchmark
+    public List<Object> jdbcFindIds() {
+        return jdbcExecutor.findIds(specification(), Sort.by(Book.Fields.publicationDate));
+    }
+
+    @Benchmark
+    public long criteriaCount() {
+        return executor.count(specification());
+    }
+
+    @Benchmark
+    public long jdbcCount() {
+        return jdbcExecutor.count(specification());
+    }
+
+    private SearchSpecification<Book> specification() {
+        var random = ThreadLocalRandom.current();
+        var from = LocalDate.of(1925, 1, 1).plusDays(random.nextInt(36000));
+        return new SearchSpecification<Book>()
+                .inStrategy(InStrategyEnum.PADDING)
+                .add(Book.Fields.publicationDate).between(from, from.plusDays(30))
+                .add(Book.Fields.authors, Author.Fields.country).in(List.of("FR", "UK").subList(0, random.nextInt(1, 3)));
+    }
+}
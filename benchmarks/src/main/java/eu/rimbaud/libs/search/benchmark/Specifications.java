@@ -0,0 +1,43 @@
+package eu.rimbaud.libs.search.benchmark;
+
+import eu.rimbaud.libs.search.SearchSpecification;
+import eu.rimbaud.libs.search.benchmark.entity.Author;
+import eu.rimbaud.libs.search.benchmark.entity.Book;
+import eu.rimbaud.libs.search.benchmark.entity.Publisher;
+
+/**
+ * Builds the {@link SearchSpecification} of the benchmarks.
+ */
+final class Specifications {
+
+    private Specifications() {
+    }
+
+    /**
+     * Build a {@link SearchSpecification} with string criteria on a path of the given depth:
+     * <code>title</code>, <code>authors.name</code> or <code>authors.publisher.name</code>.
+     * The criteria alternate "like", "equals" and "starts with" operators.
+     *
+     * @param criteria the number of criteria
+     * @param depth    the path depth, from 1 to 3
+     * @return the specification
+     */
+    static SearchSpecification<Book> of(int criteria, int depth) {
+        String[] path = switch (depth) {
+            case 1 -> new String[]{Book.Fields.title};
+            case 2 -> new String[]{Book.Fields.authors, Author.Fields.name};
+            case 3 -> new String[]{Book.Fields.authors, Author.Fields.publisher, Publisher.Fields.name};
+            default -> throw new IllegalArgumentException("Unsupported depth: " + depth);
+        };
+        var spec = new SearchSpecification<Book>();
+        for (var i = 0; i < criteria; ++i) {
+            var criterion = spec.add(path);
+            switch (i % 3) {
+                case 0 -> criterion.like("value " + i);
+                case 1 -> criterion.eq("value " + i);
+                default -> criterion.startsWith("value " + i);
+            }
+        }
+        return spec;
+    }
+}
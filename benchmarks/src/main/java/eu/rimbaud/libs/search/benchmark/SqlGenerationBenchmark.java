@@ -0,0 +1,68 @@
+package eu.rimbaud.libs.search.benchmark;
+
+import eu.rimbaud.libs.search.benchmark.entity.Book;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Root;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the translation of a {@link eu.rimbaud.libs.search.SearchSpecification} into SQL: the query plan cache
+ * is disabled, so that each execution translates the criteria query, and the tables are empty, so that the execution
+ * itself is negligible.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SqlGenerationBenchmark {
+
+    @Param({"1", "4", "16"})
+    int criteria;
+
+    @Param({"1", "3"})
+    int depth;
+
+    private BenchmarkDatabase database;
+    private EntityManager entityManager;
+    private CriteriaBuilder cb;
+
+    @Setup
+    public void setup() {
+        database = new BenchmarkDatabase(0, Map.of("hibernate.query.plan_cache_enabled", false));
+        entityManager = database.createEntityManager();
+        cb = entityManager.getCriteriaBuilder();
+    }
+
+    @TearDown
+    public void tearDown() {
+        entityManager.close();
+        database.close();
+    }
+
+    @Benchmark
+    public List<Book> translate() {
+        CriteriaQuery<Book> query = cb.createQuery(Book.class);
+        Root<Book> root = query.from(Book.class);
+        query.where(Specifications.of(criteria, depth).toPredicate(root, query, cb));
+        return entityManager.createQuery(query).getResultList();
+    }
+}
@@ -0,0 +1,29 @@
+package eu.rimbaud.libs.search.benchmark.entity;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.Table;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.experimental.FieldNameConstants;
+
+@NoArgsConstructor(access = AccessLevel.PROTECTED, force = true)
+@FieldNameConstants
+@Getter
+@Entity
+@Table
+public class Author {
+
+    @Id
+    private final Long id;
+
+    private final String name;
+
+    private final String country;
+
+    @ManyToOne
+    private final Publisher publisher;
+
+}
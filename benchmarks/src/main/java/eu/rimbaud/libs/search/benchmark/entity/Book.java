@@ -0,0 +1,32 @@
+package eu.rimbaud.libs.search.benchmark.entity;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.ManyToMany;
+import jakarta.persistence.Table;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.experimental.FieldNameConstants;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@NoArgsConstructor(access = AccessLevel.PROTECTED, force = true)
+@FieldNameConstants
+@Getter
+@Entity
+@Table
+public class Book {
+
+    @Id
+    private final Long id;
+
+    private final String title;
+
+    private final LocalDate publicationDate;
+
+    @ManyToMany
+    private final List<Author> authors;
+
+}
@@ -0,0 +1,168 @@
+package eu.rimbaud.libs.search;
+
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Resolves and caches the accessors of the fields of a type, used to evaluate {@link SearchCriterion} in memory.
+ * The accessors are built once per type and field, through {@link LambdaMetafactory} for getters
+ * and {@link MethodHandle} for fields without getter.
+ */
+final class Accessors {
+
+    private static final ClassValue<Map<String, Accessor>> ACCESSORS = new ClassValue<>() {
+        @Override
+        protected Map<String, Accessor> computeValue(Class<?> type) {
+            return new ConcurrentHashMap<>();
+        }
+    };
+
+    private Accessors() {
+    }
+
+    /**
+     * Get the accessor of a field
+     *
+     * @param type  the type declaring the field, or one of its subtypes
+     * @param field the field name
+     * @return the accessor
+     * @throws IllegalArgumentException if the type has no such field
+     */
+    static Accessor get(Class<?> type, String field) {
+        return ACCESSORS.get(type).computeIfAbsent(field, f -> resolve(type, f));
+    }
+
+    private static Accessor resolve(Class<?> type, String field) {
+        Member member = findGetter(type, field);
+        if (member == null) {
+            member = findField(type, field);
+        }
+        if (member == null) {
+            throw new IllegalArgumentException("No field '" + field + "' on " + type.getName());
+        }
+        try {
+            var lookup = MethodHandles.privateLookupIn(member.getDeclaringClass(), MethodHandles.lookup());
+            if (member instanceof Method method) {
+                return new Accessor(getter(lookup, lookup.unreflect(method)), method.getGenericReturnType());
+            }
+            var handle = lookup.unreflectGetter((Field) member).asType(MethodType.methodType(Object.class, Object.class));
+            return new Accessor(invoker(handle), ((Field) member).getGenericType());
+        } catch (Throwable e) {
+            throw new IllegalStateException("Cannot access field '" + field + "' on " + type.getName(), e);
+        }
+    }
+
+    /**
+     * Build a getter through {@link LambdaMetafactory}, performing like a direct call once inlined,
+     * or through the {@link MethodHandle} if the lookup cannot spin a lambda for the declaring class.
+     */
+    @SuppressWarnings("unchecked")
+    private static Function<Object, Object> getter(MethodHandles.Lookup lookup, MethodHandle handle) {
+        try {
+            return (Function<Object, Object>) LambdaMetafactory.metafactory(lookup, "apply",
+                            MethodType.methodType(Function.class),
+                            MethodType.methodType(Object.class, Object.class),
+                            handle,
+                            handle.type().wrap())
+                    .getTarget()
+                    .invokeExact();
+        } catch (Throwable e) {
+            return invoker(handle.asType(MethodType.methodType(Object.class, Object.class)));
+        }
+    }
+
+    private static Function<Object, Object> invoker(MethodHandle handle) {
+        return o -> {
+            try {
+                return handle.invokeExact(o);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new IllegalStateException(e);
+            }
+        };
+    }
+
+    private static Method findGetter(Class<?> type, String field) {
+        var suffix = Character.toUpperCase(field.charAt(0)) + field.substring(1);
+        for (var name : new String[]{"get" + suffix, "is" + suffix, field}) {
+            for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+                try {
+                    Method method = c.getDeclaredMethod(name);
+                    if (!Modifier.isStatic(method.getModifiers()) && method.getReturnType() != void.class) {
+                        return method;
+                    }
+                } catch (NoSuchMethodException e) {
+                    // look in the super class
+                }
+            }
+        }
+        return null;
+    }
+
+    private static Field findField(Class<?> type, String field) {
+        for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+            try {
+                Field f = c.getDeclaredField(field);
+                if (!Modifier.isStatic(f.getModifiers())) {
+                    return f;
+                }
+            } catch (NoSuchFieldException e) {
+                // look in the super class
+            }
+        }
+        return null;
+    }
+
+    /**
+     * The accessor of a field
+     *
+     * @param getter      the function reading the field value
+     * @param genericType the declared type of the field
+     */
+    record Accessor(Function<Object, Object> getter, Type genericType) {
+
+        /**
+         * Check whether the field is a {@literal Collection}
+         *
+         * @return true if the field is a {@literal Collection}
+         */
+        boolean isCollection() {
+            return Collection.class.isAssignableFrom(rawType(genericType));
+        }
+
+        /**
+         * Get the type of the field value, or of its elements for a {@literal Collection}
+         *
+         * @return the value or element type
+         */
+        Class<?> valueType() {
+            if (isCollection() && genericType instanceof ParameterizedType p && p.getActualTypeArguments().length == 1) {
+                return rawType(p.getActualTypeArguments()[0]);
+            }
+            return rawType(genericType);
+        }
+
+        private static Class<?> rawType(Type type) {
+            if (type instanceof Class<?> c) {
+                return c;
+            }
+            if (type instanceof ParameterizedType p) {
+                return rawType(p.getRawType());
+            }
+            return Object.class;
+        }
+    }
+}
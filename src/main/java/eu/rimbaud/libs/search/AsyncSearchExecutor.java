@@ -0,0 +1,298 @@
+package eu.rimbaud.libs.search;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.QueryTimeoutException;
+import jakarta.persistence.TypedQuery;
+import org.hibernate.Session;
+import org.hibernate.SessionEventListener;
+import org.hibernate.jpa.SpecHints;
+import org.springframework.data.domain.Sort;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Executes {@link SearchSpecification} asynchronously, each search running on a virtual thread with its own
+ * {@link EntityManager}, outside the transaction of the caller, if any. The returned entities are detached.
+ * <p>Each search has a timeout, covering both its wait for a permit and its query: the number of searches running at
+ * the same time is limited, e.g. to leave connections of the pool to the other requests, and a search waiting longer
+ * than its timeout fails with a {@link QueryTimeoutException}, without running. The remaining time is given to the
+ * database as the <code>jakarta.persistence.query.timeout</code> of the queries, rounded up to the second,
+ * the JDBC timeouts being in seconds: a query running longer fails with a {@literal QueryTimeoutException} too.
+ * Under overload, the searches thus fail after their timeout instead of queuing without bound.</p>
+ * <p>Cancelling a returned future cancels the search: a search waiting for a permit never runs, a search whose statement
+ * is not executed yet stops right before executing it, and the JDBC statement of a running search is cancelled, through
+ * {@link Session#cancelQuery()}. Only a cancellation racing with the very start of the execution depends on the JDBC
+ * driver, some of them ignoring a cancellation received before the statement runs. The futures complete once the
+ * permit of their search is released.</p>
+ *
+ * @param <T> the type of the entity the {@literal SearchSpecification} operates on.
+ */
+public class AsyncSearchExecutor<T> implements AutoCloseable {
+
+    private static final long SECOND_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final EntityManagerFactory entityManagerFactory;
+    private final Duration defaultTimeout;
+    private final Semaphore permits;
+    private final SearchExecutor<T> queries;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    /**
+     * Construct an {@link AsyncSearchExecutor}
+     *
+     * @param entityManagerFactory the entity manager factory the searches are run with, must not be {@literal null}.
+     * @param domainClass          the entity type, must not be {@literal null}.
+     * @param concurrency          the maximum number of searches running at the same time, must be positive
+     * @param defaultTimeout       the timeout of the searches run without their own, must be positive
+     */
+    public AsyncSearchExecutor(EntityManagerFactory entityManagerFactory, Class<T> domainClass, int concurrency, Duration defaultTimeout) {
+        if (concurrency <= 0) {
+            throw new IllegalArgumentException("Concurrency must be positive: " + concurrency);
+        }
+        checkTimeout(defaultTimeout);
+        this.entityManagerFactory = entityManagerFactory;
+        this.defaultTimeout = defaultTimeout;
+        this.permits = new Semaphore(concurrency, true);
+        // never executed, only holds the cached queries shared by the searches
+        this.queries = new SearchExecutor<>(null, domainClass);
+    }
+
+    /**
+     * Find all entities matching the {@link SearchSpecification}, sorted, within the default timeout
+     *
+     * @param spec the specification, must not be {@literal null}.
+     * @param sort the sort, must not be {@literal null}.
+     * @return the future of the matching entities, detached
+     * @see SearchExecutor#findAll(SearchSpecification, Sort)
+     */
+    public CompletableFuture<List<T>> findAll(SearchSpecification<T> spec, Sort sort) {
+        return findAll(spec, sort, defaultTimeout);
+    }
+
+    /**
+     * Find all entities matching the {@link SearchSpecification}, sorted, within a timeout
+     *
+     * @param spec    the specification, must not be {@literal null}.
+     * @param sort    the sort, must not be {@literal null}.
+     * @param timeout the timeout of the search, must be positive
+     * @return the future of the matching entities, detached
+     * @see SearchExecutor#findAll(SearchSpecification, Sort)
+     */
+    public CompletableFuture<List<T>> findAll(SearchSpecification<T> spec, Sort sort, Duration timeout) {
+        return submit(e -> e.findAll(spec, sort), timeout);
+    }
+
+    /**
+     * Find the identifiers of all entities matching the {@link SearchSpecification}, sorted, within the default timeout
+     *
+     * @param spec the specification, must not be {@literal null}.
+     * @param sort the sort, must not be {@literal null}.
+     * @return the future of the identifiers of the matching entities
+     * @see SearchExecutor#findIds(SearchSpecification, Sort)
+     */
+    public CompletableFuture<List<Object>> findIds(SearchSpecification<T> spec, Sort sort) {
+        return findIds(spec, sort, defaultTimeout);
+    }
+
+    /**
+     * Find the identifiers of all entities matching the {@link SearchSpecification}, sorted, within a timeout
+     *
+     * @param spec    the specification, must not be {@literal null}.
+     * @param sort    the sort, must not be {@literal null}.
+     * @param timeout the timeout of the search, must be positive
+     * @return the future of the identifiers of the matching entities
+     * @see SearchExecutor#findIds(SearchSpecification, Sort)
+     */
+    public CompletableFuture<List<Object>> findIds(SearchSpecification<T> spec, Sort sort, Duration timeout) {
+        return submit(e -> e.findIds(spec, sort), timeout);
+    }
+
+    /**
+     * Count the entities matching the {@link SearchSpecification}, within the default timeout
+     *
+     * @param spec the specification, must not be {@literal null}.
+     * @return the future of the number of matching entities
+     * @see SearchExecutor#count(SearchSpecification)
+     */
+    public CompletableFuture<Long> count(SearchSpecification<T> spec) {
+        return count(spec, defaultTimeout);
+    }
+
+    /**
+     * Count the entities matching the {@link SearchSpecification}, within a timeout
+     *
+     * @param spec    the specification, must not be {@literal null}.
+     * @param timeout the timeout of the search, must be positive
+     * @return the future of the number of matching entities
+     * @see SearchExecutor#count(SearchSpecification)
+     */
+    public CompletableFuture<Long> count(SearchSpecification<T> spec, Duration timeout) {
+        return submit(e -> e.count(spec), timeout);
+    }
+
+    /**
+     * Get the number of searches that can start right away
+     *
+     * @return the number of available permits
+     */
+    public int availablePermits() {
+        return permits.availablePermits();
+    }
+
+    /**
+     * Wait for the submitted searches to complete, then release the executor
+     */
+    @Override
+    public void close() {
+        executor.close();
+    }
+
+    private <R> CompletableFuture<R> submit(Function<SearchExecutor<T>, R> search, Duration timeout) {
+        checkTimeout(timeout);
+        var task = new SearchTask<>(search, timeout);
+        task.future.whenComplete((result, e) -> {
+            if (task.future.isCancelled()) {
+                task.cancel();
+            }
+        });
+        task.start(executor);
+        return task.future;
+    }
+
+    private static void checkTimeout(Duration timeout) {
+        if (timeout.isNegative() || timeout.isZero()) {
+            throw new IllegalArgumentException("Timeout must be positive: " + timeout);
+        }
+    }
+
+    /**
+     * A submitted search, holding what is needed to cancel it
+     *
+     * @param <R> the result type
+     */
+    private final class SearchTask<R> {
+
+        private final CompletableFuture<R> future = new CompletableFuture<>();
+        private final Function<SearchExecutor<T>, R> search;
+        private final Duration timeout;
+        private final long deadline;
+        private Future<?> running;
+        private Session session;
+
+        private SearchTask(Function<SearchExecutor<T>, R> search, Duration timeout) {
+            this.search = search;
+            this.timeout = timeout;
+            this.deadline = System.nanoTime() + timeout.toNanos();
+        }
+
+        private synchronized void start(ExecutorService executor) {
+            running = executor.submit(this::run);
+        }
+
+        /**
+         * Stop the search: interrupt its wait for a permit, or cancel its running query
+         */
+        private synchronized void cancel() {
+            if (session != null) {
+                session.cancelQuery();
+            } else if (running != null) {
+                running.cancel(true);
+            }
+        }
+
+        private void run() {
+            if (future.isDone()) {
+                return;
+            }
+            try {
+                if (!permits.tryAcquire(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+                    future.completeExceptionally(new QueryTimeoutException("Search not started within " + timeout
+                            + ", the maximum number of concurrent searches being reached"));
+                    return;
+                }
+            } catch (InterruptedException e) {
+                // cancelled while waiting
+                future.cancel(false);
+                return;
+            }
+            R result = null;
+            RuntimeException failure = null;
+            try {
+                result = execute();
+            } catch (RuntimeException e) {
+                failure = e;
+            } finally {
+                permits.release();
+            }
+            // completed once the entity manager is closed and the permit released, so that the caller sees the slot free
+            if (failure != null) {
+                future.completeExceptionally(failure);
+            } else {
+                future.complete(result);
+            }
+        }
+
+        /**
+         * Run the search with its own {@link EntityManager}
+         *
+         * @return the result, or {@literal null} if the search has been cancelled before running
+         */
+        private R execute() {
+            try (EntityManager entityManager = entityManagerFactory.createEntityManager()) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    throw new QueryTimeoutException("Search not started within " + timeout);
+                }
+                // rounded up to the second, as the JDBC timeouts
+                long seconds = (remaining + SECOND_NANOS - 1) / SECOND_NANOS;
+                entityManager.setProperty(SpecHints.HINT_SPEC_QUERY_TIMEOUT, (int) Math.min(TimeUnit.SECONDS.toMillis(seconds), Integer.MAX_VALUE));
+                synchronized (this) {
+                    if (future.isDone()) {
+                        return null;
+                    }
+                    session = entityManager.unwrap(Session.class);
+                }
+                session.addEventListeners(new SessionEventListener() {
+                    @Override
+                    public void jdbcExecuteStatementStart() {
+                        checkNotCancelled();
+                    }
+                });
+                try {
+                    return search.apply(new SearchExecutor<>(entityManager, queries) {
+                        @Override
+                        void onQuery(TypedQuery<?> query) {
+                            checkNotCancelled();
+                        }
+                    });
+                } finally {
+                    synchronized (this) {
+                        session = null;
+                    }
+                }
+            }
+        }
+
+        /**
+         * Stop a cancelled search before its statement executes: cancelling the session before its statement is
+         * prepared has no effect. Once the statement is about to execute, it is the one {@link #cancel()} cancels.
+         *
+         * @throws CancellationException if the search has been cancelled
+         */
+        private synchronized void checkNotCancelled() {
+            if (future.isCancelled()) {
+                throw new CancellationException("Search cancelled");
+            }
+        }
+    }
+}
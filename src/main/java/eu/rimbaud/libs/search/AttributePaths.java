@@ -0,0 +1,203 @@
+package eu.rimbaud.libs.search;
+
+import jakarta.persistence.criteria.From;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.JoinType;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.metamodel.Attribute;
+import jakarta.persistence.metamodel.CollectionAttribute;
+import jakarta.persistence.metamodel.ListAttribute;
+import jakarta.persistence.metamodel.ManagedType;
+import jakarta.persistence.metamodel.MapAttribute;
+import jakarta.persistence.metamodel.PluralAttribute;
+import jakarta.persistence.metamodel.SetAttribute;
+import jakarta.persistence.metamodel.SingularAttribute;
+import jakarta.persistence.metamodel.Type;
+
+import java.lang.invoke.MethodType;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Resolves and caches the field paths of {@link SearchCriterion} against the JPA metamodel.
+ * Each path is checked once per {@link ManagedType}, the resolved {@link Attribute} chain being kept
+ * so that the {@link Join} and {@link Path} are then built without looking up the attributes by name.
+ * <p>The metamodel types and their attributes are only weakly referenced, so that the resolved paths of an
+ * {@literal EntityManagerFactory} closed or redeployed are dropped once its metamodel is garbage collected.</p>
+ */
+final class AttributePaths {
+
+    private static final Map<ManagedType<?>, Map<List<String>, ResolvedPath>> PATHS = Collections.synchronizedMap(new WeakHashMap<>());
+
+    private AttributePaths() {
+    }
+
+    /**
+     * Resolve a field path
+     *
+     * @param type   the type the path starts from
+     * @param fields the field path
+     * @return the resolved path
+     * @throws IllegalArgumentException if a field does not exist, or is not the last one and is not a relationship or an embeddable
+     */
+    static AttributePath resolve(ManagedType<?> type, String[] fields) {
+        Map<List<String>, ResolvedPath> paths = PATHS.computeIfAbsent(type, t -> new ConcurrentHashMap<>());
+        List<String> key = List.of(fields);
+        AttributePath path = paths.computeIfAbsent(key, f -> new ResolvedPath(resolve(type, f))).get();
+        if (path == null) {
+            // the attributes are held by their types, so are only collected along with the metamodel
+            path = resolve(type, key);
+            paths.put(key, new ResolvedPath(path));
+        }
+        return path;
+    }
+
+    private static AttributePath resolve(ManagedType<?> root, List<String> fields) {
+        if (fields.isEmpty()) {
+            throw new IllegalArgumentException("Empty field path on " + root.getJavaType().getName());
+        }
+        List<Attribute<?, ?>> attributes = new ArrayList<>(fields.size());
+        ManagedType<?> type = root;
+        var collection = -1;
+        for (var i = 0; i < fields.size(); ++i) {
+            Attribute<?, ?> attribute;
+            try {
+                attribute = type.getAttribute(fields.get(i));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("No attribute '" + fields.get(i) + "' on " + type.getJavaType().getName()
+                        + " for path " + String.join(".", fields), e);
+            }
+            attributes.add(attribute);
+            if (i == fields.size() - 1) {
+                break;
+            }
+            if (attribute.isCollection() && collection < 0) {
+                collection = i;
+            }
+            Type<?> target = attribute instanceof PluralAttribute<?, ?, ?> plural ? plural.getElementType()
+                    : ((SingularAttribute<?, ?>) attribute).getType();
+            if (!(target instanceof ManagedType<?> managed)) {
+                throw new IllegalArgumentException("Attribute '" + fields.get(i) + "' of " + type.getJavaType().getName()
+                        + " cannot be navigated for path " + String.join(".", fields));
+            }
+            type = managed;
+        }
+        return new AttributePath(fields.toArray(String[]::new), List.copyOf(attributes), collection);
+    }
+
+    /**
+     * A cached {@link AttributePath}, its attributes being weakly referenced so that they do not keep the metamodel
+     * the cache is weakly keyed by.
+     */
+    private static final class ResolvedPath {
+
+        private final String[] fields;
+        private final List<WeakReference<Attribute<?, ?>>> attributes;
+        private final int collection;
+
+        private ResolvedPath(AttributePath path) {
+            this.fields = path.fields();
+            this.attributes = path.attributes().stream().<WeakReference<Attribute<?, ?>>>map(WeakReference::new).toList();
+            this.collection = path.collection();
+        }
+
+        /**
+         * Get the resolved path
+         *
+         * @return the path, or {@literal null} if an attribute has been collected
+         */
+        private AttributePath get() {
+            List<Attribute<?, ?>> resolved = new ArrayList<>(attributes.size());
+            for (WeakReference<Attribute<?, ?>> attribute : attributes) {
+                Attribute<?, ?> a = attribute.get();
+                if (a == null) {
+                    return null;
+                }
+                resolved.add(a);
+            }
+            return new AttributePath(fields, List.copyOf(resolved), collection);
+        }
+    }
+
+    /**
+     * A field path resolved against the metamodel
+     *
+     * @param fields     the field path
+     * @param attributes the attribute of each field
+     * @param collection the index of the first collection-valued attribute, the last field excepted, or -1 if there is none
+     */
+    record AttributePath(String[] fields, List<Attribute<?, ?>> attributes, int collection) {
+
+        /**
+         * Get the attribute of the last field
+         *
+         * @return the attribute
+         */
+        Attribute<?, ?> attribute() {
+            return attributes.get(attributes.size() - 1);
+        }
+
+        /**
+         * Get the type of the values of the last field, primitive types being boxed
+         *
+         * @return the value type, or the element type for a {@literal Collection}
+         */
+        Class<?> valueType() {
+            Class<?> type = attribute() instanceof PluralAttribute<?, ?, ?> plural
+                    ? plural.getElementType().getJavaType()
+                    : attribute().getJavaType();
+            return MethodType.methodType(type).wrap().returnType();
+        }
+
+        /**
+         * Join a {@link From} along one attribute of the path
+         *
+         * @param from  the joined {@literal From}
+         * @param index the index of the attribute
+         * @param type  the join type
+         * @return the join
+         */
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        Join<?, ?> join(From<?, ?> from, int index, JoinType type) {
+            From raw = from;
+            Attribute<?, ?> attribute = attributes.get(index);
+            if (attribute instanceof SingularAttribute<?, ?> singular) {
+                return raw.join(singular, type);
+            }
+            if (attribute instanceof ListAttribute<?, ?> list) {
+                return raw.join(list, type);
+            }
+            if (attribute instanceof SetAttribute<?, ?> set) {
+                return raw.join(set, type);
+            }
+            if (attribute instanceof MapAttribute<?, ?, ?> map) {
+                return raw.join(map, type);
+            }
+            if (attribute instanceof CollectionAttribute<?, ?> collection) {
+                return raw.join(collection, type);
+            }
+            return raw.join(fields[index], type);
+        }
+
+        /**
+         * Get the {@link Path} of the last field from the {@link From} of the previous one
+         *
+         * @param from the {@literal From} of the previous field, or the root
+         * @return the path
+         */
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        Path<?> get(Path<?> from) {
+            Path raw = from;
+            if (attribute() instanceof SingularAttribute<?, ?> singular) {
+                return raw.get(singular);
+            }
+            // an expression by the JPA signature, but a path with the persistence providers
+            return (Path<?>) raw.get((PluralAttribute) attribute());
+        }
+    }
+}
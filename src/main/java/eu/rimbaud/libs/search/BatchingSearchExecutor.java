@@ -0,0 +1,263 @@
+package eu.rimbaud.libs.search;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.metamodel.Attribute;
+
+import java.lang.invoke.MethodType;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Executes {@link SearchSpecification} asynchronously, coalescing the concurrent equality lookups on the same attribute
+ * into one "in" query, in the manner of a data loader: e.g. the concurrent lookups <code>id = 1</code>, <code>id = 2</code>
+ * and <code>id = 3</code> are run as <code>id in (1, 2, 3)</code>, and each caller gets the entities matching its own value.
+ * <p>Only the specifications made of a single {@link SearchOperationEnum#EQUALS} criterion on a basic attribute of the
+ * entity, with a value of the type of the attribute, are coalesced: the integral numbers are converted, e.g. an
+ * {@literal Integer} into a {@literal Long}. The entities are matched to the values with {@link Object#equals(Object)};
+ * the values matching no entity while some entities match no value, e.g. with a collation ignoring case, are then
+ * looked up on their own. A batch is run once its window has elapsed since its first lookup, or as soon as it holds
+ * <code>maxBatchSize</code> distinct values. The other specifications are run right away.</p>
+ * <p>Only the lookups with the same {@link SearchListener} and {@link SelectivityStatistics} are coalesced together,
+ * the batched query being run with the settings of the first specification of its batch: the listener is notified of
+ * the batched query, once for all its lookups.</p>
+ * <p>The searches run on virtual threads, each with its own {@link EntityManager}, outside the transaction of the caller,
+ * if any. The returned entities are detached, and shared by the callers looking up the same value.</p>
+ *
+ * @param <T> the type of the entity the {@literal SearchSpecification} operates on.
+ */
+public class BatchingSearchExecutor<T> implements AutoCloseable {
+
+    private final EntityManagerFactory entityManagerFactory;
+    private final Class<T> domainClass;
+    private final long windowNanos;
+    private final int maxBatchSize;
+    private final SearchExecutor<T> queries;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        var thread = new Thread(r, "search-batching");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Map<BatchKey<T>, Batch> batches = new HashMap<>();
+
+    /**
+     * Construct a {@link BatchingSearchExecutor}
+     *
+     * @param entityManagerFactory the entity manager factory the searches are run with, must not be {@literal null}.
+     * @param domainClass          the entity type, must not be {@literal null}.
+     * @param window               the time a batch waits for other lookups after its first one, must not be {@literal null}.
+     * @param maxBatchSize         the maximum number of distinct values of a batch, must be positive
+     */
+    public BatchingSearchExecutor(EntityManagerFactory entityManagerFactory, Class<T> domainClass, Duration window, int maxBatchSize) {
+        if (maxBatchSize <= 0) {
+            throw new IllegalArgumentException("Batch size must be positive: " + maxBatchSize);
+        }
+        this.entityManagerFactory = entityManagerFactory;
+        this.domainClass = domainClass;
+        this.windowNanos = window.toNanos();
+        this.maxBatchSize = maxBatchSize;
+        // never executed, only holds the cached queries shared by the searches
+        this.queries = new SearchExecutor<>(null, domainClass);
+    }
+
+    /**
+     * Find all entities matching the {@link SearchSpecification}, coalescing the equality lookups
+     *
+     * @param spec the specification, must not be {@literal null}.
+     * @return the future of the matching entities, detached
+     */
+    public CompletableFuture<List<T>> findAll(SearchSpecification<T> spec) {
+        CriteriaGroup<T> normalized = spec.normalize();
+        List<SearchCriterion<T>> criteria = normalized.criteria();
+        Object value;
+        try {
+            value = normalized.groups().isEmpty() && criteria.size() == 1 ? coalescableValue(criteria.get(0)) : null;
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        if (value == null) {
+            return CompletableFuture.supplyAsync(() -> search(e -> e.findAll(spec)), executor);
+        }
+        SearchCriterion<T> criterion = criteria.get(0);
+        var future = new CompletableFuture<List<T>>();
+        Batch full = null;
+        synchronized (batches) {
+            var key = new BatchKey<>(criterion.getFields()[0], spec.getListener(), spec.getStatistics());
+            Batch batch = batches.computeIfAbsent(key, k -> {
+                var created = new Batch(k, spec.only(null));
+                scheduler.schedule(() -> flush(created), windowNanos, TimeUnit.NANOSECONDS);
+                return created;
+            });
+            batch.add(value, future);
+            if (batch.values.size() >= maxBatchSize) {
+                full = batch;
+            }
+        }
+        if (full != null) {
+            flush(full);
+        }
+        return future;
+    }
+
+    /**
+     * Find the entity whose attribute is equal to a value, coalescing the concurrent lookups on the same attribute
+     *
+     * @param field the basic attribute of the entity, e.g. the identifier, must not be {@literal null}.
+     * @param value the value, must not be {@literal null}.
+     * @return the future of the matching entity, completed with {@literal null} if there is none, and exceptionally with
+     * an {@link IllegalStateException} if there are several
+     */
+    public CompletableFuture<T> findOne(String field, Object value) {
+        return findAll(new SearchSpecification<T>().add(field).eq(value)).thenApply(entities -> switch (entities.size()) {
+            case 0 -> null;
+            case 1 -> entities.get(0);
+            default -> throw new IllegalStateException(entities.size() + " entities found for " + field + " = " + value);
+        });
+    }
+
+    /**
+     * Run the pending batches, then release the executor
+     */
+    @Override
+    public void close() {
+        List<Batch> pending;
+        synchronized (batches) {
+            pending = new ArrayList<>(batches.values());
+        }
+        pending.forEach(this::flush);
+        scheduler.shutdownNow();
+        executor.close();
+    }
+
+    /**
+     * Get the value of a criterion that can be coalesced, converted into the type of its attribute
+     *
+     * @param criterion the criterion
+     * @return the value, or {@literal null} if the criterion cannot be coalesced
+     * @throws IllegalArgumentException if the attribute does not exist
+     */
+    private Object coalescableValue(SearchCriterion<T> criterion) {
+        if (criterion.getOperator() != SearchOperationEnum.EQUALS || criterion.getFields().length != 1 || !criterion.hasValue()) {
+            return null;
+        }
+        var attribute = entityManagerFactory.getMetamodel().entity(domainClass).getAttribute(criterion.getFields()[0]);
+        if (attribute.getPersistentAttributeType() != Attribute.PersistentAttributeType.BASIC) {
+            return null;
+        }
+        // matched against the attribute values with equals, so of the same type
+        Class<?> type = MethodType.methodType(attribute.getJavaType()).wrap().returnType();
+        Object value = criterion.getValue();
+        if (type.isInstance(value)) {
+            return value;
+        }
+        if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            long integral = ((Number) value).longValue();
+            if (type == Long.class) {
+                return integral;
+            }
+            if (type == Integer.class && integral == (int) integral) {
+                return (int) integral;
+            }
+            if (type == Short.class && integral == (short) integral) {
+                return (short) integral;
+            }
+        }
+        // run on its own, converted by the persistence provider if possible
+        return null;
+    }
+
+    /**
+     * Run a batch as one "in" query, and complete the future of each lookup with the entities matching its value
+     *
+     * @param batch the batch
+     */
+    private void flush(Batch batch) {
+        synchronized (batches) {
+            // already run, the batch being full
+            if (!batches.remove(batch.key, batch)) {
+                return;
+            }
+        }
+        executor.execute(() -> {
+            try {
+                String field = batch.key.field();
+                List<T> entities = search(e -> e.findAll(batch.settings.only(null).add(field).in(batch.values)));
+                Function<Object, Object> getter = Accessors.get(domainClass, field).getter();
+                Map<Object, List<T>> byValue = new HashMap<>();
+                entities.forEach(entity -> byValue.computeIfAbsent(getter.apply(entity), v -> new ArrayList<>()).add(entity));
+                // entities matched by the database but by no value, e.g. with a collation ignoring case
+                boolean unmatched = !batch.values.containsAll(byValue.keySet());
+                for (Lookup<T> lookup : batch.lookups) {
+                    List<T> matching = byValue.get(lookup.value);
+                    if (matching == null && unmatched) {
+                        lookup.future.complete(search(e -> e.findAll(batch.settings.only(null).add(field).eq(lookup.value))));
+                    } else {
+                        lookup.future.complete(matching != null ? List.copyOf(matching) : List.of());
+                    }
+                }
+            } catch (RuntimeException e) {
+                batch.lookups.forEach(l -> l.future.completeExceptionally(e));
+            }
+        });
+    }
+
+    private <R> R search(Function<SearchExecutor<T>, R> search) {
+        try (EntityManager entityManager = entityManagerFactory.createEntityManager()) {
+            return search.apply(new SearchExecutor<>(entityManager, queries));
+        }
+    }
+
+    /**
+     * The pending lookups on an attribute
+     */
+    private final class Batch {
+
+        private final BatchKey<T> key;
+        // the specification without criteria, holding the settings of the batched query
+        private final SearchSpecification<T> settings;
+        private final LinkedHashSet<Object> values = new LinkedHashSet<>();
+        private final List<Lookup<T>> lookups = new ArrayList<>();
+
+        private Batch(BatchKey<T> key, SearchSpecification<T> settings) {
+            this.key = key;
+            this.settings = settings;
+        }
+
+        private void add(Object value, CompletableFuture<List<T>> future) {
+            values.add(value);
+            lookups.add(new Lookup<>(value, future));
+        }
+    }
+
+    /**
+     * The key of the lookups coalesced together
+     *
+     * @param field      the attribute
+     * @param listener   the listener of the specifications, if any
+     * @param statistics the statistics of the specifications, if any
+     * @param <T>        the entity type
+     */
+    private record BatchKey<T>(String field, SearchListener listener, SelectivityStatistics<T> statistics) {
+    }
+
+    /**
+     * A pending lookup
+     *
+     * @param value  the looked up value
+     * @param future the future of the matching entities
+     * @param <T>    the entity type
+     */
+    private record Lookup<T>(Object value, CompletableFuture<List<T>> future) {
+    }
+}
@@ -0,0 +1,18 @@
+package eu.rimbaud.libs.search;
+
+/**
+ * Defines how a {@link SearchCriterion} on a collection-valued relationship path is converted.
+ */
+public enum CollectionModeEnum {
+
+    /**
+     * The collection is joined to the root entity. The root entity may be returned once per matching element.
+     */
+    JOIN,
+    /**
+     * The criteria on the collection are converted into a correlated {@literal EXISTS} subquery.
+     * The root entity is returned at most once, without the need of a {@literal DISTINCT}.
+     */
+    EXISTS
+
+}
@@ -0,0 +1,793 @@
+package eu.rimbaud.libs.search;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+import jakarta.persistence.metamodel.Attribute;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+import java.lang.invoke.MethodType;
+import java.time.temporal.Temporal;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+
+/**
+ * An in-memory columnar replica of some basic fields of an entity, answering the searches of a {@link SearchExecutor}
+ * on these fields without a database round trip, for small entities rarely written and searched often.
+ * <p>Each entity is a row, and each field a column of dictionary codes: the distinct values are stored once, and each
+ * row holds the <code>int</code> code of its value. The columns with at most {@link #MAX_BITMAP_CARDINALITY} distinct
+ * values also keep a bitmap of the rows per value. The identifier is a column too.</p>
+ * <p>The "equals", "not equal", "in", "not in", "greater than", "less than" and "between" criteria on the replicated
+ * fields are evaluated as bitmap operations: the rows of the matching values are united, from their bitmaps or from a
+ * scan of the codes, then the criteria and groups are combined with "and", "or" and "and not", following the
+ * three-valued logic of SQL, as {@link InMemoryPredicate}. The range criteria look the matching values up in the
+ * dictionary of the column, kept sorted, and only apply to numbers, dates and times, the order of the strings depending
+ * on the collation of the database. The values of the criteria must have the type of the field, and are compared with
+ * {@link Object#equals(Object)} and {@link Comparable#compareTo(Object)}.</p>
+ * <p>The other searches are delegated to the {@literal SearchExecutor}: other operators, nested paths, values of another
+ * type, or a sort ignoring case or on a field that is not a replicated number, date or time. The identifiers without sort
+ * are returned in ascending order, and the {@literal null} values are sorted first in ascending order, last in
+ * descending order.</p>
+ * <p>The replica is filled by {@link #load()}, then kept up to date through the Hibernate post insert, update and
+ * delete events, once committed: the searches do not see the changes of the transactions in progress, their own included,
+ * nor the rolled back ones. The values no longer used stay
+ * in the dictionaries until the next {@literal load}. The number of rows is bounded: beyond <code>maxEntries</code>,
+ * the replica is cleared and disabled, the searches being delegated, until the next {@literal load}.</p>
+ * <p>The replica requires Hibernate and a {@literal Long} or {@literal Integer} identifier. It is thread-safe.</p>
+ *
+ * @param <T> the type of the replicated entity
+ */
+public class ColumnarReplica<T> implements AutoCloseable {
+
+    /**
+     * The maximum number of distinct values of a column for which a bitmap of the rows is kept per value
+     */
+    public static final int MAX_BITMAP_CARDINALITY = 256;
+
+    private final SearchExecutor<T> executor;
+    private final Class<T> domainClass;
+    private final int maxEntries;
+    private final Function<Long, Object> idConverter;
+    private final Function<Object, Object> idGetter;
+    private final Map<String, Column> columnsByField = new LinkedHashMap<>();
+    private final Column[] columns;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, Integer> rowsById = new HashMap<>();
+    private final Deque<Integer> freeRows = new ArrayDeque<>();
+    private long[] ids = new long[0];
+    private long[] live = new long[0];
+    private int rows;
+    private volatile boolean enabled = true;
+    private volatile boolean closed;
+    private final LongAdder inMemory = new LongAdder();
+    private final LongAdder delegated = new LongAdder();
+    private final Runnable unsubscribe;
+
+    /**
+     * Construct a {@link ColumnarReplica} and register it to the entity events of the persistence unit
+     *
+     * @param executor   the executor the searches are delegated to, backed by Hibernate
+     * @param maxEntries the maximum number of replicated entities
+     * @param fields     the replicated fields, basic attributes of the entity
+     * @throws IllegalArgumentException if the entity identifier is not a {@literal Long} or an {@literal Integer},
+     *                                  or a field is not a basic attribute
+     */
+    public ColumnarReplica(SearchExecutor<T> executor, int maxEntries, String... fields) {
+        var entityManagerFactory = executor.getEntityManager().getEntityManagerFactory();
+        var entityType = entityManagerFactory.getMetamodel().entity(executor.getDomainClass());
+        Class<?> idType = entityType.getIdType().getJavaType();
+        if (idType != Long.class && idType != Integer.class) {
+            throw new IllegalArgumentException("A Long or Integer identifier is required: " + executor.getDomainClass().getName());
+        }
+        this.executor = executor;
+        this.domainClass = executor.getDomainClass();
+        this.maxEntries = maxEntries;
+        this.idConverter = idType == Long.class ? id -> id : id -> (int) (long) id;
+        String idField = entityType.getId(idType).getName();
+        this.idGetter = Accessors.get(domainClass, idField).getter();
+        columnsByField.put(idField, new Column(idField, idType, idGetter));
+        for (String field : fields) {
+            Attribute<?, ?> attribute = entityType.getAttribute(field);
+            if (attribute.getPersistentAttributeType() != Attribute.PersistentAttributeType.BASIC) {
+                throw new IllegalArgumentException("Only basic attributes can be replicated: " + field);
+            }
+            columnsByField.putIfAbsent(field, new Column(field, attribute.getJavaType(), Accessors.get(domainClass, field).getter()));
+        }
+        this.columns = columnsByField.values().toArray(Column[]::new);
+        this.unsubscribe = EntityEvents.subscribe(entityManagerFactory, new EntityEvents.Subscriber() {
+            @Override
+            public void onCommittedWrite(Class<?> type, Object entity) {
+                if (!closed && domainClass.isInstance(entity)) {
+                    put(domainClass.cast(entity));
+                }
+            }
+
+            @Override
+            public void onCommittedDelete(Class<?> type, Object entity) {
+                if (!closed && domainClass.isInstance(entity)) {
+                    remove(domainClass.cast(entity));
+                }
+            }
+        });
+    }
+
+    /**
+     * Clear the replica and fill it with the values of all entities, read with the entity manager of the executor
+     */
+    public void load() {
+        EntityManager entityManager = executor.getEntityManager();
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Object[]> query = cb.createQuery(Object[].class);
+        Root<T> root = query.from(domainClass);
+        List<Selection<?>> selections = new ArrayList<>(columns.length);
+        for (Column column : columns) {
+            selections.add(root.get(column.field));
+        }
+        query.multiselect(selections);
+        lock.writeLock().lock();
+        try {
+            clear();
+            enabled = true;
+            try (var stream = entityManager.createQuery(query).getResultStream()) {
+                stream.forEach(row -> put(((Number) row[0]).longValue(), row, true));
+            }
+            for (Column column : columns) {
+                column.sort();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Add or replace the values of an entity
+     *
+     * @param entity the entity
+     */
+    public void put(T entity) {
+        Object[] values = new Object[columns.length];
+        for (var i = 0; i < columns.length; ++i) {
+            values[i] = columns[i].getter.apply(entity);
+        }
+        lock.writeLock().lock();
+        try {
+            put(id(entity), values, false);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Remove the values of an entity
+     *
+     * @param entity the entity
+     */
+    public void remove(T entity) {
+        lock.writeLock().lock();
+        try {
+            remove(id(entity));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Find the identifiers of all entities matching the {@link SearchSpecification}, sorted, from the replica if it
+     * supports the criteria and the sort
+     *
+     * @param spec the specification, must not be {@literal null}.
+     * @param sort the sort, must not be {@literal null}.
+     * @return the identifiers of the matching entities
+     * @see SearchExecutor#findIds(SearchSpecification, Sort)
+     */
+    public List<Object> findIds(SearchSpecification<T> spec, Sort sort) {
+        CriteriaGroup<T> criteria = spec.normalize();
+        if (criteria.isAlwaysFalse()) {
+            return List.of();
+        }
+        if (!supports(criteria) || !supports(sort)) {
+            delegated.increment();
+            return executor.findIds(spec, sort);
+        }
+        lock.readLock().lock();
+        try {
+            if (isEnabled()) {
+                inMemory.increment();
+                return ids(evaluate(criteria).trues(), sort);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        delegated.increment();
+        return executor.findIds(spec, sort);
+    }
+
+    /**
+     * Find a page of the identifiers of the entities matching the {@link SearchSpecification}, from the replica if it
+     * supports the criteria and the sort
+     *
+     * @param spec     the specification, must not be {@literal null}.
+     * @param pageable the page, must not be {@literal null}.
+     * @return the page of identifiers
+     * @see SearchExecutor#findIds(SearchSpecification, Pageable)
+     */
+    public Page<Object> findIds(SearchSpecification<T> spec, Pageable pageable) {
+        CriteriaGroup<T> criteria = spec.normalize();
+        if (criteria.isAlwaysFalse()) {
+            return Page.empty(pageable);
+        }
+        if (!supports(criteria) || !supports(pageable.getSort())) {
+            delegated.increment();
+            return executor.findIds(spec, pageable);
+        }
+        List<Object> ids = null;
+        lock.readLock().lock();
+        try {
+            if (isEnabled()) {
+                inMemory.increment();
+                ids = ids(evaluate(criteria).trues(), pageable.getSort());
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        if (ids == null) {
+            delegated.increment();
+            return executor.findIds(spec, pageable);
+        }
+        if (pageable.isUnpaged()) {
+            return new PageImpl<>(ids);
+        }
+        int from = (int) Math.min(pageable.getOffset(), ids.size());
+        int to = Math.min(from + pageable.getPageSize(), ids.size());
+        return new PageImpl<>(new ArrayList<>(ids.subList(from, to)), pageable, ids.size());
+    }
+
+    /**
+     * Count the entities matching the {@link SearchSpecification}, from the replica if it supports the criteria
+     *
+     * @param spec the specification, must not be {@literal null}.
+     * @return the number of matching entities
+     * @see SearchExecutor#count(SearchSpecification)
+     */
+    public long count(SearchSpecification<T> spec) {
+        CriteriaGroup<T> criteria = spec.normalize();
+        if (criteria.isAlwaysFalse()) {
+            return 0;
+        }
+        if (supports(criteria)) {
+            lock.readLock().lock();
+            try {
+                if (isEnabled()) {
+                    inMemory.increment();
+                    long count = 0;
+                    for (long word : evaluate(criteria).trues()) {
+                        count += Long.bitCount(word);
+                    }
+                    return count;
+                }
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+        delegated.increment();
+        return executor.count(spec);
+    }
+
+    /**
+     * Check whether the replica can be looked up, i.e. it is not closed and the number of entities did not exceed the maximum
+     *
+     * @return true if the replica is enabled
+     */
+    public boolean isEnabled() {
+        return enabled && !closed;
+    }
+
+    /**
+     * Get the number of replicated entities
+     *
+     * @return the number of rows
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return rowsById.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Get the number of searches answered from the replica
+     *
+     * @return the in-memory count
+     */
+    public long getInMemoryCount() {
+        return inMemory.sum();
+    }
+
+    /**
+     * Get the number of searches delegated to the executor
+     *
+     * @return the delegated count
+     */
+    public long getDelegatedCount() {
+        return delegated.sum();
+    }
+
+    /**
+     * Release the replica, which then stops following the entity events and delegates all searches
+     */
+    @Override
+    public void close() {
+        lock.writeLock().lock();
+        try {
+            closed = true;
+            unsubscribe.run();
+            clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private long id(Object entity) {
+        return ((Number) idGetter.apply(entity)).longValue();
+    }
+
+    private void put(long id, Object[] values, boolean deferSort) {
+        if (!isEnabled()) {
+            return;
+        }
+        Integer row = rowsById.get(id);
+        if (row == null) {
+            if (rowsById.size() >= maxEntries) {
+                enabled = false;
+                clear();
+                return;
+            }
+            row = freeRows.isEmpty() ? rows++ : freeRows.pop();
+            if (row == ids.length) {
+                grow(row + (row >> 1) + 64);
+            }
+            rowsById.put(id, row);
+            ids[row] = id;
+            set(live, row);
+        }
+        for (var i = 0; i < columns.length; ++i) {
+            columns[i].set(row, values[i], deferSort);
+        }
+    }
+
+    private void remove(long id) {
+        Integer row = rowsById.remove(id);
+        if (row == null) {
+            return;
+        }
+        clear(live, row);
+        for (Column column : columns) {
+            column.clear(row);
+        }
+        freeRows.push(row);
+    }
+
+    private void grow(int capacity) {
+        ids = Arrays.copyOf(ids, capacity);
+        live = Arrays.copyOf(live, words(capacity));
+        for (Column column : columns) {
+            column.grow(capacity);
+        }
+    }
+
+    private void clear() {
+        rowsById.clear();
+        freeRows.clear();
+        ids = new long[0];
+        live = new long[0];
+        rows = 0;
+        for (Column column : columns) {
+            column.reset();
+        }
+    }
+
+    /**
+     * Check whether the criteria and groups can be evaluated on the replica
+     */
+    private boolean supports(CriteriaGroup<T> group) {
+        return group.criteria().stream().allMatch(this::supports) && group.groups().stream().allMatch(this::supports);
+    }
+
+    private boolean supports(SearchCriterion<T> sc) {
+        if (sc.getFields().length != 1) {
+            return false;
+        }
+        Column column = columnsByField.get(sc.getFields()[0]);
+        if (column == null) {
+            return false;
+        }
+        Object value = sc.getValue();
+        return switch (sc.getOperator()) {
+            case EQUALS, NOT_EQUAL -> column.accepts(value);
+            case IN, NOT_IN -> value instanceof Collection<?> values && values.stream().allMatch(column::accepts);
+            case GREATER_THAN, GREATER_THAN_EQUAL, LESS_THAN, LESS_THAN_EQUAL -> column.ordered && column.accepts(value);
+            case BETWEEN -> column.ordered && value instanceof List<?> bounds && bounds.stream().allMatch(column::accepts);
+            default -> false;
+        };
+    }
+
+    /**
+     * Check whether the sort can be applied on the replica
+     */
+    private boolean supports(Sort sort) {
+        for (Sort.Order order : sort) {
+            Column column = columnsByField.get(order.getProperty());
+            if (column == null || !column.ordered || order.isIgnoreCase()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Evaluate a group on the rows, following the three-valued logic of SQL
+     *
+     * @param group the normalized group
+     * @return the rows for which the group is true, and the ones for which it is unknown
+     */
+    private Truth evaluate(CriteriaGroup<T> group) {
+        Truth result = group.disjunction()
+                ? new Truth(new long[live.length], new long[live.length])
+                : new Truth(live.clone(), new long[live.length]);
+        for (SearchCriterion<T> sc : group.criteria()) {
+            result.combine(evaluate(sc), group.disjunction());
+        }
+        for (CriteriaGroup<T> nested : group.groups()) {
+            result.combine(evaluate(nested), group.disjunction());
+        }
+        if (group.negated()) {
+            long[] trues = result.trues();
+            long[] unknowns = result.unknowns();
+            for (var i = 0; i < trues.length; ++i) {
+                trues[i] = live[i] & ~trues[i] & ~unknowns[i];
+            }
+        }
+        return result;
+    }
+
+    private Truth evaluate(SearchCriterion<T> sc) {
+        Column column = columnsByField.get(sc.getFields()[0]);
+        Object value = sc.getValue();
+        long[] trues = switch (sc.getOperator()) {
+            case EQUALS -> column.select(column.codes(List.of(value)));
+            case NOT_EQUAL -> column.values(live, column.select(column.codes(List.of(value))));
+            case IN -> column.select(column.codes((Collection<?>) value));
+            case NOT_IN -> column.values(live, column.select(column.codes((Collection<?>) value)));
+            case GREATER_THAN -> column.select(column.range(value, false, null, false));
+            case GREATER_THAN_EQUAL -> column.select(column.range(value, true, null, false));
+            case LESS_THAN -> column.select(column.range(null, false, value, false));
+            case LESS_THAN_EQUAL -> column.select(column.range(null, false, value, true));
+            case BETWEEN -> column.select(column.range(((List<?>) value).get(0), true, ((List<?>) value).get(1), true));
+            default -> throw new IllegalStateException("Unsupported operator " + sc.getOperator());
+        };
+        return new Truth(trues, column.nulls.clone());
+    }
+
+    /**
+     * Get the identifiers of the matching rows
+     *
+     * @param matches the bitmap of the matching rows
+     * @param sort    the sort, on ordered columns
+     * @return the identifiers, sorted
+     */
+    private List<Object> ids(long[] matches, Sort sort) {
+        List<Integer> matching = new ArrayList<>();
+        for (var i = 0; i < matches.length; ++i) {
+            for (long word = matches[i]; word != 0; word &= word - 1) {
+                matching.add(i << 6 | Long.numberOfTrailingZeros(word));
+            }
+        }
+        Comparator<Integer> comparator = null;
+        for (Sort.Order order : sort) {
+            Comparator<Integer> next = columnsByField.get(order.getProperty()).comparator(order);
+            comparator = comparator == null ? next : comparator.thenComparing(next);
+        }
+        Comparator<Integer> byId = Comparator.comparingLong(row -> ids[row]);
+        matching.sort(comparator == null ? byId : comparator.thenComparing(byId));
+        List<Object> result = new ArrayList<>(matching.size());
+        for (Integer row : matching) {
+            result.add(idConverter.apply(ids[row]));
+        }
+        return result;
+    }
+
+    private static int words(int capacity) {
+        return (capacity + 63) >>> 6;
+    }
+
+    private static void set(long[] bitmap, int row) {
+        bitmap[row >>> 6] |= 1L << row;
+    }
+
+    private static void clear(long[] bitmap, int row) {
+        bitmap[row >>> 6] &= ~(1L << row);
+    }
+
+    /**
+     * The rows for which a criterion or a group is true, and the ones for which it is unknown, as bitmaps
+     *
+     * @param trues    the rows for which it is true
+     * @param unknowns the rows for which it is unknown, none being true
+     */
+    private record Truth(long[] trues, long[] unknowns) {
+
+        /**
+         * Combine another truth into this one, with "and", or "or" for a disjunction
+         *
+         * @param other       the other truth
+         * @param disjunction whether the truths are combined with "or"
+         */
+        void combine(Truth other, boolean disjunction) {
+            for (var i = 0; i < trues.length; ++i) {
+                long t1 = trues[i];
+                long u1 = unknowns[i];
+                long t2 = other.trues[i];
+                long u2 = other.unknowns[i];
+                long t = disjunction ? t1 | t2 : t1 & t2;
+                trues[i] = t;
+                unknowns[i] = (disjunction ? u1 | u2 : (t1 | u1) & (t2 | u2)) & ~t;
+            }
+        }
+    }
+
+    /**
+     * A dictionary encoded column
+     */
+    private static final class Column {
+
+        private final String field;
+        private final Class<?> type;
+        private final boolean ordered;
+        private final Function<Object, Object> getter;
+
+        private final Map<Object, Integer> codes = new HashMap<>();
+        private final List<Object> dictionary = new ArrayList<>();
+        // the codes, ordered by value, for the ordered columns
+        private int[] sorted = new int[0];
+        private int[] rowCodes = new int[0];
+        private long[] nulls = new long[0];
+        private List<long[]> bitmaps = new ArrayList<>();
+
+        private Column(String field, Class<?> type, Function<Object, Object> getter) {
+            this.field = field;
+            this.type = MethodType.methodType(type).wrap().returnType();
+            this.ordered = Comparable.class.isAssignableFrom(this.type)
+                    && (Number.class.isAssignableFrom(this.type) || Temporal.class.isAssignableFrom(this.type) || Date.class.isAssignableFrom(this.type));
+            this.getter = getter;
+        }
+
+        /**
+         * Check whether a criterion value can be looked up in the column
+         */
+        private boolean accepts(Object value) {
+            return value != null && value.getClass() == type;
+        }
+
+        private void set(int row, Object value, boolean deferSort) {
+            clear(row);
+            if (value == null) {
+                ColumnarReplica.set(nulls, row);
+                return;
+            }
+            Integer code = codes.get(value);
+            if (code == null) {
+                code = dictionary.size();
+                codes.put(value, code);
+                dictionary.add(value);
+                if (bitmaps != null && dictionary.size() > MAX_BITMAP_CARDINALITY) {
+                    bitmaps = null;
+                } else if (bitmaps != null) {
+                    bitmaps.add(new long[nulls.length]);
+                }
+                if (ordered && !deferSort) {
+                    insertSorted(code);
+                }
+            }
+            rowCodes[row] = code;
+            if (bitmaps != null) {
+                ColumnarReplica.set(bitmaps.get(code), row);
+            }
+        }
+
+        private void clear(int row) {
+            int code = rowCodes[row];
+            if (code >= 0) {
+                if (bitmaps != null) {
+                    ColumnarReplica.clear(bitmaps.get(code), row);
+                }
+                rowCodes[row] = -1;
+            } else {
+                ColumnarReplica.clear(nulls, row);
+            }
+        }
+
+        private void grow(int capacity) {
+            int length = rowCodes.length;
+            rowCodes = Arrays.copyOf(rowCodes, capacity);
+            Arrays.fill(rowCodes, length, capacity, -1);
+            nulls = Arrays.copyOf(nulls, words(capacity));
+            if (bitmaps != null) {
+                bitmaps.replaceAll(b -> Arrays.copyOf(b, words(capacity)));
+            }
+        }
+
+        private void reset() {
+            codes.clear();
+            dictionary.clear();
+            sorted = new int[0];
+            rowCodes = new int[0];
+            nulls = new long[0];
+            bitmaps = new ArrayList<>();
+        }
+
+        /**
+         * Sort the whole dictionary, once loaded
+         */
+        private void sort() {
+            if (ordered) {
+                sorted = IntStream.range(0, dictionary.size()).boxed()
+                        .sorted(Comparator.comparing(dictionary::get, this::compare))
+                        .mapToInt(Integer::intValue)
+                        .toArray();
+            }
+        }
+
+        private void insertSorted(int code) {
+            int index = position(dictionary.get(code), true);
+            int[] codes = new int[sorted.length + 1];
+            System.arraycopy(sorted, 0, codes, 0, index);
+            codes[index] = code;
+            System.arraycopy(sorted, index, codes, index + 1, sorted.length - index);
+            sorted = codes;
+        }
+
+        /**
+         * Find the position of a value in the sorted dictionary
+         *
+         * @param value     the value
+         * @param inclusive whether the position is the one of the value itself, if present, or the one after it
+         * @return the index of the first code whose value is greater than or equal to the value, or greater if not inclusive
+         */
+        private int position(Object value, boolean inclusive) {
+            int low = 0;
+            int high = sorted.length;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                int comparison = compare(dictionary.get(sorted[middle]), value);
+                if (comparison < 0 || comparison == 0 && !inclusive) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+
+        /**
+         * Get the codes of the values present in the dictionary
+         */
+        private int[] codes(Collection<?> values) {
+            return values.stream().map(codes::get).filter(Objects::nonNull).distinct().mapToInt(Integer::intValue).toArray();
+        }
+
+        /**
+         * Get the codes of the values within a range
+         *
+         * @param from          the lower bound, or {@literal null} if none
+         * @param fromInclusive whether the lower bound is included
+         * @param to            the upper bound, or {@literal null} if none
+         * @param toInclusive   whether the upper bound is included
+         * @return the codes
+         */
+        private int[] range(Object from, boolean fromInclusive, Object to, boolean toInclusive) {
+            int low = from != null ? position(from, fromInclusive) : 0;
+            int high = to != null ? position(to, !toInclusive) : sorted.length;
+            return low < high ? Arrays.copyOfRange(sorted, low, high) : new int[0];
+        }
+
+        /**
+         * Select the rows holding some values, from the bitmaps of the values or from a scan of the codes
+         *
+         * @param selected the codes of the values
+         * @return the bitmap of the rows
+         */
+        private long[] select(int[] selected) {
+            long[] result = new long[nulls.length];
+            if (selected.length == 0) {
+                return result;
+            }
+            if (bitmaps != null) {
+                for (int code : selected) {
+                    long[] bitmap = bitmaps.get(code);
+                    for (var i = 0; i < result.length; ++i) {
+                        result[i] |= bitmap[i];
+                    }
+                }
+            } else if (selected.length == 1) {
+                int code = selected[0];
+                for (var row = 0; row < rowCodes.length; ++row) {
+                    if (rowCodes[row] == code) {
+                        ColumnarReplica.set(result, row);
+                    }
+                }
+            } else {
+                boolean[] matching = new boolean[dictionary.size()];
+                for (int code : selected) {
+                    matching[code] = true;
+                }
+                for (var row = 0; row < rowCodes.length; ++row) {
+                    int code = rowCodes[row];
+                    if (code >= 0 && matching[code]) {
+                        ColumnarReplica.set(result, row);
+                    }
+                }
+            }
+            return result;
+        }
+
+        /**
+         * Get the live rows with a value, but the excluded ones
+         *
+         * @param live     the bitmap of the live rows
+         * @param excluded the bitmap of the excluded rows
+         * @return the bitmap of the rows
+         */
+        private long[] values(long[] live, long[] excluded) {
+            long[] result = new long[live.length];
+            for (var i = 0; i < result.length; ++i) {
+                result[i] = live[i] & ~nulls[i] & ~excluded[i];
+            }
+            return result;
+        }
+
+        /**
+         * Compare the rows on the values of the column, the {@literal null} values being the lowest unless asked otherwise
+         *
+         * @param order the order
+         * @return the comparator of the rows
+         */
+        private Comparator<Integer> comparator(Sort.Order order) {
+            Comparator<Object> values = this::compare;
+            if (order.isDescending()) {
+                values = values.reversed();
+            }
+            boolean nullsLast = order.getNullHandling() == Sort.NullHandling.NULLS_LAST
+                    || order.getNullHandling() == Sort.NullHandling.NATIVE && order.isDescending();
+            Comparator<Object> comparator = nullsLast ? Comparator.nullsLast(values) : Comparator.nullsFirst(values);
+            return Comparator.comparing(row -> rowCodes[row] >= 0 ? dictionary.get(rowCodes[row]) : null, comparator);
+        }
+
+        @SuppressWarnings("unchecked")
+        private int compare(Object x, Object y) {
+            return ((Comparable<Object>) x).compareTo(y);
+        }
+    }
+}
@@ -0,0 +1,283 @@
+package eu.rimbaud.libs.search;
+
+import java.time.temporal.Temporal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * The normalized form of a {@link SearchSpecification}, or of one of its nested groups: the applied criteria and groups,
+ * combined with "and", or with "or" for a disjunction, then negated if asked.
+ * <p>The normalization simplifies the criteria of each group:
+ * <ul><li>the identical criteria are applied once</li>
+ * <li>in a disjunction, the "equals" and "in" criteria on the same attribute are merged into one "in"</li>
+ * <li>in a conjunction, a "greater than or equal to" and a "less than or equal to" on the same attribute are merged into one "between"</li>
+ * <li>in a conjunction, contradicting criteria on the same attribute, e.g. two different "equals", make the group always false</li>
+ * <li>the always true or always false groups are folded into their parent</li></ul></p>
+ * <p>Contradictions are only looked for between values of the same type, the strings excepted, as their comparison
+ * depends on the collation of the database. The criteria using separate joins are left as is.</p>
+ * <p>An empty conjunction is always true, and an empty disjunction always false.</p>
+ *
+ * @param disjunction whether the criteria and groups are combined with "or" instead of "and"
+ * @param negated     whether the group is negated
+ * @param criteria    the criteria, in order
+ * @param groups      the nested groups, in order, none being always true or always false
+ * @param <T>         the type of the {@link jakarta.persistence.criteria.Root} the criteria operate on.
+ */
+record CriteriaGroup<T>(boolean disjunction,
+                        boolean negated,
+                        List<SearchCriterion<T>> criteria,
+                        List<CriteriaGroup<T>> groups) {
+
+    /**
+     * Get the always true, or always false, group.
+     *
+     * @param value the value of the group
+     * @param <T>   the root type
+     * @return the constant group
+     */
+    static <T> CriteriaGroup<T> of(boolean value) {
+        return new CriteriaGroup<>(!value, false, List.of(), List.of());
+    }
+
+    /**
+     * Normalize the criteria and nested groups of a {@link SearchSpecification}.
+     *
+     * @param spec the specification
+     * @param <T>  the root type
+     * @return the normalized specification, as a conjunction, or the always false group
+     */
+    static <T> CriteriaGroup<T> normalize(SearchSpecification<T> spec) {
+        CriteriaGroup<T> root = normalize(spec, spec, false, false, false);
+        return root != null ? root : of(true);
+    }
+
+    /**
+     * Check whether the group is always false, i.e. no entity can match it.
+     *
+     * @return {@literal true} if the group is always false
+     */
+    boolean isAlwaysFalse() {
+        return isConstant() && disjunction != negated;
+    }
+
+    /**
+     * Check whether the group is always true, e.g. has no criterion.
+     *
+     * @return {@literal true} if the group is always true
+     */
+    boolean isAlwaysTrue() {
+        return isConstant() && disjunction == negated;
+    }
+
+    private boolean isConstant() {
+        return criteria.isEmpty() && groups.isEmpty();
+    }
+
+    /**
+     * Normalize a group of a {@link SearchSpecification}.
+     *
+     * @param spec        the specification, resolving the join settings of the criteria
+     * @param group       the specification or one of its nested groups
+     * @param nested      whether the group is nested
+     * @param disjunction whether the group is a disjunction
+     * @param negated     whether the group is negated
+     * @param <T>         the root type
+     * @return the normalized group, or {@literal null} if none of its criteria is applied
+     */
+    private static <T> CriteriaGroup<T> normalize(SearchSpecification<T> spec, SearchSpecification<T> group,
+                                                  boolean nested, boolean disjunction, boolean negated) {
+        List<SearchCriterion<T>> criteria = group.appliedCriteria();
+        List<CriteriaGroup<T>> groups = new ArrayList<>();
+        boolean applied = !criteria.isEmpty();
+        for (SearchSpecification<T> child : group.getGroups()) {
+            CriteriaGroup<T> normalized = normalize(spec, child, true, child.isDisjunction(), child.isNegated());
+            if (normalized == null) {
+                continue;
+            }
+            applied = true;
+            if (!normalized.isConstant()) {
+                groups.add(normalized);
+            } else if (normalized.isAlwaysTrue() == disjunction) {
+                // true in a disjunction, or false in a conjunction
+                return of(disjunction != negated);
+            }
+        }
+        if (!applied) {
+            return null;
+        }
+        criteria = disjunction ? simplifyDisjunction(spec, criteria, nested) : simplifyConjunction(spec, criteria, nested);
+        if (criteria == null) {
+            return of(negated);
+        }
+        if (criteria.isEmpty() && groups.isEmpty()) {
+            return of(disjunction == negated);
+        }
+        return new CriteriaGroup<>(disjunction, negated, List.copyOf(criteria), List.copyOf(groups));
+    }
+
+    /**
+     * Simplify the criteria of a conjunction
+     *
+     * @return the simplified criteria, or {@literal null} if they cannot all match
+     */
+    private static <T> List<SearchCriterion<T>> simplifyConjunction(SearchSpecification<T> spec, List<SearchCriterion<T>> criteria, boolean nested) {
+        List<SearchCriterion<T>> simplified = distinct(spec, criteria, nested);
+        if (simplified.stream().anyMatch(CriteriaGroup::matchesNothing)) {
+            return null;
+        }
+        for (List<SearchCriterion<T>> same : byAttribute(spec, simplified, nested, SearchCriterion::hasValue).values()) {
+            if (same.size() < 2) {
+                continue;
+            }
+            for (var i = 0; i < same.size(); ++i) {
+                for (var j = i + 1; j < same.size(); ++j) {
+                    if (contradicts(same.get(i), same.get(j)) || contradicts(same.get(j), same.get(i))) {
+                        return null;
+                    }
+                }
+            }
+            SearchCriterion<T> lower = first(same, SearchOperationEnum.GREATER_THAN_EQUAL);
+            SearchCriterion<T> upper = first(same, SearchOperationEnum.LESS_THAN_EQUAL);
+            if (lower != null && upper != null) {
+                simplified.set(simplified.indexOf(lower), merge(lower, SearchOperationEnum.BETWEEN, List.of(lower.getValue(), upper.getValue())));
+                simplified.remove(upper);
+            }
+        }
+        return simplified;
+    }
+
+    /**
+     * Simplify the criteria of a disjunction
+     *
+     * @return the simplified criteria
+     */
+    private static <T> List<SearchCriterion<T>> simplifyDisjunction(SearchSpecification<T> spec, List<SearchCriterion<T>> criteria, boolean nested) {
+        List<SearchCriterion<T>> simplified = distinct(spec, criteria, nested);
+        simplified.removeIf(CriteriaGroup::matchesNothing);
+        Predicate<SearchCriterion<T>> equality = c -> c.getOperator() == SearchOperationEnum.IN && c.hasValue()
+                || c.getOperator() == SearchOperationEnum.EQUALS && !(c.getValue() instanceof Collection<?>);
+        for (List<SearchCriterion<T>> same : byAttribute(spec, simplified, nested, equality).values()) {
+            if (same.size() < 2) {
+                continue;
+            }
+            Set<Object> values = new LinkedHashSet<>();
+            for (SearchCriterion<T> c : same) {
+                if (c.getOperator() == SearchOperationEnum.IN) {
+                    values.addAll((Collection<?>) c.getValue());
+                } else {
+                    values.add(c.getValue());
+                }
+            }
+            simplified.set(simplified.indexOf(same.get(0)), merge(same.get(0), SearchOperationEnum.IN, new ArrayList<>(values)));
+            same.subList(1, same.size()).forEach(simplified::remove);
+        }
+        return simplified;
+    }
+
+    private static <T> List<SearchCriterion<T>> distinct(SearchSpecification<T> spec, List<SearchCriterion<T>> criteria, boolean nested) {
+        Map<CriterionKey, SearchCriterion<T>> distinct = new LinkedHashMap<>();
+        criteria.forEach(c -> distinct.putIfAbsent(spec.criterionKey(c, nested), c));
+        return new ArrayList<>(distinct.values());
+    }
+
+    /**
+     * Group the criteria applied on the same attribute, through the same joins
+     */
+    private static <T> Map<CriterionKey, List<SearchCriterion<T>>> byAttribute(SearchSpecification<T> spec, List<SearchCriterion<T>> criteria,
+                                                                            boolean nested, Predicate<SearchCriterion<T>> filter) {
+        return criteria.stream()
+                .filter(c -> !c.isSeparateJoin() && filter.test(c))
+                .collect(Collectors.groupingBy(c -> spec.criterionKey(c, nested).attribute(), LinkedHashMap::new, Collectors.toList()));
+    }
+
+    private static <T> SearchCriterion<T> first(List<SearchCriterion<T>> criteria, SearchOperationEnum operator) {
+        return criteria.stream().filter(c -> c.getOperator() == operator).findFirst().orElse(null);
+    }
+
+    /**
+     * Create the {@link SearchCriterion} replacing merged criteria
+     *
+     * @param model    the first merged criterion, giving the field path and the join settings
+     * @param operator the operator
+     * @param value    the value
+     * @return the merged criterion
+     */
+    private static <T> SearchCriterion<T> merge(SearchCriterion<T> model, SearchOperationEnum operator, Object value) {
+        var merged = new SearchCriterion<>(model.getFields(), model.getSpecifications());
+        merged.setJoinType(model.getJoinType());
+        merged.setCollectionMode(model.getCollectionMode());
+        merged.setOperator(operator);
+        merged.setValue(value);
+        return merged;
+    }
+
+    /**
+     * Check whether a {@link SearchCriterion} cannot match, i.e. is a strict "in" without value
+     */
+    private static boolean matchesNothing(SearchCriterion<?> sc) {
+        return sc.getOperator() == SearchOperationEnum.IN && !sc.hasValue();
+    }
+
+    /**
+     * Check whether no value can match two criteria on the same attribute, the first one being an "equals" or a lower bound
+     *
+     * @param first  the first criterion
+     * @param second the second criterion
+     * @return {@literal true} if the criteria contradict each other
+     */
+    private static boolean contradicts(SearchCriterion<?> first, SearchCriterion<?> second) {
+        Object x = first.getValue();
+        Object y = second.getValue();
+        return switch (first.getOperator()) {
+            case EQUALS -> switch (second.getOperator()) {
+                case EQUALS -> comparable(x, y) && !same(x, y);
+                case NOT_EQUAL -> comparable(x, y) && same(x, y);
+                case IN -> y instanceof Collection<?> values && values.stream().allMatch(v -> comparable(x, v))
+                        && values.stream().noneMatch(v -> same(x, v));
+                case NOT_IN -> y instanceof Collection<?> values && values.stream().anyMatch(v -> comparable(x, v) && same(x, v));
+                case GREATER_THAN -> ordered(x, y) && compare(x, y) <= 0;
+                case GREATER_THAN_EQUAL -> ordered(x, y) && compare(x, y) < 0;
+                case LESS_THAN -> ordered(x, y) && compare(x, y) >= 0;
+                case LESS_THAN_EQUAL -> ordered(x, y) && compare(x, y) > 0;
+                default -> false;
+            };
+            case GREATER_THAN, GREATER_THAN_EQUAL -> switch (second.getOperator()) {
+                case LESS_THAN, LESS_THAN_EQUAL -> ordered(x, y) && (compare(x, y) > 0 || compare(x, y) == 0
+                        && (first.getOperator() == SearchOperationEnum.GREATER_THAN || second.getOperator() == SearchOperationEnum.LESS_THAN));
+                default -> false;
+            };
+            default -> false;
+        };
+    }
+
+    /**
+     * Check whether two values can be compared for equality as the database would
+     */
+    private static boolean comparable(Object x, Object y) {
+        return x != null && y != null && x.getClass() == y.getClass() && !(x instanceof CharSequence);
+    }
+
+    /**
+     * Check whether two values can be ordered as the database would
+     */
+    private static boolean ordered(Object x, Object y) {
+        return comparable(x, y) && (x instanceof Number || x instanceof Temporal || x instanceof Date) && x instanceof Comparable<?>;
+    }
+
+    private static boolean same(Object x, Object y) {
+        return ordered(x, y) ? compare(x, y) == 0 : x.equals(y);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static int compare(Object x, Object y) {
+        return ((Comparable<Object>) x).compareTo(y);
+    }
+}
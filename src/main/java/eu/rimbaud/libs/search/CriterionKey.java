@@ -0,0 +1,32 @@
+package eu.rimbaud.libs.search;
+
+import jakarta.persistence.criteria.JoinType;
+
+import java.util.List;
+
+/**
+ * The canonical form of a {@link SearchCriterion}, with its value, used as an immutable cache key.
+ *
+ * @param fields         the field path
+ * @param operator       the operator
+ * @param joinType       the resolved join type
+ * @param collectionMode the resolved collection mode
+ * @param separateJoin   whether the criterion uses its own joins
+ * @param value          the value, as an unmodifiable {@literal Set} for "in" and "not in" operators, or {@literal null}
+ */
+record CriterionKey(List<String> fields,
+                    SearchOperationEnum operator,
+                    JoinType joinType,
+                    CollectionModeEnum collectionMode,
+                    boolean separateJoin,
+                    Object value) {
+
+    /**
+     * Get the key of the attribute the criterion is applied on, through the same joins: the field path and the join settings.
+     *
+     * @return the key, without operator and value
+     */
+    CriterionKey attribute() {
+        return new CriterionKey(fields, null, joinType, collectionMode, separateJoin, null);
+    }
+}
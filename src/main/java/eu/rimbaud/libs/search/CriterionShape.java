@@ -0,0 +1,23 @@
+package eu.rimbaud.libs.search;
+
+import jakarta.persistence.criteria.JoinType;
+
+import java.util.List;
+
+/**
+ * The structure of a {@link SearchCriterion}, without its value.
+ *
+ * @param fields         the field path
+ * @param operator       the operator
+ * @param joinType       the resolved join type
+ * @param collectionMode the resolved collection mode
+ * @param separateJoin   whether the criterion uses its own joins
+ * @param valueTypes     the types of the bound values, empty if the criterion has no value
+ */
+record CriterionShape(List<String> fields,
+                      SearchOperationEnum operator,
+                      JoinType joinType,
+                      CollectionModeEnum collectionMode,
+                      boolean separateJoin,
+                      List<Class<?>> valueTypes) {
+}
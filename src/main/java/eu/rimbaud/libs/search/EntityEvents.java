@@ -0,0 +1,241 @@
+package eu.rimbaud.libs.search;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Hibernate;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.AbstractCollectionEvent;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostCollectionRecreateEvent;
+import org.hibernate.event.spi.PostCollectionRecreateEventListener;
+import org.hibernate.event.spi.PostCollectionRemoveEvent;
+import org.hibernate.event.spi.PostCollectionRemoveEventListener;
+import org.hibernate.event.spi.PostCollectionUpdateEvent;
+import org.hibernate.event.spi.PostCollectionUpdateEventListener;
+import org.hibernate.event.spi.PostCommitDeleteEventListener;
+import org.hibernate.event.spi.PostCommitInsertEventListener;
+import org.hibernate.event.spi.PostCommitUpdateEventListener;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.persister.entity.EntityPersister;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Dispatches the Hibernate entity events of a persistence unit to {@link Subscriber}. The Hibernate listeners are
+ * registered once per persistence unit, Hibernate rejecting duplicated listeners.
+ */
+final class EntityEvents {
+
+    private static final Map<SessionFactoryImplementor, EntityEvents> EVENTS = Collections.synchronizedMap(new WeakHashMap<>());
+
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+
+    private EntityEvents(SessionFactoryImplementor sessionFactory) {
+        var registry = sessionFactory.getServiceRegistry().getService(EventListenerRegistry.class);
+        var flush = new FlushListener();
+        registry.appendListeners(EventType.POST_INSERT, flush);
+        registry.appendListeners(EventType.POST_UPDATE, flush);
+        registry.appendListeners(EventType.POST_DELETE, flush);
+        registry.appendListeners(EventType.POST_COLLECTION_RECREATE, flush);
+        registry.appendListeners(EventType.POST_COLLECTION_UPDATE, flush);
+        registry.appendListeners(EventType.POST_COLLECTION_REMOVE, flush);
+        var commit = new CommitListener();
+        registry.appendListeners(EventType.POST_COMMIT_INSERT, commit);
+        registry.appendListeners(EventType.POST_COMMIT_UPDATE, commit);
+        registry.appendListeners(EventType.POST_COMMIT_DELETE, commit);
+    }
+
+    /**
+     * Subscribe to the entity events of a persistence unit
+     *
+     * @param entityManagerFactory the entity manager factory, backed by Hibernate
+     * @param subscriber           the subscriber
+     * @return the action unsubscribing the subscriber
+     */
+    static Runnable subscribe(EntityManagerFactory entityManagerFactory, Subscriber subscriber) {
+        var events = EVENTS.computeIfAbsent(entityManagerFactory.unwrap(SessionFactoryImplementor.class), EntityEvents::new);
+        events.subscribers.add(subscriber);
+        return () -> events.subscribers.remove(subscriber);
+    }
+
+    /**
+     * Receives the entity events, on the thread flushing or committing the changes.
+     */
+    interface Subscriber {
+
+        /**
+         * Called on flush, once an entity has been inserted or updated
+         *
+         * @param type   the entity type
+         * @param entity the entity
+         */
+        default void onWrite(Class<?> type, Object entity) {
+        }
+
+        /**
+         * Called on flush, once an entity has been deleted
+         *
+         * @param type   the entity type
+         * @param entity the entity
+         */
+        default void onDelete(Class<?> type, Object entity) {
+        }
+
+        /**
+         * Called on flush, once a collection of an entity has been changed
+         *
+         * @param type  the owner entity type
+         * @param owner the owner entity
+         */
+        default void onCollectionChange(Class<?> type, Object owner) {
+        }
+
+        /**
+         * Called once an entity insert or update has been committed, before {@link #onCommit(Class)}
+         *
+         * @param type   the entity type
+         * @param entity the entity
+         */
+        default void onCommittedWrite(Class<?> type, Object entity) {
+        }
+
+        /**
+         * Called once an entity delete has been committed, before {@link #onCommit(Class)}
+         *
+         * @param type   the entity type
+         * @param entity the entity
+         */
+        default void onCommittedDelete(Class<?> type, Object entity) {
+        }
+
+        /**
+         * Called once an entity insert, update or delete has been committed
+         *
+         * @param type the entity type
+         */
+        default void onCommit(Class<?> type) {
+        }
+
+        /**
+         * Called once a transaction with an entity insert, update or delete has failed to commit, e.g. on rollback,
+         * the changes seen on flush being reverted
+         *
+         * @param type the entity type
+         */
+        default void onRollback(Class<?> type) {
+        }
+    }
+
+    private final class FlushListener implements PostInsertEventListener, PostUpdateEventListener, PostDeleteEventListener,
+            PostCollectionRecreateEventListener, PostCollectionUpdateEventListener, PostCollectionRemoveEventListener {
+
+        @Override
+        public void onPostInsert(PostInsertEvent event) {
+            Class<?> type = event.getPersister().getMappedClass();
+            subscribers.forEach(s -> s.onWrite(type, event.getEntity()));
+        }
+
+        @Override
+        public void onPostUpdate(PostUpdateEvent event) {
+            Class<?> type = event.getPersister().getMappedClass();
+            subscribers.forEach(s -> s.onWrite(type, event.getEntity()));
+        }
+
+        @Override
+        public void onPostDelete(PostDeleteEvent event) {
+            Class<?> type = event.getPersister().getMappedClass();
+            subscribers.forEach(s -> s.onDelete(type, event.getEntity()));
+        }
+
+        @Override
+        public void onPostRecreateCollection(PostCollectionRecreateEvent event) {
+            onCollectionChange(event);
+        }
+
+        @Override
+        public void onPostUpdateCollection(PostCollectionUpdateEvent event) {
+            onCollectionChange(event);
+        }
+
+        @Override
+        public void onPostRemoveCollection(PostCollectionRemoveEvent event) {
+            onCollectionChange(event);
+        }
+
+        private void onCollectionChange(AbstractCollectionEvent event) {
+            Object owner = event.getAffectedOwnerOrNull();
+            if (owner != null) {
+                Class<?> type = Hibernate.getClass(owner);
+                subscribers.forEach(s -> s.onCollectionChange(type, owner));
+            }
+        }
+
+        @Override
+        public boolean requiresPostCommitHandling(EntityPersister persister) {
+            return false;
+        }
+    }
+
+    private final class CommitListener implements PostCommitInsertEventListener, PostCommitUpdateEventListener, PostCommitDeleteEventListener {
+
+        @Override
+        public void onPostInsert(PostInsertEvent event) {
+            Class<?> type = event.getPersister().getMappedClass();
+            subscribers.forEach(s -> s.onCommittedWrite(type, event.getEntity()));
+            onCommit(event.getPersister());
+        }
+
+        @Override
+        public void onPostUpdate(PostUpdateEvent event) {
+            Class<?> type = event.getPersister().getMappedClass();
+            subscribers.forEach(s -> s.onCommittedWrite(type, event.getEntity()));
+            onCommit(event.getPersister());
+        }
+
+        @Override
+        public void onPostDelete(PostDeleteEvent event) {
+            Class<?> type = event.getPersister().getMappedClass();
+            subscribers.forEach(s -> s.onCommittedDelete(type, event.getEntity()));
+            onCommit(event.getPersister());
+        }
+
+        @Override
+        public void onPostInsertCommitFailed(PostInsertEvent event) {
+            onRollback(event.getPersister());
+        }
+
+        @Override
+        public void onPostUpdateCommitFailed(PostUpdateEvent event) {
+            onRollback(event.getPersister());
+        }
+
+        @Override
+        public void onPostDeleteCommitFailed(PostDeleteEvent event) {
+            onRollback(event.getPersister());
+        }
+
+        private void onCommit(EntityPersister persister) {
+            Class<?> type = persister.getMappedClass();
+            subscribers.forEach(s -> s.onCommit(type));
+        }
+
+        private void onRollback(EntityPersister persister) {
+            Class<?> type = persister.getMappedClass();
+            subscribers.forEach(s -> s.onRollback(type));
+        }
+
+        @Override
+        public boolean requiresPostCommitHandling(EntityPersister persister) {
+            return !subscribers.isEmpty();
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package eu.rimbaud.libs.search;
+
+import java.util.Set;
+
+/**
+ * The canonical form of a {@link SearchSpecification} or of one of its nested groups, with the values, used as an immutable cache key.
+ * The order of the criteria and of the groups does not matter.
+ *
+ * @param disjunction whether the criteria and groups are combined with "or" instead of "and"
+ * @param negated     whether the group is negated
+ * @param criteria    the canonical criteria
+ * @param groups      the canonical nested groups
+ */
+record GroupKey(boolean disjunction,
+                boolean negated,
+                Set<CriterionKey> criteria,
+                Set<GroupKey> groups) {
+}
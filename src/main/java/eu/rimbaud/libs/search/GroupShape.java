@@ -0,0 +1,17 @@
+package eu.rimbaud.libs.search;
+
+import java.util.List;
+
+/**
+ * The structure of a {@link SearchSpecification} or of one of its nested groups, without the values.
+ *
+ * @param disjunction whether the criteria and groups are combined with "or" instead of "and"
+ * @param negated     whether the group is negated
+ * @param criteria    the shape of each criterion, in order
+ * @param groups      the shape of each nested group, in order
+ */
+record GroupShape(boolean disjunction,
+                  boolean negated,
+                  List<CriterionShape> criteria,
+                  List<GroupShape> groups) {
+}
@@ -0,0 +1,144 @@
+package eu.rimbaud.libs.search;
+
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Predicate;
+import org.hibernate.query.BindableType;
+import org.hibernate.query.sqm.NodeBuilder;
+import org.hibernate.query.sqm.tree.expression.JpaCriteriaParameter;
+import org.hibernate.query.sqm.tree.expression.ValueBindJpaCriteriaParameter;
+import org.hibernate.type.descriptor.java.ArrayJavaType;
+import org.hibernate.type.spi.TypeConfiguration;
+import org.springframework.core.convert.ConversionException;
+import org.springframework.core.convert.support.DefaultConversionService;
+import org.springframework.util.ClassUtils;
+
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Prepares the {@literal Collection} values of "in" and "not in" {@link SearchCriterion} according to an {@link InStrategyEnum}.
+ */
+final class InLists {
+
+    /**
+     * The name of the function checking whether an array contains an element.
+     */
+    static final String ARRAY_CONTAINS = "array_contains";
+
+    private InLists() {
+    }
+
+    /**
+     * Check whether the persistence provider and its dialect support array parameters
+     *
+     * @param cb the criteria builder
+     * @return true if the {@link #ARRAY_CONTAINS} function is available
+     */
+    static boolean supportsArrays(CriteriaBuilder cb) {
+        return cb instanceof NodeBuilder nb
+                && nb.getQueryEngine().getSqmFunctionRegistry().findFunctionDescriptor(ARRAY_CONTAINS) != null;
+    }
+
+    /**
+     * Create the {@link Predicate} checking that an array contains an attribute value
+     *
+     * @param cb            the criteria builder, supporting arrays
+     * @param array         the array value
+     * @param attribute     the attribute
+     * @param parameterName the name of the array parameter, or {@literal null} to bind the array value directly
+     * @return the resulting {@literal Predicate}
+     */
+    @SuppressWarnings("unchecked")
+    static <E> Predicate arrayContains(CriteriaBuilder cb, Object array, Expression<?> attribute, String parameterName) {
+        var nb = (NodeBuilder) cb;
+        BindableType<E[]> type = arrayType(nb, array.getClass().getComponentType());
+        Expression<E[]> expression = parameterName == null
+                ? new ValueBindJpaCriteriaParameter<>(type, (E[]) array, nb)
+                : new JpaCriteriaParameter<>(parameterName, type, false, nb);
+        return nb.arrayContains(expression, (Expression<E>) attribute);
+    }
+
+    /**
+     * Resolve the array type of an element type, the persistence provider not resolving it from the array class
+     *
+     * @param nb          the criteria builder
+     * @param elementType the element type
+     * @return the array type
+     */
+    @SuppressWarnings("unchecked")
+    private static <E> BindableType<E[]> arrayType(NodeBuilder nb, Class<?> elementType) {
+        TypeConfiguration tc = nb.getTypeConfiguration();
+        var javaType = (ArrayJavaType<E>) (Object) tc.getJavaTypeRegistry().resolveDescriptor(elementType.arrayType());
+        return (BindableType<E[]>) javaType.resolveType(tc, nb.getSessionFactory().getJdbcServices().getDialect(),
+                tc.getBasicTypeForJavaType((Class<E>) elementType), null, tc.getCurrentBaseSqlTypeIndicators());
+    }
+
+    /**
+     * Split a {@literal Collection} into the values to bind according to the strategy
+     *
+     * @param values      the collection
+     * @param strategy    the strategy, already resolved against the dialect
+     * @param chunkSize   the maximum chunk size for {@link InStrategyEnum#CHUNKING}
+     * @param elementType the type of the attribute, the component type of the array for {@link InStrategyEnum#ARRAY}
+     * @return the values to bind, one per query parameter
+     * @throws IllegalArgumentException if a value cannot be converted into the type of the attribute
+     */
+    static List<Object> split(Collection<?> values, InStrategyEnum strategy, int chunkSize, Class<?> elementType) {
+        return switch (strategy) {
+            case PLAIN -> List.of(values);
+            case PADDING -> List.of(pad(new ArrayList<>(values), Integer.MAX_VALUE));
+            case CHUNKING -> chunk(new ArrayList<>(values), chunkSize);
+            case ARRAY -> List.of(toArray(values, elementType));
+        };
+    }
+
+    /**
+     * Pad a list to the next power of two, bounded by a maximum size, by repeating its last element
+     *
+     * @param values the list, must not be empty
+     * @param max    the maximum size
+     * @return the padded list
+     */
+    static List<Object> pad(List<Object> values, int max) {
+        int size = Math.min(Integer.highestOneBit(values.size() - 1) << 1, max);
+        if (values.size() <= 1 || size <= values.size()) {
+            return values;
+        }
+        List<Object> padded = new ArrayList<>(size);
+        padded.addAll(values);
+        Object last = values.get(values.size() - 1);
+        while (padded.size() < size) {
+            padded.add(last);
+        }
+        return padded;
+    }
+
+    private static List<Object> chunk(List<Object> values, int chunkSize) {
+        List<Object> chunks = new ArrayList<>((values.size() + chunkSize - 1) / chunkSize);
+        for (var i = 0; i < values.size(); i += chunkSize) {
+            chunks.add(pad(values.subList(i, Math.min(i + chunkSize, values.size())), chunkSize));
+        }
+        return chunks;
+    }
+
+    /**
+     * Copy a {@literal Collection} into an array of the attribute type, the values of another type being converted,
+     * e.g. an {@literal Integer} into a {@literal Long}
+     */
+    private static Object toArray(Collection<?> values, Class<?> elementType) {
+        Class<?> type = ClassUtils.resolvePrimitiveIfNecessary(elementType);
+        var array = (Object[]) Array.newInstance(type, values.size());
+        var i = 0;
+        for (Object value : values) {
+            try {
+                array[i++] = value == null || type.isInstance(value) ? value : DefaultConversionService.getSharedInstance().convert(value, type);
+            } catch (ConversionException e) {
+                throw new IllegalArgumentException("Cannot convert " + value + " into " + type.getName(), e);
+            }
+        }
+        return array;
+    }
+}
@@ -0,0 +1,345 @@
+package eu.rimbaud.libs.search;
+
+import org.springframework.core.convert.ConversionException;
+import org.springframework.core.convert.support.DefaultConversionService;
+import org.springframework.util.ClassUtils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.function.ToIntFunction;
+import java.util.regex.Pattern;
+
+/**
+ * A {@link SearchSpecification} compiled into a {@link Predicate} evaluated in memory.
+ * <p>The criteria are organized as a tree of field paths. Like the joins of the {@literal SearchSpecification},
+ * the criteria sharing a path to a {@literal Collection} must be matched by the same element, unless a separate join is asked.
+ * A criterion on a {@literal null} value or relationship never matches, following the SQL semantics.</p>
+ * <p>The nested groups are evaluated with the three-valued logic of SQL: a criterion on a {@literal null} value or
+ * relationship is unknown, and so is its negation.</p>
+ *
+ * @param <T> the type of the evaluated objects
+ */
+final class InMemoryPredicate<T> implements Predicate<T> {
+
+    private static final int FALSE = 0;
+    private static final int TRUE = 1;
+    private static final int UNKNOWN = 2;
+
+    private final Node root;
+
+    private InMemoryPredicate(Node root) {
+        this.root = root;
+    }
+
+    @Override
+    public boolean test(T t) {
+        return t != null && root.evaluate(t) == TRUE;
+    }
+
+    /**
+     * Convert the operator and value of a {@link SearchCriterion} into a {@link Predicate} on the field value.
+     * The values are compared with {@link Object#equals(Object)} and {@link Comparable#compareTo(Object)}, once
+     * converted into the type of the field, e.g. an {@literal Integer} into a {@literal Long}. The {@literal %} and
+     * {@literal _} of a "like" are wildcards, as in SQL.
+     *
+     * @param sc   the {@literal SearchCriterion}
+     * @param type the type of the field
+     * @return the predicate on the field value, never called with {@literal null}
+     * @throws IllegalArgumentException if a value cannot be converted into the type of the field
+     */
+    @SuppressWarnings("unchecked")
+    static Predicate<Object> operator(SearchCriterion<?> sc, Class<?> type) {
+        Object value = switch (sc.getOperator()) {
+            case LIKE, STARTS_WITH, STARTS_WITH_IGNORE_CASE, ENDS_WITH, CONTAINS_IGNORE_CASE, EQUALS_IGNORE_CASE -> sc.getValue();
+            default -> convert(sc.getValue(), type);
+        };
+        return switch (sc.getOperator()) {
+            case EQUALS -> value::equals;
+            case NOT_EQUAL -> v -> !value.equals(v);
+            case LIKE -> {
+                String needle = value.toString();
+                if (needle.indexOf('%') < 0 && needle.indexOf('_') < 0) {
+                    yield v -> containsIgnoreCase(v instanceof String s ? s : v.toString(), needle);
+                }
+                Pattern pattern = likePattern(needle);
+                yield v -> pattern.matcher(v instanceof String s ? s : v.toString()).find();
+            }
+            case STARTS_WITH -> {
+                String prefix = value.toString();
+                yield v -> v.toString().startsWith(prefix);
+            }
+            case STARTS_WITH_IGNORE_CASE -> {
+                String prefix = value.toString();
+                yield v -> v.toString().regionMatches(true, 0, prefix, 0, prefix.length());
+            }
+            case ENDS_WITH -> {
+                String suffix = value.toString();
+                yield v -> v.toString().endsWith(suffix);
+            }
+            case CONTAINS_IGNORE_CASE -> {
+                String needle = value.toString();
+                yield v -> containsIgnoreCase(v.toString(), needle);
+            }
+            case EQUALS_IGNORE_CASE -> {
+                String other = value.toString();
+                yield v -> v.toString().equalsIgnoreCase(other);
+            }
+            case IN -> {
+                Set<Object> values = sc.hasValue() ? new HashSet<>((Collection<?>) value) : Set.of();
+                yield values::contains;
+            }
+            case NOT_IN -> {
+                Set<Object> values = new HashSet<>((Collection<?>) value);
+                yield v -> !values.contains(v);
+            }
+            case LESS_THAN -> v -> ((Comparable<Object>) v).compareTo(value) < 0;
+            case LESS_THAN_EQUAL -> v -> ((Comparable<Object>) v).compareTo(value) <= 0;
+            case GREATER_THAN -> v -> ((Comparable<Object>) v).compareTo(value) > 0;
+            case GREATER_THAN_EQUAL -> v -> ((Comparable<Object>) v).compareTo(value) >= 0;
+            case BETWEEN -> {
+                Object from = ((List<?>) value).get(0);
+                Object to = ((List<?>) value).get(1);
+                yield v -> ((Comparable<Object>) v).compareTo(from) >= 0 && ((Comparable<Object>) v).compareTo(to) <= 0;
+            }
+        };
+    }
+
+    /**
+     * Convert a value, or the elements of a {@literal Collection} value, into the type of a field
+     *
+     * @param value the value
+     * @param type  the type of the field
+     * @return the converted value
+     * @throws IllegalArgumentException if the value cannot be converted
+     */
+    private static Object convert(Object value, Class<?> type) {
+        if (value instanceof Collection<?> values) {
+            return values.stream().map(v -> convert(v, type)).toList();
+        }
+        Class<?> target = ClassUtils.resolvePrimitiveIfNecessary(type);
+        if (value == null || target.isInstance(value)) {
+            return value;
+        }
+        try {
+            return DefaultConversionService.getSharedInstance().convert(value, target);
+        } catch (ConversionException e) {
+            throw new IllegalArgumentException("Cannot convert " + value + " into " + target.getName(), e);
+        }
+    }
+
+    /**
+     * Translate a "like" value into a case-insensitive {@link Pattern} found within the field value: {@literal %}
+     * matches any sequence of characters and {@literal _} any character, the other characters matching literally.
+     *
+     * @param value the value, without the surrounding wildcards
+     * @return the pattern
+     */
+    private static Pattern likePattern(String value) {
+        var regex = new StringBuilder(value.length() + 16);
+        var start = 0;
+        for (var i = 0; i < value.length(); ++i) {
+            char c = value.charAt(i);
+            if (c == '%' || c == '_') {
+                if (i > start) {
+                    regex.append(Pattern.quote(value.substring(start, i)));
+                }
+                regex.append(c == '%' ? ".*" : ".");
+                start = i + 1;
+            }
+        }
+        if (start < value.length()) {
+            regex.append(Pattern.quote(value.substring(start)));
+        }
+        return Pattern.compile(regex.toString(), Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE | Pattern.DOTALL);
+    }
+
+    private static boolean containsIgnoreCase(String s, String needle) {
+        for (int i = 0, max = s.length() - needle.length(); i <= max; ++i) {
+            if (s.regionMatches(true, i, needle, 0, needle.length())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Builds an {@link InMemoryPredicate} criterion by criterion.
+     */
+    static final class Builder {
+
+        private final Node root;
+
+        Builder(Class<?> type) {
+            this(type, false);
+        }
+
+        /**
+         * @param type        the type of the evaluated objects
+         * @param disjunction whether the criteria and groups are combined with "or" instead of "and"
+         */
+        Builder(Class<?> type, boolean disjunction) {
+            this.root = new Node(type, null, disjunction);
+        }
+
+        /**
+         * Add a criterion on a field path
+         *
+         * @param keys   the key of each relationship of the path, equal keys sharing the same relationship element
+         * @param fields the field path
+         * @param sc     the criterion, converted with {@link #operator(SearchCriterion, Class)}
+         * @return the {@link Builder} for chaining
+         * @throws IllegalArgumentException if the path does not exist, or a value cannot be converted into the type of the field
+         */
+        Builder add(String[] keys, String[] fields, SearchCriterion<?> sc) {
+            Node node = root;
+            for (var i = 0; i < fields.length - 1; ++i) {
+                node = node.child(keys[i], fields[i]);
+            }
+            node.leaf(fields[fields.length - 1], sc);
+            return this;
+        }
+
+        /**
+         * Add a nested group, evaluated on the same object
+         *
+         * @param group   the builder of the group
+         * @param negated whether the group is negated
+         * @return the {@link Builder} for chaining
+         */
+        Builder group(Builder group, boolean negated) {
+            Node node = group.root;
+            node.freeze();
+            root.leavesList.add(negated ? o -> negate(node.evaluate(o)) : node::evaluate);
+            return this;
+        }
+
+        /**
+         * Build the {@link InMemoryPredicate}
+         *
+         * @param <T> the type of the evaluated objects
+         * @return the compiled predicate
+         */
+        <T> InMemoryPredicate<T> build() {
+            root.freeze();
+            return new InMemoryPredicate<>(root);
+        }
+    }
+
+    private static int negate(int value) {
+        return value == UNKNOWN ? UNKNOWN : TRUE - value;
+    }
+
+    /**
+     * A type along a field path, with the criteria applied on its fields and the relationships to other types.
+     * The criteria and relationships are evaluated to {@link #TRUE}, {@link #FALSE} or {@link #UNKNOWN}.
+     */
+    private static final class Node {
+
+        private final Class<?> type;
+        private final Accessors.Accessor accessor;
+        private final boolean collection;
+        private final boolean disjunction;
+        private final Map<String, Node> childrenByKey = new LinkedHashMap<>();
+        private final List<ToIntFunction<Object>> leavesList = new ArrayList<>();
+        private Node[] children;
+        private ToIntFunction<Object>[] leaves;
+
+        private Node(Class<?> type, Accessors.Accessor accessor, boolean disjunction) {
+            this.type = type;
+            this.accessor = accessor;
+            this.collection = accessor != null && accessor.isCollection();
+            this.disjunction = disjunction;
+        }
+
+        private Node child(String key, String field) {
+            return childrenByKey.computeIfAbsent(key, k -> {
+                var relationship = Accessors.get(type, field);
+                return new Node(relationship.valueType(), relationship, disjunction);
+            });
+        }
+
+        private void leaf(String field, SearchCriterion<?> sc) {
+            var accessor = Accessors.get(type, field);
+            var getter = accessor.getter();
+            Predicate<Object> predicate = operator(sc, accessor.valueType());
+            leavesList.add(o -> {
+                Object value = getter.apply(o);
+                return value == null ? UNKNOWN : predicate.test(value) ? TRUE : FALSE;
+            });
+        }
+
+        @SuppressWarnings("unchecked")
+        private void freeze() {
+            if (leaves != null) {
+                return;
+            }
+            childrenByKey.values().forEach(Node::freeze);
+            children = childrenByKey.values().toArray(Node[]::new);
+            leaves = leavesList.toArray(ToIntFunction[]::new);
+        }
+
+        /**
+         * Evaluate the criteria on an instance of the type, combined with "and", or "or" for a disjunction.
+         * The evaluation stops at the first false criterion, or true for a disjunction.
+         */
+        private int evaluate(Object o) {
+            int stop = disjunction ? TRUE : FALSE;
+            int result = disjunction ? FALSE : TRUE;
+            for (ToIntFunction<Object> leaf : leaves) {
+                int value = leaf.applyAsInt(o);
+                if (value == stop) {
+                    return stop;
+                }
+                if (value == UNKNOWN) {
+                    result = UNKNOWN;
+                }
+            }
+            for (Node child : children) {
+                int value = child.matches(o);
+                if (value == stop) {
+                    return stop;
+                }
+                if (value == UNKNOWN) {
+                    result = UNKNOWN;
+                }
+            }
+            return result;
+        }
+
+        /**
+         * Evaluate the criteria on the relationship of a parent instance: unknown for a missing relationship,
+         * as with an outer join, or for a {@literal Collection}, whether one of its elements matches.
+         */
+        private int matches(Object parent) {
+            Object value = accessor.getter().apply(parent);
+            if (value == null) {
+                return collection ? FALSE : UNKNOWN;
+            }
+            if (!collection) {
+                return evaluate(value);
+            }
+            if (value instanceof List<?> list && value instanceof RandomAccess) {
+                for (var i = 0; i < list.size(); ++i) {
+                    Object element = list.get(i);
+                    if (element != null && evaluate(element) == TRUE) {
+                        return TRUE;
+                    }
+                }
+                return FALSE;
+            }
+            for (Object element : (Collection<?>) value) {
+                if (element != null && evaluate(element) == TRUE) {
+                    return TRUE;
+                }
+            }
+            return FALSE;
+        }
+    }
+}
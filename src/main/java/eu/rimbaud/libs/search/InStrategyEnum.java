@@ -0,0 +1,29 @@
+package eu.rimbaud.libs.search;
+
+/**
+ * Defines how the {@literal Collection} value of an "in" or "not in" {@link SearchCriterion} is bound to the query.
+ */
+public enum InStrategyEnum {
+
+    /**
+     * One query parameter per element. Each distinct collection size results in a distinct query plan.
+     */
+    PLAIN,
+    /**
+     * One query parameter per element, the collection being padded to the next power of two by repeating its last element.
+     * The number of distinct query plans is logarithmic in the collection size.
+     */
+    PADDING,
+    /**
+     * The collection is split into chunks of a configurable maximum size, each chunk being padded like {@link #PADDING}.
+     * The chunks are combined with {@literal OR} ("in") or {@literal AND} ("not in"), keeping each list below the
+     * parameter limit of the database driver.
+     */
+    CHUNKING,
+    /**
+     * The collection is bound as a single array parameter, e.g. <code>col = any(?)</code>, whatever its size.
+     * Only available on dialects supporting arrays, {@link #PADDING} being used otherwise.
+     */
+    ARRAY
+
+}
@@ -0,0 +1,77 @@
+package eu.rimbaud.libs.search;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The identifiers found in the {@link TrigramIndex} of a {@link SearchSpecification} for the criteria of its normalized
+ * form, looked up once per execution, see {@link SearchSpecification#lookUpIndexes(CriteriaGroup)}. The shape, the
+ * {@link jakarta.persistence.criteria.Predicate} or the SQL query and the parameter values of an execution are all
+ * computed from the same lookups, even if an index changes meanwhile. It is immutable.
+ *
+ * @param <T> the type of the {@link jakarta.persistence.criteria.Root} the criteria operate on.
+ */
+final class IndexLookups<T> {
+
+    private static final IndexLookups<?> NONE = new IndexLookups<>(Map.of());
+
+    private final Map<SearchCriterion<T>, Lookup> lookups;
+
+    private IndexLookups(Map<SearchCriterion<T>, Lookup> lookups) {
+        this.lookups = lookups;
+    }
+
+    /**
+     * Get the lookups of a specification without {@literal TrigramIndex}
+     *
+     * @param <T> the root type
+     * @return the empty lookups
+     */
+    @SuppressWarnings("unchecked")
+    static <T> IndexLookups<T> none() {
+        return (IndexLookups<T>) NONE;
+    }
+
+    /**
+     * Create the lookups
+     *
+     * @param lookups the identifiers found for each criterion, by criterion identity, with the identifier field of the index
+     * @param <T>     the root type
+     * @return the lookups
+     */
+    static <T> IndexLookups<T> of(IdentityHashMap<SearchCriterion<T>, Lookup> lookups) {
+        return lookups.isEmpty() ? none() : new IndexLookups<>(Collections.unmodifiableMap(lookups));
+    }
+
+    /**
+     * Get the identifiers of the entities matching a {@link SearchCriterion}
+     *
+     * @param sc the criterion
+     * @return the identifiers, or {@literal null} if the criterion is not resolved through an index
+     */
+    List<Object> ids(SearchCriterion<T> sc) {
+        Lookup lookup = lookups.get(sc);
+        return lookup != null ? lookup.ids() : null;
+    }
+
+    /**
+     * Get the identifier field of the index a {@link SearchCriterion} is resolved through
+     *
+     * @param sc the criterion, resolved through an index
+     * @return the identifier field
+     */
+    String idField(SearchCriterion<T> sc) {
+        return lookups.get(sc).idField();
+    }
+
+    /**
+     * The identifiers found in a {@link TrigramIndex} for a {@link SearchCriterion}
+     *
+     * @param idField the identifier field of the index
+     * @param ids     the sorted identifiers
+     */
+    record Lookup(String idField, List<Object> ids) {
+    }
+}
@@ -0,0 +1,239 @@
+package eu.rimbaud.libs.search;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.jdbc.core.RowMapper;
+
+import javax.sql.DataSource;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Executes {@link SearchSpecification} as plain SQL queries through JDBC, as an alternative to the {@link SearchExecutor}
+ * for the most frequent searches: no criteria tree is built nor translated, and no entity is loaded, the rows being
+ * mapped into projections or identifiers.
+ * <p>The specifications are compiled into parameterized SQL queries, see {@link SqlQuery}, with the tables and columns
+ * of the mapping of the entity, resolved once, see {@link TableMapping}. The criteria have the same semantics as with a
+ * {@literal SearchExecutor}, and each entity is returned once: the criteria on a {@literal Collection} are checked with
+ * {@literal EXISTS} subqueries, as for the projections and the identifiers of a {@literal SearchExecutor}.</p>
+ * <p>Specifications with the same shape and the same number of "in" values share the same SQL query, so that the
+ * statement cache of the database is hit: use {@link InStrategyEnum#PADDING} to bound the number of queries.
+ * {@link InStrategyEnum#ARRAY} is applied as {@literal PADDING}.</p>
+ * <p>The queries run on the connection of the current Spring transaction, if any, e.g. within a {@literal @Transactional}
+ * method, so that the changes flushed by the {@link jakarta.persistence.EntityManager} are seen.</p>
+ * <p>Each execution is notified to the {@link SearchListener} of the {@literal SearchSpecification}, if any.
+ * The specifications normalized into an always false one are answered without any query, nor notification.</p>
+ *
+ * @param <T> the type of the entity the {@literal SearchSpecification} operates on.
+ */
+public class JdbcSearchExecutor<T> {
+
+    /**
+     * The default maximum number of cached SQL queries.
+     */
+    public static final int DEFAULT_CACHE_SIZE = 256;
+
+    private final TableMapping mapping;
+    private final JdbcTemplate jdbcTemplate;
+    private final Map<QueryKey, SqlQuery> queries;
+
+    /**
+     * Construct a {@link JdbcSearchExecutor} with the default cache size
+     *
+     * @param entityManagerFactory the entity manager factory the entity is mapped by, from Hibernate, must not be {@literal null}.
+     * @param dataSource           the data source of the database, must not be {@literal null}.
+     * @param domainClass          the entity type, must not be {@literal null}.
+     * @throws UnsupportedOperationException if the entity is not mapped to a single table, see {@link TableMapping}
+     */
+    public JdbcSearchExecutor(EntityManagerFactory entityManagerFactory, DataSource dataSource, Class<T> domainClass) {
+        this(entityManagerFactory, dataSource, domainClass, DEFAULT_CACHE_SIZE);
+    }
+
+    /**
+     * Construct a {@link JdbcSearchExecutor}
+     *
+     * @param entityManagerFactory the entity manager factory the entity is mapped by, from Hibernate, must not be {@literal null}.
+     * @param dataSource           the data source of the database, must not be {@literal null}.
+     * @param domainClass          the entity type, must not be {@literal null}.
+     * @param cacheSize            the maximum number of cached SQL queries, the least recently used being evicted first
+     * @throws UnsupportedOperationException if the entity is not mapped to a single table, see {@link TableMapping}
+     */
+    public JdbcSearchExecutor(EntityManagerFactory entityManagerFactory, DataSource dataSource, Class<T> domainClass, int cacheSize) {
+        this.mapping = TableMapping.of(entityManagerFactory, domainClass);
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.queries = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<QueryKey, SqlQuery> eldest) {
+                return size() > cacheSize;
+            }
+        });
+    }
+
+    /**
+     * Find all entities matching the {@link SearchSpecification}, sorted, projected into a record or an interface:
+     * only the columns of the given attribute paths are selected.
+     * <p>The relationships of nested paths reuse the inner joins of the criteria, or are left joined. The paths cannot go
+     * through a {@literal Collection}. The values are read as the types of the attributes.</p>
+     *
+     * @param spec       the specification, must not be {@literal null}.
+     * @param projection the record or interface type, must not be {@literal null}.
+     * @param sort       the sort, on attributes of the entity, must not be {@literal null}.
+     * @param paths      the dot-separated attribute paths, or none to derive them from the projection type
+     * @param <P>        the projection type
+     * @return the projections of the matching entities
+     * @throws IllegalArgumentException      if the projection type is neither a record nor an interface, or a path is invalid
+     * @throws UnsupportedOperationException if the mapping of a path is not supported, see {@link TableMapping}
+     * @see SearchExecutor#findAll(SearchSpecification, Class, Sort, String...)
+     */
+    public <P> List<P> findAll(SearchSpecification<T> spec, Class<P> projection, Sort sort, String... paths) {
+        Projection<P> mapper = Projection.of(projection, paths);
+        long start = System.nanoTime();
+        CriteriaGroup<T> criteria = spec.normalize();
+        if (criteria.isAlwaysFalse()) {
+            return List.of();
+        }
+        PreparedQuery prepared = prepare(spec, criteria, sort, SqlQuery.Kind.PROJECTION, mapper.paths());
+        long built = System.nanoTime();
+        Class<?>[] types = prepared.query().types();
+        List<P> projections = jdbcTemplate.query(prepared.statement(0), (RowMapper<P>) (rs, row) -> {
+            Object[] values = new Object[types.length];
+            for (var i = 0; i < values.length; ++i) {
+                values[i] = rs.getObject(i + 1, types[i]);
+            }
+            return mapper.map(values);
+        });
+        notify(spec, criteria, "findAll", prepared, start, built, projections.size());
+        return projections;
+    }
+
+    /**
+     * Find the identifiers of all entities matching the {@link SearchSpecification}, sorted
+     *
+     * @param spec the specification, must not be {@literal null}.
+     * @param sort the sort, on attributes of the entity, must not be {@literal null}.
+     * @return the identifiers of the matching entities
+     * @throws UnsupportedOperationException if the mapping of a path is not supported, see {@link TableMapping}
+     * @see SearchExecutor#findIds(SearchSpecification, Sort)
+     */
+    public List<Object> findIds(SearchSpecification<T> spec, Sort sort) {
+        long start = System.nanoTime();
+        CriteriaGroup<T> criteria = spec.normalize();
+        if (criteria.isAlwaysFalse()) {
+            return List.of();
+        }
+        PreparedQuery prepared = prepare(spec, criteria, sort, SqlQuery.Kind.IDS, List.of());
+        long built = System.nanoTime();
+        Class<?> type = mapping.idType();
+        List<Object> ids = jdbcTemplate.query(prepared.statement(0), (RowMapper<Object>) (rs, row) -> rs.getObject(1, type));
+        notify(spec, criteria, "findIds", prepared, start, built, ids.size());
+        return ids;
+    }
+
+    /**
+     * Check whether an entity matches the {@link SearchSpecification}. At most one row is read.
+     *
+     * @param spec the specification, must not be {@literal null}.
+     * @return {@literal true} if at least one entity matches
+     * @throws UnsupportedOperationException if the mapping of a path is not supported, see {@link TableMapping}
+     */
+    public boolean exists(SearchSpecification<T> spec) {
+        long start = System.nanoTime();
+        CriteriaGroup<T> criteria = spec.normalize();
+        if (criteria.isAlwaysFalse()) {
+            return false;
+        }
+        PreparedQuery prepared = prepare(spec, criteria, Sort.unsorted(), SqlQuery.Kind.IDS, List.of());
+        long built = System.nanoTime();
+        boolean exists = Boolean.TRUE.equals(jdbcTemplate.query(prepared.statement(1), (ResultSetExtractor<Boolean>) ResultSet::next));
+        notify(spec, criteria, "exists", prepared, start, built, exists ? 1 : 0);
+        return exists;
+    }
+
+    /**
+     * Count the entities matching the {@link SearchSpecification}
+     *
+     * @param spec the specification, must not be {@literal null}.
+     * @return the number of matching entities
+     * @throws UnsupportedOperationException if the mapping of a path is not supported, see {@link TableMapping}
+     */
+    public long count(SearchSpecification<T> spec) {
+        long start = System.nanoTime();
+        CriteriaGroup<T> criteria = spec.normalize();
+        if (criteria.isAlwaysFalse()) {
+            return 0;
+        }
+        PreparedQuery prepared = prepare(spec, criteria, Sort.unsorted(), SqlQuery.Kind.COUNT, List.of());
+        long built = System.nanoTime();
+        Long count = jdbcTemplate.query(prepared.statement(0), (ResultSetExtractor<Long>) rs -> rs.next() ? rs.getLong(1) : 0L);
+        notify(spec, criteria, "count", prepared, start, built, 1);
+        return count != null ? count : 0;
+    }
+
+    private PreparedQuery prepare(SearchSpecification<T> spec, CriteriaGroup<T> criteria, Sort sort, SqlQuery.Kind kind, List<String> selection) {
+        IndexLookups<T> lookups = spec.lookUpIndexes(criteria);
+        List<Object> values = spec.parameterValues(criteria, lookups, null, null);
+        // the elements of the "in" values are bound each to its own placeholder
+        List<Integer> sizes = values.stream().map(v -> v instanceof Collection<?> c ? c.size() : -1).toList();
+        SqlQuery query = queries.computeIfAbsent(new QueryKey(spec.shape(criteria, lookups, null, null), sizes, sort, kind, selection),
+                k -> SqlQuery.compile(spec, criteria, lookups, mapping, sort, kind, selection));
+        return new PreparedQuery(query, values);
+    }
+
+    private void notify(SearchSpecification<T> spec, CriteriaGroup<T> criteria, String operation, PreparedQuery prepared, long start, long built, long rows) {
+        SearchListener listener = spec.getListener();
+        if (listener != null) {
+            listener.onSearch(new SearchEvent(operation, spec.fingerprint(criteria), () -> spec.describeCriteria(criteria),
+                    built - start, System.nanoTime() - built, rows, prepared.query().joins()));
+        }
+    }
+
+    /**
+     * The key of a cached SQL query
+     *
+     * @param shape     the shape of the {@link SearchSpecification}
+     * @param sizes     the number of elements of each {@literal Collection} parameter value, or -1 for another value
+     * @param sort      the sort
+     * @param kind      the kind of query
+     * @param selection the selected attribute paths of a projection
+     */
+    private record QueryKey(GroupShape shape, List<Integer> sizes, Sort sort, SqlQuery.Kind kind, List<String> selection) {
+    }
+
+    /**
+     * A query ready to be executed
+     *
+     * @param query  the cached query
+     * @param values the parameter values of the {@link SearchSpecification}
+     */
+    private record PreparedQuery(SqlQuery query, List<Object> values) {
+
+        /**
+         * Create the statement of the query, with the values bound
+         *
+         * @param maxRows the maximum number of rows read, or 0 for no limit
+         * @return the statement creator
+         */
+        PreparedStatementCreator statement(int maxRows) {
+            return connection -> {
+                PreparedStatement statement = connection.prepareStatement(query.sql());
+                try {
+                    statement.setMaxRows(maxRows);
+                    query.bind(statement, values);
+                    return statement;
+                } catch (SQLException | RuntimeException e) {
+                    statement.close();
+                    throw e;
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package eu.rimbaud.libs.search;
+
+import org.springframework.core.convert.support.DefaultConversionService;
+import org.springframework.util.ClassUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.temporal.Temporal;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Encodes and decodes the opaque cursors of a keyset pagination: the sort key values of the last entity of a page.
+ * <p>The values are encoded as text, each one being converted back to the type of its sort key, so that a cursor
+ * cannot carry anything else than sort key values.</p>
+ */
+final class KeysetCursor {
+
+    private static final String SEPARATOR = ".";
+
+    private KeysetCursor() {
+    }
+
+    /**
+     * Encode sort key values into a cursor
+     *
+     * @param values the sort key values, must not contain {@literal null}.
+     * @return the cursor
+     */
+    static String encode(List<Object> values) {
+        var encoder = Base64.getUrlEncoder().withoutPadding();
+        var segments = new ArrayList<String>(values.size());
+        for (Object value : values) {
+            if (value == null) {
+                throw new IllegalStateException("Keyset pagination does not support null sort keys");
+            }
+            String text = value instanceof Enum<?> e ? e.name() : value.toString();
+            segments.add(encoder.encodeToString(text.getBytes(StandardCharsets.UTF_8)));
+        }
+        return String.join(SEPARATOR, segments);
+    }
+
+    /**
+     * Decode a cursor into sort key values
+     *
+     * @param cursor the cursor
+     * @param types  the types of the sort keys
+     * @return the sort key values
+     * @throws IllegalArgumentException if the cursor does not match the sort keys
+     */
+    static List<Object> decode(String cursor, List<Class<?>> types) {
+        String[] segments = cursor.split("\\" + SEPARATOR, -1);
+        if (segments.length != types.size()) {
+            throw new IllegalArgumentException("Invalid cursor: " + segments.length + " values for " + types.size() + " sort keys");
+        }
+        var decoder = Base64.getUrlDecoder();
+        var values = new ArrayList<>(segments.length);
+        try {
+            for (var i = 0; i < segments.length; ++i) {
+                values.add(convert(new String(decoder.decode(segments[i]), StandardCharsets.UTF_8), types.get(i)));
+            }
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor, e);
+        }
+        return values;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Object convert(String value, Class<?> type) throws IllegalArgumentException {
+        Class<?> target = ClassUtils.resolvePrimitiveIfNecessary(type);
+        if (Temporal.class.isAssignableFrom(target)) {
+            try {
+                return target.getMethod("parse", CharSequence.class).invoke(null, value);
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalArgumentException("Unsupported sort key type: " + type.getName(), e);
+            }
+        }
+        if (target.isEnum()) {
+            return Enum.valueOf((Class<? extends Enum>) target, value);
+        }
+        return DefaultConversionService.getSharedInstance().convert(value, target);
+    }
+}
@@ -0,0 +1,22 @@
+package eu.rimbaud.libs.search;
+
+import java.util.List;
+
+/**
+ * A page of results of a keyset pagination, see {@link SearchExecutor#findPage(SearchSpecification, org.springframework.data.domain.Sort, String, int)}.
+ *
+ * @param content    the entities of the page
+ * @param nextCursor the opaque cursor to get the next page, or {@literal null} if this is the last page
+ * @param <T>        the type of the entities
+ */
+public record KeysetPage<T>(List<T> content, String nextCursor) {
+
+    /**
+     * Check whether there is a next page
+     *
+     * @return true if there is a next page
+     */
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+}
@@ -0,0 +1,42 @@
+package eu.rimbaud.libs.search;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link SearchListener} recording Micrometer meters, tagged by <code>fingerprint</code> and <code>operation</code>:
+ * <ul><li><code>search.build</code>: timer of the query building</li>
+ * <li><code>search.execution</code>: timer of the query execution</li>
+ * <li><code>search.rows</code>: distribution of the returned row counts</li>
+ * <li><code>search.joins</code>: distribution of the join counts</li></ul>
+ * <p>Requires <code>micrometer-core</code>, an optional dependency of the library: without it, implement
+ * {@link SearchListener} directly.</p>
+ */
+public class MicrometerSearchListener implements SearchListener {
+
+    private final MeterRegistry registry;
+
+    /**
+     * Construct a {@link MicrometerSearchListener}
+     *
+     * @param registry the registry the meters are recorded in, must not be {@literal null}.
+     */
+    public MicrometerSearchListener(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public void onSearch(SearchEvent event) {
+        Tags tags = Tags.of("fingerprint", event.fingerprint(), "operation", event.operation());
+        Timer.builder("search.build").tags(tags).register(registry).record(event.buildNanos(), TimeUnit.NANOSECONDS);
+        DistributionSummary.builder("search.joins").tags(tags).register(registry).record(event.joins());
+        if (event.isExecuted()) {
+            Timer.builder("search.execution").tags(tags).register(registry).record(event.executionNanos(), TimeUnit.NANOSECONDS);
+            DistributionSummary.builder("search.rows").tags(tags).register(registry).record(event.rows());
+        }
+    }
+}
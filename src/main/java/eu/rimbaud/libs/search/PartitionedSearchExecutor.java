@@ -0,0 +1,295 @@
+package eu.rimbaud.libs.search;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Root;
+import org.springframework.data.domain.Sort;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.function.LongFunction;
+import java.util.function.ToLongFunction;
+
+/**
+ * Executes a {@link SearchSpecification} as several queries running at the same time, each of them on a disjoint range
+ * of a numeric or temporal attribute of the entity, e.g. the identifier or a creation date. Each range adds a
+ * <code>gte</code> and a <code>lt</code> criterion to a copy of the specification, the last one a <code>lte</code>.
+ * <p>The ranges split evenly the values between the minimum and the maximum of the attribute: an attribute with uniformly
+ * distributed values, and an index, gives partitions of similar costs. The entities whose attribute is {@literal null}
+ * are not matched.</p>
+ * <p>Each partition runs on a virtual thread, with its own {@link EntityManager} and database connection, outside the
+ * transaction of the caller, if any: the changes not committed yet are not seen. The number of partitions running at
+ * the same time is limited, e.g. to leave connections of the pool to the other requests. The returned entities are detached.</p>
+ * <p>The attribute must be a {@literal Long}, {@literal Integer}, {@literal Short}, {@link LocalDate}, {@link LocalDateTime},
+ * read as UTC, or {@link Instant}. The temporal ranges are split to the day or to the second.</p>
+ *
+ * @param <T> the type of the entity the {@literal SearchSpecification} operates on.
+ */
+public class PartitionedSearchExecutor<T> {
+
+    private final EntityManagerFactory entityManagerFactory;
+    private final Class<T> domainClass;
+    private final String attribute;
+    private final int partitions;
+    private final int concurrency;
+    private final KeyType<?> keyType;
+    private final SearchExecutor<T> queries;
+
+    /**
+     * Construct a {@link PartitionedSearchExecutor}
+     *
+     * @param entityManagerFactory the entity manager factory the partitions are run with, must not be {@literal null}.
+     * @param domainClass          the entity type, must not be {@literal null}.
+     * @param attribute            the partitioning attribute of the entity, must not be {@literal null}.
+     * @param partitions           the number of partitions, must be positive
+     * @param concurrency          the maximum number of partitions running at the same time, must be positive
+     * @throws IllegalArgumentException if the attribute type cannot be partitioned
+     */
+    public PartitionedSearchExecutor(EntityManagerFactory entityManagerFactory, Class<T> domainClass, String attribute,
+                                     int partitions, int concurrency) {
+        if (partitions <= 0 || concurrency <= 0) {
+            throw new IllegalArgumentException("Partitions and concurrency must be positive: " + partitions + ", " + concurrency);
+        }
+        this.entityManagerFactory = entityManagerFactory;
+        this.domainClass = domainClass;
+        this.attribute = attribute;
+        this.partitions = partitions;
+        this.concurrency = concurrency;
+        this.keyType = KeyType.of(entityManagerFactory.getMetamodel().entity(domainClass).getAttribute(attribute).getJavaType());
+        // never executed, only holds the cached queries shared by the partitions
+        this.queries = new SearchExecutor<>(null, domainClass);
+    }
+
+    /**
+     * Find all entities matching the {@link SearchSpecification}, the partitions being merged in the order of their range
+     *
+     * @param spec    the specification, must not be {@literal null}.
+     * @param ordered whether the entities are sorted on the partitioning attribute, otherwise each partition is unsorted
+     * @return the matching entities, detached
+     */
+    public List<T> findAll(SearchSpecification<T> spec, boolean ordered) {
+        Sort sort = ordered ? Sort.by(attribute) : Sort.unsorted();
+        return merge(run(spec, (executor, partition) -> executor.findAll(partition, sort)));
+    }
+
+    /**
+     * Find all entities matching the {@link SearchSpecification}, projected into a record or an interface,
+     * the partitions being merged in the order of their range
+     *
+     * @param spec       the specification, must not be {@literal null}.
+     * @param projection the record or interface type, must not be {@literal null}.
+     * @param ordered    whether the projections are sorted on the partitioning attribute, otherwise each partition is unsorted
+     * @param paths      the dot-separated attribute paths, or none to derive them from the projection type
+     * @param <P>        the projection type
+     * @return the projections of the matching entities
+     * @see SearchExecutor#findAll(SearchSpecification, Class, Sort, String...)
+     */
+    public <P> List<P> findAll(SearchSpecification<T> spec, Class<P> projection, boolean ordered, String... paths) {
+        Sort sort = ordered ? Sort.by(attribute) : Sort.unsorted();
+        return merge(run(spec, (executor, partition) -> executor.findAll(partition, projection, sort, paths)));
+    }
+
+    /**
+     * Count the entities matching the {@link SearchSpecification}, as the sum of the counts of the partitions
+     *
+     * @param spec the specification, must not be {@literal null}.
+     * @return the number of matching entities
+     * @see SearchExecutor#count(SearchSpecification)
+     */
+    public long count(SearchSpecification<T> spec) {
+        return run(spec, SearchExecutor::count).stream().mapToLong(Long::longValue).sum();
+    }
+
+    private static <R> List<R> merge(List<List<R>> results) {
+        List<R> merged = new ArrayList<>(results.stream().mapToInt(List::size).sum());
+        results.forEach(merged::addAll);
+        return merged;
+    }
+
+    /**
+     * Run a search on each partition of the {@link SearchSpecification}
+     *
+     * @param spec   the specification
+     * @param search the search run on a partition
+     * @return the results of the partitions, in the order of their range
+     */
+    private <R> List<R> run(SearchSpecification<T> spec, PartitionSearch<T, R> search) {
+        List<SearchSpecification<T>> ranges = split(spec);
+        var permits = new Semaphore(concurrency);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<R>> futures = new ArrayList<>(ranges.size());
+            for (SearchSpecification<T> range : ranges) {
+                futures.add(executor.submit(() -> {
+                    permits.acquire();
+                    try (EntityManager entityManager = entityManagerFactory.createEntityManager()) {
+                        return search.apply(new SearchExecutor<>(entityManager, queries), range);
+                    } finally {
+                        permits.release();
+                    }
+                }));
+            }
+            List<R> results = new ArrayList<>(futures.size());
+            for (Future<R> future : futures) {
+                results.add(get(future, futures));
+            }
+            return results;
+        }
+    }
+
+    private static <R> R get(Future<R> future, List<? extends Future<?>> futures) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            futures.forEach(f -> f.cancel(true));
+            throw new IllegalStateException("Interrupted while searching partitions", e);
+        } catch (ExecutionException e) {
+            futures.forEach(f -> f.cancel(true));
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException("Partition search failed", e.getCause());
+        }
+    }
+
+    /**
+     * Split the {@link SearchSpecification} into disjoint ranges of the partitioning attribute, covering all its values
+     *
+     * @param spec the specification
+     * @return the specification of each range, in ascending order, none if there is no entity or the specification is always false
+     */
+    private List<SearchSpecification<T>> split(SearchSpecification<T> spec) {
+        if (spec.normalize().isAlwaysFalse()) {
+            return List.of();
+        }
+        Object[] bounds = bounds();
+        if (bounds[0] == null) {
+            return List.of();
+        }
+        List<Object> lowers = keyType.split(bounds[0], bounds[1], partitions);
+        List<SearchSpecification<T>> ranges = new ArrayList<>(lowers.size());
+        for (var i = 0; i < lowers.size(); ++i) {
+            SearchSpecification<T> range = spec.copy();
+            keyType.gte(range.add(attribute), lowers.get(i));
+            if (i < lowers.size() - 1) {
+                keyType.lt(range.add(attribute), lowers.get(i + 1));
+            } else {
+                keyType.lte(range.add(attribute), bounds[1]);
+            }
+            ranges.add(range);
+        }
+        return ranges;
+    }
+
+    /**
+     * Read the minimum and the maximum of the partitioning attribute
+     *
+     * @return the minimum and the maximum, {@literal null} if there is no value
+     */
+    private Object[] bounds() {
+        try (EntityManager entityManager = entityManagerFactory.createEntityManager()) {
+            CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+            CriteriaQuery<Object[]> query = cb.createQuery(Object[].class);
+            Root<T> root = query.from(domainClass);
+            query.multiselect(keyType.min(cb, root, attribute), keyType.max(cb, root, attribute));
+            return entityManager.createQuery(query).getSingleResult();
+        }
+    }
+
+    @FunctionalInterface
+    private interface PartitionSearch<T, R> {
+        R apply(SearchExecutor<T> executor, SearchSpecification<T> partition);
+    }
+
+    /**
+     * A partitionable attribute type, mapped to {@literal long} keys to be split
+     *
+     * @param type    the attribute type
+     * @param toKey   the conversion of a value into a key
+     * @param fromKey the conversion of a key into a value
+     * @param <Y>     the attribute type
+     */
+    private record KeyType<Y extends Comparable<? super Y>>(Class<Y> type, ToLongFunction<Y> toKey, LongFunction<Y> fromKey) {
+
+        static KeyType<?> of(Class<?> type) {
+            if (type == Long.class || type == long.class) {
+                return new KeyType<>(Long.class, Long::longValue, Long::valueOf);
+            }
+            if (type == Integer.class || type == int.class) {
+                return new KeyType<>(Integer.class, Integer::longValue, k -> (int) k);
+            }
+            if (type == Short.class || type == short.class) {
+                return new KeyType<>(Short.class, Short::longValue, k -> (short) k);
+            }
+            if (type == LocalDate.class) {
+                return new KeyType<>(LocalDate.class, LocalDate::toEpochDay, LocalDate::ofEpochDay);
+            }
+            if (type == LocalDateTime.class) {
+                return new KeyType<>(LocalDateTime.class, d -> d.toEpochSecond(ZoneOffset.UTC),
+                        k -> LocalDateTime.ofEpochSecond(k, 0, ZoneOffset.UTC));
+            }
+            if (type == Instant.class) {
+                return new KeyType<>(Instant.class, Instant::getEpochSecond, Instant::ofEpochSecond);
+            }
+            throw new IllegalArgumentException("Cannot partition on an attribute of type " + type.getName());
+        }
+
+        /**
+         * Split the values between two bounds into ranges of the same width
+         *
+         * @param min   the minimum
+         * @param max   the maximum
+         * @param count the maximum number of ranges
+         * @return the lower bound of each range, ascending, the first one being the minimum
+         */
+        List<Object> split(Object min, Object max, int count) {
+            long low = toKey.applyAsLong(type.cast(min));
+            long high = toKey.applyAsLong(type.cast(max));
+            List<Object> lowers = new ArrayList<>(count);
+            lowers.add(min);
+            // the width is computed in double to avoid overflows on wide ranges
+            double width = ((double) high - low) / count;
+            long previous = low;
+            for (var i = 1; i < count; ++i) {
+                long key = low + (long) Math.ceil(width * i);
+                if (key > previous && key <= high) {
+                    lowers.add(fromKey.apply(key));
+                    previous = key;
+                }
+            }
+            return lowers;
+        }
+
+        Expression<Y> min(CriteriaBuilder cb, Root<?> root, String attribute) {
+            return cb.least(root.<Y>get(attribute));
+        }
+
+        Expression<Y> max(CriteriaBuilder cb, Root<?> root, String attribute) {
+            return cb.greatest(root.<Y>get(attribute));
+        }
+
+        <T> void gte(SearchCriterion<T> criterion, Object value) {
+            criterion.gte(type.cast(value));
+        }
+
+        <T> void lt(SearchCriterion<T> criterion, Object value) {
+            criterion.lt(type.cast(value));
+        }
+
+        <T> void lte(SearchCriterion<T> criterion, Object value) {
+            criterion.lte(type.cast(value));
+        }
+    }
+}
@@ -0,0 +1,367 @@
+package eu.rimbaud.libs.search;
+
+import jakarta.persistence.criteria.*;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Holds the state of the conversion of a {@link SearchSpecification} into a {@link Predicate}.
+ * The {@link Join} and {@link Subquery} created during the conversion are kept, so that they can be shared between criteria.
+ *
+ * @param <T> the type of the {@link Root} the {@literal SearchSpecification} operates on.
+ */
+@Getter
+class PredicateContext<T> {
+
+    private final Root<T> root;
+    private final CriteriaQuery<?> query;
+    private final CriteriaBuilder cb;
+
+    /**
+     * Whether the values are bound through {@link ParameterExpression} instead of being set in the criteria tree.
+     */
+    private final boolean parameterized;
+
+    /**
+     * Whether the criteria on a {@literal Collection} reached through inner joins are converted into {@literal EXISTS}
+     * subqueries whatever their {@link CollectionModeEnum}, so that the root rows are not multiplied.
+     * The matched roots are the same, as the criteria sharing a join still share the subquery.
+     */
+    private final boolean semiJoinCollections;
+
+    /**
+     * The lookups of the criteria in the {@link TrigramIndex}, made once for the conversion.
+     */
+    private final IndexLookups<T> indexLookups;
+    private int parameterCount;
+
+    /**
+     * The context of the enclosing group, or {@literal null} for the context of the whole specification.
+     */
+    private final PredicateContext<T> parent;
+
+    /**
+     * The {@link Join} created from the root, indexed by join type and path prefix, shared with the nested groups.
+     */
+    private final Map<String, Join<?, ?>> joins;
+
+    /**
+     * The {@literal EXISTS} subqueries, indexed by path to the collection.
+     */
+    private final Map<String, SemiJoin> semiJoins = new LinkedHashMap<>();
+
+    /**
+     * The contexts of the nested groups.
+     */
+    private final List<PredicateContext<T>> groups = new ArrayList<>();
+
+    private final List<Predicate> predicates = new ArrayList<>();
+
+    PredicateContext(Root<T> root, CriteriaQuery<?> query, CriteriaBuilder cb, boolean parameterized, IndexLookups<T> indexLookups) {
+        this(root, query, cb, parameterized, false, indexLookups);
+    }
+
+    PredicateContext(Root<T> root, CriteriaQuery<?> query, CriteriaBuilder cb, boolean parameterized, boolean semiJoinCollections,
+                     IndexLookups<T> indexLookups) {
+        this.root = root;
+        this.query = query;
+        this.cb = cb;
+        this.parameterized = parameterized;
+        this.semiJoinCollections = semiJoinCollections;
+        this.indexLookups = indexLookups;
+        this.parent = null;
+        this.joins = new HashMap<>();
+    }
+
+    private PredicateContext(PredicateContext<T> parent) {
+        this.root = parent.root;
+        this.query = parent.query;
+        this.cb = parent.cb;
+        this.parameterized = parent.parameterized;
+        this.semiJoinCollections = parent.semiJoinCollections;
+        this.indexLookups = parent.indexLookups;
+        this.parent = parent;
+        this.joins = parent.joins;
+    }
+
+    /**
+     * Create the context of a nested group. The group shares the joins from the root and the parameters,
+     * but has its own predicates and {@literal EXISTS} subqueries.
+     *
+     * @return the context of the group
+     */
+    PredicateContext<T> group() {
+        var group = new PredicateContext<>(this);
+        groups.add(group);
+        return group;
+    }
+
+    /**
+     * Check whether the context is the one of a nested group.
+     *
+     * @return {@literal true} for a nested group
+     */
+    boolean isNested() {
+        return parent != null;
+    }
+
+    /**
+     * Get the name of a parameter created by {@link #parameter(Object)}.
+     *
+     * @param index the index of the parameter
+     * @return the parameter name
+     */
+    static String parameterName(int index) {
+        return "p" + index;
+    }
+
+    /**
+     * Get the type of the parameter binding a value.
+     *
+     * @param value the bound value, must not be {@literal null}.
+     * @return the parameter type
+     */
+    static Class<?> parameterType(Object value) {
+        return value instanceof Collection<?> ? Collection.class : value.getClass();
+    }
+
+    /**
+     * Create the {@link ParameterExpression} binding a value.
+     *
+     * @param <Y>   the parameter type
+     * @param value the bound value, must not be {@literal null}.
+     * @return the parameter
+     */
+    @SuppressWarnings("unchecked")
+    <Y> ParameterExpression<Y> parameter(Object value) {
+        return cb.parameter((Class<Y>) parameterType(value), parameterName(nextParameter()));
+    }
+
+    /**
+     * Create the {@link Predicate} checking that an array value contains an attribute value.
+     *
+     * @param array     the array value
+     * @param attribute the attribute
+     * @return the resulting {@literal Predicate}
+     */
+    Predicate arrayContains(Object array, Expression<?> attribute) {
+        return InLists.arrayContains(cb, array, attribute, parameterized ? parameterName(nextParameter()) : null);
+    }
+
+    private int nextParameter() {
+        return parent != null ? parent.nextParameter() : parameterCount++;
+    }
+
+    /**
+     * Resolve a field path against the metamodel of the root, see {@link AttributePaths}.
+     *
+     * @param fields the field path
+     * @return the resolved path
+     * @throws IllegalArgumentException if the path does not exist
+     */
+    AttributePaths.AttributePath resolve(String[] fields) {
+        return AttributePaths.resolve(root.getModel(), fields);
+    }
+
+    /**
+     * Join the root along a field path.
+     *
+     * @param path     the resolved field path
+     * @param end      the index of the first field that is not joined
+     * @param type     the join type
+     * @param separate whether the joins must not be shared
+     * @return the last {@link From} of the path
+     */
+    From<?, ?> join(AttributePaths.AttributePath path, int end, JoinType type, boolean separate) {
+        return join(joins, root, path, 0, end, type, separate);
+    }
+
+    /**
+     * Get or create the {@literal EXISTS} subquery on a collection-valued path.
+     *
+     * @param path       the resolved field path
+     * @param collection the index of the collection-valued attribute
+     * @param type       the join type of the path leading to the collection
+     * @param separate   whether the subquery must not be shared
+     * @return the subquery
+     */
+    SemiJoin semiJoin(AttributePaths.AttributePath path, int collection, JoinType type, boolean separate) {
+        var key = type.name() + '.' + String.join(".", List.of(path.fields()).subList(0, collection + 1));
+        if (separate) {
+            key += "#" + semiJoins.size();
+        }
+        return semiJoins.computeIfAbsent(key, k -> {
+            From<?, ?> parent = join(path, collection, type, separate);
+            return new SemiJoin(parent, path, collection);
+        });
+    }
+
+    /**
+     * Get the {@link Path} of an attribute to select. The inner join of the criteria on the same relationship is reused,
+     * otherwise the relationship is left joined, so that the root entities without relationship are kept.
+     *
+     * @param path the dot-separated attribute path
+     * @return the path
+     * @throws IllegalArgumentException if the path goes through a {@literal Collection}, which would multiply the rows
+     */
+    Path<?> selection(String path) {
+        String[] fields = path.split("\\.");
+        AttributePaths.AttributePath resolved = resolve(fields);
+        if (resolved.collection() >= 0) {
+            throw new IllegalArgumentException("Cannot select a path through a collection: " + path);
+        }
+        if (resolved.attribute().isCollection()) {
+            throw new IllegalArgumentException("Cannot select a collection: " + path);
+        }
+        From<?, ?> from = root;
+        if (fields.length > 1) {
+            Join<?, ?> inner = joins.get(JoinType.INNER.name() + '.' + String.join(".", List.of(fields).subList(0, fields.length - 1)));
+            from = inner != null ? inner : join(resolved, fields.length - 1, JoinType.LEFT, false);
+        }
+        return resolved.get(from);
+    }
+
+    /**
+     * Get the {@link Path} of an attribute to count the entities by. The path is resolved as by {@link #selection(String)},
+     * except that it may go through a {@literal Collection}, which is then left joined apart from the criteria, so that
+     * all the elements of the matching entities are counted.
+     *
+     * @param path the dot-separated attribute path
+     * @return the path
+     * @throws IllegalArgumentException if the attribute is a {@literal Collection}
+     */
+    Path<?> facet(String path) {
+        String[] fields = path.split("\\.");
+        AttributePaths.AttributePath resolved = resolve(fields);
+        if (resolved.collection() < 0) {
+            return selection(path);
+        }
+        if (resolved.attribute().isCollection()) {
+            throw new IllegalArgumentException("Cannot count by a collection: " + path);
+        }
+        return resolved.get(join(resolved, fields.length - 1, JoinType.LEFT, true));
+    }
+
+    /**
+     * Check whether the root is joined to a {@literal Collection}, directly or not, i.e. whether the root rows may be multiplied.
+     *
+     * @return {@literal true} if a collection-valued attribute is joined
+     */
+    boolean isRootMultiplied() {
+        return isMultiplied(root);
+    }
+
+    /**
+     * Count the joins of the query, including the {@literal EXISTS} subqueries and their joins.
+     *
+     * @return the number of joins
+     */
+    int joinCount() {
+        return countJoins(root) + semiJoinCount();
+    }
+
+    private int semiJoinCount() {
+        return semiJoins.values().stream().mapToInt(s -> 1 + countJoins(s.element)).sum()
+                + groups.stream().mapToInt(PredicateContext::semiJoinCount).sum();
+    }
+
+    /**
+     * Add a {@link Predicate} on the root.
+     *
+     * @param predicate the predicate
+     */
+    void add(Predicate predicate) {
+        predicates.add(predicate);
+    }
+
+    /**
+     * Combine all predicates, including the {@literal EXISTS} subqueries, into one, with "and" or "or".
+     * The predicates of an {@literal EXISTS} subquery are combined the same way, e.g. <code>exists(a or b)</code>
+     * being <code>exists(a) or exists(b)</code>.
+     *
+     * @param disjunction whether the predicates are combined with "or" instead of "and"
+     * @return the resulting {@link Predicate}
+     */
+    Predicate toPredicate(boolean disjunction) {
+        semiJoins.values().forEach(s -> predicates.add(cb.exists(s.subquery.where(combine(s.predicates, disjunction)))));
+        return combine(predicates, disjunction);
+    }
+
+    private Predicate combine(List<Predicate> predicates, boolean disjunction) {
+        Predicate[] array = predicates.toArray(Predicate[]::new);
+        return disjunction ? cb.or(array) : cb.and(array);
+    }
+
+    private static From<?, ?> join(Map<String, Join<?, ?>> joins, From<?, ?> start, AttributePaths.AttributePath path, int begin, int end, JoinType type, boolean separate) {
+        From<?, ?> from = start;
+        var key = new StringBuilder(type.name());
+        for (var i = begin; i < end; ++i) {
+            key.append('.').append(path.fields()[i]);
+            if (separate) {
+                from = path.join(from, i, type);
+            } else {
+                final From<?, ?> parent = from;
+                final int index = i;
+                from = joins.computeIfAbsent(key.toString(), k -> path.join(parent, index, type));
+            }
+        }
+        return from;
+    }
+
+    private static int countJoins(From<?, ?> from) {
+        return from.getJoins().stream().mapToInt(j -> 1 + countJoins(j)).sum();
+    }
+
+    private static boolean isMultiplied(From<?, ?> from) {
+        return from.getJoins().stream().anyMatch(j -> j.getAttribute().isCollection() || isMultiplied(j));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <X> From<?, ?> correlate(Subquery<?> subquery, From<?, X> parent) {
+        return parent instanceof Root<?> r ? subquery.correlate((Root<X>) r) : subquery.correlate((Join<Object, X>) parent);
+    }
+
+    /**
+     * A correlated {@literal EXISTS} subquery on a collection, shared by all criteria on that collection.
+     */
+    class SemiJoin {
+
+        private final Subquery<Integer> subquery;
+        private final Join<?, ?> element;
+        private final Map<String, Join<?, ?>> joins = new HashMap<>();
+        private final List<Predicate> predicates = new ArrayList<>();
+
+        private SemiJoin(From<?, ?> parent, AttributePaths.AttributePath path, int collection) {
+            this.subquery = query.subquery(Integer.class);
+            this.element = path.join(correlate(subquery, parent), collection, JoinType.INNER);
+            this.subquery.select(cb.literal(1));
+        }
+
+        /**
+         * Join the collection element along the rest of a field path.
+         *
+         * @param path  the resolved field path
+         * @param begin the index of the first field after the collection
+         * @param end   the index of the first field that is not joined
+         * @return the last {@link From} of the path
+         */
+        From<?, ?> join(AttributePaths.AttributePath path, int begin, int end) {
+            return PredicateContext.join(joins, element, path, begin, end, JoinType.INNER, false);
+        }
+
+        /**
+         * Add a {@link Predicate} to the subquery.
+         *
+         * @param predicate the predicate
+         */
+        void add(Predicate predicate) {
+            predicates.add(predicate);
+        }
+    }
+}
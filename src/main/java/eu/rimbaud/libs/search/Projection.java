@@ -0,0 +1,129 @@
+package eu.rimbaud.libs.search;
+
+import jakarta.persistence.Tuple;
+import org.springframework.beans.BeanUtils;
+import org.springframework.data.projection.ProjectionFactory;
+import org.springframework.data.projection.SpelAwareProxyProjectionFactory;
+import org.springframework.util.StringUtils;
+
+import java.beans.PropertyDescriptor;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.RecordComponent;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Maps the rows of a projection query, selecting attribute paths of an entity, into a record or an interface.
+ * <ul>
+ *     <li>record: the paths are passed to the canonical constructor, in order. By default, the paths are the names of the components</li>
+ *     <li>interface: each path is exposed by the getter of its camel-cased name, e.g. <code>author.name</code> by
+ *     <code>getAuthorName()</code>. By default, the paths are the names of the properties</li>
+ * </ul>
+ *
+ * @param <P> the projection type
+ */
+final class Projection<P> {
+
+    private static final ProjectionFactory FACTORY = new SpelAwareProxyProjectionFactory();
+
+    private final Class<P> type;
+    private final List<String> paths;
+    private final Constructor<P> constructor;
+    private final String[] properties;
+
+    private Projection(Class<P> type, List<String> paths, Constructor<P> constructor, String[] properties) {
+        this.type = type;
+        this.paths = paths;
+        this.constructor = constructor;
+        this.properties = properties;
+    }
+
+    /**
+     * Create the {@link Projection} of attribute paths into a type
+     *
+     * @param type  the record or interface type
+     * @param paths the dot-separated attribute paths, or none to derive them from the type
+     * @return the projection
+     * @throws IllegalArgumentException if the type is neither a record nor an interface, or if the paths do not match a record
+     */
+    static <P> Projection<P> of(Class<P> type, String... paths) {
+        if (type.isRecord()) {
+            RecordComponent[] components = type.getRecordComponents();
+            if (paths.length > 0 && paths.length != components.length) {
+                throw new IllegalArgumentException("Expected " + components.length + " paths for " + type.getName() + ": " + Arrays.toString(paths));
+            }
+            try {
+                Constructor<P> constructor = type.getDeclaredConstructor(Arrays.stream(components).map(RecordComponent::getType).toArray(Class<?>[]::new));
+                constructor.setAccessible(true);
+                return new Projection<>(type, paths.length > 0 ? List.of(paths) : Arrays.stream(components).map(RecordComponent::getName).toList(),
+                        constructor, null);
+            } catch (NoSuchMethodException e) {
+                throw new IllegalArgumentException("No canonical constructor on " + type.getName(), e);
+            }
+        }
+        if (type.isInterface()) {
+            List<String> selected = paths.length > 0 ? List.of(paths) : Arrays.stream(BeanUtils.getPropertyDescriptors(type))
+                    .map(PropertyDescriptor::getName)
+                    .toList();
+            return new Projection<>(type, selected, null, selected.stream().map(Projection::propertyName).toArray(String[]::new));
+        }
+        throw new IllegalArgumentException("A record or an interface is required: " + type.getName());
+    }
+
+    /**
+     * Get the selected attribute paths
+     *
+     * @return the dot-separated paths
+     */
+    List<String> paths() {
+        return paths;
+    }
+
+    /**
+     * Map a row into the projection type
+     *
+     * @param tuple  the row
+     * @param offset the index of the first selected path in the row
+     * @return the projection
+     */
+    P map(Tuple tuple, int offset) {
+        Object[] values = new Object[paths.size()];
+        for (var i = 0; i < values.length; ++i) {
+            values[i] = tuple.get(offset + i);
+        }
+        return map(values);
+    }
+
+    /**
+     * Map the values of the selected paths into the projection type
+     *
+     * @param values the values, in the order of the paths
+     * @return the projection
+     */
+    P map(Object[] values) {
+        if (constructor != null) {
+            try {
+                return constructor.newInstance(values);
+            } catch (InstantiationException | IllegalAccessException | InvocationTargetException e) {
+                throw new IllegalStateException("Cannot create " + type.getName(), e);
+            }
+        }
+        Map<String, Object> properties = new HashMap<>();
+        for (var i = 0; i < this.properties.length; ++i) {
+            properties.put(this.properties[i], values[i]);
+        }
+        return FACTORY.createProjection(type, properties);
+    }
+
+    private static String propertyName(String path) {
+        String[] fields = path.split("\\.");
+        var name = new StringBuilder(fields[0]);
+        for (var i = 1; i < fields.length; ++i) {
+            name.append(StringUtils.capitalize(fields[i]));
+        }
+        return name.toString();
+    }
+}
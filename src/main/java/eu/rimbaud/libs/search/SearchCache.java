@@ -0,0 +1,259 @@
+package eu.rimbaud.libs.search;
+
+import jakarta.persistence.metamodel.Attribute;
+import jakarta.persistence.metamodel.ManagedType;
+import jakarta.persistence.metamodel.Metamodel;
+import jakarta.persistence.metamodel.PluralAttribute;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Caches the results of a {@link SearchExecutor}: identifiers, pages of identifiers and counts, so that repeated searches
+ * are answered without a database round trip.
+ * <p>The results are cached under the canonical key of the {@link SearchSpecification}: the normalized criteria and groups
+ * with their values, whatever the order of the criteria and of the "in" values. The criteria disabled by <code>onlyIf</code> or without value
+ * are left out.</p>
+ * <p>The cache is bounded in size, the least recently used entries being evicted first, and in time. The entries are also
+ * invalidated when an entity they depend on is written, i.e. the root entity or an entity joined by a criterion,
+ * on flush and again after commit or rollback, as notified by the Hibernate entity events. Writes bypassing the persistence context,
+ * e.g. bulk or native queries, are not seen: call {@link #invalidate()} after them.</p>
+ *
+ * @param <T> the type of the entity the {@literal SearchSpecification} operates on.
+ */
+public class SearchCache<T> implements AutoCloseable {
+
+    private final SearchExecutor<T> executor;
+    private final long ttlNanos;
+    private final Map<CacheKey, CachedResult> entries;
+    // by field path, the values being left out so that the map stays bounded by the paths searched on
+    private final Map<List<String>, Set<Class<?>>> dependencies = new ConcurrentHashMap<>();
+    private final Set<Class<?>> knownTypes = ConcurrentHashMap.newKeySet();
+    private final AtomicLong generation = new AtomicLong();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final Runnable unsubscribe;
+
+    /**
+     * Construct a {@link SearchCache} and register it to the entity events of the persistence unit
+     *
+     * @param executor   the executor running the searches on cache miss, backed by Hibernate
+     * @param maxEntries the maximum number of cached results
+     * @param ttl        the time to live of a cached result, must not be {@literal null}.
+     */
+    public SearchCache(SearchExecutor<T> executor, int maxEntries, Duration ttl) {
+        this.executor = executor;
+        this.ttlNanos = ttl.toNanos();
+        this.entries = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<CacheKey, CachedResult> eldest) {
+                return size() > maxEntries;
+            }
+        });
+        this.unsubscribe = EntityEvents.subscribe(executor.getEntityManager().getEntityManagerFactory(), new EntityEvents.Subscriber() {
+            @Override
+            public void onWrite(Class<?> type, Object entity) {
+                invalidate(type);
+            }
+
+            @Override
+            public void onDelete(Class<?> type, Object entity) {
+                invalidate(type);
+            }
+
+            @Override
+            public void onCollectionChange(Class<?> type, Object owner) {
+                invalidate(type);
+            }
+
+            @Override
+            public void onCommit(Class<?> type) {
+                invalidate(type);
+            }
+
+            @Override
+            public void onRollback(Class<?> type) {
+                invalidate(type);
+            }
+        });
+    }
+
+    /**
+     * Find the identifiers of all entities matching the {@link SearchSpecification}, sorted, from the cache if present
+     *
+     * @param spec the specification, must not be {@literal null}.
+     * @param sort the sort, must not be {@literal null}.
+     * @return the identifiers of the matching entities, unmodifiable
+     * @see SearchExecutor#findIds(SearchSpecification, Sort)
+     */
+    public List<Object> findIds(SearchSpecification<T> spec, Sort sort) {
+        return get(new CacheKey("findIds", spec.canonicalKey(), sort, null), () -> List.copyOf(executor.findIds(spec, sort)));
+    }
+
+    /**
+     * Find a page of the identifiers of the entities matching the {@link SearchSpecification}, from the cache if present
+     *
+     * @param spec     the specification, must not be {@literal null}.
+     * @param pageable the page, must not be {@literal null}.
+     * @return the page of identifiers
+     * @see SearchExecutor#findIds(SearchSpecification, Pageable)
+     */
+    public Page<Object> findIds(SearchSpecification<T> spec, Pageable pageable) {
+        return get(new CacheKey("findIdPage", spec.canonicalKey(), pageable.getSort(), pageable), () -> executor.findIds(spec, pageable));
+    }
+
+    /**
+     * Count the entities matching the {@link SearchSpecification}, from the cache if present
+     *
+     * @param spec the specification, must not be {@literal null}.
+     * @return the number of matching entities
+     * @see SearchExecutor#count(SearchSpecification)
+     */
+    public long count(SearchSpecification<T> spec) {
+        return get(new CacheKey("count", spec.canonicalKey(), Sort.unsorted(), null), () -> executor.count(spec));
+    }
+
+    /**
+     * Remove all cached results
+     */
+    public void invalidate() {
+        generation.incrementAndGet();
+        entries.clear();
+    }
+
+    /**
+     * Get the number of searches answered from the cache
+     *
+     * @return the hit count
+     */
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * Get the number of searches run against the database
+     *
+     * @return the miss count
+     */
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * Release the cache, which then stops following the entity events
+     */
+    @Override
+    public void close() {
+        unsubscribe.run();
+        invalidate();
+    }
+
+    @SuppressWarnings("unchecked")
+    private <R> R get(CacheKey key, Supplier<R> loader) {
+        CachedResult entry = entries.get(key);
+        if (entry != null && System.nanoTime() - entry.expiresAt() < 0) {
+            hits.increment();
+            return (R) entry.value();
+        }
+        misses.increment();
+        Set<Class<?>> types = dependencies(key.criteria());
+        knownTypes.addAll(types);
+        long loadedGeneration = generation.get();
+        R value = loader.get();
+        synchronized (entries) {
+            // not cached if invalidated while loading, the value being possibly stale
+            if (generation.get() == loadedGeneration) {
+                entries.put(key, new CachedResult(value, System.nanoTime() + ttlNanos, types));
+            }
+        }
+        return value;
+    }
+
+    private void invalidate(Class<?> type) {
+        if (knownTypes.stream().noneMatch(t -> t.isAssignableFrom(type))) {
+            return;
+        }
+        synchronized (entries) {
+            generation.incrementAndGet();
+            entries.values().removeIf(e -> e.types().stream().anyMatch(t -> t.isAssignableFrom(type)));
+        }
+    }
+
+    /**
+     * Resolve the entity types the results of the criteria depend on: the root entity and the entities joined
+     *
+     * @param criteria the canonical criteria and groups
+     * @return the entity types
+     */
+    private Set<Class<?>> dependencies(GroupKey criteria) {
+        Set<Class<?>> types = new HashSet<>();
+        types.add(executor.getDomainClass());
+        addDependencies(criteria, types);
+        return Set.copyOf(types);
+    }
+
+    private void addDependencies(GroupKey group, Set<Class<?>> types) {
+        group.groups().forEach(g -> addDependencies(g, types));
+        for (CriterionKey criterion : group.criteria()) {
+            types.addAll(dependencies.computeIfAbsent(criterion.fields(), this::joinedTypes));
+        }
+    }
+
+    /**
+     * Resolve the entity types joined by a field path
+     *
+     * @param fields the field path
+     * @return the entity types
+     */
+    private Set<Class<?>> joinedTypes(List<String> fields) {
+        Metamodel metamodel = executor.getEntityManager().getMetamodel();
+        Set<Class<?>> types = new HashSet<>();
+        ManagedType<?> type = metamodel.managedType(executor.getDomainClass());
+        for (String field : fields.subList(0, fields.size() - 1)) {
+            Attribute<?, ?> attribute = type.getAttribute(field);
+            Class<?> javaType = attribute instanceof PluralAttribute<?, ?, ?> plural
+                    ? plural.getElementType().getJavaType()
+                    : attribute.getJavaType();
+            if (attribute.getPersistentAttributeType() == Attribute.PersistentAttributeType.BASIC
+                    || attribute.getPersistentAttributeType() == Attribute.PersistentAttributeType.ELEMENT_COLLECTION) {
+                break;
+            }
+            types.add(javaType);
+            type = metamodel.managedType(javaType);
+        }
+        return Set.copyOf(types);
+    }
+
+    /**
+     * The key of a cached result
+     *
+     * @param operation the {@link SearchExecutor} operation
+     * @param criteria  the canonical key of the {@link SearchSpecification}
+     * @param sort      the sort
+     * @param pageable  the page, if any
+     */
+    private record CacheKey(String operation, GroupKey criteria, Sort sort, Pageable pageable) {
+    }
+
+    /**
+     * A cached result
+     *
+     * @param value     the result
+     * @param expiresAt the expiration time, as of {@link System#nanoTime()}
+     * @param types     the entity types the result depends on
+     */
+    private record CachedResult(Object value, long expiresAt, Set<Class<?>> types) {
+    }
+}
@@ -1,6 +1,7 @@
 
 package eu.rimbaud.libs.search;
 
+import jakarta.persistence.criteria.JoinType;
 import jakarta.persistence.criteria.Root;
 import lombok.Getter;
 import lombok.Setter;
@@ -8,6 +9,8 @@ import lombok.ToString;
 import org.springframework.data.jpa.domain.Specification;
 
 import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
 
 /**
  * Class used for building Spring {@link Specification} in an easy manner. It uses chaining for better readability.
@@ -20,11 +23,19 @@ import java.util.Collection;
 @ToString
 public class SearchCriterion<T> {
 
+    /**
+     * The escape character of the "like" patterns built from a value.
+     */
+    static final char LIKE_ESCAPE = '\\';
+
     @ToString.Exclude
     private SearchSpecification<T> specifications;
 
     private boolean condition = true;
     private boolean strict = false;
+    private boolean separateJoin = false;
+    private JoinType joinType;
+    private CollectionModeEnum collectionMode;
 
     private String[] fields;
     private SearchOperationEnum operator;
@@ -55,6 +66,20 @@ public class SearchCriterion<T> {
         return this.specifications;
     }
 
+    /**
+     * Check that a value of a comparison operator can be compared with the field, when the metamodel of the root is known
+     *
+     * @param value the value
+     * @throws IllegalArgumentException if the value is not of the type of the field
+     */
+    private void checkComparable(Object value) {
+        Class<?> type = this.specifications.valueType(this.fields);
+        if (type != null && value != null && !type.isInstance(value)) {
+            throw new IllegalArgumentException("Cannot compare " + String.join(".", this.fields) + " of type " + type.getName()
+                    + " with a value of type " + value.getClass().getName());
+        }
+    }
+
     /**
      * The {@link SearchCriterion} will be added to the {@link Specification} predicate only of the condition is true, or ignored otherwise
      *
@@ -66,6 +91,39 @@ public class SearchCriterion<T> {
         return this;
     }
 
+    /**
+     * The {@link SearchCriterion} will use its own joins instead of sharing them with the other criteria having the same path prefix.
+     * This is useful on collections, when each criterion may be matched by a different element of the collection.
+     *
+     * @return the {@link SearchCriterion} for chaining
+     */
+    public SearchCriterion<T> separateJoin() {
+        this.separateJoin = true;
+        return this;
+    }
+
+    /**
+     * Override the {@link JoinType} of the {@link SearchSpecification} for this {@link SearchCriterion}
+     *
+     * @param joinType the join type, or {@literal null} to use the one of the {@literal SearchSpecification}
+     * @return the {@link SearchCriterion} for chaining
+     */
+    public SearchCriterion<T> joinType(JoinType joinType) {
+        this.joinType = joinType;
+        return this;
+    }
+
+    /**
+     * Override the {@link CollectionModeEnum} of the {@link SearchSpecification} for this {@link SearchCriterion}
+     *
+     * @param collectionMode the collection mode, or {@literal null} to use the one of the {@literal SearchSpecification}
+     * @return the {@link SearchCriterion} for chaining
+     */
+    public SearchCriterion<T> collectionMode(CollectionModeEnum collectionMode) {
+        this.collectionMode = collectionMode;
+        return this;
+    }
+
     /**
      * Check whether a value has been set, or in the case of a {@literal Collection}, if it is not empty
      *
@@ -76,6 +134,46 @@ public class SearchCriterion<T> {
                 && !(this.value instanceof Collection<?> coll && coll.isEmpty());
     }
 
+    /**
+     * Get the value bound to the query, i.e. the value itself, the lower case value for an "equals ignore case" operator,
+     * or the pattern for a "like" operator. Except for {@link SearchOperationEnum#LIKE}, the wildcards of the value are escaped
+     * in the patterns with {@link #LIKE_ESCAPE}.
+     *
+     * @return the bound value, or {@literal null} if no value has been set
+     */
+    Object getParameterValue() {
+        if (!hasValue()) {
+            return null;
+        }
+        return switch (operator) {
+            case LIKE -> "%" + value.toString().toLowerCase() + "%";
+            case STARTS_WITH -> escapeLike(value.toString()) + "%";
+            case STARTS_WITH_IGNORE_CASE -> escapeLike(value.toString().toLowerCase(Locale.ROOT)) + "%";
+            case ENDS_WITH -> "%" + escapeLike(value.toString());
+            case CONTAINS_IGNORE_CASE -> "%" + escapeLike(value.toString().toLowerCase(Locale.ROOT)) + "%";
+            case EQUALS_IGNORE_CASE -> value.toString().toLowerCase(Locale.ROOT);
+            default -> value;
+        };
+    }
+
+    /**
+     * Escape the wildcards of a value, so that it is matched literally in a "like" pattern
+     *
+     * @param value the value
+     * @return the escaped value
+     */
+    private static String escapeLike(String value) {
+        var escaped = new StringBuilder(value.length() + 8);
+        for (var i = 0; i < value.length(); ++i) {
+            char c = value.charAt(i);
+            if (c == '%' || c == '_' || c == LIKE_ESCAPE) {
+                escaped.append(LIKE_ESCAPE);
+            }
+            escaped.append(c);
+        }
+        return escaped.toString();
+    }
+
     /**
      * Apply an "equals" operator and a value on the {@link SearchCriterion}
      *
@@ -106,6 +204,60 @@ public class SearchCriterion<T> {
         return this.apply(SearchOperationEnum.LIKE, value);
     }
 
+    /**
+     * Apply a case-sensitive "starts with" operator and a {@literal String} value on the {@link SearchCriterion}.
+     * Can use a B-tree index on the field.
+     *
+     * @param value the related value, its wildcards being matched literally
+     * @return the {@link Specification} for chaining
+     */
+    public SearchSpecification<T> startsWith(String value) {
+        return this.apply(SearchOperationEnum.STARTS_WITH, value);
+    }
+
+    /**
+     * Apply a case-insensitive "starts with" operator and a {@literal String} value on the {@link SearchCriterion}.
+     * Can use a functional B-tree index on <code>lower(field)</code>.
+     *
+     * @param value the related value, its wildcards being matched literally
+     * @return the {@link Specification} for chaining
+     */
+    public SearchSpecification<T> startsWithIgnoreCase(String value) {
+        return this.apply(SearchOperationEnum.STARTS_WITH_IGNORE_CASE, value);
+    }
+
+    /**
+     * Apply a case-sensitive "ends with" operator and a {@literal String} value on the {@link SearchCriterion}
+     *
+     * @param value the related value, its wildcards being matched literally
+     * @return the {@link Specification} for chaining
+     */
+    public SearchSpecification<T> endsWith(String value) {
+        return this.apply(SearchOperationEnum.ENDS_WITH, value);
+    }
+
+    /**
+     * Apply a case-insensitive "contains" operator and a {@literal String} value on the {@link SearchCriterion}.
+     * Unlike {@link #like(String)}, the wildcards of the value are matched literally.
+     *
+     * @param value the related value, its wildcards being matched literally
+     * @return the {@link Specification} for chaining
+     */
+    public SearchSpecification<T> containsIgnoreCase(String value) {
+        return this.apply(SearchOperationEnum.CONTAINS_IGNORE_CASE, value);
+    }
+
+    /**
+     * Apply a case-insensitive "equals" operator and a {@literal String} value on the {@link SearchCriterion}.
+     * Can use a functional B-tree index on <code>lower(field)</code>.
+     *
+     * @param value the related value
+     * @return the {@link Specification} for chaining
+     */
+    public SearchSpecification<T> eqIgnoreCase(String value) {
+        return this.apply(SearchOperationEnum.EQUALS_IGNORE_CASE, value);
+    }
+
     /**
      * Apply an "in" operator and a {@literal Collection} value on the {@link SearchCriterion}
      *
@@ -143,8 +295,10 @@ public class SearchCriterion<T> {
      *
      * @param value the related value
      * @return the {@link Specification} for chaining
+     * @throws IllegalArgumentException if the metamodel of the root is known and the value is not of the type of the field
      */
     public <Y extends Comparable<? super Y>> SearchSpecification<T> gt(Y value) {
+        this.checkComparable(value);
         return this.apply(SearchOperationEnum.GREATER_THAN, value);
     }
 
@@ -153,8 +307,10 @@ public class SearchCriterion<T> {
      *
      * @param value the related value
      * @return the {@link Specification} for chaining
+     * @throws IllegalArgumentException if the metamodel of the root is known and the value is not of the type of the field
      */
     public <Y extends Comparable<? super Y>> SearchSpecification<T> gte(Y value) {
+        this.checkComparable(value);
         return this.apply(SearchOperationEnum.GREATER_THAN_EQUAL, value);
     }
 
@@ -163,8 +319,10 @@ public class SearchCriterion<T> {
      *
      * @param value the related value
      * @return the {@link Specification} for chaining
+     * @throws IllegalArgumentException if the metamodel of the root is known and the value is not of the type of the field
      */
     public <Y extends Comparable<? super Y>> SearchSpecification<T> lt(Y value) {
+        this.checkComparable(value);
         return this.apply(SearchOperationEnum.LESS_THAN, value);
     }
 
@@ -173,8 +331,31 @@ public class SearchCriterion<T> {
      *
      * @param value the related value
      * @return the {@link Specification} for chaining
+     * @throws IllegalArgumentException if the metamodel of the root is known and the value is not of the type of the field
      */
     public <Y extends Comparable<? super Y>> SearchSpecification<T> lte(Y value) {
+        this.checkComparable(value);
         return this.apply(SearchOperationEnum.LESS_THAN_EQUAL, value);
     }
+
+    /**
+     * Apply a "between" operator and two values on the {@link SearchCriterion}, both bounds included.
+     * If only one bound is set, a "greater than or equal to" or a "less than or equal to" operator is applied instead.
+     *
+     * @param from the lower bound
+     * @param to   the upper bound
+     * @return the {@link Specification} for chaining
+     * @throws IllegalArgumentException if the metamodel of the root is known and a bound is not of the type of the field
+     */
+    public <Y extends Comparable<? super Y>> SearchSpecification<T> between(Y from, Y to) {
+        if (from == null) {
+            return this.lte(to);
+        }
+        if (to == null) {
+            return this.gte(from);
+        }
+        this.checkComparable(from);
+        this.checkComparable(to);
+        return this.apply(SearchOperationEnum.BETWEEN, List.of(from, to));
+    }
 }
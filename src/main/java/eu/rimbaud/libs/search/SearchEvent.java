@@ -0,0 +1,177 @@
+package eu.rimbaud.libs.search;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.function.Supplier;
+
+/**
+ * A conversion or execution of a {@link SearchSpecification}, as notified to a {@link SearchListener}.
+ * <p>The description of the criteria is only built when asked for, see {@link #criteria()}, then kept.
+ * Two events are equal if their operations, fingerprints, descriptions, times, rows and joins are.</p>
+ */
+public final class SearchEvent {
+
+    /**
+     * The operation of the conversion into a {@link jakarta.persistence.criteria.Predicate}, without execution.
+     */
+    public static final String PREDICATE = "predicate";
+
+    private final String operation;
+    private final String fingerprint;
+    private final long buildNanos;
+    private final long executionNanos;
+    private final long rows;
+    private final int joins;
+    private Supplier<String> description;
+    private volatile String criteria;
+
+    /**
+     * Construct a {@link SearchEvent}
+     *
+     * @param operation      the operation: {@link #PREDICATE} for a conversion into a
+     *                       {@link jakarta.persistence.criteria.Predicate}, e.g. by a Spring repository, or the
+     *                       {@link SearchExecutor} method for an execution (<code>findAll</code>, <code>findPage</code>,
+     *                       <code>count</code>, <code>exists</code>)
+     * @param fingerprint    the fingerprint of the specification, see {@link SearchSpecification#fingerprint()}
+     * @param description    the description of the applied criteria, called at most once, see {@link #criteria()}
+     * @param buildNanos     the time spent building the query, in nanoseconds
+     * @param executionNanos the time spent executing the query, in nanoseconds, or -1 if not executed
+     * @param rows           the number of returned rows, or -1 if not executed
+     * @param joins          the number of joins and {@literal EXISTS} subqueries of the query
+     */
+    public SearchEvent(String operation, String fingerprint, Supplier<String> description,
+                       long buildNanos, long executionNanos, long rows, int joins) {
+        this.operation = operation;
+        this.fingerprint = fingerprint;
+        this.description = description;
+        this.buildNanos = buildNanos;
+        this.executionNanos = executionNanos;
+        this.rows = rows;
+        this.joins = joins;
+    }
+
+    /**
+     * Get the operation
+     *
+     * @return {@link #PREDICATE} for a conversion, or the {@link SearchExecutor} method for an execution
+     */
+    public String operation() {
+        return operation;
+    }
+
+    /**
+     * Get the fingerprint of the specification, see {@link SearchSpecification#fingerprint()}
+     *
+     * @return the fingerprint
+     */
+    public String fingerprint() {
+        return fingerprint;
+    }
+
+    /**
+     * Describe the applied criteria, as {@link SearchCriterion#toString()} does, values included. The description is
+     * built on the first call, from the values: call it only when needed, e.g. for a slow query.
+     *
+     * @return the description
+     */
+    public String criteria() {
+        String described = criteria;
+        if (described == null) {
+            synchronized (this) {
+                described = criteria;
+                if (described == null) {
+                    described = description.get();
+                    criteria = described;
+                    description = null;
+                }
+            }
+        }
+        return described;
+    }
+
+    /**
+     * Get the time spent building the query, in nanoseconds
+     *
+     * @return the build time
+     */
+    public long buildNanos() {
+        return buildNanos;
+    }
+
+    /**
+     * Get the time spent executing the query, in nanoseconds
+     *
+     * @return the execution time, or -1 if not executed
+     */
+    public long executionNanos() {
+        return executionNanos;
+    }
+
+    /**
+     * Get the number of returned rows
+     *
+     * @return the number of rows, or -1 if not executed
+     */
+    public long rows() {
+        return rows;
+    }
+
+    /**
+     * Get the number of joins and {@literal EXISTS} subqueries of the query
+     *
+     * @return the number of joins
+     */
+    public int joins() {
+        return joins;
+    }
+
+    /**
+     * Check whether the query has been executed
+     *
+     * @return true if the event holds an execution time and a row count
+     */
+    public boolean isExecuted() {
+        return executionNanos >= 0;
+    }
+
+    /**
+     * Get the time spent building the query
+     *
+     * @return the build time
+     */
+    public Duration buildTime() {
+        return Duration.ofNanos(buildNanos);
+    }
+
+    /**
+     * Get the time spent executing the query
+     *
+     * @return the execution time, or {@link Duration#ZERO} if not executed
+     */
+    public Duration executionTime() {
+        return isExecuted() ? Duration.ofNanos(executionNanos) : Duration.ZERO;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return this == o || o instanceof SearchEvent other
+                && buildNanos == other.buildNanos
+                && executionNanos == other.executionNanos
+                && rows == other.rows
+                && joins == other.joins
+                && operation.equals(other.operation)
+                && fingerprint.equals(other.fingerprint)
+                && criteria().equals(other.criteria());
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(operation, fingerprint, buildNanos, executionNanos, rows, joins);
+    }
+
+    @Override
+    public String toString() {
+        return "SearchEvent[operation=" + operation + ", fingerprint=" + fingerprint + ", criteria=" + criteria()
+                + ", buildNanos=" + buildNanos + ", executionNanos=" + executionNanos + ", rows=" + rows + ", joins=" + joins + "]";
+    }
+}
@@ -0,0 +1,809 @@
+package eu.rimbaud.libs.search;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.data.mapping.PropertyPath;
+import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.util.ClassUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Executes {@link SearchSpecification} against an {@link EntityManager}, as an alternative to the Spring repositories.
+ * <p>The specifications are converted into parameterized {@link CriteriaQuery}: each value is bound through a
+ * {@link jakarta.persistence.criteria.ParameterExpression}. Specifications with the same shape, i.e. the same criteria
+ * with different values, share the same {@literal CriteriaQuery}, so that the query plan cache of the persistence provider
+ * and the statement cache of the database are hit.</p>
+ * <p>With Hibernate, the query plan cache is only hit if the criteria tree is not copied on query creation,
+ * i.e. with <code>hibernate.criteria.copy_tree=false</code>. The cached {@literal CriteriaQuery} are never modified once created.</p>
+ * <p>Each execution is notified to the {@link SearchListener} of the {@literal SearchSpecification}, if any.
+ * The specifications normalized into an always false one, e.g. with contradicting criteria, are answered without
+ * any query, nor notification.</p>
+ * <p>The executions of the specifications with {@link SelectivityStatistics} feed them, and their queries are given
+ * the hints the statistics choose.</p>
+ *
+ * @param <T> the type of the entity the {@literal SearchSpecification} operates on.
+ */
+public class SearchExecutor<T> {
+
+    /**
+     * The default maximum number of cached {@link CriteriaQuery}.
+     */
+    public static final int DEFAULT_CACHE_SIZE = 256;
+
+    /**
+     * The default maximum number of combinations of values read by a grouped facet query.
+     */
+    public static final int DEFAULT_MAX_FACET_COMBINATIONS = 1000;
+
+    private final EntityManager entityManager;
+    private final Class<T> domainClass;
+    private final Map<QueryKey, CachedQuery<?>> queries;
+
+    /**
+     * Construct a {@link SearchExecutor} with the default cache size
+     *
+     * @param entityManager the entity manager, must not be {@literal null}.
+     * @param domainClass   the entity type, must not be {@literal null}.
+     */
+    public SearchExecutor(EntityManager entityManager, Class<T> domainClass) {
+        this(entityManager, domainClass, DEFAULT_CACHE_SIZE);
+    }
+
+    /**
+     * Construct a {@link SearchExecutor}
+     *
+     * @param entityManager the entity manager, must not be {@literal null}.
+     * @param domainClass   the entity type, must not be {@literal null}.
+     * @param cacheSize     the maximum number of cached {@link CriteriaQuery}, the least recently used being evicted first
+     */
+    public SearchExecutor(EntityManager entityManager, Class<T> domainClass, int cacheSize) {
+        this.entityManager = entityManager;
+        this.domainClass = domainClass;
+        this.queries = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<QueryKey, CachedQuery<?>> eldest) {
+                return size() > cacheSize;
+            }
+        });
+    }
+
+    /**
+     * Construct a {@link SearchExecutor} sharing the cached {@link CriteriaQuery} of another one, for another
+     * {@link EntityManager} of the same persistence unit
+     *
+     * @param entityManager the entity manager, must not be {@literal null}.
+     * @param shared        the executor whose cache is shared
+     */
+    SearchExecutor(EntityManager entityManager, SearchExecutor<T> shared) {
+        this.entityManager = entityManager;
+        this.domainClass = shared.domainClass;
+        this.queries = shared.queries;
+    }
+
+    /**
+     * Create an empty {@link SearchSpecification} on the entity type, whose field paths and comparison values are checked
+     * against the metamodel when the criteria are added
+     *
+     * @return the specification
+     */
+    public SearchSpecification<T> specification() {
+        return new SearchSpecification<>(entityManager.getMetamodel().entity(domainClass));
+    }
+
+    /**
+     * Find all entities matching the {@link SearchSpecification}
+     *
+     * @param spec the specification, must not be {@literal null}.
+     * @return the matching entities
+     */
+    public List<T> findAll(SearchSpecification<T> spec) {
+        return findAll(spec, Sort.unsorted());
+    }
+
+    /**
+     * Find all entities matching the {@link SearchSpecification}, sorted
+     *
+     * @param spec the specification, must not be {@literal null}.
+     * @param sort the sort, must not be {@literal null}.
+     * @return the matching entities
+     */
+    public List<T> findAll(SearchSpecification<T> spec, Sort sort) {
+        long start = System.nanoTime();
+        CriteriaGroup<T> criteria = spec.normalize();
+        if (criteria.isAlwaysFalse()) {
+            return List.of();
+        }
+        PreparedQuery<T> prepared = prepare(spec, criteria, sort, QueryKind.ENTITIES, domainClass);
+        long built = System.nanoTime();
+        List<T> entities = prepared.query().getResultList();
+        notify(spec, criteria, "findAll", prepared, start, built, entities.size());
+        observe(spec, criteria, entities.size());
+        return entities;
+    }
+
+    /**
+     * Find all entities matching the {@link SearchSpecification}, sorted, projected into a record or an interface:
+     * only the given attribute paths are selected, without loading the entities into the persistence context.
+     * <ul>
+     *     <li>record: the paths are passed to the canonical constructor, in order. By default, the paths are the names of the components</li>
+     *     <li>interface: each path is exposed by the getter of its camel-cased name, e.g. <code>author.name</code> by
+     *     <code>getAuthorName()</code>. By default, the paths are the names of the properties</li>
+     * </ul>
+     * <p>The relationships of nested paths reuse the inner joins of the criteria, or are left joined. The paths cannot go
+     * through a {@literal Collection}, and the criteria on a {@literal Collection} reached through inner joins are checked
+     * with {@literal EXISTS} subqueries, so that each entity is projected once.</p>
+     *
+     * @param spec       the specification, must not be {@literal null}.
+     * @param projection the record or interface type, must not be {@literal null}.
+     * @param sort       the sort, on attributes of the entity, must not be {@literal null}.
+     * @param paths      the dot-separated attribute paths, or none to derive them from the projection type
+     * @param <P>        the projection type
+     * @return the projections of the matching entities
+     * @throws IllegalArgumentException if the projection type is neither a record nor an interface, or a path is invalid
+     */
+    public <P> List<P> findAll(SearchSpecification<T> spec, Class<P> projection, Sort sort, String... paths) {
+        Projection<P> mapping = Projection.of(projection, paths);
+        long start = System.nanoTime();
+        CriteriaGroup<T> criteria = spec.normalize();
+        if (criteria.isAlwaysFalse()) {
+            return List.of();
+        }
+        PreparedQuery<Tuple> prepared = prepare(spec, criteria, sort, QueryKind.PROJECTION, Tuple.class, mapping.paths());
+        long built = System.nanoTime();
+        List<P> projections = prepared.query().getResultStream().map(t -> mapping.map(t, 1)).toList();
+        notify(spec, criteria, "findAll", prepared, start, built, projections.size());
+        return projections;
+    }
+
+    /**
+     * Find a page of the entities matching the {@link SearchSpecification}, projected into a record or an interface.
+     * The total is only counted when it cannot be deduced from the page.
+     *
+     * @param spec       the specification, must not be {@literal null}.
+     * @param projection the record or interface type, must not be {@literal null}.
+     * @param pageable   the page, sorted on attributes of the entity, must not be {@literal null}.
+     * @param paths      the dot-separated attribute paths, or none to derive them from the projection type
+     * @param <P>        the projection type
+     * @return the page of projections
+     * @see #findAll(SearchSpecification, Class, Sort, String...)
+     */
+    public <P> Page<P> findAll(SearchSpecification<T> spec, Class<P> projection, Pageable pageable, String... paths) {
+        if (pageable.isUnpaged()) {
+            return new PageImpl<>(findAll(spec, projection, pageable.getSort(), paths));
+        }
+        Projection<P> mapping = Projection.of(projection, paths);
+        long start = System.nanoTime();
+        CriteriaGroup<T> criteria = spec.normalize();
+        if (criteria.isAlwaysFalse()) {
+            return Page.empty(pageable);
+        }
+        PreparedQuery<Tuple> prepared = prepare(spec, criteria, pageable.getSort(), QueryKind.PROJECTION, Tuple.class, mapping.paths());
+        long built = System.nanoTime();
+        List<P> projections = prepared.query()
+                .setFirstResult(Math.toIntExact(pageable.getOffset()))
+                .setMaxResults(pageable.getPageSize())
+                .getResultStream()
+                .map(t -> mapping.map(t, 1))
+                .toList();
+        notify(spec, criteria, "findAll", prepared, start, built, projections.size());
+        return PageableExecutionUtils.getPage(projections, pageable, () -> count(spec));
+    }
+
+    /**
+     * Stream all entities matching the {@link SearchSpecification}, sorted, through a forward-only cursor: the rows are
+     * fetched from the database <code>fetchSize</code> at a time, while the stream is consumed.
+     * <p>The entities are loaded read-only, without dirty checking, and each of them is detached from the persistence
+     * context once the next one is read, so that the memory use does not grow with the number of entities. Their lazy
+     * relationships can only be loaded before moving to the next entity. The entities already managed by the persistence
+     * context before streaming are detached as well.</p>
+     * <p>The stream holds a JDBC result set, and must be closed, e.g. with a try-with-resources, within the transaction.
+     * Some drivers only honor the fetch size under conditions, e.g. PostgreSQL within a transaction.</p>
+     *
+     * @param spec      the specification, must not be {@literal null}.
+     * @param sort      the sort, must not be {@literal null}.
+     * @param fetchSize the number of rows fetched from the database at a time, must be positive
+     * @return the stream of the matching entities, to be closed
+     */
+    public Stream<T> stream(SearchSpecification<T> spec, Sort sort, int fetchSize) {
+        long start = System.nanoTime();
+        CriteriaGroup<T> criteria = spec.normalize();
+        if (criteria.isAlwaysFalse()) {
+            return Stream.empty();
+        }
+        PreparedQuery<T> prepared = prepare(spec, criteria, sort, QueryKind.ENTITIES, domainClass);
+        var previous = new ArrayList<T>(1);
+        return stream(spec, criteria, prepared, start, fetchSize, entity -> {
+            if (!previous.isEmpty()) {
+                entityManager.detach(previous.set(0, entity));
+            } else {
+                previous.add(entity);
+            }
+            return entity;
+        }).onClose(() -> previous.forEach(entityManager::detach));
+    }
+
+    /**
+     * Stream all entities matching the {@link SearchSpecification}, sorted, projected into a record or an interface,
+     * through a forward-only cursor: the rows are fetched from the database <code>fetchSize</code> at a time,
+     * while the stream is consumed. No entity is loaded into the persistence context.
+     * <p>The stream holds a JDBC result set, and must be closed, e.g. with a try-with-resources, within the transaction.</p>
+     *
+     * @param spec       the specification, must not be {@literal null}.
+     * @param projection the record or interface type, must not be {@literal null}.
+     * @param sort       the sort, on attributes of the entity, must not be {@literal null}.
+     * @param fetchSize  the number of rows fetched from the database at a time, must be positive
+     * @param paths      the dot-separated attribute paths, or none to derive them from the projection type
+     * @param <P>        the projection type
+     * @return the stream of the projections of the matching entities, to be closed
+     * @see #findAll(SearchSpecification, Class, Sort, String...)
+     */
+    public <P> Stream<P> stream(SearchSpecification<T> spec, Class<P> projection, Sort sort, int fetchSize, String... paths) {
+        Projection<P> mapping = Projection.of(projection, paths);
+        long start = System.nanoTime();
+        CriteriaGroup<T> criteria = spec.normalize();
+        if (criteria.isAlwaysFalse()) {
+            return Stream.empty();
+        }
+        PreparedQuery<Tuple> prepared = prepare(spec, criteria, sort, QueryKind.PROJECTION, Tuple.class, mapping.paths());
+        return stream(spec, criteria, prepared, start, fetchSize, t -> mapping.map(t, 1));
+    }
+
+    /**
+     * Find the identifiers of all entities matching the {@link SearchSpecification}, sorted.
+     * The criteria on a {@literal Collection} reached through inner joins are checked with {@literal EXISTS} subqueries.
+     *
+     * @param spec the specification, must not be {@literal null}.
+     * @param sort the sort, on attributes of the entity, must not be {@literal null}.
+     * @return the identifiers of the matching entities
+     */
+    public List<Object> findIds(SearchSpecification<T> spec, Sort sort) {
+        long start = System.nanoTime();
+        CriteriaGroup<T> criteria = spec.normalize();
+        if (criteria.isAlwaysFalse()) {
+            return List.of();
+        }
+        PreparedQuery<Object> prepared = prepare(spec, criteria, sort, QueryKind.IDS, Object.class);
+        long built = System.nanoTime();
+        List<Object> ids = prepared.query().getResultList();
+        notify(spec, criteria, "findIds", prepared, start, built, ids.size());
+        observe(spec, criteria, ids.size());
+        return ids;
+    }
+
+    /**
+     * Find a page of the identifiers of the entities matching the {@link SearchSpecification}.
+     * The total is only counted when it cannot be deduced from the page.
+     *
+     * @param spec     the specification, must not be {@literal null}.
+     * @param pageable the page, sorted on attributes of the entity, must not be {@literal null}.
+     * @return the page of identifiers
+     */
+    public Page<Object> findIds(SearchSpecification<T> spec, Pageable pageable) {
+        if (pageable.isUnpaged()) {
+            return new PageImpl<>(findIds(spec, pageable.getSort()));
+        }
+        long start = System.nanoTime();
+        CriteriaGroup<T> criteria = spec.normalize();
+        if (criteria.isAlwaysFalse()) {
+            return Page.empty(pageable);
+        }
+        PreparedQuery<Object> prepared = prepare(spec, criteria, pageable.getSort(), QueryKind.IDS, Object.class);
+        long built = System.nanoTime();
+        List<Object> ids = prepared.query()
+                .setFirstResult(Math.toIntExact(pageable.getOffset()))
+                .setMaxResults(pageable.getPageSize())
+                .getResultList();
+        notify(spec, criteria, "findIds", prepared, start, built, ids.size());
+        return PageableExecutionUtils.getPage(ids, pageable, () -> count(spec));
+    }
+
+    /**
+     * Check whether an entity matches the {@link SearchSpecification}. The query stops at the first matching row,
+     * and the criteria on a {@literal Collection} reached through inner joins are checked with {@literal EXISTS} subqueries.
+     *
+     * @param spec the specification, must not be {@literal null}.
+     * @return {@literal true} if at least one entity matches
+     */
+    public boolean exists(SearchSpecification<T> spec) {
+        long start = System.nanoTime();
+        CriteriaGroup<T> criteria = spec.normalize();
+        if (criteria.isAlwaysFalse()) {
+            return false;
+        }
+        PreparedQuery<Object> prepared = prepare(spec, criteria, Sort.unsorted(), QueryKind.IDS, Object.class);
+        long built = System.nanoTime();
+        int rows = prepared.query().setMaxResults(1).getResultList().size();
+        notify(spec, criteria, "exists", prepared, start, built, rows);
+        return rows > 0;
+    }
+
+    /**
+     * Count the entities matching the {@link SearchSpecification}. Unlike the count query of the Spring repositories,
+     * the criteria on a {@literal Collection} reached through inner joins are checked with {@literal EXISTS} subqueries,
+     * so that the joins multiplying the rows are dropped and no {@literal DISTINCT} is needed.
+     * Such joins are kept, with a {@literal DISTINCT} count, for the criteria using other join types.
+     *
+     * @param spec the specification, must not be {@literal null}.
+     * @return the number of matching entities
+     */
+    public long count(SearchSpecification<T> spec) {
+        long start = System.nanoTime();
+        CriteriaGroup<T> criteria = spec.normalize();
+        if (criteria.isAlwaysFalse()) {
+            return 0;
+        }
+        PreparedQuery<Long> prepared = prepare(spec, criteria, Sort.unsorted(), QueryKind.COUNT, Long.class);
+        long built = System.nanoTime();
+        long count = prepared.query().getSingleResult();
+        notify(spec, criteria, "count", prepared, start, built, 1);
+        observe(spec, criteria, count);
+        return count;
+    }
+
+    /**
+     * Count the entities matching the {@link SearchSpecification}, up to a limit: the query stops reading rows once
+     * the limit is reached. Useful to display "more than N results" without paying for a full count.
+     *
+     * @param spec  the specification, must not be {@literal null}.
+     * @param limit the maximum number of counted entities, must be positive
+     * @return the number of matching entities, or <code>limit</code> if there are more
+     */
+    public long count(SearchSpecification<T> spec, int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Count limit must be positive: " + limit);
+        }
+        long start = System.nanoTime();
+        CriteriaGroup<T> criteria = spec.normalize();
+        if (criteria.isAlwaysFalse()) {
+            return 0;
+        }
+        PreparedQuery<Object> prepared = prepare(spec, criteria, Sort.unsorted(), QueryKind.IDS, Object.class);
+        long built = System.nanoTime();
+        int count = prepared.query().setMaxResults(limit).getResultList().size();
+        notify(spec, criteria, "count", prepared, start, built, count);
+        return count;
+    }
+
+    /**
+     * Count the entities matching the {@link SearchSpecification} by value of several attributes, e.g. to display the
+     * facets of a search, in as few queries as possible, with at most {@value #DEFAULT_MAX_FACET_COMBINATIONS}
+     * combinations of values read by a grouped query.
+     *
+     * @param spec        the specification, must not be {@literal null}.
+     * @param disjunctive whether the criteria on each counted attribute are left out when counting it
+     * @param paths       the dot-separated attribute paths
+     * @return the counts of each attribute, in the order of the paths, by value, from the most frequent, {@literal null}
+     * being the value of the entities without value
+     * @throws IllegalArgumentException if a path is invalid, or is a {@literal Collection}
+     * @see #facets(SearchSpecification, boolean, int, String...)
+     */
+    public Map<String, Map<Object, Long>> facets(SearchSpecification<T> spec, boolean disjunctive, String... paths) {
+        return facets(spec, disjunctive, DEFAULT_MAX_FACET_COMBINATIONS, paths);
+    }
+
+    /**
+     * Count the entities matching the {@link SearchSpecification} by value of several attributes, e.g. to display the
+     * facets of a search, in as few queries as possible.
+     * <p>The attributes counted with the same criteria are grouped together in one query, the counts of each attribute
+     * being summed up from the rows of the combinations of values. Such a query reads up to one row per matching entity
+     * when the attributes are independent, so it reads at most <code>maxCombinations</code> rows: beyond, each attribute
+     * is counted in its own query, reading one row per value of the attribute but scanning the matching entities once
+     * per attribute. The grouped query is best for attributes with few values, e.g. a status and a country, the queries
+     * per attribute for attributes with many values. {@literal GROUPING SETS} would count each attribute separately in
+     * a single scan, but cannot be expressed through JPA criteria, Hibernate only rendering {@literal ROLLUP} and
+     * {@literal CUBE}. An attribute reached through a {@literal Collection} is counted in its own query, by distinct
+     * entity, with all the elements of the matching entities.</p>
+     * <p>With <code>disjunctive</code> facets, the criteria of the specification on the counted attribute itself are left out
+     * when counting it, so that the other values of a selected facet keep their counts. The attributes counted without
+     * such a criterion still share the same query.</p>
+     *
+     * @param spec            the specification, must not be {@literal null}.
+     * @param disjunctive     whether the criteria on each counted attribute are left out when counting it
+     * @param maxCombinations the maximum number of combinations of values read by a grouped query, must be positive
+     * @param paths           the dot-separated attribute paths
+     * @return the counts of each attribute, in the order of the paths, by value, from the most frequent, {@literal null}
+     * being the value of the entities without value
+     * @throws IllegalArgumentException if a path is invalid, or is a {@literal Collection}
+     */
+    public Map<String, Map<Object, Long>> facets(SearchSpecification<T> spec, boolean disjunctive, int maxCombinations, String... paths) {
+        if (maxCombinations <= 0) {
+            throw new IllegalArgumentException("Maximum number of facet combinations must be positive: " + maxCombinations);
+        }
+        var model = entityManager.getMetamodel().entity(domainClass);
+        Map<String, Map<Object, Long>> facets = new LinkedHashMap<>();
+        List<FacetQuery<T>> facetQueries = new ArrayList<>();
+        List<String> shared = new ArrayList<>();
+        for (String path : paths) {
+            if (facets.putIfAbsent(path, Map.of()) != null) {
+                continue;
+            }
+            SearchSpecification<T> filter = disjunctive ? spec.without(path) : spec;
+            if (filter == spec && AttributePaths.resolve(model, path.split("\\.")).collection() < 0) {
+                shared.add(path);
+            } else {
+                facetQueries.add(new FacetQuery<>(filter, List.of(path)));
+            }
+        }
+        if (!shared.isEmpty()) {
+            facetQueries.add(0, new FacetQuery<>(spec, shared));
+        }
+        for (FacetQuery<T> facetQuery : facetQueries) {
+            CriteriaGroup<T> criteria = facetQuery.spec().normalize();
+            if (criteria.isAlwaysFalse()) {
+                continue;
+            }
+            List<String> facetPaths = facetQuery.paths();
+            List<Tuple> rows = facetRows(facetQuery.spec(), criteria, facetPaths, facetPaths.size() > 1 ? maxCombinations : 0);
+            if (rows != null) {
+                putFacets(facets, facetPaths, rows);
+                continue;
+            }
+            for (String path : facetPaths) {
+                putFacets(facets, List.of(path), facetRows(facetQuery.spec(), criteria, List.of(path), 0));
+            }
+        }
+        return facets;
+    }
+
+    /**
+     * Run the query counting the entities by values of attributes
+     *
+     * @param maxRows the maximum number of rows read, or 0 for no limit
+     * @return the rows, or {@literal null} if there are more than <code>maxRows</code>
+     */
+    private List<Tuple> facetRows(SearchSpecification<T> spec, CriteriaGroup<T> criteria, List<String> paths, int maxRows) {
+        long start = System.nanoTime();
+        PreparedQuery<Tuple> prepared = prepare(spec, criteria, Sort.unsorted(), QueryKind.FACETS, Tuple.class, paths);
+        if (maxRows > 0) {
+            prepared.query().setMaxResults(maxRows + 1);
+        }
+        long built = System.nanoTime();
+        List<Tuple> rows = prepared.query().getResultList();
+        notify(spec, criteria, "facets", prepared, start, built, rows.size());
+        return maxRows > 0 && rows.size() > maxRows ? null : rows;
+    }
+
+    private static void putFacets(Map<String, Map<Object, Long>> facets, List<String> paths, List<Tuple> rows) {
+        for (var i = 0; i < paths.size(); ++i) {
+            Map<Object, Long> counts = new HashMap<>();
+            for (Tuple row : rows) {
+                counts.merge(row.get(i), row.get(row.getElements().size() - 1, Long.class), Long::sum);
+            }
+            Map<Object, Long> sorted = new LinkedHashMap<>();
+            counts.entrySet().stream()
+                    .sorted(Map.Entry.<Object, Long>comparingByValue().reversed())
+                    .forEach(e -> sorted.put(e.getKey(), e.getValue()));
+            facets.put(paths.get(i), Collections.unmodifiableMap(sorted));
+        }
+    }
+
+    /**
+     * Find a page of entities matching the {@link SearchSpecification}, using keyset pagination: instead of skipping
+     * the entities of the previous pages, the query seeks the entities sorted after the last one of the previous page.
+     * Each page costs the same as the first one, whatever its depth.
+     * <p>The sort keys must be stable and not {@literal null}. The identifier is appended to the sort keys as tie-breaker,
+     * unless already present.</p>
+     *
+     * @param spec   the specification, must not be {@literal null}.
+     * @param sort   the sort keys, must not be {@literal null}.
+     * @param cursor the cursor returned with the previous page, or {@literal null} for the first page
+     * @param size   the page size, must be positive
+     * @return the page, with the cursor of the next page
+     * @throws IllegalArgumentException if the cursor does not match the sort keys
+     */
+    public KeysetPage<T> findPage(SearchSpecification<T> spec, Sort sort, String cursor, int size) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("Page size must be positive: " + size);
+        }
+        long start = System.nanoTime();
+        CriteriaGroup<T> criteria = spec.normalize();
+        if (criteria.isAlwaysFalse()) {
+            return new KeysetPage<>(List.of(), null);
+        }
+        Sort keys = withIdTieBreaker(sort);
+        PreparedQuery<T> prepared = prepare(spec, criteria, keys, cursor != null ? QueryKind.KEYSET : QueryKind.ENTITIES, domainClass);
+        TypedQuery<T> query = prepared.query();
+        if (cursor != null) {
+            List<Object> after = KeysetCursor.decode(cursor, keys.stream().map(this::keyType).toList());
+            for (var i = 0; i < after.size(); ++i) {
+                query.setParameter(keysetParameterName(i), after.get(i));
+            }
+        }
+        long built = System.nanoTime();
+        List<T> entities = query.setMaxResults(size + 1).getResultList();
+        notify(spec, criteria, "findPage", prepared, start, built, entities.size());
+        if (entities.size() <= size) {
+            return new KeysetPage<>(entities, null);
+        }
+        T last = entities.get(size - 1);
+        return new KeysetPage<>(entities.subList(0, size),
+                KeysetCursor.encode(keys.stream().map(o -> keyValue(last, o.getProperty())).toList()));
+    }
+
+    /**
+     * Create the {@link TypedQuery} of a {@link SearchSpecification}, from the cached {@link CriteriaQuery} of its shape,
+     * and bind the values of the specification.
+     *
+     * @param spec the specification
+     * @param sort the sort
+     * @return the query, ready to be executed
+     */
+    protected TypedQuery<T> getQuery(SearchSpecification<T> spec, Sort sort) {
+        return prepare(spec, spec.normalize(), sort, QueryKind.ENTITIES, domainClass).query();
+    }
+
+    private <R> PreparedQuery<R> prepare(SearchSpecification<T> spec, CriteriaGroup<T> criteria, Sort sort, QueryKind kind, Class<R> resultType) {
+        return prepare(spec, criteria, sort, kind, resultType, List.of());
+    }
+
+    @SuppressWarnings("unchecked")
+    private <R> PreparedQuery<R> prepare(SearchSpecification<T> spec, CriteriaGroup<T> criteria, Sort sort, QueryKind kind,
+                                         Class<R> resultType, List<String> selection) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        IndexLookups<T> lookups = spec.lookUpIndexes(criteria);
+        var model = entityManager.getMetamodel().entity(domainClass);
+        var cached = (CachedQuery<R>) queries.computeIfAbsent(new QueryKey(spec.shape(criteria, lookups, cb, model), sort, kind, selection),
+                k -> createCriteria(spec, criteria, lookups, sort, kind, resultType, selection));
+        TypedQuery<R> query = entityManager.createQuery(cached.criteria())
+                .setHint(HibernateHints.HINT_QUERY_PLAN_CACHEABLE, true);
+        SelectivityStatistics<T> statistics = spec.getStatistics();
+        if (statistics != null) {
+            statistics.hints(criteria, kind == QueryKind.ENTITIES).forEach(query::setHint);
+        }
+        List<Object> values = spec.parameterValues(criteria, lookups, cb, model);
+        for (var i = 0; i < values.size(); ++i) {
+            query.setParameter(PredicateContext.parameterName(i), values.get(i));
+        }
+        onQuery(query);
+        return new PreparedQuery<>(query, cached.joins());
+    }
+
+    /**
+     * Called once a query is created and bound, right before its execution, e.g. to abort a cancelled search.
+     *
+     * @param query the query
+     */
+    void onQuery(TypedQuery<?> query) {
+    }
+
+    private <R, P> Stream<P> stream(SearchSpecification<T> spec, CriteriaGroup<T> criteria, PreparedQuery<R> prepared, long start, int fetchSize, Function<R, P> mapper) {
+        if (fetchSize <= 0) {
+            throw new IllegalArgumentException("Fetch size must be positive: " + fetchSize);
+        }
+        long built = System.nanoTime();
+        long[] rows = new long[1];
+        return prepared.query()
+                .setHint(HibernateHints.HINT_FETCH_SIZE, fetchSize)
+                .setHint(HibernateHints.HINT_READ_ONLY, true)
+                .getResultStream()
+                .map(row -> {
+                    ++rows[0];
+                    return mapper.apply(row);
+                })
+                .onClose(() -> notify(spec, criteria, "stream", prepared, start, built, rows[0]));
+    }
+
+    private static <T> void observe(SearchSpecification<T> spec, CriteriaGroup<T> criteria, long rows) {
+        SelectivityStatistics<T> statistics = spec.getStatistics();
+        if (statistics != null) {
+            statistics.observe(criteria, rows);
+        }
+    }
+
+    private void notify(SearchSpecification<T> spec, CriteriaGroup<T> criteria, String operation, PreparedQuery<?> prepared, long start, long built, long rows) {
+        SearchListener listener = spec.getListener();
+        if (listener != null) {
+            listener.onSearch(new SearchEvent(operation, spec.fingerprint(criteria), () -> spec.describeCriteria(criteria),
+                    built - start, System.nanoTime() - built, rows, prepared.joins()));
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private <R> CachedQuery<R> createCriteria(SearchSpecification<T> spec, CriteriaGroup<T> criteria, IndexLookups<T> lookups, Sort sort,
+                                              QueryKind kind, Class<R> resultType, List<String> selection) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<R> query = cb.createQuery(resultType);
+        Root<T> root = query.from(domainClass);
+        var context = new PredicateContext<>(root, query, cb, true, kind.semiJoinCollections, lookups);
+        Predicate predicate = spec.toPredicate(criteria, context);
+        if (kind == QueryKind.KEYSET) {
+            predicate = cb.and(predicate, keysetPredicate(cb, root, sort));
+        }
+        query.where(predicate);
+        switch (kind) {
+            case ENTITIES, KEYSET -> query.select((Selection<R>) root);
+            case COUNT -> query.select((Selection<R>) (context.isRootMultiplied() ? cb.countDistinct(root) : cb.count(root)));
+            case IDS -> query.select((Selection<R>) root.get(idAttribute())).distinct(context.isRootMultiplied());
+            case PROJECTION -> {
+                // the identifier comes first, so that distinct entities with the same projected values are all kept
+                List<Selection<?>> selections = new ArrayList<>();
+                selections.add(root.get(idAttribute()));
+                selection.forEach(path -> selections.add(context.selection(path)));
+                query.select((Selection<R>) cb.tuple(selections.toArray(Selection[]::new))).distinct(context.isRootMultiplied());
+            }
+            case FACETS -> {
+                // the facet joins come first, so that the entities are counted once per value of a collection
+                List<Expression<?>> paths = selection.stream().<Expression<?>>map(context::facet).toList();
+                List<Selection<?>> selections = new ArrayList<>(paths);
+                selections.add(context.isRootMultiplied() ? cb.countDistinct(root) : cb.count(root));
+                query.select((Selection<R>) cb.tuple(selections.toArray(Selection[]::new))).groupBy(paths);
+            }
+        }
+        if (sort.isSorted()) {
+            query.orderBy(QueryUtils.toOrders(sort, root, cb));
+        }
+        return new CachedQuery<>(query, context.joinCount());
+    }
+
+    EntityManager getEntityManager() {
+        return entityManager;
+    }
+
+    Class<T> getDomainClass() {
+        return domainClass;
+    }
+
+    /**
+     * Create the row-value comparison seeking the entities sorted after the keyset parameters, i.e. for keys
+     * <code>(a, b)</code>: <code>a &gt;= :k0 and (a &gt; :k0 or (a = :k0 and b &gt; :k1))</code>.
+     * The leading bound lets the database use a range scan on an index on the first key.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private Predicate keysetPredicate(CriteriaBuilder cb, Root<T> root, Sort keys) {
+        List<Sort.Order> orders = keys.toList();
+        List<Expression<Comparable>> paths = new ArrayList<>();
+        List<Expression<Comparable>> parameters = new ArrayList<>();
+        for (var i = 0; i < orders.size(); ++i) {
+            Path<Comparable> path = keyPath(root, orders.get(i).getProperty());
+            paths.add(path);
+            parameters.add(cb.parameter((Class<Comparable>) ClassUtils.resolvePrimitiveIfNecessary(path.getJavaType()), keysetParameterName(i)));
+        }
+        Predicate predicate = null;
+        for (var i = orders.size() - 1; i >= 0; --i) {
+            Predicate after = orders.get(i).isAscending()
+                    ? cb.greaterThan(paths.get(i), parameters.get(i))
+                    : cb.lessThan(paths.get(i), parameters.get(i));
+            predicate = predicate == null ? after : cb.or(after, cb.and(cb.equal(paths.get(i), parameters.get(i)), predicate));
+        }
+        Predicate bound = orders.get(0).isAscending()
+                ? cb.greaterThanOrEqualTo(paths.get(0), parameters.get(0))
+                : cb.lessThanOrEqualTo(paths.get(0), parameters.get(0));
+        return cb.and(bound, predicate);
+    }
+
+    private Sort withIdTieBreaker(Sort sort) {
+        String id = idAttribute();
+        return sort.getOrderFor(id) != null ? sort : sort.and(Sort.by(id));
+    }
+
+    private String idAttribute() {
+        var entityType = entityManager.getMetamodel().entity(domainClass);
+        if (!entityType.hasSingleIdAttribute()) {
+            throw new UnsupportedOperationException("A single identifier attribute is required: " + domainClass.getName());
+        }
+        return entityType.getId(entityType.getIdType().getJavaType()).getName();
+    }
+
+    private Class<?> keyType(Sort.Order order) {
+        return PropertyPath.from(order.getProperty(), domainClass).getLeafProperty().getType();
+    }
+
+    private static <Y> Path<Y> keyPath(Root<?> root, String property) {
+        Path<Y> path = null;
+        for (String field : property.split("\\.")) {
+            path = path == null ? root.get(field) : path.get(field);
+        }
+        return path;
+    }
+
+    private Object keyValue(T entity, String property) {
+        Class<?> type = domainClass;
+        Object value = entity;
+        for (String field : property.split("\\.")) {
+            var accessor = Accessors.get(type, field);
+            value = value == null ? null : accessor.getter().apply(value);
+            type = accessor.valueType();
+        }
+        return value;
+    }
+
+    private static String keysetParameterName(int index) {
+        return "k" + index;
+    }
+
+    /**
+     * The key of a cached {@link CriteriaQuery}
+     *
+     * @param shape     the shape of the {@link SearchSpecification}
+     * @param sort      the sort
+     * @param kind      the kind of query
+     * @param selection the selected attribute paths of a projection
+     */
+    private record QueryKey(GroupShape shape, Sort sort, QueryKind kind, List<String> selection) {
+    }
+
+    /**
+     * A cached {@link CriteriaQuery}
+     *
+     * @param criteria the query, never modified once cached
+     * @param joins    the number of joins of the query
+     */
+    private record CachedQuery<R>(CriteriaQuery<R> criteria, int joins) {
+    }
+
+    /**
+     * A query ready to be executed
+     *
+     * @param query the query, with the values bound
+     * @param joins the number of joins of the query
+     */
+    private record PreparedQuery<R>(TypedQuery<R> query, int joins) {
+    }
+
+    /**
+     * A query counting the entities by values of attributes
+     *
+     * @param spec  the specification, without the criteria on the attribute for a disjunctive facet
+     * @param paths the attribute paths, grouped together
+     */
+    private record FacetQuery<T>(SearchSpecification<T> spec, List<String> paths) {
+    }
+
+    /**
+     * The kinds of {@link CriteriaQuery} created from a {@link SearchSpecification}
+     */
+    private enum QueryKind {
+        /**
+         * Select the entities
+         */
+        ENTITIES(false),
+        /**
+         * Select the entities sorted after the keyset parameters
+         */
+        KEYSET(false),
+        /**
+         * Count the entities
+         */
+        COUNT(true),
+        /**
+         * Select the identifiers, to probe or count up to a limit
+         */
+        IDS(true),
+        /**
+         * Select the identifier and attribute paths of the entities
+         */
+        PROJECTION(true),
+        /**
+         * Count the entities by values of attribute paths
+         */
+        FACETS(true);
+
+        private final boolean semiJoinCollections;
+
+        QueryKind(boolean semiJoinCollections) {
+            this.semiJoinCollections = semiJoinCollections;
+        }
+    }
+}
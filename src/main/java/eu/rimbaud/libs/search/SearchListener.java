@@ -0,0 +1,34 @@
+package eu.rimbaud.libs.search;
+
+/**
+ * Listener notified of the conversion and execution of {@link SearchSpecification}, e.g. to record metrics
+ * by {@link SearchSpecification#fingerprint()} or to log slow queries.
+ * <p>The listener is called synchronously, on the thread running the query: it must be fast and must not throw.</p>
+ *
+ * @see MicrometerSearchListener
+ * @see SlowQueryLogger
+ */
+@FunctionalInterface
+public interface SearchListener {
+
+    /**
+     * Called once a {@link SearchSpecification} has been converted into a {@link jakarta.persistence.criteria.Predicate},
+     * or executed by a {@link SearchExecutor}
+     *
+     * @param event the event
+     */
+    void onSearch(SearchEvent event);
+
+    /**
+     * Compose the {@link SearchListener} with another one, called afterward
+     *
+     * @param other the other listener, must not be {@literal null}.
+     * @return the composed listener
+     */
+    default SearchListener andThen(SearchListener other) {
+        return event -> {
+            onSearch(event);
+            other.onSearch(event);
+        };
+    }
+}
@@ -7,10 +7,37 @@ public enum SearchOperationEnum {
     LESS_THAN,
     GREATER_THAN_EQUAL,
     LESS_THAN_EQUAL,
+    /**
+     * <code>col between 'from' and 'to'</code>, both bounds included. The value is the {@literal List} of the two bounds.
+     */
+    BETWEEN,
     NOT_EQUAL,
     EQUALS,
     IN,
     NOT_IN,
-    LIKE
+    LIKE,
+    /**
+     * <code>col like 'value%'</code>, case-sensitive. Can use a B-tree index on the column,
+     * as an index range scan (with PostgreSQL, the index needs the <code>text_pattern_ops</code> operator class unless the collation is "C").
+     */
+    STARTS_WITH,
+    /**
+     * <code>lower(col) like 'value%'</code>. Can use a functional B-tree index on <code>lower(col)</code>, as an index range scan.
+     */
+    STARTS_WITH_IGNORE_CASE,
+    /**
+     * <code>col like '%value'</code>, case-sensitive. Cannot use a B-tree index on the column, only a functional index
+     * on <code>reverse(col)</code> queried with a prefix, or a trigram index.
+     */
+    ENDS_WITH,
+    /**
+     * <code>lower(col) like '%value%'</code>, like {@link #LIKE} but with the wildcards of the value escaped.
+     * Cannot use a B-tree index, only a trigram index (e.g. PostgreSQL <code>pg_trgm</code>) on <code>lower(col)</code>.
+     */
+    CONTAINS_IGNORE_CASE,
+    /**
+     * <code>lower(col) = lower('value')</code>. Can use a functional B-tree index on <code>lower(col)</code>, as an index lookup.
+     */
+    EQUALS_IGNORE_CASE
 
 }
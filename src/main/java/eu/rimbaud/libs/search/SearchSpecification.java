@@ -3,15 +3,27 @@ package eu.rimbaud.libs.search;
 
 import jakarta.annotation.Nonnull;
 import jakarta.persistence.criteria.*;
+import jakarta.persistence.metamodel.ManagedType;
 import lombok.ToString;
 import org.springframework.data.jpa.domain.Specification;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Class used for building Spring {@link Specification} in an easy manner. It uses chaining for better readability.
  * The {@literal SearchSpecification} is built by adding criteria. The criteria are added using {@link SearchCriterion}.
+ * The criteria are combined with "and", nested groups combining criteria with "or" or negating them being added with
+ * {@link #or(Consumer)}, {@link #and(Consumer)} and {@link #not(Consumer)}.
  *
  * @param <T> the type of the {@link Root} the resulting {@literal Specification} operates on.
  */
@@ -23,11 +35,92 @@ public class SearchSpecification<T> implements Specification<T> {
      */
     private final List<SearchCriterion<T>> criteria = new ArrayList<>();
 
+    /**
+     * The nested groups of criteria.
+     */
+    private final List<SearchSpecification<T>> groups = new ArrayList<>();
+
+    /**
+     * Whether the criteria and groups are combined with "or" instead of "and", for a nested group.
+     */
+    private boolean disjunction;
+
+    /**
+     * Whether the criteria and groups are negated, for a nested group.
+     */
+    private boolean negated;
+
+    /**
+     * The {@link JoinType} used for criteria on an entity relationship, unless overridden by the {@link SearchCriterion}.
+     */
+    private JoinType joinType = JoinType.INNER;
+
+    /**
+     * The {@link CollectionModeEnum} used for criteria on a collection-valued path, unless overridden by the {@link SearchCriterion}.
+     */
+    private CollectionModeEnum collectionMode = CollectionModeEnum.JOIN;
+
+    /**
+     * The {@link InStrategyEnum} used for "in" and "not in" criteria.
+     */
+    private InStrategyEnum inStrategy = InStrategyEnum.PLAIN;
+
+    /**
+     * The maximum chunk size used with {@link InStrategyEnum#CHUNKING}.
+     */
+    private int inChunkSize = 1000;
+
+    /**
+     * The {@link TrigramIndex} resolving the "like" criteria on the fields of the root.
+     */
+    @ToString.Exclude
+    private final List<TrigramIndex<T>> trigramIndexes = new ArrayList<>();
+
+    /**
+     * The {@link SearchListener} notified of the conversions and executions, if any.
+     */
+    @ToString.Exclude
+    private SearchListener listener;
+
+    /**
+     * The {@link SelectivityStatistics} ordering the criteria and choosing the query hints, if any.
+     */
+    @ToString.Exclude
+    private SelectivityStatistics<T> statistics;
+
+    /**
+     * The metamodel of the root, if known, against which the field paths are checked when the criteria are added.
+     */
+    @ToString.Exclude
+    private ManagedType<T> model;
+
+    /**
+     * Construct an empty {@link SearchSpecification}, the field paths being checked when converted into a {@link Predicate}.
+     */
+    public SearchSpecification() {
+    }
+
+    /**
+     * Construct an empty {@link SearchSpecification} on a type of the metamodel, e.g. <code>entityManager.getMetamodel().entity(Book.class)</code>.
+     * The field paths are checked when the criteria are added, and the values of the comparison operators against the type of their field.
+     *
+     * @param model the type of the root, must not be {@literal null}.
+     * @see SearchExecutor#specification()
+     */
+    public SearchSpecification(ManagedType<T> model) {
+        this.model = model;
+    }
+
     /**
      * Convert the {@literal SearchSpecification} into a {@link Predicate} itself being an addition of all criteria converted into {@literal Predicate}.
      * <p>A {@literal Predicate} will be added if the {@link SearchCriterion} fulfills the conditions:
      * <ul><li>has {@literal true} as <code>condition</code></li>
      * <li>is a <code>strict</code> or has a value</li></ul></p>
+     * <p>Criteria sharing the same relationship path prefix and {@link JoinType} share the same {@link Join},
+     * unless a {@literal SearchCriterion} asks for a separate one. In {@link CollectionModeEnum#EXISTS} mode, criteria on
+     * the same collection share the same {@literal EXISTS} subquery.</p>
+     * <p>The criteria are normalized first, see {@link CriteriaGroup}: an always false {@literal SearchSpecification}
+     * results in an always false {@literal Predicate}.</p>
      *
      * @param root  must not be {@literal null}.
      * @param query must not be {@literal null}.
@@ -36,88 +129,814 @@ public class SearchSpecification<T> implements Specification<T> {
      */
     @Override
     public Predicate toPredicate(@Nonnull Root<T> root, @Nonnull CriteriaQuery<?> query, CriteriaBuilder cb) {
-        return cb.and(criteria.stream()
-                .filter(SearchCriterion::isCondition)
-                .filter(c -> c.isStrict() || c.hasValue())
-                .map(c -> toPredicate(c, root, cb))
-                .toArray(Predicate[]::new));
+        long start = System.nanoTime();
+        CriteriaGroup<T> normalized = normalize();
+        var context = new PredicateContext<>(root, query, cb, false, lookUpIndexes(normalized));
+        Predicate predicate = toPredicate(normalized, context);
+        if (listener != null) {
+            listener.onSearch(new SearchEvent(SearchEvent.PREDICATE, fingerprint(normalized), () -> describeCriteria(normalized),
+                    System.nanoTime() - start, -1, -1, context.joinCount()));
+        }
+        return predicate;
     }
 
     /**
-     * Convert one {@link SearchCriterion} into a {@link Predicate}.
+     * Convert the normalized {@literal SearchSpecification}, or one of its nested groups, into a {@link Predicate}
+     * within the given context. The parameters are created in the order of {@link #parameterValues(CriteriaGroup, IndexLookups, CriteriaBuilder, ManagedType)}.
      *
-     * @param sc   the {@literal SearchCriterion}
-     * @param root must not be {@literal null}.
-     * @param cb   must not be {@literal null}.
+     * @param group   the normalized group
+     * @param context the conversion context of the group
      * @return the resulting {@literal Predicate}
      */
-    private Predicate toPredicate(SearchCriterion<T> sc, Root<T> root, CriteriaBuilder cb) {
-        String[] fields = sc.getFields();
-        Path<T> path = root;
-        Join<?, T> join = null;
-        String field = fields[0];
-        for (var i = 1; i < fields.length; ++i) {
-            if (join == null) {
-                join = root.join(fields[0]);
-                field = fields[1];
-            } else {
-                join = join.join(fields[i - 1]);
-                field = fields[i];
+    Predicate toPredicate(CriteriaGroup<T> group, PredicateContext<T> context) {
+        group.criteria().forEach(c -> toPredicate(c, context));
+        group.groups().forEach(g -> context.add(toPredicate(g, context.group())));
+        Predicate predicate = context.toPredicate(group.disjunction());
+        return group.negated() ? predicate.not() : predicate;
+    }
+
+    /**
+     * Normalize the applied criteria and nested groups, see {@link CriteriaGroup}, the criteria of each group being
+     * ordered by the {@link SelectivityStatistics}, if any.
+     *
+     * @return the normalized {@literal SearchSpecification}
+     */
+    CriteriaGroup<T> normalize() {
+        CriteriaGroup<T> normalized = CriteriaGroup.normalize(this);
+        return statistics != null ? statistics.order(normalized) : normalized;
+    }
+
+    /**
+     * Copy the {@literal SearchSpecification}, so that criteria can be added to the copy without changing the original.
+     * The {@link SearchCriterion} are shared, and must not be changed afterward.
+     *
+     * @return the copy
+     */
+    SearchSpecification<T> copy() {
+        var copy = new SearchSpecification<T>();
+        copy.criteria.addAll(criteria);
+        copy.groups.addAll(groups);
+        copy.disjunction = disjunction;
+        copy.negated = negated;
+        copy.joinType = joinType;
+        copy.collectionMode = collectionMode;
+        copy.inStrategy = inStrategy;
+        copy.inChunkSize = inChunkSize;
+        copy.trigramIndexes.addAll(trigramIndexes);
+        copy.listener = listener;
+        copy.statistics = statistics;
+        copy.model = model;
+        return copy;
+    }
+
+    /**
+     * Get a copy of the {@literal SearchSpecification} with a single criterion, its nested groups being dropped.
+     *
+     * @param sc the criterion, or {@literal null} for none
+     * @return the copy
+     */
+    SearchSpecification<T> only(SearchCriterion<T> sc) {
+        SearchSpecification<T> copy = copy();
+        copy.criteria.clear();
+        copy.groups.clear();
+        copy.disjunction = false;
+        copy.negated = false;
+        if (sc != null) {
+            copy.criteria.add(sc);
+        }
+        return copy;
+    }
+
+    /**
+     * Get a copy of the {@literal SearchSpecification} without its criteria on a field path, the ones of the nested groups excepted.
+     *
+     * @param path the dot-separated field path
+     * @return the copy, or the {@literal SearchSpecification} itself if it has no applied criterion on the path
+     */
+    SearchSpecification<T> without(String path) {
+        String[] fields = path.split("\\.");
+        if (activeCriteria().noneMatch(c -> Arrays.equals(c.getFields(), fields))) {
+            return this;
+        }
+        SearchSpecification<T> copy = copy();
+        copy.criteria.removeIf(c -> Arrays.equals(c.getFields(), fields));
+        return copy;
+    }
+
+    /**
+     * Take an immutable snapshot of the {@literal SearchSpecification}, to be sent to another node or used as a cache key.
+     * The {@link TrigramIndex}, the {@link SearchListener} and the metamodel are left out, see {@link SpecificationSnapshot}.
+     *
+     * @return the snapshot
+     * @throws IllegalArgumentException if a value cannot be encoded
+     */
+    public SpecificationSnapshot snapshot() {
+        return new SpecificationSnapshot(joinType, collectionMode, inStrategy, inChunkSize, snapshotGroup());
+    }
+
+    private SpecificationSnapshot.Group snapshotGroup() {
+        return new SpecificationSnapshot.Group(disjunction, negated,
+                appliedCriteria().stream().map(SpecificationSnapshot.Criterion::of).toList(),
+                groups.stream().map(SearchSpecification::snapshotGroup).toList());
+    }
+
+    /**
+     * Compile the {@literal SearchSpecification} into a {@link java.util.function.Predicate} evaluated in memory,
+     * with the same semantics as the resulting {@link Predicate}: the same criteria are applied, and the criteria
+     * sharing a join on a {@literal Collection} must be matched by the same element, and a {@literal null} value
+     * makes a criterion unknown rather than false under a negation.
+     * <p>The field accessors are resolved once per type. The compiled predicate does not reflect later changes
+     * of the {@literal SearchSpecification}.</p>
+     *
+     * @param domainClass the type of the evaluated objects, must not be {@literal null}.
+     * @return the compiled predicate
+     * @throws IllegalArgumentException if a field path does not exist on the type, or a value cannot be converted into
+     *                                  the type of its field
+     */
+    public java.util.function.Predicate<T> compile(Class<T> domainClass) {
+        return compile(normalize(), domainClass, false).build();
+    }
+
+    private InMemoryPredicate.Builder compile(CriteriaGroup<T> group, Class<T> domainClass, boolean nested) {
+        var builder = new InMemoryPredicate.Builder(domainClass, group.disjunction());
+        var separate = 0;
+        for (SearchCriterion<T> sc : group.criteria()) {
+            String[] fields = sc.getFields();
+            String[] keys = new String[fields.length - 1];
+            String prefix = sc.isSeparateJoin() ? "#" + separate++ : collectionMode(sc, nested) + "." + joinType(sc, nested);
+            for (var i = 0; i < keys.length; ++i) {
+                keys[i] = prefix + "." + fields[i];
             }
-            path = join;
+            builder.add(keys, fields, sc);
+        }
+        group.groups().forEach(g -> builder.group(compile(g, domainClass, true), g.negated()));
+        return builder;
+    }
+
+    /**
+     * Compute the structural fingerprint of the {@literal SearchSpecification}: a stable hash of the fields, operators,
+     * join settings and value cardinalities of the applied criteria, the values themselves being left out.
+     * The cardinality of a {@literal Collection} value is rounded up to a power of two, so that the number of
+     * fingerprints stays bounded.
+     * The fingerprint does not depend on the order of the criteria and groups.
+     * <p>Two specifications with the same fingerprint produce the same kind of query, e.g. to aggregate metrics.</p>
+     *
+     * @return the fingerprint, as 16 hexadecimal digits
+     */
+    public String fingerprint() {
+        return fingerprint(normalize());
+    }
+
+    /**
+     * Compute the structural fingerprint of the normalized {@literal SearchSpecification}, see {@link #fingerprint()}.
+     *
+     * @param normalized the normalized {@literal SearchSpecification}
+     * @return the fingerprint, as 16 hexadecimal digits
+     */
+    String fingerprint(CriteriaGroup<T> normalized) {
+        long hash = 0xcbf29ce484222325L;
+        String canonical = normalized.isAlwaysFalse() ? "false" : structure(normalized, false);
+        for (var i = 0; i < canonical.length(); ++i) {
+            hash = (hash ^ canonical.charAt(i)) * 0x100000001b3L;
         }
+        return HexFormat.of().toHexDigits(hash);
+    }
+
+    private String structure(CriteriaGroup<T> group, boolean nested) {
+        return Stream.concat(
+                        group.criteria().stream()
+                                .map(c -> String.join(".", c.getFields()) + ' ' + c.getOperator() + ' ' + joinType(c, nested) + ' '
+                                        + collectionMode(c, nested) + (c.isSeparateJoin() ? " separate " : " ") + cardinality(c)),
+                        group.groups().stream()
+                                .map(g -> prefix(g) + '(' + structure(g, true) + ')'))
+                // whatever the order of the criteria, e.g. as changed by the statistics
+                .sorted()
+                .collect(Collectors.joining(";"));
+    }
+
+    private static String prefix(CriteriaGroup<?> group) {
+        return (group.negated() ? "not " : "") + (group.disjunction() ? "or" : "and");
+    }
+
+    /**
+     * Get the canonical key of the {@literal SearchSpecification}, identifying the matched entities: the normalized criteria
+     * and groups, whatever their order, with their values. The criteria disabled by <code>onlyIf</code> or without value
+     * are left out, as well as the settings not changing the result, e.g. the {@link InStrategyEnum}.
+     * <p>The values are expected to be immutable, as they are kept in the key.</p>
+     *
+     * @return the canonical key, unmodifiable
+     */
+    GroupKey canonicalKey() {
+        return canonicalKey(normalize(), false);
+    }
+
+    private GroupKey canonicalKey(CriteriaGroup<T> group, boolean nested) {
+        return new GroupKey(group.disjunction(), group.negated(),
+                group.criteria().stream().map(c -> criterionKey(c, nested)).collect(Collectors.toUnmodifiableSet()),
+                group.groups().stream().map(g -> canonicalKey(g, true)).collect(Collectors.toUnmodifiableSet()));
+    }
+
+    /**
+     * Get the canonical key of a {@link SearchCriterion}, with its value and its resolved join settings.
+     *
+     * @param sc     the {@literal SearchCriterion}
+     * @param nested whether the criterion belongs to a nested group
+     * @return the canonical key
+     */
+    CriterionKey criterionKey(SearchCriterion<T> sc, boolean nested) {
+        return new CriterionKey(List.of(sc.getFields()), sc.getOperator(), joinType(sc, nested), collectionMode(sc, nested),
+                sc.isSeparateJoin(), canonicalValue(sc));
+    }
 
-        return toPredicate(sc, cb, path, field);
+    private static Object canonicalValue(SearchCriterion<?> sc) {
+        if (!sc.hasValue()) {
+            return null;
+        }
+        if (sc.getValue() instanceof Collection<?> values) {
+            return sc.getOperator() == SearchOperationEnum.IN || sc.getOperator() == SearchOperationEnum.NOT_IN
+                    ? Collections.unmodifiableSet(new HashSet<>(values))
+                    : Collections.unmodifiableList(new ArrayList<>(values));
+        }
+        return sc.getValue();
+    }
+
+    /**
+     * Describe the normalized criteria and groups, as {@link SearchCriterion#toString()} does, values included.
+     *
+     * @param normalized the normalized {@literal SearchSpecification}
+     * @return the description
+     */
+    String describeCriteria(CriteriaGroup<T> normalized) {
+        return normalized.isAlwaysFalse() ? "false" : describe(normalized);
+    }
+
+    private static String describe(CriteriaGroup<?> group) {
+        return Stream.concat(
+                        group.criteria().stream().map(SearchCriterion::toString),
+                        group.groups().stream().map(g -> prefix(g) + '(' + describe(g) + ')'))
+                .collect(Collectors.joining(", "));
+    }
+
+    /**
+     * Get the type of the values of a field path, when the metamodel of the root is known.
+     *
+     * @param fields the field path
+     * @return the value type, primitive types being boxed, or {@literal null} if the metamodel is not known
+     */
+    Class<?> valueType(String[] fields) {
+        return model != null ? AttributePaths.resolve(model, fields).valueType() : null;
+    }
+
+    /**
+     * Get the {@link SearchListener} notified of the conversions and executions.
+     *
+     * @return the listener, or {@literal null} if there is none
+     */
+    SearchListener getListener() {
+        return listener;
+    }
+
+    /**
+     * Get the {@link SelectivityStatistics} ordering the criteria and choosing the query hints.
+     *
+     * @return the statistics, or {@literal null} if there are none
+     */
+    SelectivityStatistics<T> getStatistics() {
+        return statistics;
+    }
+
+    private static int cardinality(SearchCriterion<?> sc) {
+        if (!sc.hasValue()) {
+            return 0;
+        }
+        if (sc.getValue() instanceof Collection<?> values) {
+            return values.size() <= 1 ? values.size() : Integer.highestOneBit(values.size() - 1) << 1;
+        }
+        return 1;
+    }
+
+    /**
+     * Get the structure of the normalized {@literal SearchSpecification}, without the values.
+     * Two specifications with the same shape are converted into the same parameterized {@link Predicate}.
+     *
+     * @param normalized the normalized {@literal SearchSpecification}
+     * @param lookups    the lookups of the criteria in the {@link TrigramIndex}, see {@link #lookUpIndexes(CriteriaGroup)}
+     * @param cb         the criteria builder the shape is computed for, or {@literal null} for a SQL query without array parameters
+     * @param root       the type of the root, or {@literal null} for a SQL query without array parameters
+     * @return the shape of the criteria and groups that will be applied
+     */
+    GroupShape shape(CriteriaGroup<T> normalized, IndexLookups<T> lookups, CriteriaBuilder cb, ManagedType<T> root) {
+        return shape(normalized, lookups, cb, root, false);
+    }
+
+    private GroupShape shape(CriteriaGroup<T> group, IndexLookups<T> lookups, CriteriaBuilder cb, ManagedType<T> root, boolean nested) {
+        return new GroupShape(group.disjunction(), group.negated(),
+                group.criteria().stream()
+                        .map(c -> new CriterionShape(List.of(c.getFields()), c.getOperator(),
+                                joinType(c, nested), collectionMode(c, nested), c.isSeparateJoin(),
+                                parameterValues(c, lookups, cb, root).stream().<Class<?>>map(PredicateContext::parameterType).toList()))
+                        .toList(),
+                group.groups().stream().map(g -> shape(g, lookups, cb, root, true)).toList());
+    }
+
+    /**
+     * Get the values bound to the parameters of a parameterized {@link Predicate}, in the order of the parameters:
+     * the values of the criteria of a group come first, then the ones of its nested groups.
+     *
+     * @param normalized the normalized {@literal SearchSpecification}
+     * @param lookups    the lookups of the criteria in the {@link TrigramIndex}, see {@link #lookUpIndexes(CriteriaGroup)}
+     * @param cb         the criteria builder the {@literal Predicate} is created with, or {@literal null} for a SQL query
+     *                   without array parameters, the "in" values being padded instead
+     * @param root       the type of the root, resolving the element type of the array parameters, or {@literal null} for
+     *                   a SQL query without array parameters
+     * @return the parameter values
+     */
+    List<Object> parameterValues(CriteriaGroup<T> normalized, IndexLookups<T> lookups, CriteriaBuilder cb, ManagedType<T> root) {
+        List<Object> values = new ArrayList<>();
+        addParameterValues(normalized, lookups, cb, root, values);
+        return values;
+    }
+
+    private void addParameterValues(CriteriaGroup<T> group, IndexLookups<T> lookups, CriteriaBuilder cb, ManagedType<T> root,
+                                    List<Object> values) {
+        group.criteria().forEach(c -> values.addAll(parameterValues(c, lookups, cb, root)));
+        group.groups().forEach(g -> addParameterValues(g, lookups, cb, root, values));
+    }
+
+    /**
+     * Get the values bound to the parameters of one {@link SearchCriterion}, the "in" and "not in" values
+     * being split according to the {@link InStrategyEnum}.
+     *
+     * @param sc      the {@literal SearchCriterion}
+     * @param lookups the lookups of the criteria in the {@link TrigramIndex}, see {@link #lookUpIndexes(CriteriaGroup)}
+     * @param cb      the criteria builder the {@literal Predicate} is created with, or {@literal null} for a SQL query
+     *                without array parameters, see {@link SqlQuery}
+     * @param root    the type of the root, resolving the element type of the array parameters, or {@literal null} for a
+     *                SQL query without array parameters
+     * @return the parameter values, empty if the {@literal SearchCriterion} has no value
+     */
+    List<Object> parameterValues(SearchCriterion<T> sc, IndexLookups<T> lookups, CriteriaBuilder cb, ManagedType<T> root) {
+        if (!sc.hasValue()) {
+            return List.of();
+        }
+        List<Object> ids = lookups.ids(sc);
+        if (ids != null) {
+            return ids.isEmpty() ? List.of()
+                    : InLists.split(ids, inStrategy(cb), inChunkSize, arrayElementType(root, new String[]{lookups.idField(sc)}, cb));
+        }
+        if (sc.getValue() instanceof Collection<?> values
+                && (sc.getOperator() == SearchOperationEnum.IN || sc.getOperator() == SearchOperationEnum.NOT_IN)) {
+            return InLists.split(values, inStrategy(cb), inChunkSize, arrayElementType(root, sc.getFields(), cb));
+        }
+        if (sc.getOperator() == SearchOperationEnum.BETWEEN) {
+            return new ArrayList<>((Collection<?>) sc.getValue());
+        }
+        return List.of(sc.getParameterValue());
+    }
+
+    private InStrategyEnum inStrategy(CriteriaBuilder cb) {
+        return inStrategy == InStrategyEnum.ARRAY && !InLists.supportsArrays(cb) ? InStrategyEnum.PADDING : inStrategy;
+    }
+
+    /**
+     * Resolve the element type of the array parameter of an "in" or "not in", i.e. the type of the attribute
+     *
+     * @param root   the type of the root
+     * @param fields the field path of the attribute
+     * @param cb     the criteria builder
+     * @return the attribute type, or {@literal null} if the values are not bound as an array
+     */
+    private Class<?> arrayElementType(ManagedType<T> root, String[] fields, CriteriaBuilder cb) {
+        return inStrategy(cb) == InStrategyEnum.ARRAY ? AttributePaths.resolve(root, fields).valueType() : null;
+    }
+
+    /**
+     * Get the {@link SearchCriterion} that will be applied, the ones of the nested groups excepted.
+     *
+     * @return the applied criteria
+     * @see #activeCriteria()
+     */
+    List<SearchCriterion<T>> appliedCriteria() {
+        return activeCriteria().toList();
+    }
+
+    /**
+     * Get the nested groups.
+     *
+     * @return the nested groups
+     */
+    List<SearchSpecification<T>> getGroups() {
+        return groups;
+    }
+
+    /**
+     * Check whether the criteria and groups are combined with "or" instead of "and".
+     *
+     * @return {@literal true} for a disjunction
+     */
+    boolean isDisjunction() {
+        return disjunction;
+    }
+
+    /**
+     * Check whether the criteria and groups are negated.
+     *
+     * @return {@literal true} if negated
+     */
+    boolean isNegated() {
+        return negated;
+    }
+
+    /**
+     * Get the {@link SearchCriterion} that will be applied, i.e. having {@literal true} as <code>condition</code>
+     * and being <code>strict</code> or having a value.
+     *
+     * @return the applied criteria
+     */
+    private Stream<SearchCriterion<T>> activeCriteria() {
+        return criteria.stream()
+                .filter(SearchCriterion::isCondition)
+                .filter(c -> c.isStrict() || c.hasValue());
+    }
+
+    /**
+     * Look up the identifiers of the entities matching the criteria of the normalized {@literal SearchSpecification}, the
+     * ones of its nested groups included, in their {@link TrigramIndex}: a "like" without wildcard or a "contains ignore
+     * case", on an indexed field of the root. The lookups are made once per execution, then passed to
+     * {@link #shape(CriteriaGroup, IndexLookups, CriteriaBuilder, ManagedType)}, {@link #toPredicate(CriteriaGroup, PredicateContext)}
+     * and {@link #parameterValues(CriteriaGroup, IndexLookups, CriteriaBuilder, ManagedType)}, so that they agree.
+     *
+     * @param normalized the normalized {@literal SearchSpecification}
+     * @return the lookups
+     */
+    IndexLookups<T> lookUpIndexes(CriteriaGroup<T> normalized) {
+        if (trigramIndexes.isEmpty()) {
+            return IndexLookups.none();
+        }
+        var lookups = new IdentityHashMap<SearchCriterion<T>, IndexLookups.Lookup>();
+        addIndexLookups(normalized, lookups);
+        return IndexLookups.of(lookups);
+    }
+
+    private void addIndexLookups(CriteriaGroup<T> group, IdentityHashMap<SearchCriterion<T>, IndexLookups.Lookup> lookups) {
+        for (SearchCriterion<T> sc : group.criteria()) {
+            TrigramIndex<T> index = trigramIndex(sc);
+            List<Object> ids = index != null ? index.lookup(sc.getValue().toString()) : null;
+            if (ids != null) {
+                lookups.put(sc, new IndexLookups.Lookup(index.getIdField(), ids));
+            }
+        }
+        group.groups().forEach(g -> addIndexLookups(g, lookups));
+    }
+
+    /**
+     * Find the {@link TrigramIndex} able to resolve a {@link SearchCriterion}: a "like" without wildcard
+     * or a "contains ignore case", on an indexed field of the root.
+     *
+     * @param sc the {@literal SearchCriterion}
+     * @return the index, or {@literal null} if there is none
+     */
+    private TrigramIndex<T> trigramIndex(SearchCriterion<T> sc) {
+        if (sc.getFields().length != 1 || !sc.hasValue()
+                || !(sc.getOperator() == SearchOperationEnum.CONTAINS_IGNORE_CASE
+                || sc.getOperator() == SearchOperationEnum.LIKE && !sc.getValue().toString().matches(".*[%_].*"))) {
+            return null;
+        }
+        return trigramIndexes.stream()
+                .filter(i -> i.getField().equals(sc.getFields()[0]) && i.isEnabled())
+                .findFirst()
+                .orElse(null);
+    }
+
+    /**
+     * Resolve the {@link JoinType} of a {@link SearchCriterion}. Within a nested group, the relationships are left joined
+     * by default, so that a criterion not matching because of a missing relationship does not filter out the root entity.
+     */
+    JoinType joinType(SearchCriterion<T> sc, boolean nested) {
+        if (sc.getJoinType() != null) {
+            return sc.getJoinType();
+        }
+        return nested ? JoinType.LEFT : joinType;
+    }
+
+    /**
+     * Resolve the {@link CollectionModeEnum} of a {@link SearchCriterion}. Within a nested group, the criteria on a
+     * collection are always checked with an {@literal EXISTS} subquery local to the group.
+     */
+    private CollectionModeEnum collectionMode(SearchCriterion<T> sc, boolean nested) {
+        if (nested) {
+            return CollectionModeEnum.EXISTS;
+        }
+        return sc.getCollectionMode() != null ? sc.getCollectionMode() : collectionMode;
+    }
+
+    /**
+     * Convert one {@link SearchCriterion} into a {@link Predicate} and add it to the context.
+     *
+     * @param sc      the {@literal SearchCriterion}
+     * @param context the conversion context
+     */
+    private void toPredicate(SearchCriterion<T> sc, PredicateContext<T> context) {
+        String[] fields = sc.getFields();
+        AttributePaths.AttributePath path = context.resolve(fields);
+        JoinType type = joinType(sc, context.isNested());
+        boolean exists = collectionMode(sc, context.isNested()) == CollectionModeEnum.EXISTS
+                || context.isSemiJoinCollections() && type == JoinType.INNER;
+        int collection = exists ? path.collection() : -1;
+        if (collection < 0) {
+            From<?, ?> from = context.join(path, fields.length - 1, type, sc.isSeparateJoin());
+            context.add(toPredicate(sc, context, from, path));
+        } else {
+            var semiJoin = context.semiJoin(path, collection, type, sc.isSeparateJoin());
+            From<?, ?> from = semiJoin.join(path, collection + 1, fields.length - 1);
+            semiJoin.add(toPredicate(sc, context, from, path));
+        }
     }
 
     /**
      * Convert one {@link SearchCriterion} into a {@link Predicate}.
      *
-     * @param sc    the {@literal SearchCriterion}
-     * @param cb    must not be {@literal null}.
-     * @param path  the simple or compound attribute {@link Path}
-     * @param field the field the {@link Predicate} will be applied on
+     * @param sc      the {@literal SearchCriterion}
+     * @param context the conversion context
+     * @param from    the {@link From} of the last relationship of the field path, or the root
+     * @param path    the resolved field path
      * @return the resulting {@literal Predicate}
      */
-    private Predicate toPredicate(SearchCriterion<T> sc, CriteriaBuilder cb, Path<?> path, String field) {
+    @SuppressWarnings("unchecked")
+    private Predicate toPredicate(SearchCriterion<T> sc, PredicateContext<T> context, From<?, ?> from, AttributePaths.AttributePath path) {
+        IndexLookups<T> lookups = context.getIndexLookups();
+        List<Object> ids = lookups.ids(sc);
+        if (ids != null) {
+            return toInPredicate(false, ids, context, from.get(lookups.idField(sc)));
+        }
+        Path<?> attribute = path.get(from);
+        if (sc.getOperator() == SearchOperationEnum.IN || sc.getOperator() == SearchOperationEnum.NOT_IN) {
+            return toInPredicate(sc.getOperator() == SearchOperationEnum.NOT_IN,
+                    sc.hasValue() ? (Collection<?>) sc.getValue() : List.of(), context, attribute);
+        }
+        if (context.isParameterized()) {
+            return toParameterizedPredicate(sc, context, attribute);
+        }
+        CriteriaBuilder cb = context.getCb();
+        Expression<String> string = (Expression<String>) attribute;
         return switch (sc.getOperator()) {
-            case EQUALS -> cb.equal(path.get(field), sc.getValue());
-            case NOT_EQUAL -> cb.notEqual(path.get(field), sc.getValue());
-            case LIKE -> cb.like(cb.lower(path.get(field)), "%" + sc.getValue().toString().toLowerCase() + "%");
-            case IN -> cb.in(path.get(field)).value(sc.getValue());
-            case NOT_IN -> cb.in(path.get(field)).value(sc.getValue()).not();
-            default -> toComparablePredicate(sc, cb, path, field);
+            case EQUALS -> cb.equal(attribute, sc.getValue());
+            case NOT_EQUAL -> cb.notEqual(attribute, sc.getValue());
+            case LIKE -> cb.like(cb.lower(string), (String) sc.getParameterValue());
+            case STARTS_WITH, ENDS_WITH -> cb.like(string, (String) sc.getParameterValue(), SearchCriterion.LIKE_ESCAPE);
+            case STARTS_WITH_IGNORE_CASE, CONTAINS_IGNORE_CASE ->
+                    cb.like(cb.lower(string), (String) sc.getParameterValue(), SearchCriterion.LIKE_ESCAPE);
+            case EQUALS_IGNORE_CASE -> cb.equal(cb.lower(string), sc.getParameterValue());
+            default -> toComparablePredicate(sc, cb, attribute);
+        };
+    }
+
+    /**
+     * Convert one "in" or "not in" {@link SearchCriterion} into a {@link Predicate}, according to the {@link InStrategyEnum}.
+     * An empty {@literal Collection}, i.e. a strict {@literal SearchCriterion} without value, results in an always false
+     * "in" {@literal Predicate}.
+     *
+     * @param not       whether the operator is "not in"
+     * @param values    the {@literal Collection} value
+     * @param context   the conversion context
+     * @param attribute the attribute the {@link Predicate} will be applied on
+     * @return the resulting {@literal Predicate}
+     */
+    private Predicate toInPredicate(boolean not, Collection<?> values, PredicateContext<T> context, Expression<?> attribute) {
+        CriteriaBuilder cb = context.getCb();
+        if (values.isEmpty()) {
+            return not ? cb.in(attribute).not() : cb.in(attribute);
+        }
+        boolean array = inStrategy(cb) == InStrategyEnum.ARRAY;
+        Predicate[] predicates = InLists.split(values, inStrategy(cb), inChunkSize, attribute.getJavaType()).stream()
+                .map(v -> array ? context.arrayContains(v, attribute)
+                        : context.isParameterized() ? attribute.in(context.parameter(v)) : attribute.in((Collection<?>) v))
+                .map(p -> not ? p.not() : p)
+                .toArray(Predicate[]::new);
+        if (predicates.length == 1) {
+            return predicates[0];
+        }
+        return not ? cb.and(predicates) : cb.or(predicates);
+    }
+
+    /**
+     * Convert one {@link SearchCriterion} into a {@link Predicate}, its value being bound through a {@link ParameterExpression}.
+     *
+     * @param <Y>     the attribute type
+     * @param sc      the {@literal SearchCriterion}
+     * @param context the conversion context
+     * @param path    the attribute {@link Path} the {@link Predicate} will be applied on
+     * @return the resulting {@literal Predicate}
+     */
+    @SuppressWarnings("unchecked")
+    private <Y extends Comparable<? super Y>> Predicate toParameterizedPredicate(SearchCriterion<T> sc, PredicateContext<T> context, Path<?> path) {
+        CriteriaBuilder cb = context.getCb();
+        Path<Y> attribute = (Path<Y>) path;
+        if (sc.getOperator() == SearchOperationEnum.BETWEEN) {
+            List<?> bounds = (List<?>) sc.getValue();
+            Expression<Y> from = context.parameter(bounds.get(0));
+            Expression<Y> to = context.parameter(bounds.get(1));
+            return cb.between(attribute, from, to);
+        }
+        Expression<Y> parameter = context.parameter(sc.getParameterValue());
+        return switch (sc.getOperator()) {
+            case EQUALS -> cb.equal(attribute, parameter);
+            case NOT_EQUAL -> cb.notEqual(attribute, parameter);
+            case LIKE -> cb.like(cb.lower((Expression<String>) (Expression<?>) attribute), (Expression<String>) (Expression<?>) parameter);
+            case STARTS_WITH, ENDS_WITH ->
+                    cb.like((Expression<String>) (Expression<?>) attribute, (Expression<String>) (Expression<?>) parameter, SearchCriterion.LIKE_ESCAPE);
+            case STARTS_WITH_IGNORE_CASE, CONTAINS_IGNORE_CASE ->
+                    cb.like(cb.lower((Expression<String>) (Expression<?>) attribute), (Expression<String>) (Expression<?>) parameter, SearchCriterion.LIKE_ESCAPE);
+            case EQUALS_IGNORE_CASE -> cb.equal(cb.lower((Expression<String>) (Expression<?>) attribute), parameter);
+            case LESS_THAN -> cb.lessThan(attribute, parameter);
+            case LESS_THAN_EQUAL -> cb.lessThanOrEqualTo(attribute, parameter);
+            case GREATER_THAN -> cb.greaterThan(attribute, parameter);
+            case GREATER_THAN_EQUAL -> cb.greaterThanOrEqualTo(attribute, parameter);
+            default -> throw new UnsupportedOperationException("Operator not implemented yet: " + sc.getOperator());
         };
     }
 
     /**
      * Convert one {@link SearchCriterion} into a {@link Predicate}.
      *
-     * @param <Y>   the comparable type, used for compare operators
-     * @param sc    the {@literal SearchCriterion}
-     * @param cb    must not be {@literal null}.
-     * @param path  the simple or compound attribute {@link Path}
-     * @param field the field the {@link Predicate} will be applied on
+     * @param <Y>  the comparable type, used for compare operators
+     * @param sc   the {@literal SearchCriterion}
+     * @param cb   must not be {@literal null}.
+     * @param path the attribute {@link Path} the {@link Predicate} will be applied on
      * @return the resulting {@literal Predicate}
      */
     @SuppressWarnings("unchecked")
-    private <Y extends Comparable<? super Y>> Predicate toComparablePredicate(SearchCriterion<T> sc, CriteriaBuilder cb, Path<?> path, String field) {
+    private <Y extends Comparable<? super Y>> Predicate toComparablePredicate(SearchCriterion<T> sc, CriteriaBuilder cb, Path<?> path) {
+        Path<Y> attribute = (Path<Y>) path;
         return switch (sc.getOperator()) {
-            case LESS_THAN -> cb.lessThan(path.get(field), (Y) sc.getValue());
-            case LESS_THAN_EQUAL -> cb.lessThanOrEqualTo(path.get(field), (Y) sc.getValue());
-            case GREATER_THAN -> cb.greaterThan(path.get(field), (Y) sc.getValue());
-            case GREATER_THAN_EQUAL -> cb.greaterThanOrEqualTo(path.get(field), (Y) sc.getValue());
+            case LESS_THAN -> cb.lessThan(attribute, (Y) sc.getValue());
+            case LESS_THAN_EQUAL -> cb.lessThanOrEqualTo(attribute, (Y) sc.getValue());
+            case GREATER_THAN -> cb.greaterThan(attribute, (Y) sc.getValue());
+            case GREATER_THAN_EQUAL -> cb.greaterThanOrEqualTo(attribute, (Y) sc.getValue());
+            case BETWEEN -> {
+                List<?> bounds = (List<?>) sc.getValue();
+                yield cb.between(attribute, (Y) bounds.get(0), (Y) bounds.get(1));
+            }
             default -> throw new UnsupportedOperationException("Operator not implemented yet: " + sc.getOperator());
         };
     }
 
+    /**
+     * Set the {@link JoinType} used for criteria on an entity relationship. Default is {@link JoinType#INNER}.
+     * Use {@link JoinType#LEFT} for optional relationships, so that the root entities without relationship are not filtered out.
+     *
+     * @param joinType the join type, must not be {@literal null}.
+     * @return the {@link Specification} for chaining
+     */
+    public SearchSpecification<T> joinType(JoinType joinType) {
+        this.joinType = joinType;
+        return this;
+    }
+
+    /**
+     * Set the {@link CollectionModeEnum} used for criteria on a collection-valued path. Default is {@link CollectionModeEnum#JOIN}.
+     * Use {@link CollectionModeEnum#EXISTS} so that the root entities are not duplicated by the collection elements.
+     *
+     * @param collectionMode the collection mode, must not be {@literal null}.
+     * @return the {@link Specification} for chaining
+     */
+    public SearchSpecification<T> collectionMode(CollectionModeEnum collectionMode) {
+        this.collectionMode = collectionMode;
+        return this;
+    }
+
+    /**
+     * Set the {@link InStrategyEnum} used for "in" and "not in" criteria. Default is {@link InStrategyEnum#PLAIN}.
+     *
+     * @param inStrategy the strategy, must not be {@literal null}.
+     * @return the {@link Specification} for chaining
+     */
+    public SearchSpecification<T> inStrategy(InStrategyEnum inStrategy) {
+        this.inStrategy = inStrategy;
+        return this;
+    }
+
+    /**
+     * Set the maximum chunk size used with {@link InStrategyEnum#CHUNKING}. Default is 1000.
+     *
+     * @param inChunkSize the maximum chunk size, must be positive
+     * @return the {@link Specification} for chaining
+     */
+    public SearchSpecification<T> inChunkSize(int inChunkSize) {
+        if (inChunkSize <= 0) {
+            throw new IllegalArgumentException("Chunk size must be positive: " + inChunkSize);
+        }
+        this.inChunkSize = inChunkSize;
+        return this;
+    }
+
+    /**
+     * Resolve the "like" and "contains ignore case" criteria on a field of the root through a {@link TrigramIndex},
+     * as an "in" on the identifiers of the matching entities. The criteria are left unchanged when the value is shorter
+     * than 3 characters, holds wildcards, or when the index is disabled.
+     *
+     * @param index the index, must not be {@literal null}.
+     * @return the {@link Specification} for chaining
+     */
+    public SearchSpecification<T> trigramIndex(TrigramIndex<T> index) {
+        this.trigramIndexes.add(index);
+        return this;
+    }
+
+    /**
+     * Set the {@link SearchListener} notified when the {@literal SearchSpecification} is converted into a {@link Predicate},
+     * or executed by a {@link SearchExecutor}. Use {@link SearchListener#andThen(SearchListener)} to notify several listeners.
+     *
+     * @param listener the listener, or {@literal null} for none
+     * @return the {@link Specification} for chaining
+     */
+    public SearchSpecification<T> listener(SearchListener listener) {
+        this.listener = listener;
+        return this;
+    }
+
+    /**
+     * Set the {@link SelectivityStatistics} ordering the criteria of each group, the cheap and selective ones first,
+     * and choosing the hints of the queries run by a {@link SearchExecutor}, which in turn feeds the statistics.
+     *
+     * @param statistics the statistics, or {@literal null} for none
+     * @return the {@link Specification} for chaining
+     */
+    public SearchSpecification<T> statistics(SelectivityStatistics<T> statistics) {
+        this.statistics = statistics;
+        return this;
+    }
+
+    /**
+     * Add a nested group of criteria combined with "or": the group matches if any of its criteria or groups matches.
+     * A group whose criteria are all disabled by <code>onlyIf</code> or without value is ignored.
+     * <p>Within a nested group, the relationships are left joined unless the {@link SearchCriterion} sets its
+     * {@link JoinType}, and the criteria on a collection are checked with an {@literal EXISTS} subquery local to the group.</p>
+     *
+     * <pre>{@code
+     * new SearchSpecification<Book>()
+     *         .add("publicationDate").gt(date)
+     *         .or(g -> g.add("title").like("prince").add("author").eq("Saint-Exupéry"));
+     * }</pre>
+     *
+     * @param group the function adding the criteria and groups of the group, must not be {@literal null}.
+     * @return the {@link Specification} for chaining
+     */
+    public SearchSpecification<T> or(Consumer<SearchSpecification<T>> group) {
+        return group(true, false, group);
+    }
+
+    /**
+     * Add a nested group of criteria combined with "and", e.g. to combine several criteria within an "or" group.
+     *
+     * @param group the function adding the criteria and groups of the group, must not be {@literal null}.
+     * @return the {@link Specification} for chaining
+     * @see #or(Consumer)
+     */
+    public SearchSpecification<T> and(Consumer<SearchSpecification<T>> group) {
+        return group(false, false, group);
+    }
+
+    /**
+     * Add a negated nested group of criteria combined with "and": the group matches if its criteria and groups do not all match.
+     * Following the SQL semantics, a criterion on a {@literal null} value matches neither the group nor its negation.
+     *
+     * @param group the function adding the criteria and groups of the group, must not be {@literal null}.
+     * @return the {@link Specification} for chaining
+     * @see #or(Consumer)
+     */
+    public SearchSpecification<T> not(Consumer<SearchSpecification<T>> group) {
+        return group(false, true, group);
+    }
+
+    /**
+     * Add a nested group of criteria.
+     *
+     * @param disjunction whether the criteria and groups are combined with "or" instead of "and"
+     * @param negated     whether the group is negated
+     * @param group       the function adding the criteria and groups of the group
+     * @return the {@link Specification} for chaining
+     */
+    SearchSpecification<T> group(boolean disjunction, boolean negated, Consumer<SearchSpecification<T>> group) {
+        var nested = new SearchSpecification<T>(model);
+        nested.disjunction = disjunction;
+        nested.negated = negated;
+        group.accept(nested);
+        groups.add(nested);
+        return this;
+    }
+
     /**
      * Add a {@link SearchCriterion} to the {@link Specification}
      *
      * @param fields the field path that will result in a simple or compound attribute {@link Path}
      * @return the resulting {@literal SearchCriterion} for chaining
+     * @throws IllegalArgumentException if the metamodel of the root is known and the field path does not exist
      */
     public SearchCriterion<T> add(String... fields) {
+        if (model != null) {
+            AttributePaths.resolve(model, fields);
+        }
         var searchCriteria = new SearchCriterion<>(fields, this);
         criteria.add(searchCriteria);
         return searchCriteria;
@@ -0,0 +1,230 @@
+package eu.rimbaud.libs.search;
+
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.metamodel.ManagedType;
+import org.hibernate.jpa.HibernateHints;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalDouble;
+
+/**
+ * Keeps the observed selectivity of the criteria on an entity, i.e. the fraction of the entities they match, by field
+ * path and operator, to order the criteria of a {@link SearchSpecification} and to choose the hints of its queries.
+ * <p>The selectivities are observed from the searches of a {@link SearchExecutor} made of a single criterion, and the
+ * number of entities from the ones without criterion, e.g. as run by {@link #probe(SearchExecutor, SearchSpecification)}
+ * with count queries. Each new observation is averaged with the previous ones, the recent ones weighing more.
+ * The number of kept selectivities is bounded, the least recently used being evicted first.</p>
+ * <p>Once set on a {@literal SearchSpecification}, see {@link SearchSpecification#statistics(SelectivityStatistics)},
+ * the criteria of each group are ordered by increasing rank, for the database and for the in-memory evaluation alike:
+ * the cost of the criterion divided by the fraction of the entities it rules out in a conjunction, or by the fraction
+ * it matches in a disjunction, so that the cheap and selective criteria come first. The equality and range criteria
+ * are the cheapest, then the prefix ones, then "like"; a path through a relationship costs more, and even more through
+ * a {@literal Collection}. The criteria without observation get a default selectivity by operator.</p>
+ * <p>The queries of a {@literal SearchExecutor} are given a JDBC fetch size from the expected number of rows, the number
+ * of entities times the selectivities of the criteria of the root group, and the entities expected in a number greater
+ * than <code>readOnlyThreshold</code> are loaded read-only: they are not dirty checked on flush, so their changes are
+ * not saved.</p>
+ * <p>A change in the order of the criteria changes the queries: the orders are expected to settle once enough searches
+ * have been observed. The {@link SearchSpecification#fingerprint()} does not depend on the order. It is thread-safe.</p>
+ *
+ * @param <T> the type of the entity
+ */
+public class SelectivityStatistics<T> {
+
+    /**
+     * The maximum JDBC fetch size given to the queries
+     */
+    public static final int MAX_FETCH_SIZE = 1000;
+
+    // the weight of a new observation in the average
+    private static final double WEIGHT = 0.3;
+    private static final double MIN_SELECTIVITY = 0.001;
+
+    private final ManagedType<T> model;
+    private final long readOnlyThreshold;
+    private final Map<Key, Double> selectivities;
+    private volatile long total = -1;
+
+    /**
+     * Construct a {@link SelectivityStatistics}
+     *
+     * @param entityManagerFactory the entity manager factory of the entity, must not be {@literal null}.
+     * @param domainClass          the entity type, must not be {@literal null}.
+     * @param maxEntries           the maximum number of kept selectivities
+     * @param readOnlyThreshold    the expected number of entities above which the entities are loaded read-only,
+     *                             {@link Long#MAX_VALUE} to never load them read-only
+     */
+    public SelectivityStatistics(EntityManagerFactory entityManagerFactory, Class<T> domainClass, int maxEntries, long readOnlyThreshold) {
+        this.model = entityManagerFactory.getMetamodel().entity(domainClass);
+        this.readOnlyThreshold = readOnlyThreshold;
+        this.selectivities = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Double> eldest) {
+                return size() > maxEntries;
+            }
+        });
+    }
+
+    /**
+     * Observe the selectivity of each criterion of a {@link SearchSpecification}, the ones of its nested groups included,
+     * with a count query per criterion, and the number of entities with one more
+     *
+     * @param executor the executor running the count queries, must not be {@literal null}.
+     * @param spec     the specification, must not be {@literal null}.
+     */
+    public void probe(SearchExecutor<T> executor, SearchSpecification<T> spec) {
+        executor.count(spec.only(null).statistics(this));
+        List<SearchCriterion<T>> criteria = new ArrayList<>();
+        addCriteria(spec.normalize(), criteria);
+        for (SearchCriterion<T> sc : criteria) {
+            executor.count(spec.only(sc).statistics(this));
+        }
+    }
+
+    /**
+     * Get the observed selectivity of the criteria on a field path with an operator
+     *
+     * @param path     the dot-separated field path, must not be {@literal null}.
+     * @param operator the operator, must not be {@literal null}.
+     * @return the fraction of the entities matched, if observed
+     */
+    public OptionalDouble selectivity(String path, SearchOperationEnum operator) {
+        Double selectivity = selectivities.get(new Key(List.of(path.split("\\.")), operator));
+        return selectivity != null ? OptionalDouble.of(selectivity) : OptionalDouble.empty();
+    }
+
+    /**
+     * Get the observed number of entities
+     *
+     * @return the number of entities, or -1 if not observed yet
+     */
+    public long total() {
+        return total;
+    }
+
+    /**
+     * Observe the number of entities matching normalized criteria. Only the criteria made of a single criterion,
+     * or of none, are observed.
+     *
+     * @param criteria the normalized criteria
+     * @param rows     the number of matching entities
+     */
+    void observe(CriteriaGroup<T> criteria, long rows) {
+        if (criteria.isAlwaysTrue()) {
+            total = rows;
+            return;
+        }
+        long entities = total;
+        if (entities <= 0 || criteria.negated() || !criteria.groups().isEmpty() || criteria.criteria().size() != 1) {
+            return;
+        }
+        double observed = Math.min((double) rows / entities, 1);
+        selectivities.merge(key(criteria.criteria().get(0)), observed, (previous, o) -> previous + WEIGHT * (o - previous));
+    }
+
+    /**
+     * Order the criteria of the normalized groups by increasing rank
+     *
+     * @param group the normalized group
+     * @return the group with its criteria, and the ones of its nested groups, ordered
+     */
+    CriteriaGroup<T> order(CriteriaGroup<T> group) {
+        if (group.criteria().size() < 2 && group.groups().isEmpty()) {
+            return group;
+        }
+        List<SearchCriterion<T>> criteria = new ArrayList<>(group.criteria());
+        Map<SearchCriterion<T>, Double> ranks = new IdentityHashMap<>();
+        criteria.forEach(c -> ranks.put(c, rank(c, group.disjunction())));
+        criteria.sort(Comparator.comparingDouble(ranks::get));
+        return new CriteriaGroup<>(group.disjunction(), group.negated(), List.copyOf(criteria),
+                group.groups().stream().map(this::order).toList());
+    }
+
+    /**
+     * Get the hints of the queries of normalized criteria, from the expected number of rows
+     *
+     * @param criteria the normalized criteria
+     * @param entities whether the query loads entities
+     * @return the hints, none if the number of entities has not been observed
+     */
+    Map<String, Object> hints(CriteriaGroup<T> criteria, boolean entities) {
+        long entityCount = total;
+        if (entityCount < 0) {
+            return Map.of();
+        }
+        double expected = entityCount;
+        if (!criteria.disjunction() && !criteria.negated()) {
+            for (SearchCriterion<T> sc : criteria.criteria()) {
+                expected *= selectivity(sc);
+            }
+        }
+        long rows = (long) Math.ceil(expected);
+        int fetchSize = (int) Math.max(1, Math.min(rows, MAX_FETCH_SIZE));
+        return entities && rows > readOnlyThreshold
+                ? Map.of(HibernateHints.HINT_FETCH_SIZE, fetchSize, HibernateHints.HINT_READ_ONLY, true)
+                : Map.of(HibernateHints.HINT_FETCH_SIZE, fetchSize);
+    }
+
+    private void addCriteria(CriteriaGroup<T> group, List<SearchCriterion<T>> criteria) {
+        criteria.addAll(group.criteria());
+        group.groups().forEach(g -> addCriteria(g, criteria));
+    }
+
+    private double rank(SearchCriterion<T> sc, boolean disjunction) {
+        double selectivity = Math.max(Math.min(selectivity(sc), 1 - MIN_SELECTIVITY), MIN_SELECTIVITY);
+        return cost(sc) / (disjunction ? selectivity : 1 - selectivity);
+    }
+
+    private double selectivity(SearchCriterion<T> sc) {
+        Double observed = selectivities.get(key(sc));
+        return observed != null ? observed : defaultSelectivity(sc);
+    }
+
+    private static double defaultSelectivity(SearchCriterion<?> sc) {
+        return switch (sc.getOperator()) {
+            case EQUALS, EQUALS_IGNORE_CASE -> 0.05;
+            case IN -> Math.min(0.05 * Math.max(sc.getValue() instanceof Collection<?> values ? values.size() : 1, 1), 0.5);
+            case NOT_EQUAL -> 0.95;
+            case NOT_IN -> 0.9;
+            case BETWEEN, STARTS_WITH, STARTS_WITH_IGNORE_CASE -> 0.1;
+            case GREATER_THAN, GREATER_THAN_EQUAL, LESS_THAN, LESS_THAN_EQUAL -> 0.3;
+            case LIKE, CONTAINS_IGNORE_CASE, ENDS_WITH -> 0.2;
+        };
+    }
+
+    /**
+     * Estimate the relative cost of checking a criterion on an entity
+     */
+    private double cost(SearchCriterion<T> sc) {
+        double cost = switch (sc.getOperator()) {
+            case EQUALS, NOT_EQUAL, IN, NOT_IN, GREATER_THAN, GREATER_THAN_EQUAL, LESS_THAN, LESS_THAN_EQUAL, BETWEEN -> 1;
+            case STARTS_WITH, STARTS_WITH_IGNORE_CASE, EQUALS_IGNORE_CASE -> 2;
+            case LIKE, CONTAINS_IGNORE_CASE, ENDS_WITH -> 8;
+        };
+        String[] fields = sc.getFields();
+        if (fields.length > 1) {
+            cost *= AttributePaths.resolve(model, fields).collection() >= 0 ? 16 : 2;
+        }
+        return cost;
+    }
+
+    private static Key key(SearchCriterion<?> sc) {
+        return new Key(List.of(sc.getFields()), sc.getOperator());
+    }
+
+    /**
+     * The key of a selectivity
+     *
+     * @param fields   the field path
+     * @param operator the operator
+     */
+    private record Key(List<String> fields, SearchOperationEnum operator) {
+    }
+}
@@ -0,0 +1,33 @@
+package eu.rimbaud.libs.search;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+
+/**
+ * {@link SearchListener} logging the executions slower than a threshold, with their fingerprint and criteria,
+ * to find the filter combinations needing an index.
+ */
+@Slf4j
+public class SlowQueryLogger implements SearchListener {
+
+    private final long thresholdNanos;
+
+    /**
+     * Construct a {@link SlowQueryLogger}
+     *
+     * @param threshold the minimum execution time of a logged query, must not be {@literal null}.
+     */
+    public SlowQueryLogger(Duration threshold) {
+        this.thresholdNanos = threshold.toNanos();
+    }
+
+    @Override
+    public void onSearch(SearchEvent event) {
+        if (event.isExecuted() && event.executionNanos() >= thresholdNanos) {
+            log.warn("Slow search {} [{}]: {} ms, {} rows, {} joins, criteria: {}",
+                    event.fingerprint(), event.operation(), event.executionTime().toMillis(),
+                    event.rows(), event.joins(), event.criteria());
+        }
+    }
+}
@@ -0,0 +1,669 @@
+package eu.rimbaud.libs.search;
+
+import jakarta.persistence.criteria.JoinType;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Encodes and decodes the {@link SpecificationSnapshot}, in a compact binary form or in JSON.
+ * <p>Both encodings start with their version, a snapshot encoded with an unknown version being rejected.
+ * The enumerations are encoded by name. The values are encoded with their type, as text except for the integers,
+ * the floating point numbers and the booleans in the binary form, so that a value is decoded into the same type:
+ * a {@literal Collection} is decoded into a {@literal List}, and an enumeration is decoded through its class name,
+ * which must be an enumeration.</p>
+ */
+final class SnapshotCodec {
+
+    /**
+     * The version of the encodings.
+     */
+    static final int VERSION = 1;
+
+    private static final int STRICT = 1;
+    private static final int SEPARATE_JOIN = 2;
+    private static final int JOIN_TYPE = 4;
+    private static final int COLLECTION_MODE = 8;
+
+    private static final int DISJUNCTION = 1;
+    private static final int NEGATED = 2;
+
+    private static final Map<Class<?>, ValueType> VALUE_TYPES = new HashMap<>();
+
+    static {
+        for (ValueType type : ValueType.values()) {
+            if (type.type != null) {
+                VALUE_TYPES.put(type.type, type);
+            }
+        }
+    }
+
+    private SnapshotCodec() {
+    }
+
+    /**
+     * Encode a snapshot in binary
+     *
+     * @param snapshot the snapshot
+     * @return the encoded snapshot
+     * @throws IllegalArgumentException if a value is not supported
+     */
+    static byte[] toBytes(SpecificationSnapshot snapshot) {
+        var bytes = new ByteArrayOutputStream(64);
+        try (var out = new DataOutputStream(bytes)) {
+            out.writeByte(VERSION);
+            writeString(out, snapshot.getJoinType().name());
+            writeString(out, snapshot.getCollectionMode().name());
+            writeString(out, snapshot.getInStrategy().name());
+            writeVarLong(out, snapshot.getInChunkSize());
+            writeGroup(out, snapshot.getRoot());
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Decode a snapshot encoded in binary
+     *
+     * @param bytes the encoded snapshot
+     * @return the snapshot
+     * @throws IllegalArgumentException if the bytes are not a snapshot, or are encoded with an unsupported version
+     */
+    static SpecificationSnapshot fromBytes(byte[] bytes) {
+        try (var in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+            checkVersion(in.readUnsignedByte());
+            var snapshot = new SpecificationSnapshot(JoinType.valueOf(readString(in)),
+                    CollectionModeEnum.valueOf(readString(in)),
+                    InStrategyEnum.valueOf(readString(in)),
+                    (int) readVarLong(in),
+                    readGroup(in));
+            if (in.available() > 0) {
+                throw new IllegalArgumentException("Invalid snapshot: " + in.available() + " trailing bytes");
+            }
+            return snapshot;
+        } catch (IOException | RuntimeException e) {
+            throw e instanceof IllegalArgumentException iae ? iae : new IllegalArgumentException("Invalid snapshot", e);
+        }
+    }
+
+    /**
+     * Encode a snapshot in JSON
+     *
+     * @param snapshot the snapshot
+     * @return the encoded snapshot
+     */
+    static String toJson(SpecificationSnapshot snapshot) {
+        var json = new StringBuilder(128);
+        json.append("{\"version\":").append(VERSION)
+                .append(",\"joinType\":");
+        writeJson(json, snapshot.getJoinType().name());
+        json.append(",\"collectionMode\":");
+        writeJson(json, snapshot.getCollectionMode().name());
+        json.append(",\"inStrategy\":");
+        writeJson(json, snapshot.getInStrategy().name());
+        json.append(",\"inChunkSize\":").append(snapshot.getInChunkSize());
+        writeGroupContent(json, snapshot.getRoot());
+        return json.append('}').toString();
+    }
+
+    /**
+     * Decode a snapshot encoded in JSON
+     *
+     * @param json the encoded snapshot
+     * @return the snapshot
+     * @throws IllegalArgumentException if the JSON is not a snapshot, or is encoded with an unsupported version
+     */
+    static SpecificationSnapshot fromJson(String json) {
+        try {
+            Map<?, ?> object = (Map<?, ?>) new JsonReader(json).read();
+            checkVersion(((Number) object.get("version")).intValue());
+            return new SpecificationSnapshot(JoinType.valueOf((String) object.get("joinType")),
+                    CollectionModeEnum.valueOf((String) object.get("collectionMode")),
+                    InStrategyEnum.valueOf((String) object.get("inStrategy")),
+                    ((Number) object.get("inChunkSize")).intValue(),
+                    readGroup(object, false, false));
+        } catch (RuntimeException e) {
+            throw e instanceof IllegalArgumentException iae ? iae : new IllegalArgumentException("Invalid snapshot", e);
+        }
+    }
+
+    private static void checkVersion(int version) {
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unsupported snapshot version: " + version);
+        }
+    }
+
+    private static void writeGroup(DataOutputStream out, SpecificationSnapshot.Group group) throws IOException {
+        out.writeByte((group.disjunction() ? DISJUNCTION : 0) | (group.negated() ? NEGATED : 0));
+        writeVarLong(out, group.criteria().size());
+        for (SpecificationSnapshot.Criterion c : group.criteria()) {
+            writeVarLong(out, c.fields().size());
+            for (String field : c.fields()) {
+                writeString(out, field);
+            }
+            writeString(out, c.operator().name());
+            out.writeByte((c.strict() ? STRICT : 0) | (c.separateJoin() ? SEPARATE_JOIN : 0)
+                    | (c.joinType() != null ? JOIN_TYPE : 0) | (c.collectionMode() != null ? COLLECTION_MODE : 0));
+            if (c.joinType() != null) {
+                writeString(out, c.joinType().name());
+            }
+            if (c.collectionMode() != null) {
+                writeString(out, c.collectionMode().name());
+            }
+            writeValue(out, c.value());
+        }
+        writeVarLong(out, group.groups().size());
+        for (SpecificationSnapshot.Group g : group.groups()) {
+            writeGroup(out, g);
+        }
+    }
+
+    private static SpecificationSnapshot.Group readGroup(DataInputStream in) throws IOException {
+        int flags = in.readUnsignedByte();
+        var criteria = new ArrayList<SpecificationSnapshot.Criterion>();
+        for (long i = readVarLong(in); i > 0; --i) {
+            var fields = new ArrayList<String>();
+            for (long j = readVarLong(in); j > 0; --j) {
+                fields.add(readString(in));
+            }
+            SearchOperationEnum operator = SearchOperationEnum.valueOf(readString(in));
+            int criterionFlags = in.readUnsignedByte();
+            JoinType joinType = (criterionFlags & JOIN_TYPE) != 0 ? JoinType.valueOf(readString(in)) : null;
+            CollectionModeEnum collectionMode = (criterionFlags & COLLECTION_MODE) != 0 ? CollectionModeEnum.valueOf(readString(in)) : null;
+            criteria.add(new SpecificationSnapshot.Criterion(fields, operator, readValue(in),
+                    (criterionFlags & STRICT) != 0, (criterionFlags & SEPARATE_JOIN) != 0, joinType, collectionMode));
+        }
+        var groups = new ArrayList<SpecificationSnapshot.Group>();
+        for (long i = readVarLong(in); i > 0; --i) {
+            groups.add(readGroup(in));
+        }
+        return new SpecificationSnapshot.Group((flags & DISJUNCTION) != 0, (flags & NEGATED) != 0, criteria, groups);
+    }
+
+    private static void writeValue(DataOutputStream out, Object value) throws IOException {
+        ValueType type = ValueType.of(value);
+        out.writeByte(type.tag);
+        switch (type) {
+            case NULL -> {
+            }
+            case LIST -> {
+                Collection<?> values = (Collection<?>) value;
+                writeVarLong(out, values.size());
+                for (Object v : values) {
+                    writeValue(out, v);
+                }
+            }
+            case BOOLEAN -> out.writeBoolean((Boolean) value);
+            case BYTE, SHORT, INTEGER, LONG -> writeVarLong(out, ((Number) value).longValue());
+            case FLOAT -> out.writeFloat((Float) value);
+            case DOUBLE -> out.writeDouble((Double) value);
+            default -> writeString(out, type.toText(value));
+        }
+    }
+
+    private static Object readValue(DataInputStream in) throws IOException {
+        ValueType type = ValueType.ofTag(in.readUnsignedByte());
+        return switch (type) {
+            case NULL -> null;
+            case LIST -> {
+                var values = new ArrayList<>();
+                for (long i = readVarLong(in); i > 0; --i) {
+                    values.add(readValue(in));
+                }
+                yield values;
+            }
+            case BOOLEAN -> in.readBoolean();
+            case BYTE -> (byte) readVarLong(in);
+            case SHORT -> (short) readVarLong(in);
+            case INTEGER -> (int) readVarLong(in);
+            case LONG -> readVarLong(in);
+            case FLOAT -> in.readFloat();
+            case DOUBLE -> in.readDouble();
+            default -> type.fromText(readString(in));
+        };
+    }
+
+    /**
+     * Write a signed integer as a zigzag variable-length integer, the small absolute values taking one byte
+     */
+    private static void writeVarLong(DataOutputStream out, long value) throws IOException {
+        long zigzag = (value << 1) ^ (value >> 63);
+        while ((zigzag & ~0x7FL) != 0) {
+            out.writeByte((int) (zigzag & 0x7F) | 0x80);
+            zigzag >>>= 7;
+        }
+        out.writeByte((int) zigzag);
+    }
+
+    private static long readVarLong(DataInputStream in) throws IOException {
+        long zigzag = 0;
+        for (var shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            zigzag |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return (zigzag >>> 1) ^ -(zigzag & 1);
+            }
+        }
+        throw new IllegalArgumentException("Invalid snapshot: malformed integer");
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(out, bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        long length = readVarLong(in);
+        if (length < 0 || length > in.available()) {
+            throw new IllegalArgumentException("Invalid snapshot: string of " + length + " bytes");
+        }
+        return new String(in.readNBytes((int) length), StandardCharsets.UTF_8);
+    }
+
+    private static void writeGroupContent(StringBuilder json, SpecificationSnapshot.Group group) {
+        json.append(",\"criteria\":[");
+        for (var i = 0; i < group.criteria().size(); ++i) {
+            SpecificationSnapshot.Criterion c = group.criteria().get(i);
+            json.append(i > 0 ? ",{" : "{").append("\"fields\":[");
+            for (var j = 0; j < c.fields().size(); ++j) {
+                if (j > 0) {
+                    json.append(',');
+                }
+                writeJson(json, c.fields().get(j));
+            }
+            json.append("],\"operator\":");
+            writeJson(json, c.operator().name());
+            if (c.strict()) {
+                json.append(",\"strict\":true");
+            }
+            if (c.separateJoin()) {
+                json.append(",\"separateJoin\":true");
+            }
+            if (c.joinType() != null) {
+                json.append(",\"joinType\":");
+                writeJson(json, c.joinType().name());
+            }
+            if (c.collectionMode() != null) {
+                json.append(",\"collectionMode\":");
+                writeJson(json, c.collectionMode().name());
+            }
+            json.append(",\"value\":");
+            writeJsonValue(json, c.value());
+            json.append('}');
+        }
+        json.append("],\"groups\":[");
+        for (var i = 0; i < group.groups().size(); ++i) {
+            SpecificationSnapshot.Group g = group.groups().get(i);
+            json.append(i > 0 ? ",{" : "{")
+                    .append("\"or\":").append(g.disjunction())
+                    .append(",\"not\":").append(g.negated());
+            writeGroupContent(json, g);
+            json.append('}');
+        }
+        json.append(']');
+    }
+
+    private static SpecificationSnapshot.Group readGroup(Map<?, ?> object, boolean disjunction, boolean negated) {
+        var criteria = new ArrayList<SpecificationSnapshot.Criterion>();
+        for (Object o : (List<?>) object.get("criteria")) {
+            Map<?, ?> c = (Map<?, ?>) o;
+            criteria.add(new SpecificationSnapshot.Criterion(
+                    ((List<?>) c.get("fields")).stream().map(String.class::cast).toList(),
+                    SearchOperationEnum.valueOf((String) c.get("operator")),
+                    readJsonValue(c.get("value")),
+                    Boolean.TRUE.equals(c.get("strict")),
+                    Boolean.TRUE.equals(c.get("separateJoin")),
+                    c.get("joinType") != null ? JoinType.valueOf((String) c.get("joinType")) : null,
+                    c.get("collectionMode") != null ? CollectionModeEnum.valueOf((String) c.get("collectionMode")) : null));
+        }
+        var groups = new ArrayList<SpecificationSnapshot.Group>();
+        for (Object o : (List<?>) object.get("groups")) {
+            Map<?, ?> g = (Map<?, ?>) o;
+            groups.add(readGroup(g, Boolean.TRUE.equals(g.get("or")), Boolean.TRUE.equals(g.get("not"))));
+        }
+        return new SpecificationSnapshot.Group(disjunction, negated, criteria, groups);
+    }
+
+    /**
+     * Write a value in JSON: the strings, the booleans and {@literal null} as is, the collections as arrays,
+     * and the other values as an object holding their text under the name of their type, e.g. <code>{"Long":"42"}</code>
+     */
+    private static void writeJsonValue(StringBuilder json, Object value) {
+        ValueType type = ValueType.of(value);
+        switch (type) {
+            case NULL, BOOLEAN -> json.append(value);
+            case STRING -> writeJson(json, (String) value);
+            case LIST -> {
+                json.append('[');
+                var first = true;
+                for (Object v : (Collection<?>) value) {
+                    if (!first) {
+                        json.append(',');
+                    }
+                    writeJsonValue(json, v);
+                    first = false;
+                }
+                json.append(']');
+            }
+            default -> {
+                json.append('{');
+                writeJson(json, type.jsonName());
+                json.append(':');
+                writeJson(json, type.toText(value));
+                json.append('}');
+            }
+        }
+    }
+
+    private static Object readJsonValue(Object value) {
+        if (value == null || value instanceof String || value instanceof Boolean) {
+            return value;
+        }
+        if (value instanceof List<?> values) {
+            return values.stream().map(SnapshotCodec::readJsonValue).toList();
+        }
+        if (value instanceof Map<?, ?> typed && typed.size() == 1) {
+            Map.Entry<?, ?> entry = typed.entrySet().iterator().next();
+            return ValueType.ofJsonName((String) entry.getKey()).fromText((String) entry.getValue());
+        }
+        throw new IllegalArgumentException("Invalid snapshot: unexpected value " + value);
+    }
+
+    private static void writeJson(StringBuilder json, String value) {
+        json.append('"');
+        for (var i = 0; i < value.length(); ++i) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> json.append("\\\"");
+                case '\\' -> json.append("\\\\");
+                case '\n' -> json.append("\\n");
+                case '\r' -> json.append("\\r");
+                case '\t' -> json.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        json.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        json.append(c);
+                    }
+                }
+            }
+        }
+        json.append('"');
+    }
+
+    /**
+     * The supported value types, with their binary tag, which must not change
+     */
+    private enum ValueType {
+        NULL(0, null, null),
+        STRING(1, String.class, s -> s),
+        BOOLEAN(2, Boolean.class, Boolean::valueOf),
+        BYTE(3, Byte.class, Byte::valueOf),
+        SHORT(4, Short.class, Short::valueOf),
+        INTEGER(5, Integer.class, Integer::valueOf),
+        LONG(6, Long.class, Long::valueOf),
+        FLOAT(7, Float.class, Float::valueOf),
+        DOUBLE(8, Double.class, Double::valueOf),
+        BIG_INTEGER(9, BigInteger.class, BigInteger::new),
+        BIG_DECIMAL(10, BigDecimal.class, BigDecimal::new),
+        CHARACTER(11, Character.class, s -> {
+            if (s.length() != 1) {
+                throw new IllegalArgumentException("Invalid character: " + s);
+            }
+            return s.charAt(0);
+        }),
+        LOCAL_DATE(12, LocalDate.class, LocalDate::parse),
+        LOCAL_TIME(13, LocalTime.class, LocalTime::parse),
+        LOCAL_DATE_TIME(14, LocalDateTime.class, LocalDateTime::parse),
+        OFFSET_DATE_TIME(15, OffsetDateTime.class, OffsetDateTime::parse),
+        INSTANT(16, Instant.class, Instant::parse),
+        UUID(17, java.util.UUID.class, java.util.UUID::fromString),
+        ENUM(18, null, ValueType::toEnum),
+        LIST(19, null, null);
+
+        private final int tag;
+        private final Class<?> type;
+        private final Function<String, Object> parser;
+
+        ValueType(int tag, Class<?> type, Function<String, Object> parser) {
+            this.tag = tag;
+            this.type = type;
+            this.parser = parser;
+        }
+
+        static ValueType of(Object value) {
+            if (value == null) {
+                return NULL;
+            }
+            if (value instanceof Collection<?>) {
+                return LIST;
+            }
+            if (value instanceof Enum<?>) {
+                return ENUM;
+            }
+            ValueType type = VALUE_TYPES.get(value.getClass());
+            if (type == null) {
+                throw new IllegalArgumentException("Unsupported snapshot value type: " + value.getClass().getName());
+            }
+            return type;
+        }
+
+        static ValueType ofTag(int tag) {
+            ValueType[] types = values();
+            if (tag >= types.length || types[tag].tag != tag) {
+                throw new IllegalArgumentException("Invalid snapshot: unknown value tag " + tag);
+            }
+            return types[tag];
+        }
+
+        static ValueType ofJsonName(String jsonName) {
+            for (ValueType type : values()) {
+                if (type.parser != null && type.jsonName().equals(jsonName)) {
+                    return type;
+                }
+            }
+            throw new IllegalArgumentException("Invalid snapshot: unknown value type " + jsonName);
+        }
+
+        String jsonName() {
+            return type != null ? type.getSimpleName() : "Enum";
+        }
+
+        String toText(Object value) {
+            return value instanceof Enum<?> e ? e.getDeclaringClass().getName() + '#' + e.name() : value.toString();
+        }
+
+        Object fromText(String text) {
+            return parser.apply(text);
+        }
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        private static Object toEnum(String text) {
+            int separator = text.lastIndexOf('#');
+            try {
+                Class<?> type = Class.forName(text.substring(0, separator), false, SnapshotCodec.class.getClassLoader());
+                if (!type.isEnum()) {
+                    throw new IllegalArgumentException("Not an enumeration: " + type.getName());
+                }
+                return Enum.valueOf((Class<? extends Enum>) type, text.substring(separator + 1));
+            } catch (ClassNotFoundException | StringIndexOutOfBoundsException e) {
+                throw new IllegalArgumentException("Invalid enumeration value: " + text, e);
+            }
+        }
+    }
+
+    /**
+     * A minimal JSON reader, reading the objects as {@literal Map}, the arrays as {@literal List},
+     * and the numbers as {@literal Long} or {@literal Double}
+     */
+    private static final class JsonReader {
+
+        private final String json;
+        private int position;
+
+        private JsonReader(String json) {
+            this.json = json;
+        }
+
+        Object read() {
+            Object value = readValue();
+            skipWhitespace();
+            if (position != json.length()) {
+                throw error("end of input");
+            }
+            return value;
+        }
+
+        private Object readValue() {
+            skipWhitespace();
+            if (position >= json.length()) {
+                throw error("value");
+            }
+            char c = json.charAt(position);
+            return switch (c) {
+                case '{' -> readObject();
+                case '[' -> readArray();
+                case '"' -> readString();
+                case 't' -> readLiteral("true", Boolean.TRUE);
+                case 'f' -> readLiteral("false", Boolean.FALSE);
+                case 'n' -> readLiteral("null", null);
+                default -> readNumber();
+            };
+        }
+
+        private Map<String, Object> readObject() {
+            var object = new LinkedHashMap<String, Object>();
+            ++position;
+            skipWhitespace();
+            if (peek() == '}') {
+                ++position;
+                return object;
+            }
+            do {
+                skipWhitespace();
+                String key = readString();
+                skipWhitespace();
+                expect(':');
+                object.put(key, readValue());
+                skipWhitespace();
+            } while (consume(','));
+            expect('}');
+            return object;
+        }
+
+        private List<Object> readArray() {
+            var array = new ArrayList<>();
+            ++position;
+            skipWhitespace();
+            if (peek() == ']') {
+                ++position;
+                return array;
+            }
+            do {
+                array.add(readValue());
+                skipWhitespace();
+            } while (consume(','));
+            expect(']');
+            return array;
+        }
+
+        private String readString() {
+            expect('"');
+            var value = new StringBuilder();
+            while (true) {
+                if (position >= json.length()) {
+                    throw error("'\"'");
+                }
+                char c = json.charAt(position++);
+                if (c == '"') {
+                    return value.toString();
+                }
+                if (c != '\\') {
+                    value.append(c);
+                    continue;
+                }
+                char escaped = json.charAt(position++);
+                switch (escaped) {
+                    case 'n' -> value.append('\n');
+                    case 'r' -> value.append('\r');
+                    case 't' -> value.append('\t');
+                    case 'b' -> value.append('\b');
+                    case 'f' -> value.append('\f');
+                    case 'u' -> {
+                        value.append((char) Integer.parseInt(json.substring(position, position + 4), 16));
+                        position += 4;
+                    }
+                    default -> value.append(escaped);
+                }
+            }
+        }
+
+        private Object readLiteral(String literal, Object value) {
+            if (!json.startsWith(literal, position)) {
+                throw error(literal);
+            }
+            position += literal.length();
+            return value;
+        }
+
+        private Number readNumber() {
+            int start = position;
+            while (position < json.length() && "+-.eE0123456789".indexOf(json.charAt(position)) >= 0) {
+                ++position;
+            }
+            String number = json.substring(start, position);
+            if (number.isEmpty()) {
+                throw error("value");
+            }
+            return number.matches("-?\\d+") ? Long.valueOf(number) : Double.valueOf(number);
+        }
+
+        private void skipWhitespace() {
+            while (position < json.length() && Character.isWhitespace(json.charAt(position))) {
+                ++position;
+            }
+        }
+
+        private char peek() {
+            return position < json.length() ? json.charAt(position) : 0;
+        }
+
+        private boolean consume(char c) {
+            if (peek() == c) {
+                ++position;
+                return true;
+            }
+            return false;
+        }
+
+        private void expect(char c) {
+            if (!consume(c)) {
+                throw error("'" + c + "'");
+            }
+        }
+
+        private IllegalArgumentException error(String expected) {
+            return new IllegalArgumentException("Invalid snapshot: expected " + expected + " at position " + position);
+        }
+    }
+}
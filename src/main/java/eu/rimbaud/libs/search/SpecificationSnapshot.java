@@ -0,0 +1,218 @@
+package eu.rimbaud.libs.search;
+
+import jakarta.persistence.criteria.JoinType;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * An immutable snapshot of a {@link SearchSpecification}: its settings, and its applied criteria and nested groups with their values.
+ * A snapshot can be sent to another node, encoded in binary with {@link #toBytes()} or in JSON with {@link #toJson()},
+ * and converted back into a {@literal SearchSpecification}, or used as a cache key, its encoding and hash code being computed once.
+ * <p>The {@link TrigramIndex}, the {@link SearchListener} and the metamodel of the {@literal SearchSpecification} are
+ * local to a node and are left out. The supported values are the strings, the booleans, the numbers, the characters,
+ * the {@literal java.time} dates and times, the {@literal UUID}, the enumerations and the collections of these,
+ * see {@link SnapshotCodec}.</p>
+ * <p>Two snapshots are equal if their criteria are the same, in the same order: unlike the cache keys of {@link SearchCache},
+ * the snapshots are structural and not normalized.</p>
+ */
+public final class SpecificationSnapshot {
+
+    private final JoinType joinType;
+    private final CollectionModeEnum collectionMode;
+    private final InStrategyEnum inStrategy;
+    private final int inChunkSize;
+    private final Group root;
+
+    /**
+     * The binary encoding, computed once, the equality and the hash code of the snapshots being the ones of their encodings,
+     * so that the hash codes are the same on all nodes.
+     */
+    private final byte[] bytes;
+    private final int hash;
+
+    /**
+     * Construct a {@link SpecificationSnapshot}
+     *
+     * @param joinType       the join type of the specification
+     * @param collectionMode the collection mode of the specification
+     * @param inStrategy     the "in" strategy of the specification
+     * @param inChunkSize    the "in" chunk size of the specification
+     * @param root           the criteria and groups of the specification
+     * @throws IllegalArgumentException if a value is not supported
+     */
+    SpecificationSnapshot(JoinType joinType, CollectionModeEnum collectionMode, InStrategyEnum inStrategy, int inChunkSize, Group root) {
+        this.joinType = joinType;
+        this.collectionMode = collectionMode;
+        this.inStrategy = inStrategy;
+        this.inChunkSize = inChunkSize;
+        this.root = root;
+        this.bytes = SnapshotCodec.toBytes(this);
+        this.hash = Arrays.hashCode(bytes);
+    }
+
+    /**
+     * Decode a snapshot encoded by {@link #toBytes()}
+     *
+     * @param bytes the encoded snapshot
+     * @return the snapshot
+     * @throws IllegalArgumentException if the bytes are not a snapshot, or are encoded with an unsupported version
+     */
+    public static SpecificationSnapshot fromBytes(byte[] bytes) {
+        return SnapshotCodec.fromBytes(bytes);
+    }
+
+    /**
+     * Decode a snapshot encoded by {@link #toJson()}
+     *
+     * @param json the encoded snapshot
+     * @return the snapshot
+     * @throws IllegalArgumentException if the JSON is not a snapshot, or is encoded with an unsupported version
+     */
+    public static SpecificationSnapshot fromJson(String json) {
+        return SnapshotCodec.fromJson(json);
+    }
+
+    /**
+     * Encode the snapshot in a compact binary form, starting with the version of the encoding
+     *
+     * @return the encoded snapshot
+     */
+    public byte[] toBytes() {
+        return bytes.clone();
+    }
+
+    /**
+     * Encode the snapshot in JSON, with the version of the encoding
+     *
+     * @return the encoded snapshot
+     */
+    public String toJson() {
+        return SnapshotCodec.toJson(this);
+    }
+
+    /**
+     * Convert the snapshot into a new {@link SearchSpecification}, with the same settings, criteria and groups
+     *
+     * @param <T> the type of the {@link jakarta.persistence.criteria.Root} the specification operates on
+     * @return the specification
+     */
+    public <T> SearchSpecification<T> toSpecification() {
+        SearchSpecification<T> spec = new SearchSpecification<T>()
+                .joinType(joinType)
+                .collectionMode(collectionMode)
+                .inStrategy(inStrategy)
+                .inChunkSize(inChunkSize);
+        addTo(root, spec);
+        return spec;
+    }
+
+    private static <T> void addTo(Group group, SearchSpecification<T> spec) {
+        for (Criterion c : group.criteria()) {
+            SearchCriterion<T> sc = spec.add(c.fields().toArray(String[]::new));
+            sc.setOperator(c.operator());
+            sc.setValue(c.value());
+            sc.setStrict(c.strict());
+            sc.setSeparateJoin(c.separateJoin());
+            sc.setJoinType(c.joinType());
+            sc.setCollectionMode(c.collectionMode());
+        }
+        for (Group g : group.groups()) {
+            spec.group(g.disjunction(), g.negated(), nested -> addTo(g, nested));
+        }
+    }
+
+    JoinType getJoinType() {
+        return joinType;
+    }
+
+    CollectionModeEnum getCollectionMode() {
+        return collectionMode;
+    }
+
+    InStrategyEnum getInStrategy() {
+        return inStrategy;
+    }
+
+    int getInChunkSize() {
+        return inChunkSize;
+    }
+
+    Group getRoot() {
+        return root;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return this == o || o instanceof SpecificationSnapshot other
+                && hash == other.hash
+                && Arrays.equals(bytes, other.bytes);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return toJson();
+    }
+
+    /**
+     * The snapshot of the criteria and nested groups of a {@link SearchSpecification} or of one of its nested groups
+     *
+     * @param disjunction whether the criteria and groups are combined with "or" instead of "and"
+     * @param negated     whether the group is negated
+     * @param criteria    the applied criteria, in order
+     * @param groups      the nested groups, in order
+     */
+    record Group(boolean disjunction, boolean negated, List<Criterion> criteria, List<Group> groups) {
+
+        Group {
+            criteria = List.copyOf(criteria);
+            groups = List.copyOf(groups);
+        }
+    }
+
+    /**
+     * The snapshot of a {@link SearchCriterion}
+     *
+     * @param fields         the field path
+     * @param operator       the operator
+     * @param value          the value, a {@literal Collection} being copied into an unmodifiable {@literal List}
+     * @param strict         whether the criterion is applied without value
+     * @param separateJoin   whether the criterion uses its own joins
+     * @param joinType       the overridden join type, or {@literal null}
+     * @param collectionMode the overridden collection mode, or {@literal null}
+     */
+    record Criterion(List<String> fields,
+                     SearchOperationEnum operator,
+                     Object value,
+                     boolean strict,
+                     boolean separateJoin,
+                     JoinType joinType,
+                     CollectionModeEnum collectionMode) {
+
+        Criterion {
+            fields = List.copyOf(fields);
+            if (value instanceof Collection<?> values) {
+                value = Collections.unmodifiableList(new ArrayList<>(values));
+            }
+        }
+
+        /**
+         * Take the snapshot of a {@link SearchCriterion}
+         *
+         * @param sc the {@literal SearchCriterion}
+         * @return the snapshot
+         */
+        static Criterion of(SearchCriterion<?> sc) {
+            return new Criterion(List.of(sc.getFields()), sc.getOperator(), sc.getValue(), sc.isStrict(), sc.isSeparateJoin(),
+                    sc.getJoinType(), sc.getCollectionMode());
+        }
+    }
+}
@@ -0,0 +1,400 @@
+package eu.rimbaud.libs.search;
+
+import jakarta.persistence.criteria.JoinType;
+import org.springframework.data.domain.Sort;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * A {@link SearchSpecification} compiled into a parameterized SQL query, see {@link JdbcSearchExecutor}.
+ * <p>The query is compiled from the normalized criteria the same way as the {@link jakarta.persistence.criteria.Predicate}
+ * of a {@link SearchExecutor}: the relationships are joined, shared by the criteria with the same path prefix and join type,
+ * and the criteria on a {@literal Collection} are checked with {@literal EXISTS} subqueries, shared by the criteria on the
+ * same collection, as for the projections and the identifiers. Each value is bound to a <code>?</code> placeholder,
+ * the elements of an "in" value each to its own.</p>
+ *
+ * @param sql          the SQL query
+ * @param placeholders the value bound to each placeholder, in order: the index of the parameter value in the high
+ *                     32 bits, the index of the element of a {@literal Collection} value plus one in the low 32 bits,
+ *                     or 0 for the value itself
+ * @param types        the types of the selected columns, primitive types being boxed
+ * @param joins        the number of joins and {@literal EXISTS} subqueries of the query
+ */
+record SqlQuery(String sql, long[] placeholders, Class<?>[] types, int joins) {
+
+    /**
+     * The alias of the table of the root entity.
+     */
+    static final String ROOT = "t0";
+
+    /**
+     * Compile a normalized {@link SearchSpecification}
+     *
+     * @param spec      the specification
+     * @param criteria  the normalized criteria of the specification, not always false
+     * @param lookups   the lookups of the criteria in the indexes of the specification
+     * @param mapping   the mapping of the root entity
+     * @param sort      the sort, on attributes of the entity
+     * @param kind      the kind of query
+     * @param selection the selected attribute paths of a projection
+     * @param <T>       the root type
+     * @return the compiled query
+     * @throws IllegalArgumentException      if a path is invalid, or a selected or sorted path goes through a {@literal Collection}
+     * @throws UnsupportedOperationException if the mapping of a path is not supported, see {@link TableMapping}
+     */
+    static <T> SqlQuery compile(SearchSpecification<T> spec, CriteriaGroup<T> criteria, IndexLookups<T> lookups, TableMapping mapping,
+                                Sort sort, Kind kind, List<String> selection) {
+        return new Compiler<>(spec, lookups, mapping).compile(criteria, sort, kind, selection);
+    }
+
+    /**
+     * Bind the parameter values of the {@link SearchSpecification} to the placeholders
+     *
+     * @param statement the statement of the query
+     * @param values    the parameter values, in the order of {@link SearchSpecification#parameterValues(CriteriaGroup, IndexLookups, jakarta.persistence.criteria.CriteriaBuilder, jakarta.persistence.metamodel.ManagedType)}
+     * @throws SQLException if a value cannot be bound
+     */
+    void bind(PreparedStatement statement, List<Object> values) throws SQLException {
+        Object[] bound = new Object[values.size()];
+        for (var i = 0; i < bound.length; ++i) {
+            bound[i] = values.get(i) instanceof Collection<?> c ? c.toArray() : values.get(i);
+        }
+        for (var i = 0; i < placeholders.length; ++i) {
+            Object value = bound[(int) (placeholders[i] >>> 32)];
+            int element = (int) placeholders[i] - 1;
+            statement.setObject(i + 1, element < 0 ? value : ((Object[]) value)[element]);
+        }
+    }
+
+    /**
+     * The kinds of SQL queries compiled from a {@link SearchSpecification}
+     */
+    enum Kind {
+        /**
+         * Select the identifiers
+         */
+        IDS,
+        /**
+         * Count the entities
+         */
+        COUNT,
+        /**
+         * Select the columns of attribute paths
+         */
+        PROJECTION
+    }
+
+    /**
+     * A fragment of SQL, with the values bound to its placeholders.
+     */
+    private static final class Sql {
+
+        private final StringBuilder text = new StringBuilder();
+        private final List<Long> placeholders = new ArrayList<>();
+
+        Sql append(String text) {
+            this.text.append(text);
+            return this;
+        }
+
+        Sql append(Sql sql) {
+            this.text.append(sql.text);
+            this.placeholders.addAll(sql.placeholders);
+            return this;
+        }
+
+        Sql parameter(int index, int element) {
+            this.text.append('?');
+            this.placeholders.add((long) index << 32 | element + 1);
+            return this;
+        }
+    }
+
+    /**
+     * Holds the state of the compilation of a {@link SearchSpecification}, as {@link PredicateContext} does for a
+     * {@link jakarta.persistence.criteria.Predicate}: the joins from the root, shared with the nested groups, and the
+     * next parameter value.
+     */
+    private static final class Compiler<T> {
+
+        private final SearchSpecification<T> spec;
+        private final IndexLookups<T> lookups;
+        private final TableMapping mapping;
+        private final StringBuilder from = new StringBuilder();
+        private final Map<String, String> joins = new HashMap<>();
+        private int aliases = 1;
+        private int joinCount;
+        private int parameter;
+
+        Compiler(SearchSpecification<T> spec, IndexLookups<T> lookups, TableMapping mapping) {
+            this.spec = spec;
+            this.lookups = lookups;
+            this.mapping = mapping;
+        }
+
+        SqlQuery compile(CriteriaGroup<T> criteria, Sort sort, Kind kind, List<String> selection) {
+            Sql where = group(criteria, new Scope(false));
+            var select = new StringBuilder();
+            List<Class<?>> types = new ArrayList<>();
+            switch (kind) {
+                case IDS -> {
+                    select.append(ROOT).append('.').append(mapping.idColumn());
+                    types.add(mapping.idType());
+                }
+                case COUNT -> {
+                    select.append("count(*)");
+                    types.add(Long.class);
+                }
+                case PROJECTION -> {
+                    for (String path : selection) {
+                        TableMapping.ColumnPath column = mapping.resolve(path.split("\\."));
+                        select.append(types.isEmpty() ? "" : ", ").append(selection(column));
+                        types.add(column.javaType());
+                    }
+                }
+            }
+            var orderBy = new StringBuilder();
+            for (Sort.Order order : sort) {
+                String column = selection(mapping.resolve(order.getProperty().split("\\.")));
+                orderBy.append(orderBy.isEmpty() ? " order by " : ", ")
+                        .append(order.isIgnoreCase() ? "lower(" + column + ")" : column)
+                        .append(order.isAscending() ? " asc" : " desc");
+            }
+            var sql = new Sql().append("select ").append(select.toString())
+                    .append(" from ").append(mapping.table()).append(" ").append(ROOT).append(from.toString());
+            if (!criteria.isAlwaysTrue()) {
+                sql.append(" where ").append(where);
+            }
+            sql.append(orderBy.toString());
+            return new SqlQuery(sql.text.toString(), sql.placeholders.stream().mapToLong(Long::longValue).toArray(),
+                    types.toArray(Class<?>[]::new), joinCount);
+        }
+
+        /**
+         * Compile the normalized {@literal SearchSpecification}, or one of its nested groups, in the order of
+         * {@link SearchSpecification#toPredicate(CriteriaGroup, PredicateContext)}, so that the parameter values are
+         * consumed in the same order.
+         */
+        private Sql group(CriteriaGroup<T> group, Scope scope) {
+            group.criteria().forEach(c -> criterion(c, scope));
+            group.groups().forEach(g -> scope.predicates.add(group(g, new Scope(true))));
+            Sql sql = scope.toSql(group.disjunction());
+            return group.negated() ? new Sql().append("not (").append(sql).append(")") : sql;
+        }
+
+        private void criterion(SearchCriterion<T> sc, Scope scope) {
+            String[] fields = sc.getFields();
+            TableMapping.ColumnPath path = mapping.resolve(fields);
+            JoinType type = spec.joinType(sc, scope.nested);
+            if (path.collection() < 0) {
+                String alias = join(joins, from, ROOT, path, 0, fields.length - 1, type, sc.isSeparateJoin());
+                scope.predicates.add(predicate(sc, alias, path));
+            } else {
+                SemiJoin semiJoin = scope.semiJoin(path, type, sc.isSeparateJoin());
+                String alias = join(semiJoin.joins, semiJoin.from, semiJoin.element, path, path.collection() + 1, fields.length - 1,
+                        JoinType.INNER, false);
+                semiJoin.predicates.add(predicate(sc, alias, path));
+            }
+        }
+
+        /**
+         * Compile one {@link SearchCriterion}, as {@link SearchSpecification} does in a parameterized context
+         */
+        private Sql predicate(SearchCriterion<T> sc, String alias, TableMapping.ColumnPath path) {
+            int first = parameter;
+            List<Object> values = spec.parameterValues(sc, lookups, null, null);
+            parameter += values.size();
+            if (lookups.ids(sc) != null) {
+                String id = mapping.resolve(new String[]{lookups.idField(sc)}).column();
+                return in(false, values, first, alias + '.' + id);
+            }
+            String column = alias + '.' + path.column();
+            if (sc.getOperator() == SearchOperationEnum.IN || sc.getOperator() == SearchOperationEnum.NOT_IN) {
+                return in(sc.getOperator() == SearchOperationEnum.NOT_IN, values, first, column);
+            }
+            if (values.isEmpty()) {
+                throw new IllegalArgumentException("No value for " + sc);
+            }
+            var sql = new Sql();
+            return switch (sc.getOperator()) {
+                case EQUALS -> sql.append(column).append(" = ").parameter(first, -1);
+                case NOT_EQUAL -> sql.append(column).append(" <> ").parameter(first, -1);
+                case LIKE -> sql.append("lower(").append(column).append(") like ").parameter(first, -1);
+                case STARTS_WITH, ENDS_WITH -> sql.append(column).append(" like ").parameter(first, -1).append(mapping.likeEscape());
+                case STARTS_WITH_IGNORE_CASE, CONTAINS_IGNORE_CASE ->
+                        sql.append("lower(").append(column).append(") like ").parameter(first, -1).append(mapping.likeEscape());
+                case EQUALS_IGNORE_CASE -> sql.append("lower(").append(column).append(") = ").parameter(first, -1);
+                case LESS_THAN -> sql.append(column).append(" < ").parameter(first, -1);
+                case LESS_THAN_EQUAL -> sql.append(column).append(" <= ").parameter(first, -1);
+                case GREATER_THAN -> sql.append(column).append(" > ").parameter(first, -1);
+                case GREATER_THAN_EQUAL -> sql.append(column).append(" >= ").parameter(first, -1);
+                case BETWEEN -> sql.append(column).append(" between ").parameter(first, -1).append(" and ").parameter(first + 1, -1);
+                case IN, NOT_IN -> throw new IllegalStateException("Already compiled: " + sc.getOperator());
+            };
+        }
+
+        /**
+         * Compile an "in" or "not in" criterion, one "in" list per parameter value, combined with "or",
+         * or with "and" for a "not in". Without value, the "in" is always false and the "not in" always true.
+         */
+        private static Sql in(boolean not, List<Object> values, int first, String column) {
+            if (values.isEmpty()) {
+                return new Sql().append(not ? "1=1" : "1=0");
+            }
+            List<Sql> lists = new ArrayList<>(values.size());
+            for (var i = 0; i < values.size(); ++i) {
+                var sql = new Sql().append(column).append(not ? " not in (" : " in (");
+                int size = ((Collection<?>) values.get(i)).size();
+                for (var j = 0; j < size; ++j) {
+                    (j > 0 ? sql.append(", ") : sql).parameter(first + i, j);
+                }
+                lists.add(sql.append(")"));
+            }
+            return combine(lists, !not);
+        }
+
+        /**
+         * Get the column of an attribute to select or to sort on. The inner join of the criteria on the same relationship
+         * is reused, otherwise the relationship is left joined, as {@link PredicateContext#selection(String)} does.
+         */
+        private String selection(TableMapping.ColumnPath path) {
+            String[] fields = path.fields();
+            if (path.collection() >= 0) {
+                throw new IllegalArgumentException("Cannot select a path through a collection: " + String.join(".", fields));
+            }
+            String alias = ROOT;
+            if (fields.length > 1) {
+                String inner = joins.get(JoinType.INNER.name() + '.' + String.join(".", List.of(fields).subList(0, fields.length - 1)));
+                alias = inner != null ? inner : join(joins, from, ROOT, path, 0, fields.length - 1, JoinType.LEFT, false);
+            }
+            return alias + '.' + path.column();
+        }
+
+        /**
+         * Join a table along a field path, the joins being shared by join type and path prefix unless separate.
+         * The embeddables are not joined, their columns being in the table of their owner.
+         *
+         * @return the alias of the last joined table
+         */
+        private String join(Map<String, String> joins, StringBuilder from, String start, TableMapping.ColumnPath path,
+                            int begin, int end, JoinType type, boolean separate) {
+            String alias = start;
+            var key = new StringBuilder(type.name());
+            for (var i = begin; i < end; ++i) {
+                key.append('.').append(path.fields()[i]);
+                TableMapping.Step step = path.steps().get(i);
+                if (step.hops().isEmpty()) {
+                    continue;
+                }
+                if (separate) {
+                    alias = join(from, alias, step, type);
+                } else {
+                    final String parent = alias;
+                    alias = joins.computeIfAbsent(key.toString(), k -> join(from, parent, step, type));
+                }
+            }
+            return alias;
+        }
+
+        private String join(StringBuilder from, String parent, TableMapping.Step step, JoinType type) {
+            String alias = parent;
+            for (TableMapping.Hop hop : step.hops()) {
+                alias = join(from, alias, hop, type);
+            }
+            ++joinCount;
+            return alias;
+        }
+
+        private String join(StringBuilder from, String parent, TableMapping.Hop hop, JoinType type) {
+            String alias = alias();
+            from.append(' ').append(type.name().toLowerCase(Locale.ROOT)).append(" join ").append(hop.table()).append(' ').append(alias)
+                    .append(" on ").append(alias).append('.').append(hop.column()).append(" = ").append(parent).append('.').append(hop.parentColumn());
+            return alias;
+        }
+
+        private String alias() {
+            return "t" + aliases++;
+        }
+
+        private static Sql combine(List<Sql> predicates, boolean disjunction) {
+            if (predicates.isEmpty()) {
+                return new Sql().append(disjunction ? "1=0" : "1=1");
+            }
+            if (predicates.size() == 1) {
+                return predicates.get(0);
+            }
+            var sql = new Sql().append("(");
+            for (var i = 0; i < predicates.size(); ++i) {
+                (i > 0 ? sql.append(disjunction ? " or " : " and ") : sql).append(predicates.get(i));
+            }
+            return sql.append(")");
+        }
+
+        /**
+         * The predicates and {@literal EXISTS} subqueries of the specification or of one of its nested groups.
+         */
+        private final class Scope {
+
+            private final boolean nested;
+            private final List<Sql> predicates = new ArrayList<>();
+            private final Map<String, SemiJoin> semiJoins = new LinkedHashMap<>();
+
+            Scope(boolean nested) {
+                this.nested = nested;
+            }
+
+            SemiJoin semiJoin(TableMapping.ColumnPath path, JoinType type, boolean separate) {
+                int collection = path.collection();
+                var key = type.name() + '.' + String.join(".", List.of(path.fields()).subList(0, collection + 1));
+                if (separate) {
+                    key += "#" + semiJoins.size();
+                }
+                return semiJoins.computeIfAbsent(key, k -> new SemiJoin(
+                        join(joins, from, ROOT, path, 0, collection, type, separate), path.steps().get(collection)));
+            }
+
+            Sql toSql(boolean disjunction) {
+                semiJoins.values().forEach(s -> predicates.add(s.toSql(disjunction)));
+                return combine(predicates, disjunction);
+            }
+        }
+
+        /**
+         * A correlated {@literal EXISTS} subquery on a collection, shared by all criteria on that collection.
+         */
+        private final class SemiJoin {
+
+            private final StringBuilder from = new StringBuilder();
+            private final String correlation;
+            private final String element;
+            private final Map<String, String> joins = new HashMap<>();
+            private final List<Sql> predicates = new ArrayList<>();
+
+            SemiJoin(String parent, TableMapping.Step collection) {
+                List<TableMapping.Hop> hops = collection.hops();
+                String alias = alias();
+                from.append(hops.get(0).table()).append(' ').append(alias);
+                correlation = alias + '.' + hops.get(0).column() + " = " + parent + '.' + hops.get(0).parentColumn();
+                // the join table of a many-to-many collection is joined to its element within the subquery
+                for (TableMapping.Hop hop : hops.subList(1, hops.size())) {
+                    alias = join(from, alias, hop, JoinType.INNER);
+                }
+                element = alias;
+                ++joinCount;
+            }
+
+            Sql toSql(boolean disjunction) {
+                return new Sql().append("exists (select 1 from ").append(from.toString())
+                        .append(" where ").append(correlation).append(" and ").append(combine(predicates, disjunction)).append(")");
+            }
+        }
+    }
+}
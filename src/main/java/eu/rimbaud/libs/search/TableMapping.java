@@ -0,0 +1,262 @@
+package eu.rimbaud.libs.search;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.metamodel.mapping.BasicEntityIdentifierMapping;
+import org.hibernate.metamodel.mapping.BasicValuedModelPart;
+import org.hibernate.metamodel.mapping.EmbeddableValuedModelPart;
+import org.hibernate.metamodel.mapping.EntityAssociationMapping;
+import org.hibernate.metamodel.mapping.EntityMappingType;
+import org.hibernate.metamodel.mapping.ForeignKeyDescriptor;
+import org.hibernate.metamodel.mapping.ModelPart;
+import org.hibernate.metamodel.mapping.ModelPartContainer;
+import org.hibernate.metamodel.mapping.PluralAttributeMapping;
+import org.hibernate.persister.collection.AbstractCollectionPersister;
+import org.hibernate.persister.entity.EntityPersister;
+
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Maps the field paths of an entity type to the tables and columns of the database, from the mapping model of Hibernate,
+ * the JPA metamodel not holding the names of the columns. Each path is resolved once, then kept.
+ * <p>The supported mappings are the ones of a single table entity, without inheritance, with a basic identifier:
+ * the basic attributes, the embeddables, the to-one relationships and the one-to-many and many-to-many collections of
+ * entities, the foreign keys being on one column. The attributes converted by an {@literal AttributeConverter} and the
+ * enumerations are not supported, their values not being bound as is.</p>
+ */
+final class TableMapping {
+
+    private final EntityPersister persister;
+    private final String table;
+    private final String idColumn;
+    private final Class<?> idType;
+    private final String likeEscape;
+    private final Map<List<String>, ColumnPath> paths = new ConcurrentHashMap<>();
+
+    private TableMapping(EntityPersister persister, Dialect dialect) {
+        this.persister = checkSingleTable(persister, null);
+        BasicEntityIdentifierMapping id = identifier(persister);
+        this.table = id.getContainingTableExpression();
+        this.idColumn = id.getSelectionExpression();
+        this.idType = wrap(id.getJavaType().getJavaTypeClass());
+        // rendered as the dialect does, e.g. with the backslash doubled on MySQL
+        var escape = new StringBuilder(" escape ");
+        dialect.appendLiteral(escape::append, String.valueOf(SearchCriterion.LIKE_ESCAPE));
+        this.likeEscape = escape.toString();
+    }
+
+    /**
+     * Create the {@link TableMapping} of an entity type
+     *
+     * @param entityManagerFactory the entity manager factory of the entity, from Hibernate
+     * @param domainClass          the entity type
+     * @return the mapping
+     * @throws UnsupportedOperationException if the entity is not mapped to a single table, e.g. with inheritance or a discriminator,
+     *                                       or has no basic identifier
+     */
+    static TableMapping of(EntityManagerFactory entityManagerFactory, Class<?> domainClass) {
+        var sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+        return new TableMapping(sessionFactory.getMappingMetamodel().getEntityDescriptor(domainClass),
+                sessionFactory.getJdbcServices().getDialect());
+    }
+
+    /**
+     * Get the table of the entity
+     *
+     * @return the table name, as rendered in SQL
+     */
+    String table() {
+        return table;
+    }
+
+    /**
+     * Get the identifier column of the entity
+     *
+     * @return the column name, as rendered in SQL
+     */
+    String idColumn() {
+        return idColumn;
+    }
+
+    /**
+     * Get the type of the identifier of the entity
+     *
+     * @return the identifier type, primitive types being boxed
+     */
+    Class<?> idType() {
+        return idType;
+    }
+
+    /**
+     * Get the escape clause of the "like" patterns built from a value, see {@link SearchCriterion#LIKE_ESCAPE}
+     *
+     * @return the clause, with a leading space, the escape character being a literal of the dialect
+     */
+    String likeEscape() {
+        return likeEscape;
+    }
+
+    /**
+     * Resolve a field path into its joins and column
+     *
+     * @param fields the field path
+     * @return the resolved path
+     * @throws IllegalArgumentException      if a field does not exist, or is not the last one and is not a relationship or an embeddable
+     * @throws UnsupportedOperationException if the mapping of a field is not supported
+     */
+    ColumnPath resolve(String[] fields) {
+        return paths.computeIfAbsent(List.of(fields), this::resolve);
+    }
+
+    private ColumnPath resolve(List<String> fields) {
+        if (fields.isEmpty()) {
+            throw new IllegalArgumentException("Empty field path on " + persister.getEntityName());
+        }
+        String path = String.join(".", fields);
+        List<Step> steps = new ArrayList<>(fields.size() - 1);
+        ModelPartContainer container = persister;
+        String containerTable = table;
+        var collection = -1;
+        for (var i = 0; i < fields.size() - 1; ++i) {
+            ModelPart part = container.findSubPart(fields.get(i), null);
+            if (part instanceof EmbeddableValuedModelPart embeddable) {
+                steps.add(new Step(List.of(), false));
+                container = embeddable.getEmbeddableTypeDescriptor();
+            } else if (part instanceof EntityAssociationMapping toOne) {
+                EntityMappingType target = toOne.getAssociatedEntityMappingType();
+                ForeignKeyDescriptor fk = toOne.getForeignKeyDescriptor();
+                String key = column(fk.getKeyPart(), path);
+                String referenced = column(fk.getTargetPart(), path);
+                Hop hop = toOne.getSideNature() == ForeignKeyDescriptor.Nature.KEY
+                        ? new Hop(fk.getTargetTable(), referenced, key)
+                        : new Hop(fk.getKeyTable(), key, referenced);
+                steps.add(new Step(List.of(hop), false));
+                container = checkSingleTable(target.getEntityPersister(), path);
+                containerTable = identifier(target.getEntityPersister()).getContainingTableExpression();
+            } else if (part instanceof PluralAttributeMapping plural
+                    && plural.getCollectionDescriptor() instanceof AbstractCollectionPersister collectionPersister
+                    && collectionPersister.getElementPersister() != null) {
+                EntityPersister element = checkSingleTable(collectionPersister.getElementPersister(), path);
+                BasicEntityIdentifierMapping owner = identifier(persister(container, path));
+                BasicEntityIdentifierMapping elementId = identifier(element);
+                String key = singleColumn(collectionPersister.getKeyColumnNames(), path);
+                steps.add(new Step(collectionPersister.isManyToMany()
+                        ? List.of(new Hop(collectionPersister.getTableName(), key, owner.getSelectionExpression()),
+                        new Hop(elementId.getContainingTableExpression(), elementId.getSelectionExpression(),
+                                singleColumn(collectionPersister.getElementColumnNames(), path)))
+                        : List.of(new Hop(elementId.getContainingTableExpression(), key, owner.getSelectionExpression())), true));
+                if (collection < 0) {
+                    collection = i;
+                }
+                container = element;
+                containerTable = elementId.getContainingTableExpression();
+            } else if (part instanceof PluralAttributeMapping) {
+                throw new UnsupportedOperationException("Only the collections of entities are supported: " + path);
+            } else if (part == null) {
+                throw new IllegalArgumentException("No attribute '" + fields.get(i) + "' for path " + path);
+            } else {
+                throw new IllegalArgumentException("Attribute '" + fields.get(i) + "' cannot be navigated for path " + path);
+            }
+        }
+        ModelPart last = container.findSubPart(fields.get(fields.size() - 1), null);
+        if (last == null) {
+            throw new IllegalArgumentException("No attribute '" + fields.get(fields.size() - 1) + "' for path " + path);
+        }
+        if (!(last instanceof BasicValuedModelPart basic)) {
+            throw new UnsupportedOperationException("Only basic attributes can be compared in SQL: " + path);
+        }
+        if (!basic.getContainingTableExpression().equals(containerTable)) {
+            throw new UnsupportedOperationException("Attribute on a secondary table: " + path);
+        }
+        Class<?> javaType = basic.getJavaType().getJavaTypeClass();
+        if (javaType.isEnum() || basic.getJdbcMapping().getValueConverter() != null) {
+            throw new UnsupportedOperationException("Converted attributes are not supported: " + path);
+        }
+        return new ColumnPath(fields.toArray(String[]::new), List.copyOf(steps), basic.getSelectionExpression(), wrap(javaType), collection);
+    }
+
+    /**
+     * Check that an entity is mapped to a single table, without inheritance nor discriminator restricting its rows
+     *
+     * @param entity the entity, the root or the target of a relationship
+     * @param path   the field path of the relationship, or {@literal null} for the root
+     * @return the entity
+     */
+    private static EntityPersister checkSingleTable(EntityPersister entity, String path) {
+        if (entity.getEntityMetamodel().isInherited() || entity.getEntityMetamodel().hasSubclasses()
+                || entity.getDiscriminatorMapping() != null) {
+            throw new UnsupportedOperationException("Entities with inheritance are not supported: " + entity.getEntityName()
+                    + (path != null ? " for path " + path : ""));
+        }
+        return entity;
+    }
+
+    private EntityPersister persister(ModelPartContainer container, String path) {
+        if (!(container instanceof EntityMappingType entity)) {
+            throw new UnsupportedOperationException("Collections within an embeddable are not supported: " + path);
+        }
+        return entity.getEntityPersister();
+    }
+
+    private static BasicEntityIdentifierMapping identifier(EntityPersister entity) {
+        if (!(entity.getIdentifierMapping() instanceof BasicEntityIdentifierMapping id)) {
+            throw new UnsupportedOperationException("A basic identifier is required: " + entity.getEntityName());
+        }
+        return id;
+    }
+
+    private static String column(ModelPart part, String path) {
+        if (!(part instanceof BasicValuedModelPart basic)) {
+            throw new UnsupportedOperationException("Foreign keys on several columns are not supported: " + path);
+        }
+        return basic.getSelectionExpression();
+    }
+
+    private static String singleColumn(String[] columns, String path) {
+        if (columns.length != 1) {
+            throw new UnsupportedOperationException("Foreign keys on several columns are not supported: " + path);
+        }
+        return columns[0];
+    }
+
+    private static Class<?> wrap(Class<?> type) {
+        return MethodType.methodType(type).wrap().returnType();
+    }
+
+    /**
+     * A field path resolved into its joins and column
+     *
+     * @param fields     the field path
+     * @param steps      the step of each field but the last one
+     * @param column     the column of the last field, in the table of the last join
+     * @param javaType   the type of the values of the column, primitive types being boxed
+     * @param collection the index of the first collection-valued field, or -1 if there is none
+     */
+    record ColumnPath(String[] fields, List<Step> steps, String column, Class<?> javaType, int collection) {
+    }
+
+    /**
+     * The joins navigating one field of a path: none for an embeddable, one for a to-one relationship or a one-to-many
+     * collection, two for a many-to-many collection, through its join table
+     *
+     * @param hops       the joins, in order
+     * @param collection whether the field is a collection
+     */
+    record Step(List<Hop> hops, boolean collection) {
+    }
+
+    /**
+     * A join: <code>table alias on alias.column = parent.parentColumn</code>
+     *
+     * @param table        the joined table
+     * @param column       the column of the joined table
+     * @param parentColumn the column of the table it is joined to
+     */
+    record Hop(String table, String column, String parentColumn) {
+    }
+}
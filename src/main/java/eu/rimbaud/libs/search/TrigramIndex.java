@@ -0,0 +1,362 @@
+package eu.rimbaud.libs.search;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Root;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+
+/**
+ * An in-memory trigram index on a {@literal String} field of an entity, used by {@link SearchSpecification} to resolve
+ * {@link SearchOperationEnum#LIKE} and {@link SearchOperationEnum#CONTAINS_IGNORE_CASE} criteria into an
+ * "in" on the entity identifiers, instead of a <code>lower(field) like '%value%'</code> scanning the whole table.
+ * <p>Each lower case trigram of the indexed values has a posting list of the identifiers holding it, as a sorted
+ * <code>long[]</code>. A lookup intersects the posting lists of the trigrams of the searched value, then checks the
+ * candidates against the indexed values. Values shorter than 3 characters cannot be looked up.</p>
+ * <p>The index is filled by {@link #load(EntityManager)}, then kept up to date through the Hibernate post insert, update
+ * and delete events, once committed: the changes rolled back are never indexed, and the lookups do not see the changes
+ * of the transactions in progress, their own included. The number of indexed entities
+ * is bounded: beyond <code>maxEntries</code>, the index is cleared and disabled, the criteria falling back to "like",
+ * until the next {@literal load}.</p>
+ * <p>The index requires Hibernate and a {@literal Long} or {@literal Integer} identifier. It is thread-safe.</p>
+ *
+ * @param <T> the type of the indexed entity
+ */
+public class TrigramIndex<T> implements AutoCloseable {
+
+    private final Class<T> domainClass;
+    private final String idField;
+    private final String field;
+    private final int maxEntries;
+    private final Function<Long, Object> idConverter;
+    private final Function<Object, Object> idGetter;
+    private final Function<Object, Object> valueGetter;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, String> values = new HashMap<>();
+    private final Map<Long, Postings> postings = new HashMap<>();
+    private volatile long version;
+    private volatile boolean enabled = true;
+    private volatile boolean closed;
+    private final Runnable unsubscribe;
+
+    /**
+     * Construct a {@link TrigramIndex} and register it to the entity events of the persistence unit
+     *
+     * @param entityManagerFactory the entity manager factory, backed by Hibernate
+     * @param domainClass          the entity type, must not be {@literal null}.
+     * @param field                the indexed {@literal String} field, must not be {@literal null}.
+     * @param maxEntries           the maximum number of indexed entities
+     * @throws IllegalArgumentException if the entity identifier is not a {@literal Long} or an {@literal Integer}
+     */
+    public TrigramIndex(EntityManagerFactory entityManagerFactory, Class<T> domainClass, String field, int maxEntries) {
+        var entityType = entityManagerFactory.getMetamodel().entity(domainClass);
+        Class<?> idType = entityType.getIdType().getJavaType();
+        if (idType != Long.class && idType != Integer.class) {
+            throw new IllegalArgumentException("A Long or Integer identifier is required: " + domainClass.getName());
+        }
+        this.domainClass = domainClass;
+        this.idField = entityType.getId(idType).getName();
+        this.field = field;
+        this.maxEntries = maxEntries;
+        this.idConverter = idType == Long.class ? id -> id : id -> (int) (long) id;
+        this.idGetter = Accessors.get(domainClass, idField).getter();
+        this.valueGetter = Accessors.get(domainClass, field).getter();
+        this.unsubscribe = EntityEvents.subscribe(entityManagerFactory, new EntityEvents.Subscriber() {
+            @Override
+            public void onCommittedWrite(Class<?> type, Object entity) {
+                if (!closed && domainClass.isInstance(entity)) {
+                    put(domainClass.cast(entity));
+                }
+            }
+
+            @Override
+            public void onCommittedDelete(Class<?> type, Object entity) {
+                if (!closed && domainClass.isInstance(entity)) {
+                    remove(domainClass.cast(entity));
+                }
+            }
+        });
+    }
+
+    /**
+     * Clear the index and fill it with the values of all entities
+     *
+     * @param entityManager the entity manager the values are read with
+     */
+    public void load(EntityManager entityManager) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Object[]> query = cb.createQuery(Object[].class);
+        Root<T> root = query.from(domainClass);
+        query.multiselect(root.get(idField), root.get(field));
+        lock.writeLock().lock();
+        try {
+            clear();
+            enabled = true;
+            try (var rows = entityManager.createQuery(query).getResultStream()) {
+                rows.forEach(row -> index(((Number) row[0]).longValue(), (String) row[1]));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Add or replace the value of an entity
+     *
+     * @param entity the entity
+     */
+    public void put(T entity) {
+        lock.writeLock().lock();
+        try {
+            long id = id(entity);
+            remove(id);
+            index(id, (String) valueGetter.apply(entity));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Remove the value of an entity
+     *
+     * @param entity the entity
+     */
+    public void remove(T entity) {
+        lock.writeLock().lock();
+        try {
+            remove(id(entity));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Check whether the index can be looked up, i.e. it is not closed and the number of entities did not exceed the maximum
+     *
+     * @return true if the index is enabled
+     */
+    public boolean isEnabled() {
+        return enabled && !closed;
+    }
+
+    /**
+     * Get the number of indexed entities
+     *
+     * @return the number of entities with a non {@literal null} value
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return values.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Release the index, which then stops following the entity events and is never looked up
+     */
+    @Override
+    public void close() {
+        lock.writeLock().lock();
+        try {
+            closed = true;
+            unsubscribe.run();
+            clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    Class<T> getDomainClass() {
+        return domainClass;
+    }
+
+    String getIdField() {
+        return idField;
+    }
+
+    String getField() {
+        return field;
+    }
+
+    /**
+     * Get the version of the index, incremented on each change
+     *
+     * @return the version
+     */
+    long getVersion() {
+        return version;
+    }
+
+    /**
+     * Find the identifiers of the entities whose value contains a string, ignoring case
+     *
+     * @param needle the searched string
+     * @return the sorted identifiers, or {@literal null} if the index cannot be looked up for that string
+     */
+    List<Object> lookup(String needle) {
+        String lower = needle.toLowerCase(Locale.ROOT);
+        if (lower.length() < 3 || !isEnabled()) {
+            return null;
+        }
+        lock.readLock().lock();
+        try {
+            if (!isEnabled()) {
+                return null;
+            }
+            long[] keys = Arrays.stream(trigrams(lower)).distinct().toArray();
+            List<Postings> lists = new ArrayList<>(keys.length);
+            for (long key : keys) {
+                Postings list = postings.get(key);
+                if (list == null) {
+                    return List.of();
+                }
+                lists.add(list);
+            }
+            lists.sort(Comparator.comparingInt(p -> p.size));
+            long[] candidates = Arrays.copyOf(lists.get(0).ids, lists.get(0).size);
+            int size = candidates.length;
+            for (var i = 1; i < lists.size() && size > 0; ++i) {
+                size = lists.get(i).retain(candidates, size);
+            }
+            List<Object> ids = new ArrayList<>(size);
+            for (var i = 0; i < size; ++i) {
+                if (values.get(candidates[i]).contains(lower)) {
+                    ids.add(idConverter.apply(candidates[i]));
+                }
+            }
+            return ids;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private long id(Object entity) {
+        return ((Number) idGetter.apply(entity)).longValue();
+    }
+
+    private void index(long id, String value) {
+        if (value == null || !isEnabled()) {
+            return;
+        }
+        if (values.size() >= maxEntries) {
+            enabled = false;
+            clear();
+            return;
+        }
+        String lower = value.toLowerCase(Locale.ROOT);
+        values.put(id, lower);
+        for (long key : trigrams(lower)) {
+            postings.computeIfAbsent(key, k -> new Postings()).add(id);
+        }
+        ++version;
+    }
+
+    private void remove(long id) {
+        String lower = values.remove(id);
+        if (lower == null) {
+            return;
+        }
+        for (long key : trigrams(lower)) {
+            Postings list = postings.get(key);
+            if (list != null && list.remove(id) && list.size == 0) {
+                postings.remove(key);
+            }
+        }
+        ++version;
+    }
+
+    private void clear() {
+        values.clear();
+        postings.clear();
+        ++version;
+    }
+
+    /**
+     * Encode the trigrams of a string, each of them as the 3 chars packed in a {@literal long}
+     *
+     * @param s the string
+     * @return the trigrams, with duplicates
+     */
+    private static long[] trigrams(String s) {
+        long[] keys = new long[Math.max(s.length() - 2, 0)];
+        for (var i = 0; i < keys.length; ++i) {
+            keys[i] = (long) s.charAt(i) << 32 | (long) s.charAt(i + 1) << 16 | s.charAt(i + 2);
+        }
+        return keys;
+    }
+
+    /**
+     * A sorted posting list of identifiers, without duplicates
+     */
+    private static final class Postings {
+
+        private long[] ids = new long[4];
+        private int size;
+
+        void add(long id) {
+            if (size > 0 && ids[size - 1] >= id) {
+                int index = Arrays.binarySearch(ids, 0, size, id);
+                if (index >= 0) {
+                    return;
+                }
+                insert(-index - 1, id);
+            } else {
+                insert(size, id);
+            }
+        }
+
+        boolean remove(long id) {
+            int index = Arrays.binarySearch(ids, 0, size, id);
+            if (index < 0) {
+                return false;
+            }
+            System.arraycopy(ids, index + 1, ids, index, size - index - 1);
+            --size;
+            return true;
+        }
+
+        /**
+         * Retain the sorted candidates present in the posting list
+         *
+         * @param candidates the sorted candidates, compacted in place
+         * @param length     the number of candidates
+         * @return the number of retained candidates
+         */
+        int retain(long[] candidates, int length) {
+            int retained = 0;
+            var j = 0;
+            for (var i = 0; i < length && j < size; ++i) {
+                while (j < size && ids[j] < candidates[i]) {
+                    ++j;
+                }
+                if (j < size && ids[j] == candidates[i]) {
+                    candidates[retained++] = candidates[i];
+                }
+            }
+            return retained;
+        }
+
+        private void insert(int index, long id) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size + (size >> 1) + 1);
+            }
+            System.arraycopy(ids, index, ids, index + 1, size - index);
+            ids[index] = id;
+            ++size;
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package eu.rimbaud.libs.search.entity;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.experimental.FieldNameConstants;
+
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor(access = AccessLevel.PROTECTED, force = true)
+@FieldNameConstants
+@Getter
+@Entity
+@Table
+public class Author {
+
+    @Id
+    @GeneratedValue
+    private final Long id;
+
+    private final String name;
+
+    private final String country;
+
+}
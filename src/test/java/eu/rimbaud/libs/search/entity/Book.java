@@ -3,14 +3,22 @@ package eu.rimbaud.libs.search.entity;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.Id;
+import jakarta.persistence.ManyToMany;
+import jakarta.persistence.ManyToOne;
 import jakarta.persistence.Table;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Getter;
+import lombok.NoArgsConstructor;
 import lombok.experimental.FieldNameConstants;
 
 import java.time.LocalDate;
+import java.util.List;
 
 @Builder
+@AllArgsConstructor
+@NoArgsConstructor(access = AccessLevel.PROTECTED, force = true)
 @FieldNameConstants
 @Getter
 @Entity
@@ -27,4 +35,10 @@ public class Book {
 
     private final LocalDate publicationDate;
 
+    @ManyToMany
+    private final List<Author> authors;
+
+    @ManyToOne
+    private final Author illustrator;
+
 }
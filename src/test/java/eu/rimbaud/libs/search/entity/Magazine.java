@@ -0,0 +1,17 @@
+package eu.rimbaud.libs.search.entity;
+
+import jakarta.persistence.Entity;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.experimental.FieldNameConstants;
+
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@FieldNameConstants
+@Getter
+@Entity
+public class Magazine extends Periodical {
+
+    private String publisher;
+
+}
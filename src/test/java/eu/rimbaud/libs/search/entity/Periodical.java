@@ -0,0 +1,28 @@
+package eu.rimbaud.libs.search.entity;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.Id;
+import jakarta.persistence.Inheritance;
+import jakarta.persistence.InheritanceType;
+import jakarta.persistence.Table;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.experimental.FieldNameConstants;
+
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@FieldNameConstants
+@Getter
+@Entity
+@Table
+@Inheritance(strategy = InheritanceType.SINGLE_TABLE)
+public class Periodical {
+
+    @Id
+    @GeneratedValue
+    private Long id;
+
+    private String name;
+
+}
@@ -0,0 +1,212 @@
+package eu.rimbaud.libs.search.search;
+
+import eu.rimbaud.libs.search.AsyncSearchExecutor;
+import eu.rimbaud.libs.search.SearchSpecification;
+import eu.rimbaud.libs.search.entity.Book;
+import eu.rimbaud.libs.search.repository.BookRepository;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.QueryTimeoutException;
+import org.h2.api.Trigger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class AsyncSearchTest {
+
+    /**
+     * Run by the queries on the books while they run, if set.
+     */
+    static final AtomicReference<Runnable> SELECTING = new AtomicReference<>();
+
+    @Autowired
+    BookRepository bookRepository;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    DataSource dataSource;
+
+    @BeforeEach
+    void beforeEach() {
+        bookRepository.saveAll(IntStream.range(0, 20)
+                .mapToObj(i -> Book.builder().title("Volume " + i).build())
+                .toList());
+        new JdbcTemplate(dataSource).execute("create trigger book_selecting before select on book call \"" + SelectingTrigger.class.getName() + "\"");
+    }
+
+    @AfterEach
+    void afterEach() {
+        SELECTING.set(null);
+        new JdbcTemplate(dataSource).execute("drop trigger book_selecting");
+        bookRepository.deleteAll();
+    }
+
+    @Test
+    void givenSeveralSearches_whenRunAsynchronously_thenAllComplete() {
+        try (var executor = new AsyncSearchExecutor<>(entityManagerFactory, Book.class, 2, Duration.ofSeconds(10))) {
+            final var futures = IntStream.range(0, 10)
+                    .mapToObj(i -> executor.findAll(new SearchSpecification<Book>().add(Book.Fields.title).eq("Volume " + i), Sort.unsorted()))
+                    .toList();
+            final var count = executor.count(new SearchSpecification<Book>().add(Book.Fields.title).like("volume 1"));
+            final var ids = executor.findIds(new SearchSpecification<>(), Sort.by(Book.Fields.id));
+            assertThat(futures.stream().map(CompletableFuture::join).toList()).allSatisfy(l -> assertThat(l).hasSize(1));
+            assertThat(count.join()).isEqualTo(11);
+            assertThat(ids.join()).hasSize(20);
+        }
+    }
+
+    @Test
+    void givenAllPermitsTaken_whenSearch_thenFailsAfterTimeoutWithoutRunning() throws InterruptedException {
+        final var release = new CountDownLatch(1);
+        final var started = new CountDownLatch(1);
+        final var runs = new AtomicInteger();
+        try (var executor = new AsyncSearchExecutor<>(entityManagerFactory, Book.class, 1, Duration.ofSeconds(10))) {
+            final var blocking = executor.count(new SearchSpecification<Book>()
+                    .listener(e -> {
+                        started.countDown();
+                        await(release);
+                    })
+                    .add(Book.Fields.title).eq("Volume 1"));
+            started.await();
+            final var waiting = executor.count(new SearchSpecification<Book>()
+                    .listener(e -> runs.incrementAndGet())
+                    .add(Book.Fields.title).eq("Volume 2"), Duration.ofMillis(100));
+            assertThatThrownBy(waiting::get).isInstanceOf(ExecutionException.class)
+                    .hasCauseInstanceOf(QueryTimeoutException.class);
+            release.countDown();
+            assertThat(blocking.join()).isEqualTo(1);
+            assertThat(runs).hasValue(0);
+            assertThat(executor.availablePermits()).isEqualTo(1);
+        }
+    }
+
+    @Test
+    void givenWaitingSearch_whenCancelled_thenNeverRuns() throws InterruptedException {
+        final var release = new CountDownLatch(1);
+        final var started = new CountDownLatch(1);
+        final var runs = new AtomicInteger();
+        try (var executor = new AsyncSearchExecutor<>(entityManagerFactory, Book.class, 1, Duration.ofSeconds(10))) {
+            final var blocking = executor.findIds(new SearchSpecification<Book>()
+                    .listener(e -> {
+                        started.countDown();
+                        await(release);
+                    }), Sort.unsorted());
+            started.await();
+            final var cancelled = executor.findIds(new SearchSpecification<Book>()
+                    .listener(e -> runs.incrementAndGet()), Sort.unsorted());
+            assertThat(cancelled.cancel(true)).isTrue();
+            release.countDown();
+            assertThat(blocking.join()).hasSize(20);
+            final List<Object> next = executor.findIds(new SearchSpecification<>(), Sort.unsorted()).join();
+            assertThat(next).hasSize(20);
+        }
+        assertThat(runs).hasValue(0);
+    }
+
+    @Test
+    void givenTimeout_whenQueryRunsLonger_thenStatementTimesOut() {
+        addVolumes();
+        final var runs = new AtomicInteger();
+        SELECTING.set(() -> {
+            runs.incrementAndGet();
+            sleep(Duration.ofMillis(1_500));
+        });
+        try (var executor = new AsyncSearchExecutor<>(entityManagerFactory, Book.class, 1, Duration.ofSeconds(1))) {
+            final var search = executor.count(new SearchSpecification<Book>().add(Book.Fields.title).like("volume"));
+            assertThatThrownBy(search::get).isInstanceOf(ExecutionException.class)
+                    .hasCauseInstanceOf(QueryTimeoutException.class);
+        }
+        assertThat(runs).hasValue(1);
+    }
+
+    @Test
+    void givenRunningSearch_whenCancelled_thenStatementIsCancelled() throws InterruptedException {
+        addVolumes();
+        final var started = new CountDownLatch(1);
+        final var release = new CountDownLatch(1);
+        final var completed = new AtomicInteger();
+        SELECTING.set(() -> {
+            started.countDown();
+            await(release);
+        });
+        try (var executor = new AsyncSearchExecutor<>(entityManagerFactory, Book.class, 1, Duration.ofSeconds(10))) {
+            final var search = executor.count(new SearchSpecification<Book>()
+                    .listener(e -> completed.incrementAndGet())
+                    .add(Book.Fields.title).like("volume"));
+            started.await();
+            assertThat(search.cancel(true)).isTrue();
+            release.countDown();
+        }
+        assertThat(completed).hasValue(0);
+    }
+
+    @Test
+    void givenNonPositiveTimeout_whenSearch_thenFails() {
+        try (var executor = new AsyncSearchExecutor<>(entityManagerFactory, Book.class, 1, Duration.ofSeconds(1))) {
+            assertThatIllegalArgumentException().isThrownBy(() -> executor.count(new SearchSpecification<>(), Duration.ZERO));
+        }
+    }
+
+    /**
+     * Add enough books for H2 to check whether a query is cancelled or timed out while scanning them.
+     */
+    private void addVolumes() {
+        bookRepository.saveAll(IntStream.range(20, 300)
+                .mapToObj(i -> Book.builder().title("Volume " + i).build())
+                .toList());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void sleep(Duration duration) {
+        try {
+            Thread.sleep(duration);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Runs {@link #SELECTING} before each query on the books, so that a query lasts as long as needed.
+     */
+    public static class SelectingTrigger implements Trigger {
+
+        @Override
+        public void fire(Connection connection, Object[] oldRow, Object[] newRow) {
+            Runnable selecting = SELECTING.get();
+            if (selecting != null) {
+                selecting.run();
+            }
+        }
+    }
+}
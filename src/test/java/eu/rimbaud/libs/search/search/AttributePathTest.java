@@ -0,0 +1,101 @@
+package eu.rimbaud.libs.search.search;
+
+import eu.rimbaud.libs.search.CollectionModeEnum;
+import eu.rimbaud.libs.search.SearchExecutor;
+import eu.rimbaud.libs.search.SearchSpecification;
+import eu.rimbaud.libs.search.entity.Author;
+import eu.rimbaud.libs.search.entity.Book;
+import eu.rimbaud.libs.search.repository.AuthorRepository;
+import eu.rimbaud.libs.search.repository.BookRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+@DataJpaTest
+class AttributePathTest {
+
+    @Autowired
+    BookRepository bookRepository;
+
+    @Autowired
+    AuthorRepository authorRepository;
+
+    @Autowired
+    EntityManager entityManager;
+
+    SearchExecutor<Book> executor;
+
+    @BeforeEach
+    void beforeEach() {
+        executor = new SearchExecutor<>(entityManager, Book.class);
+        final var doyle = Author.builder().name("Conan Doyle").country("UK").build();
+        authorRepository.saveAndFlush(doyle);
+        bookRepository.saveAllAndFlush(List.of(
+                Book.builder()
+                        .title("Arsène Lupin contre Herlock Sholmès")
+                        .publicationDate(LocalDate.of(1908, 1, 1))
+                        .authors(List.of(doyle))
+                        .illustrator(doyle)
+                        .build(),
+                Book.builder()
+                        .title("Le Petit Prince")
+                        .publicationDate(LocalDate.of(1943, 4, 6))
+                        .build()
+        ));
+    }
+
+    @Test
+    void givenMetamodel_whenSearch_thenPathsAreResolved() {
+        final var spec = executor.specification()
+                .add(Book.Fields.authors, Author.Fields.country).eq("UK")
+                .add(Book.Fields.illustrator, Author.Fields.name).like("doyle")
+                .add(Book.Fields.publicationDate).between(LocalDate.of(1900, 1, 1), LocalDate.of(1910, 1, 1));
+        assertThat(executor.findAll(spec)).extracting(Book::getTitle).containsExactly("Arsène Lupin contre Herlock Sholmès");
+        assertThat(bookRepository.findAll(spec.collectionMode(CollectionModeEnum.EXISTS))).hasSize(1);
+    }
+
+    @Test
+    void givenMetamodel_whenUnknownField_thenFailsOnAdd() {
+        assertThatIllegalArgumentException()
+                .isThrownBy(() -> executor.specification().add(Book.Fields.authors, "nationality"))
+                .withMessageContaining("nationality");
+    }
+
+    @Test
+    void givenMetamodel_whenNavigatingBasicField_thenFailsOnAdd() {
+        assertThatIllegalArgumentException()
+                .isThrownBy(() -> executor.specification().add(Book.Fields.title, "length"));
+    }
+
+    @Test
+    void givenMetamodel_whenGroupWithUnknownField_thenFailsOnAdd() {
+        assertThatIllegalArgumentException()
+                .isThrownBy(() -> executor.specification().or(g -> g.add("editor").eq("Gallimard")));
+    }
+
+    @Test
+    void givenMetamodel_whenComparedWithOtherType_thenFailsOnComparison() {
+        final var criterion = executor.specification().add(Book.Fields.publicationDate);
+        assertThatIllegalArgumentException()
+                .isThrownBy(() -> criterion.gt("1908-01-01"))
+                .withMessageContaining(LocalDate.class.getName());
+        assertThatIllegalArgumentException()
+                .isThrownBy(() -> executor.specification().add(Book.Fields.id).between(1, 2));
+    }
+
+    @Test
+    void givenNoMetamodel_whenUnknownField_thenFailsOnConversion() {
+        final var spec = new SearchSpecification<Book>().add("editor").eq("Gallimard");
+        assertThatIllegalArgumentException()
+                .isThrownBy(() -> executor.findAll(spec))
+                .withMessageContaining("editor");
+    }
+}
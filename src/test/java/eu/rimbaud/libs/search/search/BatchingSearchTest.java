@@ -0,0 +1,149 @@
+package eu.rimbaud.libs.search.search;
+
+import eu.rimbaud.libs.search.BatchingSearchExecutor;
+import eu.rimbaud.libs.search.SearchEvent;
+import eu.rimbaud.libs.search.SearchListener;
+import eu.rimbaud.libs.search.SearchSpecification;
+import eu.rimbaud.libs.search.entity.Book;
+import eu.rimbaud.libs.search.repository.BookRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class BatchingSearchTest {
+
+    @Autowired
+    BookRepository bookRepository;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    List<Book> books;
+
+    Statistics statistics;
+
+    @BeforeEach
+    void beforeEach() {
+        books = bookRepository.saveAll(IntStream.range(0, 20)
+                .mapToObj(i -> Book.builder().title("Volume " + i).build())
+                .toList());
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @AfterEach
+    void afterEach() {
+        bookRepository.deleteAll();
+    }
+
+    @Test
+    void givenConcurrentLookups_whenFindOne_thenSingleQueryIsRun() {
+        try (var executor = new BatchingSearchExecutor<>(entityManagerFactory, Book.class, Duration.ofMillis(100), 100)) {
+            final var futures = books.stream()
+                    .map(b -> executor.findOne(Book.Fields.id, b.getId()))
+                    .toList();
+            assertThat(futures.stream().map(CompletableFuture::join).map(Book::getTitle).toList())
+                    .isEqualTo(books.stream().map(Book::getTitle).toList());
+        }
+        assertThat(statistics.getQueryExecutionCount()).isEqualTo(1);
+    }
+
+    @Test
+    void givenFullBatch_whenFindAll_thenBatchIsRunWithoutWaitingWindow() {
+        try (var executor = new BatchingSearchExecutor<>(entityManagerFactory, Book.class, Duration.ofHours(1), 5)) {
+            final var futures = books.subList(0, 10).stream()
+                    .map(b -> executor.findAll(new SearchSpecification<Book>().add(Book.Fields.title).eq(b.getTitle())))
+                    .toList();
+            assertThat(futures.stream().map(CompletableFuture::join).toList()).allSatisfy(l -> assertThat(l).hasSize(1));
+        }
+        assertThat(statistics.getQueryExecutionCount()).isEqualTo(2);
+    }
+
+    @Test
+    void givenDuplicatedAndMissingValues_whenFindOne_thenEachCallerGetsItsResult() {
+        try (var executor = new BatchingSearchExecutor<>(entityManagerFactory, Book.class, Duration.ofMillis(50), 100)) {
+            final var first = executor.findOne(Book.Fields.title, "Volume 1");
+            final var again = executor.findOne(Book.Fields.title, "Volume 1");
+            final var missing = executor.findOne(Book.Fields.title, "Le Petit Prince");
+            assertThat(first.join().getTitle()).isEqualTo("Volume 1");
+            assertThat(again.join()).isSameAs(first.join());
+            assertThat(missing.join()).isNull();
+        }
+    }
+
+    @Test
+    void givenIntegerLookupsOnLongId_whenFindOne_thenEntitiesAreFoundInSingleQuery() {
+        try (var executor = new BatchingSearchExecutor<>(entityManagerFactory, Book.class, Duration.ofMillis(50), 100)) {
+            final var first = executor.findOne(Book.Fields.id, Math.toIntExact(books.get(0).getId()));
+            final var second = executor.findOne(Book.Fields.id, books.get(1).getId());
+            assertThat(first.join().getTitle()).isEqualTo(books.get(0).getTitle());
+            assertThat(second.join().getTitle()).isEqualTo(books.get(1).getTitle());
+        }
+        assertThat(statistics.getQueryExecutionCount()).isEqualTo(1);
+    }
+
+    @Test
+    void givenUnknownField_whenFindOne_thenFutureFails() {
+        try (var executor = new BatchingSearchExecutor<>(entityManagerFactory, Book.class, Duration.ofMillis(50), 100)) {
+            final var future = executor.findOne("isbn", "978-2070612758");
+            assertThatThrownBy(future::get).isInstanceOf(ExecutionException.class)
+                    .hasCauseInstanceOf(IllegalArgumentException.class);
+        }
+    }
+
+    @Test
+    void givenLookupsWithListeners_whenFindAll_thenEachListenerIsNotifiedOfItsBatch() {
+        final var first = new CopyOnWriteArrayList<SearchEvent>();
+        final var second = new CopyOnWriteArrayList<SearchEvent>();
+        final SearchListener firstListener = first::add;
+        final SearchListener secondListener = second::add;
+        try (var executor = new BatchingSearchExecutor<>(entityManagerFactory, Book.class, Duration.ofMillis(100), 100)) {
+            final var futures = IntStream.range(0, 4)
+                    .mapToObj(i -> executor.findAll(new SearchSpecification<Book>()
+                            .listener(i % 2 == 0 ? firstListener : secondListener)
+                            .add(Book.Fields.id).eq(books.get(i).getId())))
+                    .toList();
+            assertThat(futures.stream().map(CompletableFuture::join).toList()).allSatisfy(l -> assertThat(l).hasSize(1));
+        }
+        assertThat(statistics.getQueryExecutionCount()).isEqualTo(2);
+        assertThat(first).singleElement().satisfies(e -> assertThat(e.rows()).isEqualTo(2));
+        assertThat(second).singleElement().satisfies(e -> assertThat(e.rows()).isEqualTo(2));
+    }
+
+    @Test
+    void givenOtherSpecification_whenFindAll_thenRunsWithoutBatching() {
+        try (var executor = new BatchingSearchExecutor<>(entityManagerFactory, Book.class, Duration.ofHours(1), 100)) {
+            final var spec = new SearchSpecification<Book>().add(Book.Fields.title).like("volume 1");
+            assertThat(executor.findAll(spec).join()).hasSize(11);
+        }
+    }
+
+    @Test
+    void givenFailingBatch_whenFindOne_thenAllCallersFail() {
+        try (var executor = new BatchingSearchExecutor<>(entityManagerFactory, Book.class, Duration.ofMillis(50), 100)) {
+            final var first = executor.findOne(Book.Fields.id, "one");
+            final var second = executor.findOne(Book.Fields.id, "two");
+            assertThatThrownBy(first::get).isInstanceOf(ExecutionException.class);
+            assertThatThrownBy(second::get).isInstanceOf(ExecutionException.class);
+        }
+    }
+}
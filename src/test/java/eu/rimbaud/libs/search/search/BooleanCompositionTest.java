@@ -0,0 +1,188 @@
+package eu.rimbaud.libs.search.search;
+
+import eu.rimbaud.libs.search.SearchEvent;
+import eu.rimbaud.libs.search.SearchExecutor;
+import eu.rimbaud.libs.search.SearchSpecification;
+import eu.rimbaud.libs.search.entity.Author;
+import eu.rimbaud.libs.search.entity.Book;
+import eu.rimbaud.libs.search.repository.AuthorRepository;
+import eu.rimbaud.libs.search.repository.BookRepository;
+import jakarta.persistence.EntityManager;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class BooleanCompositionTest {
+
+    @Autowired
+    BookRepository bookRepository;
+
+    @Autowired
+    AuthorRepository authorRepository;
+
+    @Autowired
+    EntityManager entityManager;
+
+    SearchExecutor<Book> executor;
+
+    Statistics statistics;
+
+    @BeforeEach
+    void beforeEach() {
+        executor = new SearchExecutor<>(entityManager, Book.class);
+        final var doyle = Author.builder().name("Conan Doyle").country("UK").build();
+        final var leblanc = Author.builder().name("Maurice Leblanc").country("FR").build();
+        authorRepository.saveAllAndFlush(List.of(doyle, leblanc));
+        bookRepository.saveAllAndFlush(List.of(
+                Book.builder()
+                        .title("Arsène Lupin contre Herlock Sholmès")
+                        .publicationDate(LocalDate.of(1908, 1, 1))
+                        .authors(List.of(doyle, leblanc))
+                        .build(),
+                Book.builder()
+                        .title("Le Petit Prince")
+                        .author("Saint-Exupéry")
+                        .publicationDate(LocalDate.of(1943, 4, 6))
+                        .build(),
+                Book.builder()
+                        .title("Charlie et la Chocolaterie")
+                        .author("Roald Dahl")
+                        .publicationDate(LocalDate.of(1964, 1, 1))
+                        .build()
+        ));
+        statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void givenOrGroup_whenFindAll_thenMatchesAnyCriterion() {
+        final var spec = new SearchSpecification<Book>()
+                .add(Book.Fields.publicationDate).gt(LocalDate.of(1900, 1, 1))
+                .or(g -> g
+                        .add(Book.Fields.author).eq("Saint-Exupéry")
+                        .add(Book.Fields.authors, Author.Fields.country).eq("FR"));
+        assertThat(executor.findAll(spec, Sort.by(Book.Fields.publicationDate)))
+                .extracting(Book::getTitle)
+                .containsExactly("Arsène Lupin contre Herlock Sholmès", "Le Petit Prince");
+        assertThat(bookRepository.findAll(spec)).hasSize(2);
+    }
+
+    @Test
+    void givenOrGroupOnCollection_whenFindAll_thenEntitiesAreNotDuplicated() {
+        final var spec = new SearchSpecification<Book>()
+                .or(g -> g
+                        .add(Book.Fields.authors, Author.Fields.country).eq("UK")
+                        .add(Book.Fields.authors, Author.Fields.country).eq("FR"));
+        assertThat(executor.findAll(spec)).hasSize(1);
+        assertThat(executor.count(spec)).isEqualTo(1);
+    }
+
+    @Test
+    void givenNotGroup_whenFindAll_thenNullValuesDoNotMatch() {
+        final var spec = new SearchSpecification<Book>()
+                .not(g -> g.add(Book.Fields.author).eq("Saint-Exupéry"));
+        assertThat(executor.findAll(spec)).extracting(Book::getTitle).containsExactly("Charlie et la Chocolaterie");
+    }
+
+    @Test
+    void givenNotGroupOnCollection_whenFindAll_thenMatchesEntitiesWithoutMatchingElement() {
+        final var spec = new SearchSpecification<Book>()
+                .not(g -> g.add(Book.Fields.authors, Author.Fields.country).eq("FR"));
+        assertThat(executor.findAll(spec)).extracting(Book::getTitle)
+                .containsExactlyInAnyOrder("Le Petit Prince", "Charlie et la Chocolaterie");
+    }
+
+    @Test
+    void givenDisabledGroup_whenFindAll_thenGroupIsIgnored() {
+        final var spec = new SearchSpecification<Book>()
+                .or(g -> g.add(Book.Fields.title).onlyIf(false).eq("Tintin"));
+        assertThat(executor.findAll(spec)).hasSize(3);
+    }
+
+    @Test
+    void givenEqualitiesInOrGroup_whenFindAll_thenMergedIntoIn() {
+        final var events = new ArrayList<SearchEvent>();
+        final var spec = new SearchSpecification<Book>()
+                .listener(events::add)
+                .or(g -> g
+                        .add(Book.Fields.title).eq("Le Petit Prince")
+                        .add(Book.Fields.title).eq("Charlie et la Chocolaterie")
+                        .add(Book.Fields.title).eq("Le Petit Prince"));
+        assertThat(executor.findAll(spec)).hasSize(2);
+        assertThat(events).singleElement().satisfies(e -> assertThat(e.criteria())
+                .contains("operator=IN")
+                .doesNotContain("operator=EQUALS"));
+    }
+
+    @Test
+    void givenEqualitiesWithOtherValues_whenFingerprint_thenIsSame() {
+        final var two = new SearchSpecification<Book>()
+                .or(g -> g.add(Book.Fields.title).eq("a").add(Book.Fields.title).eq("b"));
+        final var inTwo = new SearchSpecification<Book>()
+                .or(g -> g.add(Book.Fields.title).in(List.of("c", "d")));
+        assertThat(two.fingerprint()).isEqualTo(inTwo.fingerprint());
+    }
+
+    @Test
+    void givenLowerAndUpperBounds_whenFindAll_thenMergedIntoBetween() {
+        final var events = new ArrayList<SearchEvent>();
+        final var spec = new SearchSpecification<Book>()
+                .listener(events::add)
+                .add(Book.Fields.publicationDate).gte(LocalDate.of(1908, 1, 1))
+                .add(Book.Fields.publicationDate).lte(LocalDate.of(1943, 4, 6));
+        assertThat(executor.findAll(spec)).hasSize(2);
+        assertThat(events).singleElement().satisfies(e -> assertThat(e.criteria())
+                .contains("operator=BETWEEN")
+                .doesNotContain("operator=GREATER_THAN_EQUAL"));
+    }
+
+    @Test
+    void givenContradictingCriteria_whenSearch_thenNoQueryIsRun() {
+        final var spec = new SearchSpecification<Book>()
+                .add(Book.Fields.publicationDate).eq(LocalDate.of(1908, 1, 1))
+                .add(Book.Fields.publicationDate).gt(LocalDate.of(1943, 4, 6));
+        assertThat(executor.findAll(spec)).isEmpty();
+        assertThat(executor.findIds(spec, PageRequest.of(0, 10))).isEmpty();
+        assertThat(executor.count(spec)).isZero();
+        assertThat(executor.exists(spec)).isFalse();
+        assertThat(statistics.getQueryExecutionCount()).isZero();
+        assertThat(bookRepository.findAll(spec)).isEmpty();
+    }
+
+    @Test
+    void givenStrictlyEmptyInWithinOrGroup_whenFindAll_thenOtherCriteriaApply() {
+        final var spec = new SearchSpecification<Book>()
+                .or(g -> g
+                        .add(Book.Fields.title).strictlyIn(List.of())
+                        .add(Book.Fields.author).eq("Roald Dahl"));
+        assertThat(executor.findAll(spec)).extracting(Book::getTitle).containsExactly("Charlie et la Chocolaterie");
+    }
+
+    @Test
+    void givenNegatedAlwaysFalseGroup_whenFindAll_thenGroupIsIgnored() {
+        final var spec = new SearchSpecification<Book>()
+                .not(g -> g.add(Book.Fields.title).strictlyIn(List.of()));
+        assertThat(executor.findAll(spec)).hasSize(3);
+    }
+
+    @Test
+    void givenStringsDifferingByCase_whenFindAll_thenQueryIsRun() {
+        final var spec = new SearchSpecification<Book>()
+                .add(Book.Fields.title).eq("Le Petit Prince")
+                .add(Book.Fields.title).eq("LE PETIT PRINCE");
+        assertThat(executor.findAll(spec)).hasSizeLessThanOrEqualTo(1);
+        assertThat(statistics.getQueryExecutionCount()).isEqualTo(1);
+    }
+}
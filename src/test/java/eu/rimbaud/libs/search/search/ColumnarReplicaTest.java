@@ -0,0 +1,197 @@
+package eu.rimbaud.libs.search.search;
+
+import eu.rimbaud.libs.search.ColumnarReplica;
+import eu.rimbaud.libs.search.SearchExecutor;
+import eu.rimbaud.libs.search.SearchSpecification;
+import eu.rimbaud.libs.search.entity.Author;
+import eu.rimbaud.libs.search.entity.Book;
+import eu.rimbaud.libs.search.repository.BookRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.params.provider.Arguments.arguments;
+
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ColumnarReplicaTest {
+
+    @Autowired
+    BookRepository bookRepository;
+
+    @Autowired
+    EntityManager entityManager;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    SearchExecutor<Book> executor;
+
+    ColumnarReplica<Book> replica;
+
+    @BeforeEach
+    void beforeEach() {
+        bookRepository.saveAllAndFlush(List.of(
+                Book.builder()
+                        .title("Le Petit Prince")
+                        .author("Saint-Exupéry")
+                        .publicationDate(LocalDate.of(1943, 4, 6))
+                        .build(),
+                Book.builder()
+                        .title("Charlie et la Chocolaterie")
+                        .author("Roald Dahl")
+                        .publicationDate(LocalDate.of(1964, 1, 1))
+                        .build(),
+                Book.builder()
+                        .title("Arsène Lupin contre Herlock Sholmès")
+                        .author("Maurice Leblanc")
+                        .publicationDate(LocalDate.of(1908, 1, 1))
+                        .build(),
+                Book.builder()
+                        .title("813")
+                        .author("Maurice Leblanc")
+                        .build(),
+                Book.builder()
+                        .title("Tintin au Tibet")
+                        .publicationDate(LocalDate.of(1960, 1, 1))
+                        .build()
+        ));
+        executor = new SearchExecutor<>(entityManager, Book.class);
+        replica = new ColumnarReplica<>(executor, 1000, Book.Fields.author, Book.Fields.title, Book.Fields.publicationDate);
+        load(replica);
+    }
+
+    @AfterEach
+    void afterEach() {
+        replica.close();
+        bookRepository.deleteAll();
+    }
+
+    static Stream<Arguments> specifications() {
+        return Stream.of(
+                arguments("none", new SearchSpecification<Book>()),
+                arguments("eq", new SearchSpecification<Book>().add(Book.Fields.author).eq("Maurice Leblanc")),
+                arguments("eq on unknown value", new SearchSpecification<Book>().add(Book.Fields.author).eq("Hergé")),
+                arguments("ne on null", new SearchSpecification<Book>().add(Book.Fields.author).ne("Roald Dahl")),
+                arguments("in", new SearchSpecification<Book>().add(Book.Fields.title).in(List.of("813", "Tintin au Tibet", "Tintin"))),
+                arguments("not in", new SearchSpecification<Book>().add(Book.Fields.author).notIn(List.of("Roald Dahl", "Saint-Exupéry"))),
+                arguments("gt", new SearchSpecification<Book>().add(Book.Fields.publicationDate).gt(LocalDate.of(1943, 4, 6))),
+                arguments("gte", new SearchSpecification<Book>().add(Book.Fields.publicationDate).gte(LocalDate.of(1943, 4, 6))),
+                arguments("lt", new SearchSpecification<Book>().add(Book.Fields.publicationDate).lt(LocalDate.of(1960, 1, 1))),
+                arguments("lte", new SearchSpecification<Book>().add(Book.Fields.publicationDate).lte(LocalDate.of(1960, 1, 1))),
+                arguments("between", new SearchSpecification<Book>()
+                        .add(Book.Fields.publicationDate).between(LocalDate.of(1908, 1, 1), LocalDate.of(1950, 1, 1))),
+                arguments("and", new SearchSpecification<Book>()
+                        .add(Book.Fields.author).eq("Maurice Leblanc")
+                        .add(Book.Fields.publicationDate).lt(LocalDate.of(1950, 1, 1))),
+                arguments("or", new SearchSpecification<Book>()
+                        .or(g -> g.add(Book.Fields.title).eq("813").add(Book.Fields.publicationDate).gt(LocalDate.of(1950, 1, 1)))),
+                arguments("not on null", new SearchSpecification<Book>()
+                        .not(g -> g.add(Book.Fields.author).eq("Saint-Exupéry"))),
+                arguments("nested groups", new SearchSpecification<Book>()
+                        .add(Book.Fields.title).ne("Le Petit Prince")
+                        .or(g -> g
+                                .and(a -> a.add(Book.Fields.author).eq("Maurice Leblanc").add(Book.Fields.publicationDate).gt(LocalDate.of(1900, 1, 1)))
+                                .not(n -> n.add(Book.Fields.publicationDate).lt(LocalDate.of(1950, 1, 1)))))
+        );
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("specifications")
+    void givenSupportedSpecification_whenFindIds_thenSameIdsAsDatabase(String name, SearchSpecification<Book> spec) {
+        final var sort = Sort.by(Book.Fields.id);
+        assertThat(replica.findIds(spec, sort)).isEqualTo(executor.findIds(spec, sort));
+        assertThat(replica.count(spec)).isEqualTo(executor.count(spec));
+        assertThat(replica.getInMemoryCount()).isEqualTo(2);
+        assertThat(replica.getDelegatedCount()).isZero();
+    }
+
+    @Test
+    void givenSortAndPage_whenFindIds_thenSortedAsDatabase() {
+        final var spec = new SearchSpecification<Book>().add(Book.Fields.author).ne("Roald Dahl");
+        final var pageable = PageRequest.of(0, 2, Sort.by(Sort.Order.desc(Book.Fields.publicationDate)));
+        final var page = replica.findIds(spec, pageable);
+        assertThat(page.getContent()).isEqualTo(executor.findIds(spec, pageable).getContent());
+        assertThat(page.getTotalElements()).isEqualTo(3);
+        assertThat(replica.getDelegatedCount()).isZero();
+    }
+
+    @Test
+    void givenUnsupportedCriterion_whenFindIds_thenDelegatedToDatabase() {
+        final var spec = new SearchSpecification<Book>()
+                .add(Book.Fields.title).like("petit")
+                .add(Book.Fields.authors, Author.Fields.country).eq("FR");
+        assertThat(replica.findIds(spec, Sort.unsorted())).isEqualTo(executor.findIds(spec, Sort.unsorted()));
+        assertThat(replica.findIds(new SearchSpecification<>(), Sort.by(Book.Fields.title))).hasSize(5);
+        assertThat(replica.count(new SearchSpecification<Book>().add(Book.Fields.title).gt("A"))).isEqualTo(4);
+        assertThat(replica.getDelegatedCount()).isEqualTo(3);
+    }
+
+    @Test
+    void givenSavedEntity_whenFindIds_thenReplicaIsUpToDate() {
+        final var book = bookRepository.saveAndFlush(Book.builder()
+                .title("Le Petit Nicolas")
+                .author("Goscinny")
+                .publicationDate(LocalDate.of(1959, 3, 29))
+                .build());
+        final var spec = new SearchSpecification<Book>()
+                .add(Book.Fields.publicationDate).between(LocalDate.of(1950, 1, 1), LocalDate.of(1960, 1, 1));
+        assertThat(replica.findIds(spec, Sort.by(Book.Fields.publicationDate))).containsExactly(book.getId(),
+                bookRepository.findAll(new SearchSpecification<Book>().add(Book.Fields.title).eq("Tintin au Tibet")).get(0).getId());
+        assertThat(replica.size()).isEqualTo(6);
+    }
+
+    @Test
+    void givenDeletedEntity_whenCount_thenReplicaIsUpToDate() {
+        final var book = bookRepository.findAll(new SearchSpecification<Book>()
+                .add(Book.Fields.title).eq("813")).get(0);
+        bookRepository.delete(book);
+        assertThat(replica.size()).isEqualTo(4);
+        assertThat(replica.count(new SearchSpecification<Book>().add(Book.Fields.author).eq("Maurice Leblanc"))).isEqualTo(1);
+    }
+
+    @Test
+    void givenRolledBackWrite_whenCount_thenReplicaIsUnchanged() {
+        final var spec = new SearchSpecification<Book>().add(Book.Fields.author).eq("Goscinny");
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            bookRepository.saveAndFlush(Book.builder().title("Le Petit Nicolas").author("Goscinny").build());
+            assertThat(replica.count(spec)).isZero();
+            status.setRollbackOnly();
+        });
+        assertThat(replica.count(spec)).isZero();
+        assertThat(replica.size()).isEqualTo(5);
+        assertThat(replica.getDelegatedCount()).isZero();
+    }
+
+    @Test
+    void givenTooManyEntries_whenLoad_thenReplicaIsDisabledAndSearchesAreDelegated() {
+        try (var small = new ColumnarReplica<>(executor, 2, Book.Fields.author)) {
+            load(small);
+            assertThat(small.isEnabled()).isFalse();
+            assertThat(small.count(new SearchSpecification<Book>().add(Book.Fields.author).eq("Maurice Leblanc"))).isEqualTo(2);
+            assertThat(small.getDelegatedCount()).isEqualTo(1);
+        }
+    }
+
+    private void load(ColumnarReplica<Book> replica) {
+        // the entities are streamed, which needs a transaction
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> replica.load());
+    }
+}
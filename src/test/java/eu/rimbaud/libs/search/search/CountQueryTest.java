@@ -0,0 +1,129 @@
+package eu.rimbaud.libs.search.search;
+
+import eu.rimbaud.libs.search.SearchExecutor;
+import eu.rimbaud.libs.search.SearchSpecification;
+import eu.rimbaud.libs.search.entity.Author;
+import eu.rimbaud.libs.search.entity.Book;
+import eu.rimbaud.libs.search.repository.AuthorRepository;
+import eu.rimbaud.libs.search.repository.BookRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.criteria.JoinType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DataJpaTest
+class CountQueryTest {
+
+    @Autowired
+    BookRepository bookRepository;
+
+    @Autowired
+    AuthorRepository authorRepository;
+
+    @Autowired
+    EntityManager entityManager;
+
+    SearchExecutor<Book> executor;
+
+    @BeforeEach
+    void beforeEach() {
+        executor = new SearchExecutor<>(entityManager, Book.class);
+        final var doyle = Author.builder().name("Conan Doyle").country("UK").build();
+        final var leblanc = Author.builder().name("Maurice Leblanc").country("FR").build();
+        authorRepository.saveAllAndFlush(List.of(doyle, leblanc));
+        bookRepository.saveAllAndFlush(List.of(
+                Book.builder()
+                        .title("Arsène Lupin contre Herlock Sholmès")
+                        .publicationDate(LocalDate.of(1908, 1, 1))
+                        .authors(List.of(doyle, leblanc))
+                        .build(),
+                Book.builder()
+                        .title("Le Petit Prince")
+                        .publicationDate(LocalDate.of(1943, 4, 6))
+                        .build()
+        ));
+        bookRepository.saveAllAndFlush(IntStream.range(0, 10)
+                .mapToObj(i -> Book.builder()
+                        .title("Volume " + i)
+                        .publicationDate(LocalDate.of(2000 + i, 1, 1))
+                        .build())
+                .toList());
+    }
+
+    @Test
+    void givenCriterionOnCollection_whenCount_thenRowsAreNotMultiplied() {
+        final var spec = new SearchSpecification<Book>()
+                .add(Book.Fields.authors, Author.Fields.country).in(List.of("UK", "FR"));
+        assertThat(bookRepository.count(spec)).isEqualTo(2);
+        assertThat(executor.count(spec)).isEqualTo(1);
+    }
+
+    @Test
+    void givenLeftJoinOnCollection_whenCount_thenCountsDistinctEntities() {
+        final var spec = new SearchSpecification<Book>()
+                .joinType(JoinType.LEFT)
+                .add(Book.Fields.authors, Author.Fields.country).in(List.of("UK", "FR"));
+        assertThat(executor.count(spec)).isEqualTo(1);
+    }
+
+    @Test
+    void givenCriteriaSharingCollectionJoin_whenCount_thenSameElementMustMatchBoth() {
+        final var spec = new SearchSpecification<Book>()
+                .add(Book.Fields.authors, Author.Fields.name).like("doyle")
+                .add(Book.Fields.authors, Author.Fields.country).eq("FR");
+        assertThat(executor.count(spec)).isZero();
+        assertThat(executor.findAll(spec)).isEmpty();
+    }
+
+    @Test
+    void givenCriterion_whenCount_thenMatchesFindAll() {
+        final var spec = new SearchSpecification<Book>()
+                .add(Book.Fields.publicationDate).gte(LocalDate.of(1940, 1, 1));
+        assertThat(executor.count(spec)).isEqualTo(executor.findAll(spec).size()).isEqualTo(11);
+    }
+
+    @Test
+    void givenLimit_whenCountUpTo_thenStopsAtLimit() {
+        final var spec = new SearchSpecification<Book>()
+                .add(Book.Fields.title).like("volume");
+        assertThat(executor.count(spec, 3)).isEqualTo(3);
+        assertThat(executor.count(spec, 100)).isEqualTo(10);
+    }
+
+    @Test
+    void givenCriterionOnCollection_whenCountUpTo_thenRowsAreNotMultiplied() {
+        final var spec = new SearchSpecification<Book>()
+                .joinType(JoinType.LEFT)
+                .add(Book.Fields.authors, Author.Fields.country).in(List.of("UK", "FR"));
+        assertThat(executor.count(spec, 10)).isEqualTo(1);
+    }
+
+    @Test
+    void givenInvalidLimit_whenCountUpTo_thenThrows() {
+        assertThatThrownBy(() -> executor.count(new SearchSpecification<>(), 0))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void givenMatchingCriterion_whenExists_thenReturnsTrue() {
+        final var spec = new SearchSpecification<Book>()
+                .add(Book.Fields.authors, Author.Fields.name).like("leblanc");
+        assertThat(executor.exists(spec)).isTrue();
+    }
+
+    @Test
+    void givenNoMatchingCriterion_whenExists_thenReturnsFalse() {
+        final var spec = new SearchSpecification<Book>()
+                .add(Book.Fields.title).eq("Les Misérables");
+        assertThat(executor.exists(spec)).isFalse();
+    }
+}
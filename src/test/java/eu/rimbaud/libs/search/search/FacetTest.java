@@ -0,0 +1,141 @@
+package eu.rimbaud.libs.search.search;
+
+import eu.rimbaud.libs.search.SearchExecutor;
+import eu.rimbaud.libs.search.SearchSpecification;
+import eu.rimbaud.libs.search.entity.Author;
+import eu.rimbaud.libs.search.entity.Book;
+import eu.rimbaud.libs.search.repository.AuthorRepository;
+import eu.rimbaud.libs.search.repository.BookRepository;
+import jakarta.persistence.EntityManager;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import static org.assertj.core.api.Assertions.entry;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class FacetTest {
+
+    @Autowired
+    BookRepository bookRepository;
+
+    @Autowired
+    AuthorRepository authorRepository;
+
+    @Autowired
+    EntityManager entityManager;
+
+    SearchExecutor<Book> executor;
+
+    Statistics statistics;
+
+    @BeforeEach
+    void beforeEach() {
+        executor = new SearchExecutor<>(entityManager, Book.class);
+        final var doyle = Author.builder().name("Conan Doyle").country("UK").build();
+        final var leblanc = Author.builder().name("Maurice Leblanc").country("FR").build();
+        final var dahl = Author.builder().name("Roald Dahl").country("UK").build();
+        authorRepository.saveAllAndFlush(List.of(doyle, leblanc, dahl));
+        bookRepository.saveAllAndFlush(List.of(
+                Book.builder()
+                        .title("Arsène Lupin contre Herlock Sholmès")
+                        .author("Maurice Leblanc")
+                        .publicationDate(LocalDate.of(1908, 1, 1))
+                        .authors(List.of(doyle, leblanc))
+                        .illustrator(leblanc)
+                        .build(),
+                Book.builder()
+                        .title("813")
+                        .author("Maurice Leblanc")
+                        .publicationDate(LocalDate.of(1910, 1, 1))
+                        .authors(List.of(leblanc))
+                        .build(),
+                Book.builder()
+                        .title("Charlie et la Chocolaterie")
+                        .author("Roald Dahl")
+                        .publicationDate(LocalDate.of(1964, 1, 1))
+                        .authors(List.of(dahl))
+                        .illustrator(dahl)
+                        .build(),
+                Book.builder()
+                        .title("Le Petit Prince")
+                        .author("Saint-Exupéry")
+                        .publicationDate(LocalDate.of(1943, 4, 6))
+                        .build()
+        ));
+        statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void givenSeveralFacets_whenFacets_thenCountedInOneQuery() {
+        final var spec = new SearchSpecification<Book>()
+                .add(Book.Fields.publicationDate).lt(LocalDate.of(1950, 1, 1));
+        final var facets = executor.facets(spec, false, Book.Fields.author, Book.Fields.illustrator + "." + Author.Fields.country);
+        assertThat(facets.get(Book.Fields.author)).containsExactly(entry("Maurice Leblanc", 2L), entry("Saint-Exupéry", 1L));
+        assertThat(facets.get(Book.Fields.illustrator + "." + Author.Fields.country)).containsOnly(entry(null, 2L), entry("FR", 1L));
+        assertThat(statistics.getQueryExecutionCount()).isEqualTo(1);
+    }
+
+    @Test
+    void givenMoreCombinationsThanMax_whenFacets_thenCountedInOneQueryPerFacet() {
+        final var spec = new SearchSpecification<Book>()
+                .add(Book.Fields.publicationDate).lt(LocalDate.of(1950, 1, 1));
+        final var facets = executor.facets(spec, false, 1, Book.Fields.author, Book.Fields.illustrator + "." + Author.Fields.country);
+        assertThat(facets.get(Book.Fields.author)).containsExactly(entry("Maurice Leblanc", 2L), entry("Saint-Exupéry", 1L));
+        assertThat(facets.get(Book.Fields.illustrator + "." + Author.Fields.country)).containsOnly(entry(null, 2L), entry("FR", 1L));
+        assertThat(statistics.getQueryExecutionCount()).isEqualTo(3);
+    }
+
+    @Test
+    void givenNonPositiveMaxCombinations_whenFacets_thenFails() {
+        assertThatIllegalArgumentException()
+                .isThrownBy(() -> executor.facets(new SearchSpecification<>(), false, 0, Book.Fields.author));
+    }
+
+    @Test
+    void givenCollectionFacet_whenFacets_thenEntitiesAreCountedOncePerValue() {
+        final var facets = executor.facets(new SearchSpecification<>(), false,
+                Book.Fields.author, Book.Fields.authors + "." + Author.Fields.country);
+        assertThat(facets.get(Book.Fields.authors + "." + Author.Fields.country))
+                .containsOnly(entry("FR", 2L), entry("UK", 2L), entry(null, 1L));
+        assertThat(facets.get(Book.Fields.author)).containsEntry("Maurice Leblanc", 2L);
+        assertThat(statistics.getQueryExecutionCount()).isEqualTo(2);
+    }
+
+    @Test
+    void givenDisjunctiveFacets_whenFacets_thenOwnCriteriaAreLeftOut() {
+        final var spec = new SearchSpecification<Book>()
+                .add(Book.Fields.author).eq("Maurice Leblanc")
+                .add(Book.Fields.publicationDate).lt(LocalDate.of(1950, 1, 1));
+        final var facets = executor.facets(spec, true, Book.Fields.author, Book.Fields.title, Book.Fields.publicationDate);
+        assertThat(facets.get(Book.Fields.author))
+                .containsOnly(entry("Maurice Leblanc", 2L), entry("Saint-Exupéry", 1L));
+        assertThat(facets.get(Book.Fields.title)).hasSize(2);
+        assertThat(facets.get(Book.Fields.publicationDate)).hasSize(2);
+        assertThat(statistics.getQueryExecutionCount()).isEqualTo(3);
+    }
+
+    @Test
+    void givenAlwaysFalseSpecification_whenFacets_thenNoQueryIsRun() {
+        final var spec = new SearchSpecification<Book>()
+                .add(Book.Fields.title).strictlyIn(List.of());
+        assertThat(executor.facets(spec, false, Book.Fields.author)).containsExactly(entry(Book.Fields.author, Map.of()));
+        assertThat(statistics.getQueryExecutionCount()).isZero();
+    }
+
+    @Test
+    void givenCollectionPath_whenFacets_thenFails() {
+        assertThatIllegalArgumentException()
+                .isThrownBy(() -> executor.facets(new SearchSpecification<>(), false, Book.Fields.authors));
+    }
+}
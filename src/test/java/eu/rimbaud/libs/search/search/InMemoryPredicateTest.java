@@ -0,0 +1,155 @@
+package eu.rimbaud.libs.search.search;
+
+import eu.rimbaud.libs.search.CollectionModeEnum;
+import eu.rimbaud.libs.search.SearchSpecification;
+import eu.rimbaud.libs.search.entity.Author;
+import eu.rimbaud.libs.search.entity.Book;
+import eu.rimbaud.libs.search.repository.AuthorRepository;
+import eu.rimbaud.libs.search.repository.BookRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.params.provider.Arguments.arguments;
+
+@DataJpaTest
+class InMemoryPredicateTest {
+
+    @Autowired
+    BookRepository bookRepository;
+
+    @Autowired
+    AuthorRepository authorRepository;
+
+    @BeforeEach
+    void beforeEach() {
+        final var doyle = Author.builder().name("Conan Doyle").country("UK").build();
+        final var leblanc = Author.builder().name("Maurice Leblanc").country("FR").build();
+        final var dahl = Author.builder().name("Roald Dahl").country("UK").build();
+        authorRepository.saveAllAndFlush(List.of(doyle, leblanc, dahl));
+        bookRepository.saveAllAndFlush(List.of(
+                Book.builder()
+                        .title("Arsène Lupin contre Herlock Sholmès")
+                        .publicationDate(LocalDate.of(1908, 1, 1))
+                        .authors(List.of(doyle, leblanc))
+                        .build(),
+                Book.builder()
+                        .title("Le Petit Prince")
+                        .author("Saint-Exupéry")
+                        .publicationDate(LocalDate.of(1943, 4, 6))
+                        .build(),
+                Book.builder()
+                        .title("Charlie et la Chocolaterie ")
+                        .publicationDate(LocalDate.of(1964, 1, 1))
+                        .authors(List.of(dahl))
+                        .build()
+        ));
+    }
+
+    static Stream<Arguments> specifications() {
+        return Stream.of(
+                arguments("eq", new SearchSpecification<Book>().add(Book.Fields.title).eq("Le Petit Prince")),
+                arguments("ne", new SearchSpecification<Book>().add(Book.Fields.title).ne("Le Petit Prince")),
+                arguments("ne on null", new SearchSpecification<Book>().add(Book.Fields.author).ne("Hergé")),
+                arguments("like", new SearchSpecification<Book>().add(Book.Fields.title).like("ET")),
+                arguments("like with any sequence", new SearchSpecification<Book>().add(Book.Fields.title).like("le%PRINCE")),
+                arguments("like with any character", new SearchSpecification<Book>().add(Book.Fields.title).like("c_ocolat")),
+                arguments("like with wildcards only", new SearchSpecification<Book>().add(Book.Fields.title).like("_%_")),
+                arguments("starts with", new SearchSpecification<Book>().add(Book.Fields.title).startsWith("Le ")),
+                arguments("starts with ignore case", new SearchSpecification<Book>().add(Book.Fields.title).startsWithIgnoreCase("charlie")),
+                arguments("ends with", new SearchSpecification<Book>().add(Book.Fields.title).endsWith("Prince")),
+                arguments("contains ignore case", new SearchSpecification<Book>().add(Book.Fields.title).containsIgnoreCase("LUPIN")),
+                arguments("eq ignore case", new SearchSpecification<Book>().add(Book.Fields.title).eqIgnoreCase("le petit prince")),
+                arguments("in", new SearchSpecification<Book>().add(Book.Fields.title).in(List.of("Le Petit Prince", "Tintin"))),
+                arguments("empty in", new SearchSpecification<Book>().add(Book.Fields.title).in(List.of())),
+                arguments("strictly in", new SearchSpecification<Book>().add(Book.Fields.title).strictlyIn(List.of())),
+                arguments("not in", new SearchSpecification<Book>().add(Book.Fields.title).notIn(List.of("Le Petit Prince"))),
+                arguments("gt", new SearchSpecification<Book>().add(Book.Fields.publicationDate).gt(LocalDate.of(1943, 4, 6))),
+                arguments("gte", new SearchSpecification<Book>().add(Book.Fields.publicationDate).gte(LocalDate.of(1943, 4, 6))),
+                arguments("lt", new SearchSpecification<Book>().add(Book.Fields.publicationDate).lt(LocalDate.of(1943, 4, 6))),
+                arguments("lte", new SearchSpecification<Book>().add(Book.Fields.publicationDate).lte(LocalDate.of(1943, 4, 6))),
+                arguments("gt with other number type", new SearchSpecification<Book>().add(Book.Fields.id).gt(0)),
+                arguments("ne with other number type", new SearchSpecification<Book>().add(Book.Fields.id).ne(0)),
+                arguments("only if", new SearchSpecification<Book>().add(Book.Fields.title).onlyIf(false).eq("Tintin")),
+                arguments("nested", new SearchSpecification<Book>().add(Book.Fields.authors, Author.Fields.country).eq("UK")),
+                arguments("shared join", new SearchSpecification<Book>()
+                        .add(Book.Fields.authors, Author.Fields.name).like("doyle")
+                        .add(Book.Fields.authors, Author.Fields.country).eq("FR")),
+                arguments("separate join", new SearchSpecification<Book>()
+                        .add(Book.Fields.authors, Author.Fields.name).like("doyle")
+                        .add(Book.Fields.authors, Author.Fields.country).separateJoin().eq("FR")),
+                arguments("exists", new SearchSpecification<Book>()
+                        .collectionMode(CollectionModeEnum.EXISTS)
+                        .add(Book.Fields.authors, Author.Fields.country).eq("UK")
+                        .add(Book.Fields.publicationDate).lt(LocalDate.of(1950, 1, 1))),
+                arguments("between", new SearchSpecification<Book>()
+                        .add(Book.Fields.publicationDate).between(LocalDate.of(1908, 1, 1), LocalDate.of(1943, 4, 6))),
+                arguments("or", new SearchSpecification<Book>()
+                        .or(g -> g.add(Book.Fields.title).eq("Le Petit Prince").add(Book.Fields.authors, Author.Fields.country).eq("FR"))),
+                arguments("or on collection", new SearchSpecification<Book>()
+                        .or(g -> g.add(Book.Fields.authors, Author.Fields.name).like("doyle").add(Book.Fields.authors, Author.Fields.name).like("dahl"))),
+                arguments("not on null", new SearchSpecification<Book>()
+                        .not(g -> g.add(Book.Fields.author).eq("Saint-Exupéry"))),
+                arguments("not on collection", new SearchSpecification<Book>()
+                        .not(g -> g.add(Book.Fields.authors, Author.Fields.country).eq("UK"))),
+                arguments("nested groups", new SearchSpecification<Book>()
+                        .add(Book.Fields.publicationDate).gt(LocalDate.of(1900, 1, 1))
+                        .or(g -> g
+                                .and(a -> a.add(Book.Fields.authors, Author.Fields.country).eq("UK").add(Book.Fields.title).like("lupin"))
+                                .not(n -> n.add(Book.Fields.publicationDate).lt(LocalDate.of(1950, 1, 1)))))
+        );
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("specifications")
+    void givenSpecification_whenCompile_thenMatchesSameBooksAsDatabase(String name, SearchSpecification<Book> spec) {
+        final var expected = bookRepository.findAll(spec).stream().map(Book::getId).distinct().toList();
+        final var predicate = spec.compile(Book.class);
+        final var actual = bookRepository.findAll().stream().filter(predicate).map(Book::getId).toList();
+        assertThat(actual).containsExactlyInAnyOrderElementsOf(expected);
+    }
+
+    @Test
+    void givenUnknownField_whenCompile_thenThrows() {
+        final var spec = new SearchSpecification<Book>()
+                .add("unknown").eq("value");
+        assertThatThrownBy(() -> spec.compile(Book.class))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void givenValueOfOtherNumberType_whenCompile_thenMatchesConvertedValue() {
+        final var id = bookRepository.findAll().get(0).getId();
+        final var spec = new SearchSpecification<Book>()
+                .add(Book.Fields.id).eq(id.intValue());
+        assertThat(bookRepository.findAll().stream().filter(spec.compile(Book.class)))
+                .singleElement().extracting(Book::getId).isEqualTo(id);
+    }
+
+    @Test
+    void givenValueNotConvertibleToField_whenCompile_thenThrows() {
+        final var spec = new SearchSpecification<Book>()
+                .add(Book.Fields.id).eq("unknown");
+        assertThatThrownBy(() -> spec.compile(Book.class))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void givenCompiledPredicate_whenSpecificationChanges_thenPredicateIsUnchanged() {
+        final var spec = new SearchSpecification<Book>()
+                .add(Book.Fields.title).eq("Le Petit Prince");
+        final var predicate = spec.compile(Book.class);
+        spec.add(Book.Fields.title).eq("Tintin");
+        assertThat(bookRepository.findAll().stream().filter(predicate)).hasSize(1);
+    }
+}
@@ -0,0 +1,114 @@
+package eu.rimbaud.libs.search.search;
+
+import eu.rimbaud.libs.search.InStrategyEnum;
+import eu.rimbaud.libs.search.SearchExecutor;
+import eu.rimbaud.libs.search.SearchSpecification;
+import eu.rimbaud.libs.search.entity.Book;
+import eu.rimbaud.libs.search.repository.BookRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.criteria.copy_tree=false")
+class InStrategyTest {
+
+    static final int BOOKS = 2_000;
+
+    @Autowired
+    BookRepository bookRepository;
+
+    @Autowired
+    EntityManager entityManager;
+
+    List<Long> ids;
+
+    @BeforeEach
+    void beforeEach() {
+        ids = bookRepository.saveAllAndFlush(IntStream.range(0, BOOKS)
+                        .mapToObj(i -> Book.builder()
+                                .title("Book " + i)
+                                .publicationDate(LocalDate.of(1900, 1, 1).plusDays(i))
+                                .build())
+                        .toList())
+                .stream()
+                .map(Book::getId)
+                .toList();
+        entityManager.clear();
+    }
+
+    @ParameterizedTest
+    @EnumSource(InStrategyEnum.class)
+    void givenLargeIdList_whenSearchWithIn_thenReturnsBooks(InStrategyEnum strategy) {
+        final var searched = searchedIds(5_000);
+        final var spec = new SearchSpecification<Book>()
+                .inStrategy(strategy)
+                .inChunkSize(1_000)
+                .add(Book.Fields.id).in(searched);
+        assertThat(bookRepository.count(spec)).isEqualTo(BOOKS / 2);
+        assertThat(new SearchExecutor<>(entityManager, Book.class).findAll(spec)).hasSize(BOOKS / 2);
+    }
+
+    @ParameterizedTest
+    @EnumSource(InStrategyEnum.class)
+    void givenLargeIdList_whenSearchWithNotIn_thenReturnsOtherBooks(InStrategyEnum strategy) {
+        final var searched = searchedIds(5_000);
+        final var spec = new SearchSpecification<Book>()
+                .inStrategy(strategy)
+                .inChunkSize(1_000)
+                .add(Book.Fields.id).notIn(searched);
+        assertThat(bookRepository.count(spec)).isEqualTo(BOOKS / 2);
+        assertThat(new SearchExecutor<>(entityManager, Book.class).findAll(spec)).hasSize(BOOKS / 2);
+    }
+
+    @ParameterizedTest
+    @EnumSource(InStrategyEnum.class)
+    void givenOddSizedList_whenSearchWithIn_thenReturnsBooks(InStrategyEnum strategy) {
+        final var spec = new SearchSpecification<Book>()
+                .inStrategy(strategy)
+                .inChunkSize(2)
+                .add(Book.Fields.title).in(List.of("Book 1", "Book 2", "Book 3", "Unknown", "Book 5"));
+        assertThat(bookRepository.findAll(spec)).extracting(Book::getTitle)
+                .containsExactlyInAnyOrder("Book 1", "Book 2", "Book 3", "Book 5");
+    }
+
+    @ParameterizedTest
+    @EnumSource(InStrategyEnum.class)
+    void givenIdsOfMixedNumberTypes_whenSearchWithIn_thenReturnsBooks(InStrategyEnum strategy) {
+        final var spec = new SearchSpecification<Book>()
+                .inStrategy(strategy)
+                .add(Book.Fields.id).in(List.of(ids.get(0).intValue(), ids.get(1), ids.get(2).intValue()));
+        assertThat(new SearchExecutor<>(entityManager, Book.class).findAll(spec)).extracting(Book::getId)
+                .containsExactlyInAnyOrder(ids.get(0), ids.get(1), ids.get(2));
+    }
+
+    @ParameterizedTest
+    @EnumSource(InStrategyEnum.class)
+    void givenEmptyList_whenSearchWithStrictlyIn_thenReturnsEmpty(InStrategyEnum strategy) {
+        final var spec = new SearchSpecification<Book>()
+                .inStrategy(strategy)
+                .add(Book.Fields.title).strictlyIn(List.of());
+        assertThat(bookRepository.findAll(spec)).isEmpty();
+    }
+
+    /**
+     * Build a list of ids matching half of the books, padded with unknown ids.
+     */
+    private List<Long> searchedIds(int size) {
+        final var maxId = ids.stream().mapToLong(Long::longValue).max().orElseThrow();
+        return LongStream.concat(
+                        IntStream.range(0, BOOKS).filter(i -> i % 2 == 0).mapToLong(ids::get),
+                        LongStream.range(maxId + 1, maxId + 1 + size - BOOKS / 2))
+                .boxed()
+                .toList();
+    }
+}
@@ -0,0 +1,188 @@
+package eu.rimbaud.libs.search.search;
+
+import eu.rimbaud.libs.search.CollectionModeEnum;
+import eu.rimbaud.libs.search.InStrategyEnum;
+import eu.rimbaud.libs.search.JdbcSearchExecutor;
+import eu.rimbaud.libs.search.SearchExecutor;
+import eu.rimbaud.libs.search.SearchSpecification;
+import eu.rimbaud.libs.search.entity.Author;
+import eu.rimbaud.libs.search.entity.Book;
+import eu.rimbaud.libs.search.entity.Magazine;
+import eu.rimbaud.libs.search.entity.Periodical;
+import eu.rimbaud.libs.search.repository.AuthorRepository;
+import eu.rimbaud.libs.search.repository.BookRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.criteria.JoinType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Sort;
+
+import javax.sql.DataSource;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.params.provider.Arguments.arguments;
+
+@DataJpaTest
+class JdbcSearchTest {
+
+    @Autowired
+    BookRepository bookRepository;
+
+    @Autowired
+    AuthorRepository authorRepository;
+
+    @Autowired
+    EntityManager entityManager;
+
+    @Autowired
+    DataSource dataSource;
+
+    SearchExecutor<Book> executor;
+
+    JdbcSearchExecutor<Book> jdbcExecutor;
+
+    record BookView(String title, String illustratorCountry) {
+    }
+
+    @BeforeEach
+    void beforeEach() {
+        executor = new SearchExecutor<>(entityManager, Book.class);
+        jdbcExecutor = new JdbcSearchExecutor<>(entityManager.getEntityManagerFactory(), dataSource, Book.class);
+        final var doyle = Author.builder().name("Conan Doyle").country("UK").build();
+        final var leblanc = Author.builder().name("Maurice Leblanc").country("FR").build();
+        final var dahl = Author.builder().name("Roald Dahl").country("UK").build();
+        authorRepository.saveAllAndFlush(List.of(doyle, leblanc, dahl));
+        bookRepository.saveAllAndFlush(List.of(
+                Book.builder()
+                        .title("Arsène Lupin contre Herlock Sholmès")
+                        .author("Maurice Leblanc")
+                        .publicationDate(LocalDate.of(1908, 1, 1))
+                        .authors(List.of(doyle, leblanc))
+                        .illustrator(leblanc)
+                        .build(),
+                Book.builder()
+                        .title("813")
+                        .author("Maurice Leblanc")
+                        .publicationDate(LocalDate.of(1910, 1, 1))
+                        .authors(List.of(leblanc))
+                        .build(),
+                Book.builder()
+                        .title("Charlie et la Chocolaterie")
+                        .author("Roald Dahl")
+                        .publicationDate(LocalDate.of(1964, 1, 1))
+                        .authors(List.of(dahl))
+                        .illustrator(dahl)
+                        .build(),
+                Book.builder()
+                        .title("Le Petit Prince à 100%")
+                        .author("Saint-Exupéry")
+                        .publicationDate(LocalDate.of(1943, 4, 6))
+                        .build()
+        ));
+    }
+
+    static Stream<Arguments> specifications() {
+        return Stream.of(
+                arguments("none", new SearchSpecification<Book>()),
+                arguments("eq", new SearchSpecification<Book>().add(Book.Fields.title).eq("813")),
+                arguments("ne on null", new SearchSpecification<Book>().add(Book.Fields.author).ne("Roald Dahl")),
+                arguments("like", new SearchSpecification<Book>().add(Book.Fields.title).like("ET")),
+                arguments("starts with", new SearchSpecification<Book>().add(Book.Fields.title).startsWith("Le ")),
+                arguments("starts with ignore case", new SearchSpecification<Book>().add(Book.Fields.title).startsWithIgnoreCase("charlie")),
+                arguments("ends with wildcard", new SearchSpecification<Book>().add(Book.Fields.title).endsWith("100%")),
+                arguments("starts with escape character", new SearchSpecification<Book>().add(Book.Fields.title).startsWith("Le\\ ")),
+                arguments("contains ignore case", new SearchSpecification<Book>().add(Book.Fields.title).containsIgnoreCase("_LUPIN")),
+                arguments("eq ignore case", new SearchSpecification<Book>().add(Book.Fields.author).eqIgnoreCase("maurice leblanc")),
+                arguments("in", new SearchSpecification<Book>().add(Book.Fields.title).in(List.of("813", "Tintin"))),
+                arguments("not in", new SearchSpecification<Book>().add(Book.Fields.author).notIn(List.of("Roald Dahl"))),
+                arguments("padded in", new SearchSpecification<Book>().inStrategy(InStrategyEnum.PADDING)
+                        .add(Book.Fields.title).in(List.of("813", "Tintin", "Charlie et la Chocolaterie"))),
+                arguments("chunked not in", new SearchSpecification<Book>().inStrategy(InStrategyEnum.CHUNKING).inChunkSize(2)
+                        .add(Book.Fields.title).notIn(List.of("813", "Tintin", "Charlie et la Chocolaterie"))),
+                arguments("array in", new SearchSpecification<Book>().inStrategy(InStrategyEnum.ARRAY)
+                        .add(Book.Fields.title).in(List.of("813", "Tintin"))),
+                arguments("gt", new SearchSpecification<Book>().add(Book.Fields.publicationDate).gt(LocalDate.of(1910, 1, 1))),
+                arguments("lte", new SearchSpecification<Book>().add(Book.Fields.publicationDate).lte(LocalDate.of(1910, 1, 1))),
+                arguments("between", new SearchSpecification<Book>()
+                        .add(Book.Fields.publicationDate).between(LocalDate.of(1908, 1, 1), LocalDate.of(1943, 4, 6))),
+                arguments("to-one", new SearchSpecification<Book>().add(Book.Fields.illustrator, Author.Fields.country).eq("UK")),
+                arguments("left to-one", new SearchSpecification<Book>().joinType(JoinType.LEFT)
+                        .add(Book.Fields.illustrator, Author.Fields.country).ne("UK")),
+                arguments("collection", new SearchSpecification<Book>().add(Book.Fields.authors, Author.Fields.country).eq("FR")),
+                arguments("shared join", new SearchSpecification<Book>()
+                        .add(Book.Fields.authors, Author.Fields.name).like("doyle")
+                        .add(Book.Fields.authors, Author.Fields.country).eq("FR")),
+                arguments("separate join", new SearchSpecification<Book>()
+                        .add(Book.Fields.authors, Author.Fields.name).like("doyle")
+                        .add(Book.Fields.authors, Author.Fields.country).separateJoin().eq("FR")),
+                arguments("exists", new SearchSpecification<Book>()
+                        .collectionMode(CollectionModeEnum.EXISTS)
+                        .add(Book.Fields.authors, Author.Fields.country).eq("UK")
+                        .add(Book.Fields.publicationDate).lt(LocalDate.of(1950, 1, 1))),
+                arguments("or", new SearchSpecification<Book>()
+                        .or(g -> g.add(Book.Fields.title).eq("813").add(Book.Fields.illustrator, Author.Fields.country).eq("UK"))),
+                arguments("or on collection", new SearchSpecification<Book>()
+                        .or(g -> g.add(Book.Fields.authors, Author.Fields.name).like("doyle").add(Book.Fields.authors, Author.Fields.name).like("dahl"))),
+                arguments("not on null", new SearchSpecification<Book>()
+                        .not(g -> g.add(Book.Fields.illustrator, Author.Fields.country).eq("FR"))),
+                arguments("nested groups", new SearchSpecification<Book>()
+                        .add(Book.Fields.publicationDate).gt(LocalDate.of(1900, 1, 1))
+                        .or(g -> g
+                                .and(a -> a.add(Book.Fields.authors, Author.Fields.country).eq("UK").add(Book.Fields.title).like("lupin"))
+                                .not(n -> n.add(Book.Fields.publicationDate).lt(LocalDate.of(1950, 1, 1)))))
+        );
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("specifications")
+    void givenSpecification_whenJdbc_thenSameResultAsCriteria(String name, SearchSpecification<Book> spec) {
+        final var sort = Sort.by(Book.Fields.id);
+        assertThat(jdbcExecutor.findIds(spec, sort)).isEqualTo(executor.findIds(spec, sort));
+        assertThat(jdbcExecutor.count(spec)).isEqualTo(executor.count(spec));
+        assertThat(jdbcExecutor.exists(spec)).isEqualTo(executor.exists(spec));
+    }
+
+    @Test
+    void givenProjection_whenJdbc_thenSameProjectionsAsCriteria() {
+        final var spec = new SearchSpecification<Book>()
+                .add(Book.Fields.publicationDate).lt(LocalDate.of(1950, 1, 1));
+        final var sort = Sort.by(Book.Fields.title);
+        final var paths = new String[]{Book.Fields.title, Book.Fields.illustrator + "." + Author.Fields.country};
+        assertThat(jdbcExecutor.findAll(spec, BookView.class, sort, paths))
+                .isEqualTo(executor.findAll(spec, BookView.class, sort, paths))
+                .containsExactly(
+                        new BookView("813", null),
+                        new BookView("Arsène Lupin contre Herlock Sholmès", "FR"),
+                        new BookView("Le Petit Prince à 100%", null));
+    }
+
+    @Test
+    void givenSameShape_whenJdbc_thenValuesAreRebound() {
+        assertThat(jdbcExecutor.count(new SearchSpecification<Book>().add(Book.Fields.author).eq("Maurice Leblanc"))).isEqualTo(2);
+        assertThat(jdbcExecutor.count(new SearchSpecification<Book>().add(Book.Fields.author).eq("Roald Dahl"))).isEqualTo(1);
+    }
+
+    @Test
+    void givenRootWithInheritance_whenJdbcExecutor_thenFails() {
+        assertThatThrownBy(() -> new JdbcSearchExecutor<>(entityManager.getEntityManagerFactory(), dataSource, Periodical.class))
+                .isInstanceOf(UnsupportedOperationException.class);
+        assertThatThrownBy(() -> new JdbcSearchExecutor<>(entityManager.getEntityManagerFactory(), dataSource, Magazine.class))
+                .isInstanceOf(UnsupportedOperationException.class);
+    }
+
+    @Test
+    void givenPathThroughCollection_whenJdbcProjection_thenFails() {
+        assertThatIllegalArgumentException().isThrownBy(() -> jdbcExecutor.findAll(new SearchSpecification<>(), BookView.class,
+                Sort.unsorted(), Book.Fields.title, Book.Fields.authors + "." + Author.Fields.country));
+    }
+}
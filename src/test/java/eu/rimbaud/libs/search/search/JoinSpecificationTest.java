@@ -0,0 +1,160 @@
+package eu.rimbaud.libs.search.search;
+
+import eu.rimbaud.libs.search.CollectionModeEnum;
+import eu.rimbaud.libs.search.SearchSpecification;
+import eu.rimbaud.libs.search.entity.Author;
+import eu.rimbaud.libs.search.entity.Book;
+import eu.rimbaud.libs.search.repository.AuthorRepository;
+import eu.rimbaud.libs.search.repository.BookRepository;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.JoinType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+class JoinSpecificationTest {
+
+    @Autowired
+    BookRepository bookRepository;
+
+    @Autowired
+    AuthorRepository authorRepository;
+
+    @BeforeEach
+    void beforeEach() {
+        final var doyle = Author.builder().name("Conan Doyle").country("UK").build();
+        final var leblanc = Author.builder().name("Maurice Leblanc").country("FR").build();
+        authorRepository.saveAllAndFlush(List.of(doyle, leblanc));
+        bookRepository.saveAllAndFlush(List.of(
+                Book.builder()
+                        .title("Arsène Lupin contre Herlock Sholmès")
+                        .publicationDate(LocalDate.of(1908, 1, 1))
+                        .authors(List.of(doyle, leblanc))
+                        .build(),
+                Book.builder()
+                        .title("Le Petit Prince")
+                        .publicationDate(LocalDate.of(1943, 4, 6))
+                        .build()
+        ));
+    }
+
+    @Test
+    void givenTwoCriteriaOnSamePath_whenSearch_thenJoinIsShared() {
+        final var spec = new SearchSpecification<Book>()
+                .add(Book.Fields.authors, Author.Fields.name).like("doyle")
+                .add(Book.Fields.authors, Author.Fields.country).eq("UK");
+        final var joins = new ArrayList<Join<Book, ?>>();
+        final var books = bookRepository.findAll(inspect(spec, joins));
+        assertThat(books).hasSize(1);
+        assertThat(joins).hasSize(1);
+    }
+
+    @Test
+    void givenTwoCriteriaOnSamePath_whenSearch_thenSameElementMustMatchBoth() {
+        final var spec = new SearchSpecification<Book>()
+                .add(Book.Fields.authors, Author.Fields.name).like("doyle")
+                .add(Book.Fields.authors, Author.Fields.country).eq("FR");
+        final var books = bookRepository.findAll(spec);
+        assertThat(books).isEmpty();
+    }
+
+    @Test
+    void givenSeparateJoin_whenSearch_thenEachElementMatchesItsCriterion() {
+        final var spec = new SearchSpecification<Book>()
+                .add(Book.Fields.authors, Author.Fields.name).like("doyle")
+                .add(Book.Fields.authors, Author.Fields.country).separateJoin().eq("FR");
+        final var joins = new ArrayList<Join<Book, ?>>();
+        final var books = bookRepository.findAll(inspect(spec, joins));
+        assertThat(books).hasSize(1);
+        assertThat(joins).hasSize(2);
+    }
+
+    @Test
+    void givenLeftJoinType_whenSearch_thenJoinIsLeft() {
+        final var spec = new SearchSpecification<Book>()
+                .joinType(JoinType.LEFT)
+                .add(Book.Fields.authors, Author.Fields.country).eq("UK");
+        final var joins = new ArrayList<Join<Book, ?>>();
+        final var books = bookRepository.findAll(inspect(spec, joins));
+        assertThat(books).hasSize(1);
+        assertThat(joins).singleElement()
+                .satisfies(j -> assertThat(j.getJoinType()).isEqualTo(JoinType.LEFT));
+    }
+
+    @Test
+    void givenCriterionJoinType_whenSearch_thenOverridesSpecificationJoinType() {
+        final var spec = new SearchSpecification<Book>()
+                .joinType(JoinType.LEFT)
+                .add(Book.Fields.authors, Author.Fields.name).like("doyle")
+                .add(Book.Fields.authors, Author.Fields.country).joinType(JoinType.INNER).eq("UK");
+        final var joins = new ArrayList<Join<Book, ?>>();
+        bookRepository.findAll(inspect(spec, joins));
+        assertThat(joins).extracting(Join::getJoinType)
+                .containsExactlyInAnyOrder(JoinType.LEFT, JoinType.INNER);
+    }
+
+    @Test
+    void givenCollectionPath_whenCountWithJoinMode_thenCountsDuplicates() {
+        final var spec = new SearchSpecification<Book>()
+                .add(Book.Fields.authors, Author.Fields.name).like("e");
+        assertThat(bookRepository.count(spec)).isEqualTo(2);
+    }
+
+    @Test
+    void givenCollectionPath_whenSearchWithExistsMode_thenReturnsUniqueBooksWithoutJoin() {
+        final var spec = new SearchSpecification<Book>()
+                .collectionMode(CollectionModeEnum.EXISTS)
+                .add(Book.Fields.authors, Author.Fields.name).like("e");
+        final var joins = new ArrayList<Join<Book, ?>>();
+        final var books = bookRepository.findAll(inspect(spec, joins));
+        assertThat(books).hasSize(1);
+        assertThat(joins).isEmpty();
+        assertThat(bookRepository.count(spec)).isEqualTo(1);
+    }
+
+    @Test
+    void givenTwoCriteriaOnSameCollection_whenSearchWithExistsMode_thenSameElementMustMatchBoth() {
+        final var spec = new SearchSpecification<Book>()
+                .collectionMode(CollectionModeEnum.EXISTS)
+                .add(Book.Fields.authors, Author.Fields.name).like("doyle")
+                .add(Book.Fields.authors, Author.Fields.country).eq("FR");
+        final var books = bookRepository.findAll(spec);
+        assertThat(books).isEmpty();
+    }
+
+    @Test
+    void givenSeparateJoin_whenSearchWithExistsMode_thenEachElementMatchesItsCriterion() {
+        final var spec = new SearchSpecification<Book>()
+                .collectionMode(CollectionModeEnum.EXISTS)
+                .add(Book.Fields.authors, Author.Fields.name).like("doyle")
+                .add(Book.Fields.authors, Author.Fields.country).separateJoin().eq("FR");
+        final var books = bookRepository.findAll(spec);
+        assertThat(books).hasSize(1);
+    }
+
+    @Test
+    void givenCriterionCollectionMode_whenSearch_thenOverridesSpecificationCollectionMode() {
+        final var spec = new SearchSpecification<Book>()
+                .add(Book.Fields.authors, Author.Fields.name).collectionMode(CollectionModeEnum.EXISTS).like("e")
+                .add(Book.Fields.title).like("lupin");
+        final var books = bookRepository.findAll(spec);
+        assertThat(books).hasSize(1);
+    }
+
+    private static Specification<Book> inspect(Specification<Book> spec, List<Join<Book, ?>> joins) {
+        return (root, query, cb) -> {
+            final var predicate = spec.toPredicate(root, query, cb);
+            joins.addAll(root.getJoins());
+            return predicate;
+        };
+    }
+}
@@ -0,0 +1,95 @@
+package eu.rimbaud.libs.search.search;
+
+import eu.rimbaud.libs.search.KeysetPage;
+import eu.rimbaud.libs.search.SearchExecutor;
+import eu.rimbaud.libs.search.SearchSpecification;
+import eu.rimbaud.libs.search.entity.Book;
+import eu.rimbaud.libs.search.repository.BookRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Sort;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DataJpaTest
+class KeysetPaginationTest {
+
+    @Autowired
+    BookRepository bookRepository;
+
+    @Autowired
+    EntityManager entityManager;
+
+    SearchExecutor<Book> executor;
+
+    @BeforeEach
+    void beforeEach() {
+        executor = new SearchExecutor<>(entityManager, Book.class);
+        bookRepository.saveAllAndFlush(IntStream.range(0, 25)
+                .mapToObj(i -> Book.builder()
+                        .title("Book " + i)
+                        .publicationDate(LocalDate.of(1900 + i % 7, 1, 1))
+                        .build())
+                .toList());
+    }
+
+    @Test
+    void givenSort_whenFindPages_thenReturnsAllBooksInOrder() {
+        final var spec = new SearchSpecification<Book>();
+        final var sort = Sort.by(Book.Fields.publicationDate);
+        final var expected = bookRepository.findAll(sort.and(Sort.by(Book.Fields.id)));
+        assertThat(readAll(spec, sort, 10)).containsExactlyElementsOf(expected);
+    }
+
+    @Test
+    void givenDescendingSort_whenFindPages_thenReturnsAllBooksInOrder() {
+        final var spec = new SearchSpecification<Book>();
+        final var sort = Sort.by(Sort.Order.desc(Book.Fields.publicationDate), Sort.Order.asc(Book.Fields.title));
+        final var expected = bookRepository.findAll(sort.and(Sort.by(Book.Fields.id)));
+        assertThat(readAll(spec, sort, 4)).containsExactlyElementsOf(expected);
+    }
+
+    @Test
+    void givenCriteria_whenFindPages_thenReturnsMatchingBooksInOrder() {
+        final var spec = new SearchSpecification<Book>()
+                .add(Book.Fields.publicationDate).gte(LocalDate.of(1903, 1, 1));
+        final var sort = Sort.by(Book.Fields.publicationDate);
+        final var expected = bookRepository.findAll(spec, sort.and(Sort.by(Book.Fields.id)));
+        assertThat(readAll(spec, sort, 3)).hasSize(13).containsExactlyElementsOf(expected);
+    }
+
+    @Test
+    void givenLastPage_whenFindPage_thenHasNoNextCursor() {
+        final var page = executor.findPage(new SearchSpecification<>(), Sort.by(Book.Fields.title), null, 25);
+        assertThat(page.content()).hasSize(25);
+        assertThat(page.hasNext()).isFalse();
+    }
+
+    @Test
+    void givenInvalidCursor_whenFindPage_thenThrows() {
+        assertThatThrownBy(() -> executor.findPage(new SearchSpecification<>(), Sort.by(Book.Fields.publicationDate), "abc", 10))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private List<Book> readAll(SearchSpecification<Book> spec, Sort sort, int size) {
+        final var books = new ArrayList<Book>();
+        String cursor = null;
+        KeysetPage<Book> page;
+        do {
+            page = executor.findPage(spec, sort, cursor, size);
+            assertThat(page.content()).hasSizeLessThanOrEqualTo(size);
+            books.addAll(page.content());
+            cursor = page.nextCursor();
+        } while (page.hasNext());
+        return books;
+    }
+}
@@ -0,0 +1,95 @@
+package eu.rimbaud.libs.search.search;
+
+import eu.rimbaud.libs.search.PartitionedSearchExecutor;
+import eu.rimbaud.libs.search.SearchSpecification;
+import eu.rimbaud.libs.search.entity.Book;
+import eu.rimbaud.libs.search.repository.BookRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class PartitionedSearchTest {
+
+    @Autowired
+    BookRepository bookRepository;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    @BeforeEach
+    void beforeEach() {
+        bookRepository.saveAll(IntStream.range(0, 100)
+                .mapToObj(i -> Book.builder()
+                        .title(i % 2 == 0 ? "Even " + i : "Odd " + i)
+                        .publicationDate(LocalDate.of(1900, 1, 1).plusDays(i * 97L))
+                        .build())
+                .toList());
+    }
+
+    @AfterEach
+    void afterEach() {
+        bookRepository.deleteAll();
+    }
+
+    @Test
+    void givenPartitions_whenFindAllOrdered_thenAllEntitiesAreSortedOnAttribute() {
+        final var executor = new PartitionedSearchExecutor<>(entityManagerFactory, Book.class, Book.Fields.publicationDate, 7, 3);
+        final var spec = new SearchSpecification<Book>().add(Book.Fields.title).like("even");
+        final var books = executor.findAll(spec, true);
+        assertThat(books)
+                .hasSize(50)
+                .isSortedAccordingTo(Comparator.comparing(Book::getPublicationDate))
+                .doesNotHaveDuplicates();
+    }
+
+    @Test
+    void givenPartitionsOnId_whenCount_thenSumsPartitions() {
+        final var executor = new PartitionedSearchExecutor<>(entityManagerFactory, Book.class, Book.Fields.id, 4, 2);
+        assertThat(executor.count(new SearchSpecification<Book>().add(Book.Fields.title).like("odd"))).isEqualTo(50);
+        assertThat(executor.count(new SearchSpecification<Book>())).isEqualTo(100);
+    }
+
+    @Test
+    void givenMorePartitionsThanValues_whenFindAll_thenEachEntityIsFoundOnce() {
+        final var executor = new PartitionedSearchExecutor<>(entityManagerFactory, Book.class, Book.Fields.id, 1000, 8);
+        assertThat(executor.findAll(new SearchSpecification<>(), false)).hasSize(100).doesNotHaveDuplicates();
+    }
+
+    @Test
+    void givenProjection_whenFindAll_thenProjectionsAreMerged() {
+        final var executor = new PartitionedSearchExecutor<>(entityManagerFactory, Book.class, Book.Fields.publicationDate, 3, 3);
+        final var spec = new SearchSpecification<Book>().add(Book.Fields.publicationDate).lt(LocalDate.of(1901, 1, 1));
+        assertThat(executor.findAll(spec, BookRow.class, true, Book.Fields.title))
+                .containsExactly(new BookRow("Even 0"), new BookRow("Odd 1"), new BookRow("Even 2"), new BookRow("Odd 3"));
+    }
+
+    @Test
+    void givenNoEntity_whenFindAll_thenReturnsEmpty() {
+        bookRepository.deleteAll();
+        final var executor = new PartitionedSearchExecutor<>(entityManagerFactory, Book.class, Book.Fields.id, 4, 2);
+        assertThat(executor.findAll(new SearchSpecification<>(), true)).isEmpty();
+    }
+
+    @Test
+    void givenStringAttribute_whenConstruct_thenThrows() {
+        assertThatThrownBy(() -> new PartitionedSearchExecutor<>(entityManagerFactory, Book.class, Book.Fields.title, 4, 2))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    record BookRow(String title) {
+    }
+}
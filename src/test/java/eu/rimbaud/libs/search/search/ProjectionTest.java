@@ -0,0 +1,152 @@
+package eu.rimbaud.libs.search.search;
+
+import eu.rimbaud.libs.search.SearchExecutor;
+import eu.rimbaud.libs.search.SearchSpecification;
+import eu.rimbaud.libs.search.entity.Author;
+import eu.rimbaud.libs.search.entity.Book;
+import eu.rimbaud.libs.search.repository.AuthorRepository;
+import eu.rimbaud.libs.search.repository.BookRepository;
+import jakarta.persistence.EntityManager;
+import org.hibernate.Session;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DataJpaTest
+class ProjectionTest {
+
+    @Autowired
+    BookRepository bookRepository;
+
+    @Autowired
+    AuthorRepository authorRepository;
+
+    @Autowired
+    EntityManager entityManager;
+
+    SearchExecutor<Book> executor;
+
+    record BookRow(String title, LocalDate publicationDate) {
+    }
+
+    record IllustratedBookRow(String title, String illustrator) {
+    }
+
+    interface BookView {
+        String getTitle();
+
+        String getIllustratorName();
+    }
+
+    @BeforeEach
+    void beforeEach() {
+        executor = new SearchExecutor<>(entityManager, Book.class);
+        final var saintExupery = Author.builder().name("Antoine de Saint-Exupéry").country("FR").build();
+        final var blake = Author.builder().name("Quentin Blake").country("UK").build();
+        authorRepository.saveAllAndFlush(List.of(saintExupery, blake));
+        bookRepository.saveAllAndFlush(List.of(
+                Book.builder()
+                        .title("Le Petit Prince")
+                        .publicationDate(LocalDate.of(1943, 4, 6))
+                        .illustrator(saintExupery)
+                        .authors(List.of(saintExupery))
+                        .build(),
+                Book.builder()
+                        .title("Charlie et la Chocolaterie")
+                        .publicationDate(LocalDate.of(1964, 1, 1))
+                        .illustrator(blake)
+                        .build(),
+                Book.builder()
+                        .title("Le Horla")
+                        .publicationDate(LocalDate.of(1887, 1, 1))
+                        .build()
+        ));
+        entityManager.clear();
+    }
+
+    @Test
+    void givenRecord_whenFindAll_thenComponentsAreSelected() {
+        final var spec = new SearchSpecification<Book>().add(Book.Fields.title).like("e");
+        final var rows = executor.findAll(spec, BookRow.class, Sort.by(Book.Fields.publicationDate));
+        assertThat(rows).containsExactly(
+                new BookRow("Le Horla", LocalDate.of(1887, 1, 1)),
+                new BookRow("Le Petit Prince", LocalDate.of(1943, 4, 6)),
+                new BookRow("Charlie et la Chocolaterie", LocalDate.of(1964, 1, 1)));
+    }
+
+    @Test
+    void givenProjection_whenFindAll_thenNoEntityIsLoaded() {
+        final var spec = new SearchSpecification<Book>().add(Book.Fields.title).like("e");
+        executor.findAll(spec, BookRow.class, Sort.unsorted());
+        assertThat(entityManager.unwrap(Session.class).getStatistics().getEntityCount()).isZero();
+    }
+
+    @Test
+    void givenNestedPath_whenFindAll_thenRootsWithoutRelationshipAreKept() {
+        final var spec = new SearchSpecification<Book>().add(Book.Fields.title).like("e");
+        final var rows = executor.findAll(spec, IllustratedBookRow.class, Sort.by(Book.Fields.title),
+                Book.Fields.title, Book.Fields.illustrator + "." + Author.Fields.name);
+        assertThat(rows).containsExactly(
+                new IllustratedBookRow("Charlie et la Chocolaterie", "Quentin Blake"),
+                new IllustratedBookRow("Le Horla", null),
+                new IllustratedBookRow("Le Petit Prince", "Antoine de Saint-Exupéry"));
+    }
+
+    @Test
+    void givenCriterionOnNestedPath_whenFindAll_thenJoinIsReused() {
+        final var spec = new SearchSpecification<Book>().add(Book.Fields.illustrator, Author.Fields.country).eq("UK");
+        final var rows = executor.findAll(spec, IllustratedBookRow.class, Sort.unsorted(),
+                Book.Fields.title, Book.Fields.illustrator + "." + Author.Fields.name);
+        assertThat(rows).containsExactly(new IllustratedBookRow("Charlie et la Chocolaterie", "Quentin Blake"));
+    }
+
+    @Test
+    void givenInterface_whenFindAll_thenGettersExposeCamelCasedPaths() {
+        final var spec = new SearchSpecification<Book>().add(Book.Fields.title).eq("Le Petit Prince");
+        final var views = executor.findAll(spec, BookView.class, Sort.unsorted(),
+                Book.Fields.title, Book.Fields.illustrator + "." + Author.Fields.name);
+        assertThat(views).singleElement().satisfies(v -> {
+            assertThat(v.getTitle()).isEqualTo("Le Petit Prince");
+            assertThat(v.getIllustratorName()).isEqualTo("Antoine de Saint-Exupéry");
+        });
+    }
+
+    @Test
+    void givenCriterionOnCollection_whenFindAll_thenEntityIsProjectedOnce() {
+        final var spec = new SearchSpecification<Book>()
+                .add(Book.Fields.authors, Author.Fields.country).in(List.of("FR", "UK"));
+        assertThat(executor.findAll(spec, BookRow.class, Sort.unsorted())).hasSize(1);
+    }
+
+    @Test
+    void givenPageable_whenFindAll_thenReturnsPageOfProjections() {
+        final var spec = new SearchSpecification<Book>().add(Book.Fields.title).like("e");
+        final var page = executor.findAll(spec, BookRow.class, PageRequest.of(0, 2, Sort.by(Book.Fields.title)));
+        assertThat(page.getContent()).extracting(BookRow::title).containsExactly("Charlie et la Chocolaterie", "Le Horla");
+        assertThat(page.getTotalElements()).isEqualTo(3);
+    }
+
+    @Test
+    void givenPathThroughCollection_whenFindAll_thenThrows() {
+        final var spec = new SearchSpecification<Book>();
+        assertThatThrownBy(() -> executor.findAll(spec, IllustratedBookRow.class, Sort.unsorted(),
+                Book.Fields.title, Book.Fields.authors + "." + Author.Fields.name))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void givenClass_whenFindAll_thenThrows() {
+        final var spec = new SearchSpecification<Book>();
+        assertThatThrownBy(() -> executor.findAll(spec, String.class, Sort.unsorted(), Book.Fields.title))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,164 @@
+package eu.rimbaud.libs.search.search;
+
+import eu.rimbaud.libs.search.SearchCache;
+import eu.rimbaud.libs.search.SearchExecutor;
+import eu.rimbaud.libs.search.SearchSpecification;
+import eu.rimbaud.libs.search.entity.Author;
+import eu.rimbaud.libs.search.entity.Book;
+import eu.rimbaud.libs.search.repository.AuthorRepository;
+import eu.rimbaud.libs.search.repository.BookRepository;
+import jakarta.persistence.EntityManager;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.context.transaction.TestTransaction;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class SearchCacheTest {
+
+    @Autowired
+    BookRepository bookRepository;
+
+    @Autowired
+    AuthorRepository authorRepository;
+
+    @Autowired
+    EntityManager entityManager;
+
+    SearchCache<Book> cache;
+
+    @BeforeEach
+    void beforeEach() {
+        final var doyle = Author.builder().name("Conan Doyle").country("UK").build();
+        authorRepository.saveAllAndFlush(List.of(doyle));
+        bookRepository.saveAllAndFlush(List.of(
+                Book.builder()
+                        .title("Le Petit Prince")
+                        .publicationDate(LocalDate.of(1943, 4, 6))
+                        .build(),
+                Book.builder()
+                        .title("Sherlock Holmes")
+                        .publicationDate(LocalDate.of(1887, 1, 1))
+                        .authors(List.of(doyle))
+                        .build()
+        ));
+        cache = new SearchCache<>(new SearchExecutor<>(entityManager, Book.class), 100, Duration.ofMinutes(1));
+    }
+
+    @AfterEach
+    void afterEach() {
+        cache.close();
+    }
+
+    @Test
+    void givenRepeatedSearch_whenFindIds_thenDatabaseIsQueriedOnce() {
+        final var statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        final var spec = new SearchSpecification<Book>()
+                .add(Book.Fields.title).like("e");
+        final var first = cache.findIds(spec, Sort.by(Book.Fields.id));
+        final var queries = statistics.getQueryExecutionCount();
+        final var second = cache.findIds(spec, Sort.by(Book.Fields.id));
+        assertThat(second).hasSize(2).isEqualTo(first);
+        assertThat(statistics.getQueryExecutionCount()).isEqualTo(queries);
+        assertThat(cache.getHitCount()).isEqualTo(1);
+        assertThat(cache.getMissCount()).isEqualTo(1);
+    }
+
+    @Test
+    void givenCriteriaInOtherOrder_whenCount_thenHitsCache() {
+        cache.count(new SearchSpecification<Book>()
+                .add(Book.Fields.title).in(List.of("Le Petit Prince", "Tintin"))
+                .add(Book.Fields.publicationDate).gt(LocalDate.of(1900, 1, 1)));
+        final var count = cache.count(new SearchSpecification<Book>()
+                .add(Book.Fields.author).onlyIf(false).eq("Hergé")
+                .add(Book.Fields.author).eq(null)
+                .add(Book.Fields.publicationDate).gt(LocalDate.of(1900, 1, 1))
+                .add(Book.Fields.title).in(List.of("Tintin", "Le Petit Prince")));
+        assertThat(count).isEqualTo(1);
+        assertThat(cache.getHitCount()).isEqualTo(1);
+    }
+
+    @Test
+    void givenOtherValue_whenCount_thenMissesCache() {
+        cache.count(new SearchSpecification<Book>().add(Book.Fields.title).eq("Le Petit Prince"));
+        cache.count(new SearchSpecification<Book>().add(Book.Fields.title).eq("Sherlock Holmes"));
+        assertThat(cache.getHitCount()).isZero();
+    }
+
+    @Test
+    void givenRootEntityWritten_whenFindIds_thenCacheIsInvalidated() {
+        final var spec = new SearchSpecification<Book>().add(Book.Fields.title).like("petit");
+        assertThat(cache.findIds(spec, Sort.unsorted())).hasSize(1);
+        bookRepository.saveAndFlush(Book.builder().title("Le Petit Nicolas").build());
+        assertThat(cache.findIds(spec, Sort.unsorted())).hasSize(2);
+        assertThat(cache.getHitCount()).isZero();
+    }
+
+    @Test
+    void givenRolledBackWrite_whenCount_thenCacheIsInvalidated() {
+        final var spec = new SearchSpecification<Book>().add(Book.Fields.title).like("petit");
+        bookRepository.saveAndFlush(Book.builder().title("Le Petit Nicolas").build());
+        assertThat(cache.count(spec)).isEqualTo(2);
+        TestTransaction.flagForRollback();
+        TestTransaction.end();
+        TestTransaction.start();
+        assertThat(cache.count(spec)).isZero();
+        assertThat(cache.getHitCount()).isZero();
+    }
+
+    @Test
+    void givenJoinedEntityWritten_whenCount_thenOnlyDependentEntriesAreInvalidated() {
+        final var byAuthor = new SearchSpecification<Book>().add(Book.Fields.authors, Author.Fields.country).eq("UK");
+        final var byTitle = new SearchSpecification<Book>().add(Book.Fields.title).like("le");
+        cache.count(byAuthor);
+        cache.count(byTitle);
+        authorRepository.saveAndFlush(Author.builder().name("Roald Dahl").country("UK").build());
+        cache.count(byAuthor);
+        cache.count(byTitle);
+        assertThat(cache.getHitCount()).isEqualTo(1);
+        assertThat(cache.getMissCount()).isEqualTo(3);
+    }
+
+    @Test
+    void givenPage_whenFindIds_thenPageIsCached() {
+        final var spec = new SearchSpecification<Book>().add(Book.Fields.title).like("e");
+        final var page = cache.findIds(spec, PageRequest.of(0, 1, Sort.by(Book.Fields.publicationDate)));
+        final var cached = cache.findIds(spec, PageRequest.of(0, 1, Sort.by(Book.Fields.publicationDate)));
+        assertThat(cached).isSameAs(page);
+        assertThat(page.getTotalElements()).isEqualTo(2);
+        assertThat(page.getContent()).hasSize(1);
+    }
+
+    @Test
+    void givenExpiredEntry_whenCount_thenMissesCache() {
+        try (var expiring = new SearchCache<>(new SearchExecutor<>(entityManager, Book.class), 100, Duration.ZERO)) {
+            final var spec = new SearchSpecification<Book>().add(Book.Fields.title).like("e");
+            expiring.count(spec);
+            expiring.count(spec);
+            assertThat(expiring.getHitCount()).isZero();
+        }
+    }
+
+    @Test
+    void givenMaxEntries_whenSearch_thenLeastRecentlyUsedIsEvicted() {
+        try (var small = new SearchCache<>(new SearchExecutor<>(entityManager, Book.class), 1, Duration.ofMinutes(1))) {
+            final var first = new SearchSpecification<Book>().add(Book.Fields.title).like("le");
+            final var second = new SearchSpecification<Book>().add(Book.Fields.title).like("holmes");
+            small.count(first);
+            small.count(second);
+            small.count(first);
+            assertThat(small.getHitCount()).isZero();
+        }
+    }
+}
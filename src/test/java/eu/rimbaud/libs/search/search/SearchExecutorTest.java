@@ -0,0 +1,114 @@
+package eu.rimbaud.libs.search.search;
+
+import eu.rimbaud.libs.search.SearchExecutor;
+import eu.rimbaud.libs.search.SearchSpecification;
+import eu.rimbaud.libs.search.entity.Book;
+import eu.rimbaud.libs.search.repository.BookRepository;
+import jakarta.persistence.EntityManager;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Sort;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.criteria.copy_tree=false",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+class SearchExecutorTest {
+
+    @Autowired
+    BookRepository bookRepository;
+
+    @Autowired
+    EntityManager entityManager;
+
+    SearchExecutor<Book> executor;
+
+    @BeforeEach
+    void beforeEach() {
+        executor = new SearchExecutor<>(entityManager, Book.class);
+        bookRepository.saveAllAndFlush(List.of(
+                Book.builder()
+                        .title("Le Petit Prince")
+                        .publicationDate(LocalDate.of(1943, 4, 6))
+                        .build(),
+                Book.builder()
+                        .title("Charlie et la Chocolaterie ")
+                        .publicationDate(LocalDate.of(1964, 1, 1))
+                        .build()
+        ));
+    }
+
+    @Test
+    void givenTitle_whenSearchWithEq_thenReturnsBook() {
+        final var bookTitle = "Le Petit Prince";
+        final var spec = new SearchSpecification<Book>()
+                .add(Book.Fields.title).eq(bookTitle);
+        final var books = executor.findAll(spec);
+        assertThat(books).singleElement()
+                .satisfies(b -> assertThat(b.getTitle()).isEqualTo(bookTitle));
+    }
+
+    @Test
+    void givenTitle_whenSearchWithLike_thenReturnsBooks() {
+        final var spec = new SearchSpecification<Book>()
+                .add(Book.Fields.title).like("ET");
+        final var books = executor.findAll(spec, Sort.by(Book.Fields.publicationDate));
+        assertThat(books).extracting(Book::getTitle)
+                .containsExactly("Le Petit Prince", "Charlie et la Chocolaterie ");
+    }
+
+    @Test
+    void givenTitles_whenSearchWithInAndNotIn_thenReturnsBook() {
+        final var spec = new SearchSpecification<Book>()
+                .add(Book.Fields.title).in(List.of("Le Petit Prince", "Charlie et la Chocolaterie "))
+                .add(Book.Fields.title).notIn(List.of("Charlie et la Chocolaterie ", "Les Malheurs de Sophie"));
+        final var books = executor.findAll(spec);
+        assertThat(books).extracting(Book::getTitle)
+                .containsExactly("Le Petit Prince");
+    }
+
+    @Test
+    void givenEmptyList_whenSearchWithStrictlyIn_thenReturnsEmpty() {
+        final var spec = new SearchSpecification<Book>()
+                .add(Book.Fields.title).strictlyIn(List.of())
+                .add(Book.Fields.publicationDate).gt(LocalDate.of(1900, 1, 1));
+        final var books = executor.findAll(spec);
+        assertThat(books).isEmpty();
+    }
+
+    @Test
+    void givenSameShape_whenSearchWithDifferentValues_thenReturnsMatchingBooks() {
+        final var before = new SearchSpecification<Book>()
+                .add(Book.Fields.publicationDate).lt(LocalDate.of(1950, 1, 1));
+        final var after = new SearchSpecification<Book>()
+                .add(Book.Fields.publicationDate).lt(LocalDate.of(2000, 1, 1));
+        assertThat(executor.findAll(before)).hasSize(1);
+        assertThat(executor.findAll(after)).hasSize(2);
+    }
+
+    @Test
+    void givenSameShape_whenSearchWithManyDifferentValues_thenQueryPlanCacheIsHit() {
+        final var statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        final var executions = 10_000;
+        for (var i = 0; i < executions; ++i) {
+            final var spec = new SearchSpecification<Book>()
+                    .add(Book.Fields.title).like("title " + i)
+                    .add(Book.Fields.publicationDate).gte(LocalDate.of(1900, 1, 1).plusDays(i));
+            executor.findAll(spec);
+        }
+        final var hits = statistics.getQueryPlanCacheHitCount();
+        final var misses = statistics.getQueryPlanCacheMissCount();
+        final var hitRatio = (double) hits / (hits + misses);
+        assertThat(hits + misses).isGreaterThanOrEqualTo(executions);
+        assertThat(hitRatio).isGreaterThan(0.99);
+    }
+}
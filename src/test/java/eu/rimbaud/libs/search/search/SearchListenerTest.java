@@ -0,0 +1,169 @@
+package eu.rimbaud.libs.search.search;
+
+import eu.rimbaud.libs.search.MicrometerSearchListener;
+import eu.rimbaud.libs.search.SearchEvent;
+import eu.rimbaud.libs.search.SearchExecutor;
+import eu.rimbaud.libs.search.SearchSpecification;
+import eu.rimbaud.libs.search.SlowQueryLogger;
+import eu.rimbaud.libs.search.entity.Author;
+import eu.rimbaud.libs.search.entity.Book;
+import eu.rimbaud.libs.search.repository.AuthorRepository;
+import eu.rimbaud.libs.search.repository.BookRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.system.CapturedOutput;
+import org.springframework.boot.test.system.OutputCaptureExtension;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@ExtendWith(OutputCaptureExtension.class)
+class SearchListenerTest {
+
+    @Autowired
+    BookRepository bookRepository;
+
+    @Autowired
+    AuthorRepository authorRepository;
+
+    @Autowired
+    EntityManager entityManager;
+
+    @BeforeEach
+    void beforeEach() {
+        final var doyle = Author.builder().name("Conan Doyle").country("UK").build();
+        authorRepository.saveAllAndFlush(List.of(doyle));
+        bookRepository.saveAllAndFlush(List.of(
+                Book.builder()
+                        .title("Le Petit Prince")
+                        .publicationDate(LocalDate.of(1943, 4, 6))
+                        .build(),
+                Book.builder()
+                        .title("Sherlock Holmes")
+                        .publicationDate(LocalDate.of(1887, 1, 1))
+                        .authors(List.of(doyle))
+                        .build()
+        ));
+    }
+
+    @Test
+    void givenSameCriteriaWithOtherValues_whenFingerprint_thenIsSame() {
+        final var first = new SearchSpecification<Book>()
+                .add(Book.Fields.title).like("petit")
+                .add(Book.Fields.publicationDate).gt(LocalDate.of(1900, 1, 1));
+        final var second = new SearchSpecification<Book>()
+                .add(Book.Fields.title).like("prince")
+                .add(Book.Fields.publicationDate).gt(LocalDate.of(2000, 1, 1));
+        assertThat(first.fingerprint()).hasSize(16).isEqualTo(second.fingerprint());
+    }
+
+    @Test
+    void givenOtherOperator_whenFingerprint_thenIsDifferent() {
+        final var first = new SearchSpecification<Book>().add(Book.Fields.title).like("petit");
+        final var second = new SearchSpecification<Book>().add(Book.Fields.title).eq("petit");
+        assertThat(first.fingerprint()).isNotEqualTo(second.fingerprint());
+    }
+
+    @Test
+    void givenCollectionsOfSameMagnitude_whenFingerprint_thenIsSame() {
+        final var three = new SearchSpecification<Book>().add(Book.Fields.title).in(List.of("a", "b", "c"));
+        final var four = new SearchSpecification<Book>().add(Book.Fields.title).in(List.of("a", "b", "c", "d"));
+        final var five = new SearchSpecification<Book>().add(Book.Fields.title).in(List.of("a", "b", "c", "d", "e"));
+        assertThat(three.fingerprint()).isEqualTo(four.fingerprint()).isNotEqualTo(five.fingerprint());
+    }
+
+    @Test
+    void givenListener_whenSearchWithRepository_thenPredicateIsNotified() {
+        final var events = new ArrayList<SearchEvent>();
+        final var spec = new SearchSpecification<Book>()
+                .listener(events::add)
+                .add(Book.Fields.authors, Author.Fields.name).like("doyle");
+        bookRepository.findAll(spec);
+        assertThat(events).singleElement().satisfies(e -> {
+            assertThat(e.operation()).isEqualTo(SearchEvent.PREDICATE);
+            assertThat(e.fingerprint()).isEqualTo(spec.fingerprint());
+            assertThat(e.criteria()).contains("doyle");
+            assertThat(e.joins()).isEqualTo(1);
+            assertThat(e.isExecuted()).isFalse();
+        });
+    }
+
+    @Test
+    void givenListener_whenExecute_thenExecutionIsNotified() {
+        final var events = new ArrayList<SearchEvent>();
+        final var executor = new SearchExecutor<>(entityManager, Book.class);
+        final var spec = new SearchSpecification<Book>()
+                .listener(events::add)
+                .add(Book.Fields.publicationDate).lt(LocalDate.of(2000, 1, 1));
+        executor.findAll(spec);
+        executor.count(spec);
+        assertThat(events).extracting(SearchEvent::operation).containsExactly("findAll", "count");
+        assertThat(events.get(0)).satisfies(e -> {
+            assertThat(e.isExecuted()).isTrue();
+            assertThat(e.rows()).isEqualTo(2);
+            assertThat(e.joins()).isZero();
+        });
+    }
+
+    @Test
+    void givenEvent_whenCriteria_thenDescribedOnceAndCompared() {
+        final var calls = new int[1];
+        final var event = new SearchEvent("count", "0", () -> {
+            ++calls[0];
+            return "title EQUALS Sherlock Holmes";
+        }, 1, 2, 3, 0);
+        assertThat(calls[0]).isZero();
+        assertThat(event.criteria()).isEqualTo(event.criteria()).isEqualTo("title EQUALS Sherlock Holmes");
+        assertThat(calls[0]).isEqualTo(1);
+        assertThat(event).isEqualTo(new SearchEvent("count", "0", () -> "title EQUALS Sherlock Holmes", 1, 2, 3, 0))
+                .hasSameHashCodeAs(new SearchEvent("count", "0", () -> "other", 1, 2, 3, 0))
+                .isNotEqualTo(new SearchEvent("count", "0", () -> "other", 1, 2, 3, 0));
+        assertThat(event.toString()).contains("title EQUALS Sherlock Holmes");
+    }
+
+    @Test
+    void givenMicrometerListener_whenExecute_thenMetersAreRecorded() {
+        final var registry = new SimpleMeterRegistry();
+        final var executor = new SearchExecutor<>(entityManager, Book.class);
+        final var spec = new SearchSpecification<Book>()
+                .listener(new MicrometerSearchListener(registry))
+                .add(Book.Fields.title).like("e");
+        executor.findAll(spec);
+        executor.findAll(spec);
+        assertThat(registry.get("search.execution").tag("fingerprint", spec.fingerprint()).tag("operation", "findAll").timer().count())
+                .isEqualTo(2);
+        assertThat(registry.get("search.rows").summary().totalAmount()).isEqualTo(4);
+        assertThat(registry.get("search.build").timer().count()).isEqualTo(2);
+    }
+
+    @Test
+    void givenSlowQueryLogger_whenExecutionExceedsThreshold_thenLogsCriteria(CapturedOutput output) {
+        final var executor = new SearchExecutor<>(entityManager, Book.class);
+        final var spec = new SearchSpecification<Book>()
+                .listener(new SlowQueryLogger(Duration.ZERO))
+                .add(Book.Fields.title).eq("Sherlock Holmes");
+        executor.findAll(spec);
+        assertThat(output).contains("Slow search " + spec.fingerprint()).contains("Sherlock Holmes");
+    }
+
+    @Test
+    void givenSlowQueryLogger_whenExecutionIsFast_thenDoesNotLog(CapturedOutput output) {
+        final var executor = new SearchExecutor<>(entityManager, Book.class);
+        final var spec = new SearchSpecification<Book>()
+                .listener(new SlowQueryLogger(Duration.ofMinutes(1)).andThen(e -> {
+                }))
+                .add(Book.Fields.title).eq("Sherlock Holmes");
+        executor.findAll(spec);
+        assertThat(output).doesNotContain("Slow search");
+    }
+}
@@ -0,0 +1,144 @@
+package eu.rimbaud.libs.search.search;
+
+import eu.rimbaud.libs.search.SearchEvent;
+import eu.rimbaud.libs.search.SearchExecutor;
+import eu.rimbaud.libs.search.SearchOperationEnum;
+import eu.rimbaud.libs.search.SearchSpecification;
+import eu.rimbaud.libs.search.SelectivityStatistics;
+import eu.rimbaud.libs.search.entity.Book;
+import eu.rimbaud.libs.search.repository.BookRepository;
+import jakarta.persistence.EntityManager;
+import org.hibernate.Session;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Sort;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+class SelectivityStatisticsTest {
+
+    @Autowired
+    BookRepository bookRepository;
+
+    @Autowired
+    EntityManager entityManager;
+
+    SearchExecutor<Book> executor;
+
+    SelectivityStatistics<Book> statistics;
+
+    @BeforeEach
+    void beforeEach() {
+        bookRepository.saveAllAndFlush(List.of(
+                Book.builder()
+                        .title("Le Petit Prince")
+                        .author("Saint-Exupéry")
+                        .publicationDate(LocalDate.of(1943, 4, 6))
+                        .build(),
+                Book.builder()
+                        .title("Charlie et la Chocolaterie")
+                        .author("Roald Dahl")
+                        .publicationDate(LocalDate.of(1964, 1, 1))
+                        .build(),
+                Book.builder()
+                        .title("Arsène Lupin contre Herlock Sholmès")
+                        .author("Maurice Leblanc")
+                        .publicationDate(LocalDate.of(1908, 1, 1))
+                        .build(),
+                Book.builder()
+                        .title("813")
+                        .author("Maurice Leblanc")
+                        .build(),
+                Book.builder()
+                        .title("Tintin au Tibet")
+                        .publicationDate(LocalDate.of(1960, 1, 1))
+                        .build()
+        ));
+        entityManager.clear();
+        executor = new SearchExecutor<>(entityManager, Book.class);
+        statistics = new SelectivityStatistics<>(entityManager.getEntityManagerFactory(), Book.class, 100, Long.MAX_VALUE);
+    }
+
+    @Test
+    void givenNoObservation_whenFindAll_thenCheapCriterionFirst() {
+        final var events = new ArrayList<SearchEvent>();
+        final var spec = new SearchSpecification<Book>()
+                .statistics(statistics)
+                .listener(events::add)
+                .add(Book.Fields.title).like("petit")
+                .add(Book.Fields.author).eq("Saint-Exupéry");
+        assertThat(executor.findAll(spec, Sort.unsorted())).hasSize(1);
+        assertThat(events).singleElement().satisfies(e -> assertThat(e.criteria().indexOf("operator=EQUALS"))
+                .isLessThan(e.criteria().indexOf("operator=LIKE")));
+    }
+
+    @Test
+    void givenProbedSpecification_whenFindAll_thenMostSelectiveCriterionFirst() {
+        final var events = new ArrayList<SearchEvent>();
+        final var spec = new SearchSpecification<Book>()
+                .statistics(statistics)
+                .listener(events::add)
+                .add(Book.Fields.title).like("petit")
+                .add(Book.Fields.author).ne("Maurice Leblanc");
+        final var fingerprint = spec.fingerprint();
+        assertThat(executor.findAll(spec, Sort.unsorted())).hasSize(1);
+        assertThat(events.get(0).criteria().indexOf("operator=LIKE"))
+                .isLessThan(events.get(0).criteria().indexOf("operator=NOT_EQUAL"));
+
+        statistics.probe(executor, spec);
+        assertThat(statistics.total()).isEqualTo(5);
+        assertThat(statistics.selectivity(Book.Fields.author, SearchOperationEnum.NOT_EQUAL)).hasValue(0.4);
+        assertThat(statistics.selectivity(Book.Fields.title, SearchOperationEnum.LIKE)).hasValue(0.2);
+
+        events.clear();
+        assertThat(executor.findAll(spec, Sort.unsorted())).hasSize(1);
+        assertThat(events).singleElement().satisfies(e -> assertThat(e.criteria().indexOf("operator=NOT_EQUAL"))
+                .isLessThan(e.criteria().indexOf("operator=LIKE")));
+        assertThat(spec.fingerprint()).isEqualTo(fingerprint);
+    }
+
+    @Test
+    void givenSingleCriterionSearches_whenExecuted_thenSelectivityIsAveraged() {
+        executor.count(new SearchSpecification<Book>().statistics(statistics));
+        executor.findIds(new SearchSpecification<Book>().statistics(statistics)
+                .add(Book.Fields.author).eq("Maurice Leblanc"), Sort.unsorted());
+        assertThat(statistics.selectivity(Book.Fields.author, SearchOperationEnum.EQUALS)).hasValue(0.4);
+        executor.findIds(new SearchSpecification<Book>().statistics(statistics)
+                .add(Book.Fields.author).eq("Roald Dahl"), Sort.unsorted());
+        assertThat(statistics.selectivity(Book.Fields.author, SearchOperationEnum.EQUALS).getAsDouble())
+                .isStrictlyBetween(0.2, 0.4);
+        assertThat(statistics.selectivity(Book.Fields.title, SearchOperationEnum.EQUALS)).isEmpty();
+    }
+
+    @Test
+    void givenExpectedRowsAboveThreshold_whenFindAll_thenEntitiesAreReadOnly() {
+        final var readOnly = new SelectivityStatistics<>(entityManager.getEntityManagerFactory(), Book.class, 100, 0);
+        final var spec = new SearchSpecification<Book>().statistics(readOnly)
+                .add(Book.Fields.author).eq("Maurice Leblanc");
+        assertThat(executor.findAll(spec, Sort.unsorted())).allSatisfy(b ->
+                assertThat(entityManager.unwrap(Session.class).isReadOnly(b)).isFalse());
+        entityManager.clear();
+
+        executor.count(new SearchSpecification<Book>().statistics(readOnly));
+        assertThat(executor.findAll(spec, Sort.unsorted())).hasSize(2).allSatisfy(b ->
+                assertThat(entityManager.unwrap(Session.class).isReadOnly(b)).isTrue());
+    }
+
+    @Test
+    void givenMoreObservationsThanMaxEntries_whenSelectivity_thenLeastRecentlyUsedEvicted() {
+        final var small = new SelectivityStatistics<>(entityManager.getEntityManagerFactory(), Book.class, 1, Long.MAX_VALUE);
+        final var spec = new SearchSpecification<Book>()
+                .add(Book.Fields.author).eq("Roald Dahl")
+                .add(Book.Fields.title).ne("813");
+        small.probe(executor, spec);
+        assertThat(small.selectivity(Book.Fields.author, SearchOperationEnum.EQUALS)).isEmpty();
+        assertThat(small.selectivity(Book.Fields.title, SearchOperationEnum.NOT_EQUAL)).hasValue(0.8);
+    }
+}
@@ -0,0 +1,150 @@
+package eu.rimbaud.libs.search.search;
+
+import eu.rimbaud.libs.search.CollectionModeEnum;
+import eu.rimbaud.libs.search.InStrategyEnum;
+import eu.rimbaud.libs.search.SearchSpecification;
+import eu.rimbaud.libs.search.SpecificationSnapshot;
+import eu.rimbaud.libs.search.entity.Author;
+import eu.rimbaud.libs.search.entity.Book;
+import eu.rimbaud.libs.search.repository.AuthorRepository;
+import eu.rimbaud.libs.search.repository.BookRepository;
+import jakarta.persistence.criteria.JoinType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+@DataJpaTest
+class SpecificationSnapshotTest {
+
+    @Autowired
+    BookRepository bookRepository;
+
+    @Autowired
+    AuthorRepository authorRepository;
+
+    @BeforeEach
+    void beforeEach() {
+        final var doyle = Author.builder().name("Conan Doyle").country("UK").build();
+        final var leblanc = Author.builder().name("Maurice Leblanc").country("FR").build();
+        authorRepository.saveAllAndFlush(List.of(doyle, leblanc));
+        bookRepository.saveAllAndFlush(List.of(
+                Book.builder()
+                        .title("Arsène Lupin contre Herlock Sholmès")
+                        .publicationDate(LocalDate.of(1908, 1, 1))
+                        .authors(List.of(doyle, leblanc))
+                        .build(),
+                Book.builder()
+                        .title("Le Petit Prince")
+                        .author("Saint-Exupéry")
+                        .publicationDate(LocalDate.of(1943, 4, 6))
+                        .build(),
+                Book.builder()
+                        .title("Charlie et la Chocolaterie")
+                        .author("Roald Dahl")
+                        .publicationDate(LocalDate.of(1964, 1, 1))
+                        .build()
+        ));
+    }
+
+    static SearchSpecification<Book> spec() {
+        return new SearchSpecification<Book>()
+                .joinType(JoinType.LEFT)
+                .inStrategy(InStrategyEnum.PADDING)
+                .add(Book.Fields.publicationDate).between(LocalDate.of(1900, 1, 1), LocalDate.of(1950, 1, 1))
+                .add(Book.Fields.title).onlyIf(false).eq("ignored")
+                .add(Book.Fields.id).notIn(Set.of(-1L, -2L))
+                .or(g -> g
+                        .add(Book.Fields.author).eq("Saint-Exupéry \"quoted\"\n")
+                        .add(Book.Fields.authors, Author.Fields.country).collectionMode(CollectionModeEnum.EXISTS).eq("FR")
+                        .not(n -> n.add(Book.Fields.title).containsIgnoreCase("prince")));
+    }
+
+    @Test
+    void givenSpecification_whenBinaryRoundTrip_thenSnapshotIsEqual() {
+        final var snapshot = spec().snapshot();
+        final var decoded = SpecificationSnapshot.fromBytes(snapshot.toBytes());
+        assertThat(decoded).isEqualTo(snapshot).hasSameHashCodeAs(snapshot);
+        assertThat(decoded.toJson()).isEqualTo(snapshot.toJson());
+    }
+
+    @Test
+    void givenSpecification_whenJsonRoundTrip_thenSnapshotIsEqual() {
+        final var snapshot = spec().snapshot();
+        final var decoded = SpecificationSnapshot.fromJson(snapshot.toJson());
+        assertThat(decoded).isEqualTo(snapshot).hasSameHashCodeAs(snapshot);
+        assertThat(decoded.toBytes()).isEqualTo(snapshot.toBytes());
+    }
+
+    @Test
+    void givenRestoredSpecification_whenSearch_thenSameResult() {
+        final var spec = spec();
+        final SearchSpecification<Book> restored = SpecificationSnapshot.fromBytes(spec.snapshot().toBytes()).toSpecification();
+        assertThat(bookRepository.findAll(restored)).extracting(Book::getTitle)
+                .containsExactlyInAnyOrderElementsOf(bookRepository.findAll(spec).stream().map(Book::getTitle).toList())
+                .containsExactlyInAnyOrder("Arsène Lupin contre Herlock Sholmès");
+        assertThat(restored.fingerprint()).isEqualTo(spec.fingerprint());
+        assertThat(restored.snapshot()).isEqualTo(spec.snapshot());
+    }
+
+    @Test
+    void givenTypedValues_whenRoundTrip_thenTypesAreKept() {
+        final var values = List.of("a", true, (byte) 1, (short) -2, 3, -4L, 5.5f, -6.25, new BigDecimal("7.50"),
+                'x', LocalDate.of(2024, 2, 29), Instant.parse("2024-01-01T10:00:00.123Z"),
+                UUID.fromString("123e4567-e89b-12d3-a456-426614174000"), JoinType.RIGHT);
+        final var snapshot = new SearchSpecification<Book>().add(Book.Fields.title).in(values).snapshot();
+        // the encodings hold the type of each value, so that equal snapshots have values of the same types
+        assertThat(SpecificationSnapshot.fromBytes(snapshot.toBytes())).isEqualTo(snapshot);
+        assertThat(SpecificationSnapshot.fromJson(snapshot.toJson())).isEqualTo(snapshot);
+        assertThat(snapshot.toJson()).contains("{\"Short\":\"-2\"}", "{\"BigDecimal\":\"7.50\"}",
+                "{\"Enum\":\"jakarta.persistence.criteria.JoinType#RIGHT\"}");
+    }
+
+    @Test
+    void givenDifferentValues_whenSnapshot_thenNotEqual() {
+        final var a = new SearchSpecification<Book>().add(Book.Fields.title).eq("a").snapshot();
+        final var b = new SearchSpecification<Book>().add(Book.Fields.title).eq("b").snapshot();
+        final var a2 = new SearchSpecification<Book>().add(Book.Fields.title).eq("a").snapshot();
+        assertThat(a).isNotEqualTo(b).isEqualTo(a2).hasSameHashCodeAs(a2);
+        assertThat(a.toBytes().length).isLessThan(64);
+    }
+
+    @Test
+    void givenUnknownVersion_whenDecode_thenFails() {
+        final var bytes = spec().snapshot().toBytes();
+        bytes[0] = 99;
+        assertThatIllegalArgumentException()
+                .isThrownBy(() -> SpecificationSnapshot.fromBytes(bytes))
+                .withMessageContaining("version");
+        final var json = spec().snapshot().toJson().replace("\"version\":1", "\"version\":99");
+        assertThatIllegalArgumentException()
+                .isThrownBy(() -> SpecificationSnapshot.fromJson(json))
+                .withMessageContaining("version");
+    }
+
+    @Test
+    void givenMalformedInput_whenDecode_thenFails() {
+        final var bytes = spec().snapshot().toBytes();
+        assertThatIllegalArgumentException()
+                .isThrownBy(() -> SpecificationSnapshot.fromBytes(Arrays.copyOf(bytes, bytes.length - 3)));
+        assertThatIllegalArgumentException()
+                .isThrownBy(() -> SpecificationSnapshot.fromJson("{\"version\":1,\"joinType\":"));
+    }
+
+    @Test
+    void givenUnsupportedValue_whenSnapshot_thenFails() {
+        final var spec = new SearchSpecification<Book>().add(Book.Fields.title).eq(new Object());
+        assertThatIllegalArgumentException().isThrownBy(spec::snapshot);
+    }
+}
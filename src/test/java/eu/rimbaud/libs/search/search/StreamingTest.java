@@ -0,0 +1,114 @@
+package eu.rimbaud.libs.search.search;
+
+import eu.rimbaud.libs.search.SearchEvent;
+import eu.rimbaud.libs.search.SearchExecutor;
+import eu.rimbaud.libs.search.SearchSpecification;
+import eu.rimbaud.libs.search.entity.Book;
+import eu.rimbaud.libs.search.repository.BookRepository;
+import jakarta.persistence.EntityManager;
+import org.hibernate.Session;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Sort;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DataJpaTest
+class StreamingTest {
+
+    @Autowired
+    BookRepository bookRepository;
+
+    @Autowired
+    EntityManager entityManager;
+
+    SearchExecutor<Book> executor;
+
+    record BookRow(String title) {
+    }
+
+    @BeforeEach
+    void beforeEach() {
+        executor = new SearchExecutor<>(entityManager, Book.class);
+        bookRepository.saveAllAndFlush(IntStream.range(0, 50)
+                .mapToObj(i -> Book.builder()
+                        .title("Volume " + i)
+                        .publicationDate(LocalDate.of(1950 + i, 1, 1))
+                        .build())
+                .toList());
+        entityManager.clear();
+    }
+
+    @Test
+    void givenSpec_whenStream_thenAllEntitiesAreStreamedInOrder() {
+        final var spec = new SearchSpecification<Book>().add(Book.Fields.title).like("volume");
+        try (var books = executor.stream(spec, Sort.by(Sort.Direction.DESC, Book.Fields.publicationDate), 10)) {
+            assertThat(books.map(Book::getTitle).toList())
+                    .hasSize(50)
+                    .startsWith("Volume 49", "Volume 48");
+        }
+    }
+
+    @Test
+    void givenStream_whenConsumed_thenPersistenceContextDoesNotGrow() {
+        final var spec = new SearchSpecification<Book>().add(Book.Fields.title).like("volume");
+        final var session = entityManager.unwrap(Session.class);
+        final var managed = new ArrayList<Integer>();
+        try (var books = executor.stream(spec, Sort.unsorted(), 10)) {
+            books.forEach(b -> managed.add(session.getStatistics().getEntityCount()));
+        }
+        assertThat(managed).hasSize(50).allMatch(count -> count == 1);
+        assertThat(session.getStatistics().getEntityCount()).isZero();
+    }
+
+    @Test
+    void givenStreamedEntity_whenRead_thenEntityIsReadOnly() {
+        final var spec = new SearchSpecification<Book>().add(Book.Fields.title).eq("Volume 1");
+        final var session = entityManager.unwrap(Session.class);
+        try (var books = executor.stream(spec, Sort.unsorted(), 10)) {
+            assertThat(books.map(session::isReadOnly).toList()).containsExactly(true);
+        }
+    }
+
+    @Test
+    void givenProjection_whenStream_thenNoEntityIsLoaded() {
+        final var spec = new SearchSpecification<Book>().add(Book.Fields.title).like("volume");
+        try (var rows = executor.stream(spec, BookRow.class, Sort.by(Book.Fields.publicationDate), 10)) {
+            assertThat(rows.limit(2).toList()).containsExactly(new BookRow("Volume 0"), new BookRow("Volume 1"));
+        }
+        assertThat(entityManager.unwrap(Session.class).getStatistics().getEntityCount()).isZero();
+    }
+
+    @Test
+    void givenListener_whenStreamClosed_thenStreamedRowsAreNotified() {
+        final var events = new ArrayList<SearchEvent>();
+        final var spec = new SearchSpecification<Book>()
+                .listener(e -> {
+                    if (!SearchEvent.PREDICATE.equals(e.operation())) {
+                        events.add(e);
+                    }
+                })
+                .add(Book.Fields.title).like("volume");
+        try (var books = executor.stream(spec, Sort.unsorted(), 10)) {
+            books.limit(5).forEach(b -> assertThat(events).isEmpty());
+        }
+        assertThat(events).singleElement().satisfies(e -> {
+            assertThat(e.operation()).isEqualTo("stream");
+            assertThat(e.rows()).isEqualTo(5);
+        });
+    }
+
+    @Test
+    void givenNonPositiveFetchSize_whenStream_thenThrows() {
+        final var spec = new SearchSpecification<Book>();
+        assertThatThrownBy(() -> executor.stream(spec, Sort.unsorted(), 0))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
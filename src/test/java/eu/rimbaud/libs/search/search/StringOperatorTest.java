@@ -0,0 +1,106 @@
+package eu.rimbaud.libs.search.search;
+
+import eu.rimbaud.libs.search.SearchExecutor;
+import eu.rimbaud.libs.search.SearchSpecification;
+import eu.rimbaud.libs.search.entity.Book;
+import eu.rimbaud.libs.search.repository.BookRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+class StringOperatorTest {
+
+    @Autowired
+    BookRepository bookRepository;
+
+    @Autowired
+    EntityManager entityManager;
+
+    @BeforeEach
+    void beforeEach() {
+        bookRepository.saveAllAndFlush(List.of(
+                Book.builder()
+                        .title("Le Petit Prince")
+                        .publicationDate(LocalDate.of(1943, 4, 6))
+                        .build(),
+                Book.builder()
+                        .title("100% Tintin")
+                        .publicationDate(LocalDate.of(1990, 1, 1))
+                        .build(),
+                Book.builder()
+                        .title("100 Tintin_Milou")
+                        .publicationDate(LocalDate.of(1991, 1, 1))
+                        .build(),
+                Book.builder()
+                        .title("C:\\Windows")
+                        .publicationDate(LocalDate.of(1995, 8, 24))
+                        .build()
+        ));
+    }
+
+    @Test
+    void givenPrefix_whenSearchWithStartsWith_thenIsCaseSensitive() {
+        assertThat(titles(new SearchSpecification<Book>().add(Book.Fields.title).startsWith("Le ")))
+                .containsExactly("Le Petit Prince");
+        assertThat(titles(new SearchSpecification<Book>().add(Book.Fields.title).startsWith("le ")))
+                .isEmpty();
+    }
+
+    @Test
+    void givenPrefix_whenSearchWithStartsWithIgnoreCase_thenReturnsBook() {
+        assertThat(titles(new SearchSpecification<Book>().add(Book.Fields.title).startsWithIgnoreCase("le pE")))
+                .containsExactly("Le Petit Prince");
+    }
+
+    @Test
+    void givenWildcardInPrefix_whenSearchWithStartsWith_thenWildcardIsMatchedLiterally() {
+        assertThat(titles(new SearchSpecification<Book>().add(Book.Fields.title).startsWith("100%")))
+                .containsExactly("100% Tintin");
+    }
+
+    @Test
+    void givenSuffix_whenSearchWithEndsWith_thenReturnsBook() {
+        assertThat(titles(new SearchSpecification<Book>().add(Book.Fields.title).endsWith("Prince")))
+                .containsExactly("Le Petit Prince");
+    }
+
+    @Test
+    void givenUnderscore_whenSearchWithContainsIgnoreCase_thenUnderscoreIsMatchedLiterally() {
+        assertThat(titles(new SearchSpecification<Book>().add(Book.Fields.title).containsIgnoreCase("TINTIN_")))
+                .containsExactly("100 Tintin_Milou");
+        assertThat(titles(new SearchSpecification<Book>().add(Book.Fields.title).like("tintin_")))
+                .containsExactly("100 Tintin_Milou");
+    }
+
+    @Test
+    void givenBackslash_whenSearchWithContainsIgnoreCase_thenBackslashIsMatchedLiterally() {
+        assertThat(titles(new SearchSpecification<Book>().add(Book.Fields.title).containsIgnoreCase(":\\win")))
+                .containsExactly("C:\\Windows");
+    }
+
+    @Test
+    void givenValue_whenSearchWithEqIgnoreCase_thenReturnsBook() {
+        assertThat(titles(new SearchSpecification<Book>().add(Book.Fields.title).eqIgnoreCase("LE PETIT PRINCE")))
+                .containsExactly("Le Petit Prince");
+    }
+
+    @Test
+    void givenWildcard_whenSearchWithParameterizedStartsWith_thenWildcardIsMatchedLiterally() {
+        final var executor = new SearchExecutor<>(entityManager, Book.class);
+        assertThat(executor.findAll(new SearchSpecification<Book>().add(Book.Fields.title).startsWithIgnoreCase("100%")))
+                .extracting(Book::getTitle)
+                .containsExactly("100% Tintin");
+    }
+
+    private List<String> titles(SearchSpecification<Book> spec) {
+        return bookRepository.findAll(spec).stream().map(Book::getTitle).toList();
+    }
+}
@@ -0,0 +1,163 @@
+package eu.rimbaud.libs.search.search;
+
+import eu.rimbaud.libs.search.SearchExecutor;
+import eu.rimbaud.libs.search.SearchSpecification;
+import eu.rimbaud.libs.search.TrigramIndex;
+import eu.rimbaud.libs.search.entity.Book;
+import eu.rimbaud.libs.search.repository.BookRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class TrigramIndexTest {
+
+    @Autowired
+    BookRepository bookRepository;
+
+    @Autowired
+    EntityManager entityManager;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    TrigramIndex<Book> index;
+
+    @BeforeEach
+    void beforeEach() {
+        bookRepository.saveAllAndFlush(List.of(
+                Book.builder()
+                        .title("Le Petit Prince")
+                        .publicationDate(LocalDate.of(1943, 4, 6))
+                        .build(),
+                Book.builder()
+                        .title("Charlie et la Chocolaterie ")
+                        .publicationDate(LocalDate.of(1964, 1, 1))
+                        .build(),
+                Book.builder()
+                        .title("Arsène Lupin contre Herlock Sholmès")
+                        .publicationDate(LocalDate.of(1908, 1, 1))
+                        .build(),
+                Book.builder()
+                        .publicationDate(LocalDate.of(2000, 1, 1))
+                        .build()
+        ));
+        index = new TrigramIndex<>(entityManager.getEntityManagerFactory(), Book.class, Book.Fields.title, 1000);
+        load(index);
+    }
+
+    @AfterEach
+    void afterEach() {
+        index.close();
+        bookRepository.deleteAll();
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"petit", "PRINCE", "et ", "lupin contre", "ocol", "tintin", "le", "e"})
+    void givenIndex_whenSearchWithLike_thenReturnsSameBooksAsWithout(String value) {
+        final var expected = bookRepository.findAll(new SearchSpecification<Book>()
+                .add(Book.Fields.title).like(value));
+        final var actual = bookRepository.findAll(new SearchSpecification<Book>()
+                .trigramIndex(index)
+                .add(Book.Fields.title).like(value));
+        assertThat(actual).extracting(Book::getId)
+                .containsExactlyInAnyOrderElementsOf(expected.stream().map(Book::getId).toList());
+    }
+
+    @Test
+    void givenIndex_whenSearchWithContainsIgnoreCase_thenReturnsBook() {
+        final var books = bookRepository.findAll(new SearchSpecification<Book>()
+                .trigramIndex(index)
+                .add(Book.Fields.title).containsIgnoreCase("LUPIN"));
+        assertThat(books).extracting(Book::getTitle).containsExactly("Arsène Lupin contre Herlock Sholmès");
+    }
+
+    @Test
+    void givenEntityRemovedFromIndex_whenSearch_thenIndexIsUsed() {
+        final var book = bookRepository.findAll(new SearchSpecification<Book>()
+                .add(Book.Fields.title).eq("Le Petit Prince")).get(0);
+        index.remove(book);
+        final var spec = new SearchSpecification<Book>()
+                .trigramIndex(index)
+                .add(Book.Fields.title).like("petit");
+        assertThat(bookRepository.findAll(spec)).isEmpty();
+    }
+
+    @Test
+    void givenSavedEntity_whenSearch_thenIndexIsUpToDate() {
+        bookRepository.saveAndFlush(Book.builder().title("Le Petit Nicolas").build());
+        final var spec = new SearchSpecification<Book>()
+                .trigramIndex(index)
+                .add(Book.Fields.title).like("petit");
+        assertThat(bookRepository.findAll(spec)).extracting(Book::getTitle)
+                .containsExactlyInAnyOrder("Le Petit Prince", "Le Petit Nicolas");
+        assertThat(index.size()).isEqualTo(4);
+    }
+
+    @Test
+    void givenDeletedEntity_whenSearch_thenIndexIsUpToDate() {
+        final var book = bookRepository.findAll(new SearchSpecification<Book>()
+                .add(Book.Fields.title).eq("Le Petit Prince")).get(0);
+        bookRepository.delete(book);
+        assertThat(index.size()).isEqualTo(2);
+    }
+
+    @Test
+    void givenRolledBackWrites_whenSearch_thenIndexIsUnchanged() {
+        final var spec = new SearchSpecification<Book>()
+                .trigramIndex(index)
+                .add(Book.Fields.title).like("petit");
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            bookRepository.saveAndFlush(Book.builder().title("Le Petit Nicolas").build());
+            bookRepository.delete(bookRepository.findAll(new SearchSpecification<Book>()
+                    .add(Book.Fields.title).eq("Le Petit Prince")).get(0));
+            bookRepository.flush();
+            status.setRollbackOnly();
+        });
+        assertThat(index.size()).isEqualTo(3);
+        assertThat(bookRepository.findAll(spec)).extracting(Book::getTitle).containsExactly("Le Petit Prince");
+    }
+
+    @Test
+    void givenTooManyEntries_whenLoad_thenIndexIsDisabledAndLikeIsUsed() {
+        try (var small = new TrigramIndex<>(entityManager.getEntityManagerFactory(), Book.class, Book.Fields.title, 2)) {
+            load(small);
+            assertThat(small.isEnabled()).isFalse();
+            final var spec = new SearchSpecification<Book>()
+                    .trigramIndex(small)
+                    .add(Book.Fields.title).like("petit");
+            assertThat(bookRepository.findAll(spec)).hasSize(1);
+        }
+    }
+
+    @Test
+    void givenIndex_whenExecuteParameterized_thenReturnsBooks() {
+        final var executor = new SearchExecutor<>(entityManager, Book.class);
+        final var spec = new SearchSpecification<Book>()
+                .trigramIndex(index)
+                .add(Book.Fields.title).like("et ");
+        assertThat(executor.findAll(spec)).extracting(Book::getTitle)
+                .containsExactlyInAnyOrder("Charlie et la Chocolaterie ");
+        assertThat(executor.count(spec)).isEqualTo(1);
+    }
+
+    private void load(TrigramIndex<Book> index) {
+        // the values are streamed, which needs a transaction
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> index.load(entityManager));
+    }
+}